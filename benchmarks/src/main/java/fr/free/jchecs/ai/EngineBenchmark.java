@@ -0,0 +1,131 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.free.jchecs.core.BenchmarkPosition;
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.FENUtils;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+
+/**
+ * Benchmarks des recherches à profondeur fixe des moteurs d'IA, sur la suite de positions.
+ * <p>
+ * Chaque recherche est menée par un moteur neuf (mono-thread, sans bibliothèque d'ouvertures) : la
+ * table de transposition et les tris contextuels ne profitent donc pas des recherches précédentes.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark
+{
+  /** Position (deux rois seuls) utilisée pour allouer les structures du moteur avant la mesure. */
+  private static final String PRIMING_FEN = "4k3/8/8/8/8/8/8/4K3 w - - 0 30";
+
+  /** Moteur mesuré. */
+  @Param( { "jChecs.AlphaBeta", "jChecs.NegaScout" })
+  public String engine;
+
+  /** Profondeur de recherche. */
+  @Param( { "4" })
+  public int depth;
+
+  /** Position mesurée. */
+  @Param( { "START", "OPENING", "MIDDLEGAME", "ENDGAME", "PROMOTION" })
+  public BenchmarkPosition position;
+
+  /** Etat mesuré. */
+  private MoveGenerator _etat;
+
+  /** Etat utilisé pour allouer les structures du moteur. */
+  private MoveGenerator _amorce;
+
+  /** Moteur neuf, préparé pour la prochaine recherche. */
+  private Engine _moteur;
+
+  /**
+   * Pour que JMH puisse instancier les benchmarks.
+   */
+  public EngineBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Prépare l'état mesuré.
+   * 
+   * @throws FENException En cas d'erreur dans la position d'amorce.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws FENException
+  {
+    _etat = position.toBoard(BoardFactory.Type.FASTEST);
+    _amorce =
+        BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.EMPTY).derive(
+            FENUtils.toBoard(PRIMING_FEN));
+  }
+
+  /**
+   * Prépare un moteur neuf, dont les structures (table de transposition...) sont déjà allouées
+   * pour ne pas être comptées dans la mesure.
+   */
+  @Setup(Level.Invocation)
+  public void setUpEngine()
+  {
+    _moteur = EngineFactory.newInstance(engine);
+    _moteur.setOpeningsEnabled(false);
+    _moteur.setSearchThreads(1);
+    _moteur.setSearchDepthLimit(_moteur.getMinimalSearchDepth());
+    _moteur.getMoveFor(_amorce);
+    _moteur.setSearchDepthLimit(depth);
+  }
+
+  /**
+   * Recherche le meilleur mouvement de la position.
+   * 
+   * @return Mouvement trouvé.
+   */
+  @Benchmark
+  public Move search()
+  {
+    return _moteur.getMoveFor(_etat);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.free.jchecs.core.BenchmarkPosition;
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.MoveGenerator;
+
+/**
+ * Benchmarks des fonctions d'évaluation, pour chaque représentation de l'échiquier.
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HeuristicBenchmark
+{
+  /** Fonction d'évaluation mesurée. */
+  @Param( { "Minimal", "BoardControl", "Mobility" })
+  public String heuristic;
+
+  /** Représentation de l'échiquier mesurée. */
+  @Param( { "ARRAY", "MAILBOX", "X88", "BITBOARD" })
+  public BoardFactory.Type type;
+
+  /** Position mesurée. */
+  @Param( { "START", "MIDDLEGAME", "ENDGAME", "PROMOTION" })
+  public BenchmarkPosition position;
+
+  /** Etat mesuré. */
+  private MoveGenerator _etat;
+
+  /** Fonction d'évaluation mesurée. */
+  private Heuristic _heuristique;
+
+  /**
+   * Pour que JMH puisse instancier les benchmarks.
+   */
+  public HeuristicBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Prépare l'état et la fonction d'évaluation mesurés.
+   */
+  @Setup
+  public void setUp()
+  {
+    _etat = position.toBoard(type);
+    if ("Minimal".equals(heuristic))
+    {
+      _heuristique = new MinimalHeuristic();
+    }
+    else if ("BoardControl".equals(heuristic))
+    {
+      _heuristique = new BoardControlHeuristic();
+    }
+    else if ("Mobility".equals(heuristic))
+    {
+      _heuristique = new MobilityHeuristic();
+    }
+    else
+    {
+      throw new IllegalArgumentException("Unknown heuristic " + heuristic);
+    }
+  }
+
+  /**
+   * Evalue l'état du point de vue du joueur ayant le trait.
+   * 
+   * @return Valeur de l'état.
+   */
+  @Benchmark
+  public int evaluate()
+  {
+    return _heuristique.evaluate(_etat, _etat.isWhiteActive());
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+/**
+ * Suite fixe de positions (FEN) utilisée par les benchmarks.
+ * 
+ * @author David Cotton
+ */
+public enum BenchmarkPosition
+{
+  /** Position de départ. */
+  START(FENUtils.STANDART_STARTING_FEN),
+
+  /** Ouverture : partie espagnole, après 3. Fb5. */
+  OPENING("r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3"),
+
+  /** Milieu de partie chargé, avec roques et prise en passant possibles ("Kiwipete"). */
+  MIDDLEGAME("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 10"),
+
+  /** Finale de tours et pions. */
+  ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 40"),
+
+  /** Promotions multiples, avec et sans prise. */
+  PROMOTION("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 30");
+
+  /** Description FEN de la position. */
+  private final String _fen;
+
+  /**
+   * Instancie une nouvelle position de la suite.
+   * 
+   * @param pFEN Description FEN de la position.
+   */
+  private BenchmarkPosition(final String pFEN)
+  {
+    _fen = pFEN;
+  }
+
+  /**
+   * Renvoi la description FEN de la position.
+   * 
+   * @return Description FEN.
+   */
+  public String getFEN()
+  {
+    return _fen;
+  }
+
+  /**
+   * Renvoi la position, dans une représentation donnée.
+   * 
+   * @param pType Type de représentation souhaitée.
+   * @return Etat correspondant à la position.
+   */
+  public MoveGenerator toBoard(final BoardFactory.Type pType)
+  {
+    assert pType != null;
+
+    try
+    {
+      return BoardFactory.valueOf(pType, BoardFactory.State.EMPTY).derive(FENUtils.toBoard(_fen));
+    }
+    catch (final FENException e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+}
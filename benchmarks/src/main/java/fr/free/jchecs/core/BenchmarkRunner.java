@@ -0,0 +1,94 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Point d'entrée des benchmarks JMH.
+ * <p>
+ * Accepte les options habituelles de JMH, mais produit par défaut les résultats au format JSON
+ * (dans {@value #DEFAULT_RESULT_FILE}) et active le profileur du ramasse-miettes, pour disposer à
+ * la fois des opérations par seconde et des octets alloués par opération.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class BenchmarkRunner
+{
+  /** Fichier de résultats par défaut. */
+  public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  /**
+   * Classe utilitaire : ne pas instancier.
+   */
+  private BenchmarkRunner()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Lance les benchmarks.
+   * 
+   * @param pArgs Arguments de la ligne de commande : options de JMH.
+   * @throws CommandLineOptionException En cas d'erreur dans les arguments.
+   * @throws IOException En cas d'erreur lors de l'affichage de l'aide.
+   * @throws RunnerException En cas d'échec d'un benchmark.
+   */
+  public static void main(final String [] pArgs) throws CommandLineOptionException,
+      IOException, RunnerException
+  {
+    final CommandLineOptions ligne = new CommandLineOptions(pArgs);
+    if (ligne.shouldHelp())
+    {
+      ligne.showHelp();
+      return;
+    }
+    if (ligne.shouldList())
+    {
+      new Runner(ligne).list();
+      return;
+    }
+
+    // Les options de la ligne de commande priment sur celles fixées par défaut...
+    final ChainedOptionsBuilder options = new OptionsBuilder().parent(ligne);
+    if (!ligne.getResultFormat().hasValue())
+    {
+      options.resultFormat(ResultFormatType.JSON);
+    }
+    if (!ligne.getResult().hasValue())
+    {
+      options.result(DEFAULT_RESULT_FILE);
+    }
+    if (ligne.getProfilers().isEmpty())
+    {
+      options.addProfiler(GCProfiler.class);
+    }
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.free.jchecs.ai.Engine;
+import fr.free.jchecs.ai.EngineFactory;
+
+/**
+ * Benchmarks du comportement des générateurs de mouvements lorsque plusieurs moteurs d'IA
+ * recherchent en parallèle.
+ * <p>
+ * Chaque thread dispose de son propre moteur et joue une partie contre lui-même, recommencée
+ * toutes les {@value #HALFMOVES_COUNT} demi-coups. Le débit par thread (recherches et demi-coups
+ * évalués par seconde) de {@link #allThreads} doit rester proche de celui de {@link #oneThread}
+ * tant que le nombre de threads ne dépasse pas le nombre de processeurs disponibles. D'autres
+ * nombres de threads peuvent être mesurés avec l'option "-t" de JMH.
+ * </p>
+ *
+ * @author David Cotton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrencyBenchmark
+{
+  /** Nombre de demi-coups joués avant de recommencer la partie. */
+  private static final int HALFMOVES_COUNT = 12;
+
+  /** Type de représentation de l'état de jeu. */
+  @Param( { "ARRAY", "MAILBOX", "X88", "BITBOARD" })
+  public BoardFactory.Type type;
+
+  /** Moteur mesuré. */
+  @Param( { "jChecs.AlphaBeta" })
+  public String engine;
+
+  /** Profondeur de recherche. */
+  @Param( { "4" })
+  public int depth;
+
+  /** Moteur propre au thread. */
+  private Engine _moteur;
+
+  /** Etat courant de la partie. */
+  private MoveGenerator _etat;
+
+  /** Nombre de demi-coups joués depuis le début de la partie. */
+  private int _demiCoups;
+
+  /**
+   * Pour que JMH puisse instancier les benchmarks.
+   */
+  public ConcurrencyBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Prépare le moteur du thread et une nouvelle partie.
+   */
+  @Setup(Level.Trial)
+  public void setUp()
+  {
+    _moteur = EngineFactory.newInstance(engine);
+    _moteur.setOpeningsEnabled(false);
+    _moteur.setSearchThreads(1);
+    _moteur.setSearchDepthLimit(depth);
+    restart();
+  }
+
+  /**
+   * Recommence la partie depuis la position initiale.
+   */
+  private void restart()
+  {
+    _etat = BoardFactory.valueOf(type, BoardFactory.State.STARTING);
+    _demiCoups = 0;
+  }
+
+  /**
+   * Joue le demi-coup suivant de la partie.
+   *
+   * @param pCompteur Compteur des demi-coups évalués par la recherche.
+   * @return Mouvement joué.
+   */
+  private Move play(final NodeCounter pCompteur)
+  {
+    if ((_demiCoups >= HALFMOVES_COUNT)
+        || (_etat.getValidMoves(_etat.isWhiteActive()).length == 0))
+    {
+      restart();
+    }
+    final int avant = _moteur.getHalfmoveCount();
+    final Move res = _moteur.getMoveFor(_etat);
+    pCompteur.nodes += _moteur.getHalfmoveCount() - avant;
+    _etat = _etat.derive(res, true);
+    _demiCoups++;
+
+    return res;
+  }
+
+  /**
+   * Recherche sur un seul thread : débit de référence.
+   *
+   * @param pCompteur Compteur des demi-coups évalués par la recherche.
+   * @return Mouvement joué.
+   */
+  @Benchmark
+  @Threads(1)
+  public Move oneThread(final NodeCounter pCompteur)
+  {
+    return play(pCompteur);
+  }
+
+  /**
+   * Recherches simultanées, sur autant de threads que de processeurs disponibles.
+   *
+   * @param pCompteur Compteur des demi-coups évalués par la recherche.
+   * @return Mouvement joué.
+   */
+  @Benchmark
+  @Threads(Threads.MAX)
+  public Move allThreads(final NodeCounter pCompteur)
+  {
+    return play(pCompteur);
+  }
+}
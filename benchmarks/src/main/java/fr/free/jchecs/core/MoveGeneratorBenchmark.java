@@ -0,0 +1,127 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks des opérations de base des générateurs de mouvements, pour chaque représentation de
+ * l'échiquier.
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoveGeneratorBenchmark
+{
+  // Les noms des paramètres JMH sont ceux des champs : ils restent sans préfixe pour pouvoir être
+  // utilisés tels quels en ligne de commande (-p type=X88).
+  /** Représentation de l'échiquier mesurée. */
+  @Param( { "ARRAY", "MAILBOX", "X88", "BITBOARD" })
+  public BoardFactory.Type type;
+
+  /** Position mesurée. */
+  @Param( { "START", "MIDDLEGAME", "ENDGAME", "PROMOTION" })
+  public BenchmarkPosition position;
+
+  /** Etat mesuré. */
+  private MoveGenerator _etat;
+
+  /** Mouvements valides de l'état mesuré. */
+  private Move [] _mouvements;
+
+  /** Liste des cases de l'échiquier. */
+  private Square [] _cases;
+
+  /**
+   * Pour que JMH puisse instancier les benchmarks.
+   */
+  public MoveGeneratorBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Prépare l'état mesuré.
+   */
+  @Setup
+  public void setUp()
+  {
+    _etat = position.toBoard(type);
+    _mouvements = _etat.getValidMoves(_etat.isWhiteActive());
+    _cases = Square.values();
+  }
+
+  /**
+   * Dérive l'état par chacun de ses mouvements valides.
+   * 
+   * @param pTrou Destination des états dérivés.
+   */
+  @Benchmark
+  public void derive(final Blackhole pTrou)
+  {
+    for (final Move mvt : _mouvements)
+    {
+      pTrou.consume(_etat.derive(mvt, true));
+    }
+  }
+
+  /**
+   * Recherche les mouvements valides du joueur ayant le trait.
+   * 
+   * @return Mouvements trouvés.
+   */
+  @Benchmark
+  public Move [] getValidMoves()
+  {
+    return _etat.getValidMoves(_etat.isWhiteActive());
+  }
+
+  /**
+   * Teste, pour chaque case et chaque couleur, si la case est attaquée.
+   * 
+   * @param pTrou Destination des résultats.
+   */
+  @Benchmark
+  public void isAttacked(final Blackhole pTrou)
+  {
+    for (final Square s : _cases)
+    {
+      pTrou.consume(_etat.isAttacked(s, true));
+      pTrou.consume(_etat.isAttacked(s, false));
+    }
+  }
+}
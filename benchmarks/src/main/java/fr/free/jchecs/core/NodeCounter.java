@@ -0,0 +1,56 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compteur de noeuds des benchmarks parcourant l'arbre de jeu : JMH le rapporte en noeuds par
+ * unité de temps, à côté du nombre d'opérations.
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class NodeCounter
+{
+  /** Nombre de noeuds parcourus au cours de l'itération. */
+  public long nodes;
+
+  /**
+   * Pour que JMH puisse instancier le compteur.
+   */
+  public NodeCounter()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Remet le compteur à zéro au début de chaque itération.
+   */
+  @Setup(Level.Iteration)
+  public void reset()
+  {
+    nodes = 0;
+  }
+}
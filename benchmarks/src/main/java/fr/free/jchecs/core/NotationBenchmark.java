@@ -0,0 +1,241 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks de la lecture / écriture des notations FEN, SAN et PGN.
+ * <p>
+ * Les mesures FEN et PGN portent sur des chaînes fixes ; les mesures SAN et l'écriture FEN
+ * dépendent de l'état transmis, et sont donc menées pour chaque représentation de l'échiquier.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class NotationBenchmark
+{
+  /** Partie de référence ("partie de l'opéra", Morphy 1858). */
+  private static final String PGN = "[Event \"Paris\"]\n" //
+      + "[Site \"Paris FRA\"]\n" //
+      + "[Date \"1858.??.??\"]\n" //
+      + "[Round \"-\"]\n" //
+      + "[White \"Paul Morphy\"]\n" //
+      + "[Black \"Duke Karl / Count Isouard\"]\n" //
+      + "[Result \"1-0\"]\n" //
+      + "\n" //
+      + "1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7\n" //
+      + "8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7\n" //
+      + "14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0\n";
+
+  /** Descriptions FEN de la suite de positions. */
+  private String [] _fens;
+
+  /** Partie de référence, pour les mesures d'écriture PGN. */
+  private Game _partie;
+
+  /**
+   * Pour que JMH puisse instancier les benchmarks.
+   */
+  public NotationBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Prépare les données de référence.
+   * 
+   * @throws PGNException En cas d'erreur dans la partie de référence.
+   */
+  @Setup
+  public void setUp() throws PGNException
+  {
+    final BenchmarkPosition [] positions = BenchmarkPosition.values();
+    _fens = new String [ positions.length ];
+    for (int i = 0; i < positions.length; i++)
+    {
+      _fens[i] = positions[i].getFEN();
+    }
+    _partie = PGNUtils.toGame(new BufferedReader(new StringReader(PGN)));
+  }
+
+  /**
+   * Libère l'horloge de la partie de référence.
+   */
+  @TearDown
+  public void tearDown()
+  {
+    _partie.dispose();
+  }
+
+  /**
+   * Interprète les descriptions FEN de la suite de positions.
+   * 
+   * @param pTrou Destination des états obtenus.
+   * @throws FENException En cas d'erreur dans une description FEN.
+   */
+  @Benchmark
+  public void fenParse(final Blackhole pTrou) throws FENException
+  {
+    for (final String fen : _fens)
+    {
+      pTrou.consume(FENUtils.toBoard(fen));
+    }
+  }
+
+  /**
+   * Ecrit la description FEN d'un état.
+   * 
+   * @param pEtat Etat mesuré.
+   * @return Description FEN.
+   */
+  @Benchmark
+  public String fenWrite(final Position pEtat)
+  {
+    return FENUtils.toFEN(pEtat._etat);
+  }
+
+  /**
+   * Interprète la partie de référence.
+   * 
+   * @return Partie obtenue.
+   * @throws PGNException En cas d'erreur dans la partie de référence.
+   */
+  @Benchmark
+  public Game pgnParse() throws PGNException
+  {
+    final Game res = PGNUtils.toGame(new BufferedReader(new StringReader(PGN)));
+    res.dispose();
+
+    return res;
+  }
+
+  /**
+   * Ecrit la partie de référence au format PGN.
+   * 
+   * @return Chaîne PGN.
+   */
+  @Benchmark
+  public String pgnWrite()
+  {
+    return PGNUtils.toPGN(_partie);
+  }
+
+  /**
+   * Interprète la notation SAN de chacun des mouvements valides d'un état.
+   * 
+   * @param pEtat Etat mesuré.
+   * @param pTrou Destination des mouvements obtenus.
+   * @throws SANException En cas d'erreur dans une chaîne SAN.
+   */
+  @Benchmark
+  public void sanParse(final Position pEtat, final Blackhole pTrou) throws SANException
+  {
+    final MoveGenerator etat = pEtat._etat;
+    for (final String san : pEtat._sans)
+    {
+      pTrou.consume(SANUtils.toMove(etat, san));
+    }
+  }
+
+  /**
+   * Ecrit la notation SAN de chacun des mouvements valides d'un état.
+   * 
+   * @param pEtat Etat mesuré.
+   * @param pTrou Destination des chaînes obtenues.
+   */
+  @Benchmark
+  public void sanWrite(final Position pEtat, final Blackhole pTrou)
+  {
+    final MoveGenerator etat = pEtat._etat;
+    for (final Move mvt : pEtat._mouvements)
+    {
+      pTrou.consume(SANUtils.toSAN(etat, mvt));
+    }
+  }
+
+  /**
+   * Etat mesuré par les benchmarks dépendant de la représentation de l'échiquier.
+   */
+  @State(Scope.Thread)
+  public static class Position
+  {
+    /** Représentation de l'échiquier mesurée. */
+    @Param( { "ARRAY", "MAILBOX", "X88", "BITBOARD" })
+    public BoardFactory.Type type;
+
+    /** Position mesurée. */
+    @Param( { "START", "MIDDLEGAME", "ENDGAME", "PROMOTION" })
+    public BenchmarkPosition position;
+
+    /** Etat mesuré. */
+    MoveGenerator _etat;
+
+    /** Mouvements valides de l'état. */
+    Move [] _mouvements;
+
+    /** Notations SAN des mouvements valides de l'état. */
+    String [] _sans;
+
+    /**
+     * Pour que JMH puisse instancier l'état.
+     */
+    public Position()
+    {
+      // Rien de spécifique...
+    }
+
+    /**
+     * Prépare l'état mesuré.
+     */
+    @Setup
+    public void setUp()
+    {
+      _etat = position.toBoard(type);
+      _mouvements = _etat.getValidMoves(_etat.isWhiteActive());
+      _sans = new String [ _mouvements.length ];
+      for (int i = 0; i < _mouvements.length; i++)
+      {
+        _sans[i] = SANUtils.toSAN(_etat, _mouvements[i]);
+      }
+    }
+  }
+}
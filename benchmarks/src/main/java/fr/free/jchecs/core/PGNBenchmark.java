@@ -0,0 +1,189 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static fr.free.jchecs.core.BoardFactory.State.STARTING;
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks du débit de lecture / écriture de collections PGN, en parties par seconde : lecture
+ * et écriture "au fil de l'eau" ({@link PGNReader}, {@link PGNWriter}), comparées à la lecture
+ * partie par partie de {@link PGNUtils#toGame(BufferedReader)}.
+ * <p>
+ * La collection mesurée est construite par des parties aléatoires (mais reproductibles) de
+ * {@link #PLIES} demi-coups au plus.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PGNBenchmark
+{
+  /** Nombre de parties de la collection. */
+  private static final int GAMES = 100;
+
+  /** Nombre maximal de demi-coups par partie. */
+  private static final int PLIES = 80;
+
+  /** Mouvements des parties de la collection. */
+  private int [][] _parties;
+
+  /** Collection au format PGN. */
+  private String _pgn;
+
+  /**
+   * Pour que JMH puisse instancier les benchmarks.
+   */
+  public PGNBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Construit la collection de référence.
+   * 
+   * @throws IOException En cas d'erreur d'écriture.
+   */
+  @Setup
+  public void setUp() throws IOException
+  {
+    final Random hasard = new Random(1000);
+    final MoveList coups = new MoveList();
+    _parties = new int [ GAMES ][];
+    for (int p = 0; p < GAMES; p++)
+    {
+      final ReversibleMoveGenerator etat =
+          BoardFactory.newReversible(BoardFactory.valueOf(FASTEST, STARTING));
+      final int [] mvts = new int [ PLIES ];
+      int l = 0;
+      while (l < PLIES)
+      {
+        final int nb = etat.getValidMoves(etat.isWhiteActive(), coups);
+        if (nb == 0)
+        {
+          break;
+        }
+        mvts[l] = coups.get(hasard.nextInt(nb));
+        etat.makeMove(mvts[l]);
+        l++;
+      }
+      _parties[p] = new int [ l ];
+      System.arraycopy(mvts, 0, _parties[p], 0, l);
+    }
+    _pgn = streamWrite();
+  }
+
+  /**
+   * Lit la collection partie par partie, en construisant chacune d'elles.
+   * 
+   * @return Nombre de parties lues.
+   * @throws IOException En cas d'erreur de lecture.
+   * @throws PGNException En cas d'erreur dans la collection.
+   */
+  @Benchmark
+  @OperationsPerInvocation(GAMES)
+  public int gameRead() throws IOException, PGNException
+  {
+    final BufferedReader flux = new BufferedReader(new StringReader(_pgn));
+    int res = 0;
+    for (int p = 0; p < GAMES; p++)
+    {
+      final Game partie = PGNUtils.toGame(flux);
+      res += partie.getSANStrings().length;
+      partie.dispose();
+    }
+
+    return res;
+  }
+
+  /**
+   * Lit la collection au fil de l'eau, en résolvant tous les mouvements.
+   * 
+   * @return Somme des identifiants des mouvements lus.
+   * @throws PGNException En cas d'erreur dans la collection.
+   */
+  @Benchmark
+  @OperationsPerInvocation(GAMES)
+  public int streamRead() throws PGNException
+  {
+    final PGNReader lecteur = new PGNReader(new StringReader(_pgn));
+    int res = 0;
+    PGNReader.Event evt = lecteur.next();
+    while (evt != null)
+    {
+      if (evt == PGNReader.Event.MOVE)
+      {
+        res += lecteur.getMove();
+      }
+      evt = lecteur.next();
+    }
+
+    return res;
+  }
+
+  /**
+   * Ecrit la collection au fil de l'eau.
+   * 
+   * @return Collection au format PGN.
+   * @throws IOException En cas d'erreur d'écriture.
+   */
+  @Benchmark
+  @OperationsPerInvocation(GAMES)
+  public String streamWrite() throws IOException
+  {
+    final StringWriter sortie = new StringWriter();
+    final PGNWriter ecrivain = new PGNWriter(sortie);
+    for (int p = 0; p < GAMES; p++)
+    {
+      ecrivain.writeTag("Event", "Benchmark");
+      ecrivain.writeTag("Round", Integer.toString(p + 1));
+      for (final int mvt : _parties[p])
+      {
+        ecrivain.writeMove(mvt);
+      }
+      ecrivain.endGame("*");
+    }
+
+    return sortie.toString();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks du dénombrement de l'arbre de jeu ("perft") par dérivation des états, pour chaque
+ * représentation de l'échiquier : le compteur "nodes" donne le débit en noeuds par seconde.
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PerftBenchmark
+{
+  /** Représentation de l'échiquier mesurée. */
+  @Param( { "ARRAY", "MAILBOX", "X88", "BITBOARD" })
+  public BoardFactory.Type type;
+
+  /** Position mesurée. */
+  @Param( { "START", "MIDDLEGAME", "ENDGAME", "PROMOTION" })
+  public BenchmarkPosition position;
+
+  /** Profondeur de l'arbre. */
+  @Param( { "3" })
+  public int depth;
+
+  /** Etat mesuré. */
+  private MoveGenerator _etat;
+
+  /** Pool de threads du dénombrement parallèle. */
+  private ForkJoinPool _pool;
+
+  /**
+   * Pour que JMH puisse instancier les benchmarks.
+   */
+  public PerftBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Prépare l'état mesuré et le pool de threads.
+   */
+  @Setup
+  public void setUp()
+  {
+    _etat = position.toBoard(type);
+    _pool = new ForkJoinPool();
+  }
+
+  /**
+   * Libère le pool de threads.
+   */
+  @TearDown
+  public void tearDown()
+  {
+    _pool.shutdown();
+  }
+
+  /**
+   * Dénombre l'arbre de jeu.
+   * 
+   * @param pCompteur Compteur de noeuds.
+   * @return Nombre de noeuds.
+   */
+  @Benchmark
+  public long perft(final NodeCounter pCompteur)
+  {
+    final long res = Perft.perft(_etat, depth);
+    pCompteur.nodes += res;
+
+    return res;
+  }
+
+  /**
+   * Dénombre l'arbre de jeu, en répartissant les mouvements initiaux entre les threads du pool.
+   * 
+   * @param pCompteur Compteur de noeuds.
+   * @return Nombre de noeuds.
+   */
+  @Benchmark
+  public long perftParallel(final NodeCounter pCompteur)
+  {
+    final long res = Perft.perft(_etat, depth, _pool);
+    pCompteur.nodes += res;
+
+    return res;
+  }
+}
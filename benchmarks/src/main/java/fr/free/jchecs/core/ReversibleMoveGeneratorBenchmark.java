@@ -0,0 +1,140 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks de l'application / annulation des mouvements, pour chaque représentation de
+ * l'échiquier disposant d'une variante réversible.
+ * 
+ * @author David Cotton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ReversibleMoveGeneratorBenchmark
+{
+  /** Représentation de l'échiquier mesurée. */
+  @Param( { "X88", "BITBOARD" })
+  public BoardFactory.Type type;
+
+  /** Position mesurée. */
+  @Param( { "START", "MIDDLEGAME", "ENDGAME", "PROMOTION" })
+  public BenchmarkPosition position;
+
+  /** Etat mesuré, restauré à la fin de chaque opération. */
+  private ReversibleMoveGenerator _etat;
+
+  /** Listes de mouvements réutilisées. */
+  private MoveList [] _listes;
+
+  /**
+   * Pour que JMH puisse instancier les benchmarks.
+   */
+  public ReversibleMoveGeneratorBenchmark()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Prépare l'état mesuré.
+   */
+  @Setup
+  public void setUp()
+  {
+    final Board depart = position.toBoard(BoardFactory.Type.ARRAY);
+    switch (type)
+    {
+      case X88 :
+        _etat = new ReversibleX88Board(depart);
+        break;
+      case BITBOARD :
+        _etat = new ReversibleBitboardBoard(depart);
+        break;
+      default :
+        throw new IllegalArgumentException("No reversible board for " + type);
+    }
+    _listes = new MoveList [ 2 ];
+    for (int i = 0; i < _listes.length; i++)
+    {
+      _listes[i] = new MoveList();
+    }
+    _etat.getValidMoves(_etat.isWhiteActive(), _listes[0]);
+  }
+
+  /**
+   * Recherche les mouvements valides du joueur ayant le trait, dans une liste réutilisée.
+   * 
+   * @return Nombre de mouvements trouvés.
+   */
+  @Benchmark
+  public int getValidMoves()
+  {
+    return _etat.getValidMoves(_etat.isWhiteActive(), _listes[1]);
+  }
+
+  /**
+   * Applique puis annule chacun des mouvements valides de l'état.
+   * 
+   * @return Clé de hachage de l'état restauré.
+   */
+  @Benchmark
+  public long makeMove()
+  {
+    final MoveList mvts = _listes[0];
+    for (int i = mvts.size() - 1; i >= 0; i--)
+    {
+      _etat.makeMove(mvts.get(i));
+      _etat.unmakeMove();
+    }
+
+    return _etat.zobristKey();
+  }
+
+  /**
+   * Dénombre l'arbre de jeu sur trois demi-coups, en appliquant / annulant les mouvements.
+   * 
+   * @param pCompteur Compteur de noeuds.
+   * @return Nombre de noeuds.
+   */
+  @Benchmark
+  public long perft(final NodeCounter pCompteur)
+  {
+    final long res = Perft.perft(_etat, 3);
+    pCompteur.nodes += res;
+
+    return res;
+  }
+}
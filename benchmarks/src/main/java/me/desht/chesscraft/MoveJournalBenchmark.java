@@ -0,0 +1,155 @@
+package me.desht.chesscraft;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes written per move when persisting a game of {@link #PLIES} half-moves: rewriting the whole
+ * game YAML after every move (the old path), versus appending a {@link MoveJournal} record and
+ * rewriting the YAML only every {@link #COMPACT_MOVES} moves (the default
+ * persistence.journal_compact_moves).
+ *
+ * One operation is one move.  Divide the "bytes" secondary result by the primary ops/s result to
+ * get bytes per move.
+ *
+ * The YAML is produced by SnakeYAML with the same options Bukkit's YamlConfiguration uses, from a
+ * map shaped like ChessGame.serialize(); the moves are random (but reproducible) short values,
+ * which is all that matters for the size of the output.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoveJournalBenchmark {
+	private static final int PLIES = 80;
+	private static final int COMPACT_MOVES = 20;
+
+	private short[] moves;
+	private Yaml yaml;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class ByteCounter {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(1000);
+		moves = new short[PLIES];
+		for (int i = 0; i < PLIES; i++) {
+			moves[i] = (short) random.nextInt();
+		}
+
+		DumperOptions options = new DumperOptions();
+		options.setIndent(2);
+		options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+		yaml = new Yaml(options);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PLIES)
+	public long yamlPerMove(ByteCounter counter) {
+		long res = 0;
+		for (int ply = 0; ply < PLIES; ply++) {
+			res += snapshot(ply + 1, counter);
+		}
+		return res;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PLIES)
+	public long journalPerMove(ByteCounter counter) {
+		ByteArrayOutputStream journal = new ByteArrayOutputStream();
+		long res = 0;
+		int sinceSnapshot = 0;
+		for (int ply = 0; ply < PLIES; ply++) {
+			// same decision as ChessGame.saveMove()
+			if (sinceSnapshot >= COMPACT_MOVES) {
+				res += snapshot(ply + 1, counter);
+				journal.reset();
+				sinceSnapshot = 0;
+			} else {
+				byte[] record = new MoveJournal.Entry(ply, moves[ply], 1500000000000L + ply, ply * 1000L, 0L).encode();
+				journal.write(record, 0, record.length);
+				counter.bytes += record.length;
+				res += record.length;
+				sinceSnapshot++;
+			}
+		}
+		return res + journal.size();
+	}
+
+	private int snapshot(int nMoves, ByteCounter counter) {
+		List<Short> history = new ArrayList<>(nMoves);
+		for (int i = 0; i < nMoves; i++) {
+			history.add(moves[i]);
+		}
+
+		Map<String, Object> clock = new LinkedHashMap<>();
+		clock.put("==", "TwoPlayerClock");
+		clock.put("tc", "G/60");
+		clock.put("elapsed0", 123456L);
+		clock.put("elapsed1", 234567L);
+		clock.put("remaining0", 3476544L);
+		clock.put("remaining1", 3365433L);
+
+		Map<String, Object> game = new HashMap<>();
+		game.put("==", "ChessGame");
+		game.put("name", "benchmark");
+		game.put("playerWhite", "069a79f4-44e9-4726-a5be-fca90e38aaf5");
+		game.put("playerBlack", "61699b2e-d327-4a01-9f1e-0ea8c3f06bc6");
+		game.put("playerWhiteDisp", "Notch");
+		game.put("playerBlackDisp", "jeb_");
+		game.put("state", "RUNNING");
+		game.put("invited", null);
+		game.put("openInvite", false);
+		game.put("moves", history);
+		game.put("created", 1500000000000L);
+		game.put("started", 1500000010000L);
+		game.put("finished", 0L);
+		game.put("lastMoved", 1500000000000L + nMoves);
+		game.put("result", 0);
+		game.put("promotionWhite", 5);
+		game.put("promotionBlack", 5);
+		game.put("clock", clock);
+		game.put("stake", 0.0);
+		game.put("journalEpoch", 1500000000000L);
+
+		Map<String, Object> root = new LinkedHashMap<>();
+		root.put("game", game);
+		int len = yaml.dump(root).getBytes(StandardCharsets.UTF_8).length;
+		counter.bytes += len;
+		return len;
+	}
+}
@@ -21,20 +21,17 @@ package fr.free.jchecs.ai;
 import static fr.free.jchecs.core.BoardFactory.State.EMPTY;
 import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
 
-import java.io.DataInputStream;
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.File;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Random;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
 
 import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.MoveList;
+import fr.free.jchecs.core.ReversibleMoveGenerator;
 
 /**
  * Implémentation de base des moteurs d'IA pour les échecs.
@@ -49,11 +46,15 @@ abstract class AbstractEngine implements Engine
   /** Valeur d'un Mat. */
   protected static final int MATE_VALUE = Integer.MIN_VALUE / 2;
 
+  /**
+   * Masque déterminant la fréquence de vérification du temps écoulé et des demandes
+   * d'interruption (tous les 64 noeuds).
+   */
+  private static final int TIME_CHECK_MASK = 0x3F;
+
   /** Modèle de découpage des enregistrements des ouvertures suivant les ';'. */
   static final Pattern SPLITTER = Pattern.compile(";");
 
-  /** Buffer des ouvertures. */
-  private static Map<Integer, int []> S_openings;
   static
   {
     final Thread preload = new Thread(new Runnable()
@@ -76,6 +77,9 @@ abstract class AbstractEngine implements Engine
   /** Limite haute de la profondeur de recherche. */
   private final int _maximalSearchDepth;
 
+  /** Date limite de la recherche en cours (en ms, 0 si aucune). */
+  private long _deadline;
+
   /** Temps total passé en traitement par le moteur. */
   private long _elapsedTime;
 
@@ -85,18 +89,75 @@ abstract class AbstractEngine implements Engine
   /** Fonction d'évalutation utilisée par le moteur. */
   private Heuristic _heuristic;
 
+  /** Fonction d'évaluation, si elle sait exploiter une table des structures de pions. */
+  private MobilityHeuristic _pawnHeuristic;
+
+  /** Table des structures de pions (allouée lors de la première recherche). */
+  private PawnHashTable _pawnHashTable;
+
+  /** Nombre total de consultations des tables de structures de pions. */
+  private long _pawnHashProbes;
+
+  /** Nombre total de consultations des tables de structures de pions ayant abouti. */
+  private long _pawnHashHits;
+
+  /** Drapeau signalant l'activation des réductions des coups tardifs. */
+  private boolean _lateMoveReductionsEnabled = true;
+
+  /** Listes de mouvements réutilisées par les recherches, une par demi-coup de profondeur. */
+  private final MoveLists _moveLists = new MoveLists();
+
   /** Fonction de tri des mouvements. */
   private Comparator<Move> _moveSorter;
 
+  /** Drapeau signalant l'activation de l'élagage par coup nul. */
+  private boolean _nullMoveEnabled = true;
+
   /** Drapeau signalant l'activation de la bibliothèque d'ouvertures. */
   private boolean _openingsEnabled;
 
+  /** Recherche de quiescence du thread principal (allouée lors de la première recherche). */
+  private QuiescenceSearch _quiescence;
+
+  /** Drapeau signalant l'activation de la recherche de quiescence. */
+  private boolean _quiescenceEnabled = true;
+
+  /** Meilleur mouvement de l'itération précédente de la recherche en cours (ou null). */
+  private Move _principalMove;
+
   /** Score du dernier mouvement. */
   private int _score;
 
+  /** Type de représentation de l'échiquier utilisé par les recherches. */
+  private BoardFactory.Type _searchBoardType = FASTEST;
+
   /** Limite de la profondeur de recherche (en demi-coups). */
   private int _searchDepthLimit;
 
+  /** Drapeau signalant une demande d'interruption des recherches (depuis un autre thread). */
+  private volatile boolean _searchAborted;
+
+  /** Nombre de threads utilisés par une recherche. */
+  private int _searchThreads = 1;
+
+  /** Temps alloué à chaque recherche (en ms, 0 pour une recherche à profondeur fixe). */
+  private long _searchTimeLimit;
+
+  /** Tables de finales consultées par la recherche en cours (null si désactivées). */
+  private Tablebase _tablebase;
+
+  /** Répertoire des tables de finales (null pour les tables livrées). */
+  private File _tablebaseDirectory;
+
+  /** Drapeau indiquant si les tables de finales sont utilisées. */
+  private boolean _tablebaseEnabled = true;
+
+  /** Nombre de décomptes de demi-coups depuis le début de la recherche en cours. */
+  private int _timeChecks;
+
+  /** Taille de la table de transposition (en Mo). */
+  private int _transpositionTableSize = TranspositionTable.DEFAULT_SIZE;
+
   /**
    * Instancie un nouveau moteur IA.
    * 
@@ -133,14 +194,157 @@ abstract class AbstractEngine implements Engine
 
   /**
    * Ajoute un décompte de demi-coups au nombre de demi-coups évalués par le moteur.
+   * <p>
+   * Vérifie aussi régulièrement que l'interruption de la recherche n'a pas été demandée et, lors
+   * d'une recherche limitée en temps, que le temps alloué n'est pas épuisé ; interrompt la
+   * recherche dans le cas contraire.
+   * </p>
    * 
    * @param pNombre Nombre de demi-coups à ajouter.
+   * @throws SearchTimeoutException Si le temps alloué à la recherche est épuisé, ou si son
+   *           interruption a été demandée.
    */
   protected final void addHalfmove(final int pNombre)
   {
     assert pNombre >= 0;
 
     _halfmoveCount += pNombre;
+
+    if (((++_timeChecks & TIME_CHECK_MASK) == 0)
+        && (_searchAborted || ((_deadline != 0) && (System.currentTimeMillis() >= _deadline))))
+    {
+      throw SearchTimeoutException.INSTANCE;
+    }
+  }
+
+  /**
+   * Ajoute un décompte de demi-coups évalués par des threads auxiliaires de la recherche, sans
+   * vérification du temps écoulé.
+   * 
+   * @param pNombre Nombre de demi-coups à ajouter.
+   */
+  protected final void addHelperHalfmoves(final int pNombre)
+  {
+    assert pNombre >= 0;
+
+    _halfmoveCount += pNombre;
+  }
+
+  /**
+   * Ajoute les consultations d'une table des structures de pions aux statistiques du moteur, puis
+   * remet à zéro les compteurs de la table.
+   * <p>
+   * Ne doit être appelé que par le thread de la recherche principale, une fois les éventuels
+   * threads auxiliaires utilisant la table terminés.
+   * </p>
+   * 
+   * @param pTable Table des structures de pions.
+   */
+  protected final void addPawnHashStatistics(final PawnHashTable pTable)
+  {
+    assert pTable != null;
+
+    _pawnHashProbes += pTable.getProbes();
+    _pawnHashHits += pTable.getHits();
+    pTable.resetStatistics();
+  }
+
+  /**
+   * Recherche le meilleur mouvement par approfondissements successifs, de la profondeur minimale
+   * jusqu'à la limite de profondeur, tant que le temps alloué le permet.
+   * <p>
+   * La première itération est toujours menée à son terme. Le meilleur mouvement d'une itération est
+   * examiné en premier par la suivante (voir {@link #sortRootMoves(Move[])}) ; une itération
+   * interrompue faute de temps est abandonnée au profit du résultat de la précédente.
+   * </p>
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pCoups Liste des mouvement initiaux valides.
+   * @param pDebut Date de début de la recherche (en ms).
+   * @return Mouvement trouvé par la dernière itération complète.
+   */
+  private Move deepen(final MoveGenerator pEtat, final Move [] pCoups, final long pDebut)
+  {
+    assert pEtat != null;
+    assert pCoups != null;
+
+    final int limite = _searchDepthLimit;
+    Move res = null;
+    int score = 0;
+    try
+    {
+      for (int prof = _minimalSearchDepth; prof <= limite; prof++)
+      {
+        _searchDepthLimit = prof;
+        res = searchMoveFor(pEtat, pCoups);
+        score = _score;
+        _principalMove = res;
+        // L'itération suivante prendra bien plus de temps que toutes les précédentes réunies...
+        final long duree = System.currentTimeMillis() - pDebut;
+        if (duree * 2 >= _searchTimeLimit)
+        {
+          break;
+        }
+        _timeChecks = 0;
+        _deadline = pDebut + _searchTimeLimit;
+      }
+    }
+    catch (final SearchTimeoutException e)
+    {
+      final Comparator<Move> tri = getMoveSorter();
+      if (tri instanceof ContextSorter)
+      {
+        ((ContextSorter) tri).clear();
+      }
+      if (_searchAborted)
+      {
+        // Pas de résultat à renvoyer, même si une itération est complète...
+        throw e;
+      }
+    }
+    finally
+    {
+      _searchDepthLimit = limite;
+      _deadline = 0;
+      _principalMove = null;
+    }
+
+    setScore(score);
+
+    assert res != null;
+    return res;
+  }
+
+  /**
+   * Renvoi la valeur estimée d'un état du jeu par la fonction d'évaluation du moteur, en utilisant
+   * la table des structures de pions du moteur.
+   * 
+   * @param pEtat Etat du jeu.
+   * @param pTrait Positionné à "true" si l'on veut une évaluation du point de vue des blancs.
+   * @return Valeur estimée.
+   */
+  protected final int evaluate(final MoveGenerator pEtat, final boolean pTrait)
+  {
+    return evaluate(pEtat, pTrait, _pawnHashTable);
+  }
+
+  /**
+   * Renvoi la valeur estimée d'un état du jeu par la fonction d'évaluation du moteur, en utilisant
+   * une table des structures de pions propre au thread appelant.
+   * 
+   * @param pEtat Etat du jeu.
+   * @param pTrait Positionné à "true" si l'on veut une évaluation du point de vue des blancs.
+   * @param pPions Table des structures de pions (ou null).
+   * @return Valeur estimée.
+   */
+  final int evaluate(final MoveGenerator pEtat, final boolean pTrait, final PawnHashTable pPions)
+  {
+    if (_pawnHeuristic != null)
+    {
+      return _pawnHeuristic.evaluate(pEtat, pTrait, pPions);
+    }
+
+    return _heuristic.evaluate(pEtat, pTrait);
   }
 
   /**
@@ -155,94 +359,66 @@ abstract class AbstractEngine implements Engine
   }
 
   /**
-   * Renvoi le mouvement correspondant à une position dans la bibliothèque d'ouverture.
+   * Renvoi le mouvement correspondant à une position dans la bibliothèque d'ouverture (voir
+   * {@link OpeningBook}). La bibliothèque étant en lecture seule, les appels concurrents ne sont
+   * pas synchronisés.
    * 
    * @param pEtat Etat du jeu.
    * @return Mouvement correspondant (ou null)
    */
-  static final synchronized Move getFromOpenings(final MoveGenerator pEtat)
+  static final Move getFromOpenings(final MoveGenerator pEtat)
   {
     assert pEtat != null;
 
-    Move res = null;
-
-    if (S_openings == null)
+    final OpeningBook bibliotheque = OpeningBook.getDefault();
+    if (bibliotheque == null)
     {
-      final InputStream is = Engine.class.getResourceAsStream("jchecs.opn");
-      if (is != null)
-      {
-          S_openings = new HashMap<>();
-        DataInputStream in = null;
-        try
-        {
-          in = new DataInputStream(new GZIPInputStream(is));
-          while (in.available() > 0)
-          {
-            final int nb = in.readByte();
-            assert (nb > 0) && (nb <= 5);
-            final int [] mvtsId = new int [ nb ];
-            final int cle = in.readInt();
-            for (int i = 0; i < nb; i++)
-            {
-              mvtsId[i] = (in.readUnsignedShort() << 8) + in.readUnsignedByte();
-              assert (mvtsId[i] & 0xFF000000) == 0;
-            }
-              S_openings.put(cle, mvtsId);
-          }
-        }
-        catch (final EOFException e)
-        {
-          // Pas grave, le coup sera calculé...
-        }
-        catch (final IOException e)
-        {
-          // Pas grave, le coup sera calculé...
-          assert false;
-        }
-        finally
-        {
-          if (in != null)
-          {
-            try
-            {
-              in.close();
-            }
-            catch (final IOException e1)
-            {
-              // On aura essayé :-)
-            }
-          }
-        }
-      }
+      return null;
     }
 
-    int [] ids = null;
-    if (S_openings != null)
+    return bibliotheque.getMove(pEtat, RANDOMIZER);
+  }
+
+  /**
+   * Recherche dans les tables de finales le mouvement menant au mat le plus court (ou, pour le camp
+   * perdant, le plus long), le score devenant celui de la position dans les tables.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @return Mouvement trouvé, ou null si la position n'est pas couverte ou si elle est nulle (la
+   *         recherche décide alors du mouvement).
+   */
+  private Move getFromTablebase(final MoveGenerator pEtat)
+  {
+    assert pEtat != null;
+    assert _tablebase != null;
+
+    final int valeur = _tablebase.probe(pEtat);
+    if ((valeur == Tablebase.UNKNOWN) || (valeur == 0))
     {
-        ids = S_openings.get(pEtat.hashCode());
+      return null;
     }
-    if (ids != null)
+
+    Move res = null;
+    int meilleur = MATE_VALUE - 1;
+    for (final Move mvt : pEtat.getValidMoves(pEtat.isWhiteActive()))
     {
-      res = Move.valueOf(ids[RANDOMIZER.nextInt(ids.length)]);
-      // Les hashcodes n'étant pas infaïbles, il vaut mieux valider le mouvement obtenu...
-      boolean erreurHashcode = true;
-      for (final Move mvt : pEtat.getValidMoves(pEtat.isWhiteActive()))
+      final int suivant = _tablebase.probe(pEtat.derive(mvt, true));
+      if (suivant == Tablebase.UNKNOWN)
       {
-        if (mvt.equals(res))
-        {
-          erreurHashcode = false;
-          break;
-        }
+        return null;
       }
-      if (erreurHashcode)
+      if (-suivant > meilleur)
       {
-        res = null;
+        meilleur = -suivant;
+        res = mvt;
       }
     }
+    setScore(valeur);
 
     return res;
   }
 
+
   /**
    * Renvoi le nombre total de demi-coups évalués par le moteur.
    * 
@@ -308,22 +484,70 @@ abstract class AbstractEngine implements Engine
       res = getFromOpenings(pEtat);
     }
 
+    _tablebase = getTablebase();
+    if ((res == null) && (_tablebase != null))
+    {
+      res = getFromTablebase(pEtat);
+    }
+
     if (res == null)
     {
       // Calcul du meilleur coup...
       final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
       assert coups.length > 0;
 
-      res = searchMoveFor(pEtat, coups);
+      final PawnHashTable pions = getPawnHashTable();
+      if (_quiescence == null)
+      {
+        _quiescence = new QuiescenceSearch(this, _moveLists, pions);
+      }
+      try
+      {
+        if (_searchTimeLimit > 0)
+        {
+          res = deepen(pEtat, coups, debut);
+        }
+        else
+        {
+          res = searchMoveFor(pEtat, coups);
+        }
+      }
+      catch (final SearchTimeoutException e)
+      {
+        // Seule une demande d'interruption sort d'une recherche : pas de mouvement.
+        assert _searchAborted;
+        final Comparator<Move> tri = getMoveSorter();
+        if (tri instanceof ContextSorter)
+        {
+          ((ContextSorter) tri).clear();
+        }
+        setScore(0);
+      }
+      finally
+      {
+        addPawnHashStatistics(pions);
+      }
     }
 
     final long duree = System.currentTimeMillis() - debut;
     addElapsedTime(duree);
 
-    assert res != null;
+    assert (res != null) || _searchAborted;
     return res;
   }
 
+  /**
+   * Renvoi la liste de mouvements réutilisable propre à un demi-coup de profondeur de la
+   * recherche en cours.
+   * 
+   * @param pDemiCoup Demi-coup de profondeur (>= 0), typiquement {@code getPly()} de l'état.
+   * @return Liste réservée à ce demi-coup.
+   */
+  protected final MoveList getMoveList(final int pDemiCoup)
+  {
+    return _moveLists.get(pDemiCoup);
+  }
+
   /**
    * Renvoi la fonction de tri des mouvements.
    * 
@@ -335,6 +559,46 @@ abstract class AbstractEngine implements Engine
     return _moveSorter;
   }
 
+  /**
+   * Renvoi le nombre total de consultations des tables de structures de pions ayant trouvé la
+   * structure recherchée.
+   * 
+   * @return Nombre total de succès des tables de structures de pions.
+   */
+  public final long getPawnHashHits()
+  {
+    assert _pawnHashHits >= 0;
+    return _pawnHashHits;
+  }
+
+  /**
+   * Renvoi le nombre total de consultations des tables de structures de pions.
+   * 
+   * @return Nombre total de consultations des tables de structures de pions.
+   */
+  public final long getPawnHashProbes()
+  {
+    assert _pawnHashProbes >= _pawnHashHits;
+    return _pawnHashProbes;
+  }
+
+  /**
+   * Renvoi la table des structures de pions du moteur, préparée pour la fonction d'évaluation
+   * courante.
+   * 
+   * @return Table des structures de pions.
+   */
+  final PawnHashTable getPawnHashTable()
+  {
+    if (_pawnHashTable == null)
+    {
+      _pawnHashTable = new PawnHashTable(PawnHashTable.DEFAULT_SIZE);
+    }
+    _pawnHashTable.setHeuristic(_heuristic);
+
+    return _pawnHashTable;
+  }
+
   /**
    * Renvoi le score obtenu par le dernier mouvement calculé.
    * 
@@ -345,6 +609,17 @@ abstract class AbstractEngine implements Engine
     return _score;
   }
 
+  /**
+   * Renvoi le type de représentation de l'échiquier utilisé par les recherches.
+   * 
+   * @return Type de représentation.
+   */
+  public final BoardFactory.Type getSearchBoardType()
+  {
+    assert _searchBoardType != null;
+    return _searchBoardType;
+  }
+
   /**
    * Renvoi la valeur limite de la profondeur de recherche (en demi-coups).
    * 
@@ -357,6 +632,91 @@ abstract class AbstractEngine implements Engine
     return _searchDepthLimit;
   }
 
+  /**
+   * Renvoi la taille de la table de transposition utilisée par le moteur (s'il en utilise une).
+   * 
+   * @return Taille de la table de transposition (en Mo, > 0).
+   */
+  public final int getTranspositionTableSize()
+  {
+    assert _transpositionTableSize > 0;
+    return _transpositionTableSize;
+  }
+
+  /**
+   * Renvoi le nombre de threads utilisés par une recherche (si le moteur supporte la recherche
+   * parallèle).
+   * 
+   * @return Nombre de threads (>= 1).
+   */
+  public final int getSearchThreads()
+  {
+    assert _searchThreads >= 1;
+    return _searchThreads;
+  }
+
+  /**
+   * Renvoi le temps alloué à chaque recherche.
+   * 
+   * @return Temps alloué (en ms), ou 0 pour une recherche à profondeur fixe.
+   */
+  public final long getSearchTimeLimit()
+  {
+    assert _searchTimeLimit >= 0;
+    return _searchTimeLimit;
+  }
+
+  /**
+   * Renvoi les tables de finales à utiliser, selon les réglages du moteur.
+   * 
+   * @return Tables de finales, ou null si elles sont désactivées.
+   */
+  private Tablebase getTablebase()
+  {
+    if (!_tablebaseEnabled)
+    {
+      return null;
+    }
+
+    if (_tablebaseDirectory != null)
+    {
+      // Les tables absentes du répertoire sont complétées par les tables livrées...
+      return Tablebase.open(_tablebaseDirectory);
+    }
+
+    return Tablebase.getDefault();
+  }
+
+  /**
+   * Renvoi le répertoire des tables de finales.
+   * 
+   * @return Répertoire des tables, ou null pour les tables livrées avec l'application.
+   */
+  public final File getTablebaseDirectory()
+  {
+    return _tablebaseDirectory;
+  }
+
+  /**
+   * Indique si les réductions des coups tardifs sont activées (si le moteur les supporte).
+   * 
+   * @return "true" si les réductions des coups tardifs sont utilisées, "false" sinon.
+   */
+  public final boolean isLateMoveReductionsEnabled()
+  {
+    return _lateMoveReductionsEnabled;
+  }
+
+  /**
+   * Indique si l'élagage par coup nul est activé (si le moteur le supporte).
+   * 
+   * @return "true" si l'élagage par coup nul est utilisé, "false" sinon.
+   */
+  public final boolean isNullMoveEnabled()
+  {
+    return _nullMoveEnabled;
+  }
+
   /**
    * Indique si l'utilisation de la bibliothèque d'ouvertures est activée.
    * 
@@ -367,6 +727,133 @@ abstract class AbstractEngine implements Engine
     return _openingsEnabled;
   }
 
+  /**
+   * Indique si la recherche de quiescence (prises examinées au-delà de la profondeur limite) est
+   * activée.
+   * 
+   * @return "true" si la recherche de quiescence est utilisée, "false" sinon.
+   */
+  public final boolean isQuiescenceEnabled()
+  {
+    return _quiescenceEnabled;
+  }
+
+  /**
+   * Indique si l'interruption des recherches est demandée.
+   * 
+   * @return "true" si les recherches doivent être interrompues, "false" sinon.
+   */
+  public final boolean isSearchAborted()
+  {
+    return _searchAborted;
+  }
+
+  /**
+   * Indique si l'utilisation des tables de finales est activée.
+   * 
+   * @return "true" si les tables de finales sont utilisées, "false" sinon.
+   */
+  public final boolean isTablebaseEnabled()
+  {
+    return _tablebaseEnabled;
+  }
+
+  /**
+   * Recherche une position de la recherche en cours dans les tables de finales.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @return Score de la position du point de vue du camp au trait, ou {@link Tablebase#UNKNOWN} si
+   *         elle n'est pas couverte par les tables (ou si elles sont désactivées).
+   */
+  protected final int probeTablebase(final MoveGenerator pEtat)
+  {
+    final Tablebase tables = _tablebase;
+    if ((tables == null) || (pEtat.getPieceCount() > Tablebase.MAX_PIECES))
+    {
+      return Tablebase.UNKNOWN;
+    }
+
+    return tables.probe(pEtat);
+  }
+
+  /**
+   * Evalue une position atteinte à la profondeur limite de la recherche, du point de vue du camp au
+   * trait : par une recherche de quiescence si elle est activée, sinon par la fonction
+   * d'évaluation.
+   * <p>
+   * Les demi-coups examinés par la recherche de quiescence sont ajoutés au décompte du moteur.
+   * </p>
+   * 
+   * @param pEtat Etat de l'échiquier, restauré au retour.
+   * @param pAlpha Seuil alpha.
+   * @param pBeta Seuil beta.
+   * @return Evaluation de la position.
+   */
+  protected final int quiesce(final ReversibleMoveGenerator pEtat, final int pAlpha,
+      final int pBeta)
+  {
+    if (!_quiescenceEnabled)
+    {
+      return evaluate(pEtat, pEtat.isWhiteActive());
+    }
+
+    final int res = _quiescence.search(pEtat, pAlpha, pBeta);
+    addHalfmove(_quiescence.takeHalfmoves());
+
+    return res;
+  }
+
+  /**
+   * Attribue à chaque mouvement d'une liste son score suivant une fonction de tri, pour un parcours
+   * de la liste par {@link MoveList#pick(int)}. Les fonctions implémentant {@link MoveScorer}
+   * évaluent une seule fois chaque mouvement, sans instancier de {@link Move} ; les autres sont
+   * appliquées à des mouvements matérialisés pour l'occasion, puis leur ordre est traduit en
+   * scores.
+   * 
+   * @param pMouvements Liste des mouvements à évaluer.
+   * @param pTri Fonction de tri des mouvements.
+   * @param pDemiCoup Demi-coup de profondeur de la recherche auquel les mouvements sont joués.
+   * @param pPremier Identifiant d'un mouvement à examiner avant tous les autres (typiquement celui
+   *          de la table de transposition), ou 0.
+   */
+  static void scoreMoves(final MoveList pMouvements, final Comparator<Move> pTri,
+      final int pDemiCoup, final int pPremier)
+  {
+    assert pMouvements != null;
+    assert pTri != null;
+
+    final int l = pMouvements.size();
+    if (pTri instanceof MoveScorer)
+    {
+      final MoveScorer tri = (MoveScorer) pTri;
+      for (int i = 0; i < l; i++)
+      {
+        pMouvements.setScore(i, tri.score(pMouvements.get(i), pDemiCoup));
+      }
+    }
+    else
+    {
+      final Move [] mvts = pMouvements.toMoves();
+      Arrays.sort(mvts, pTri);
+      for (int i = 0; i < l; i++)
+      {
+        pMouvements.set(i, mvts[i].toId());
+        pMouvements.setScore(i, l - i);
+      }
+    }
+    if (pPremier != 0)
+    {
+      for (int i = 0; i < l; i++)
+      {
+        if (pMouvements.get(i) == pPremier)
+        {
+          pMouvements.setScore(i, Integer.MAX_VALUE);
+          break;
+        }
+      }
+    }
+  }
+
   /**
    * Corps de la recherche du "meilleur" demi-coup pour un état de l'échiquier.
    * 
@@ -376,6 +863,33 @@ abstract class AbstractEngine implements Engine
    */
   protected abstract Move searchMoveFor(final MoveGenerator pEtat, final Move [] pCoups);
 
+  /**
+   * Trie les mouvements initiaux d'une recherche : suivant la fonction de tri des mouvements, à
+   * l'exception du meilleur mouvement de l'itération précédente (s'il existe), placé en tête.
+   * 
+   * @param pCoups Liste des mouvements initiaux à trier.
+   */
+  protected final void sortRootMoves(final Move [] pCoups)
+  {
+    assert pCoups != null;
+
+    Arrays.sort(pCoups, getMoveSorter());
+
+    final Move pv = _principalMove;
+    if (pv != null)
+    {
+      for (int i = 1; i < pCoups.length; i++)
+      {
+        if (pv.equals(pCoups[i]))
+        {
+          System.arraycopy(pCoups, 0, pCoups, 1, i);
+          pCoups[0] = pv;
+          break;
+        }
+      }
+    }
+  }
+
   /**
    * Modifie la fonction d'évaluation utilisée par le moteur.
    * 
@@ -386,6 +900,24 @@ abstract class AbstractEngine implements Engine
     assert pHeuristique != null;
 
     _heuristic = pHeuristique;
+    if (pHeuristique instanceof MobilityHeuristic)
+    {
+      _pawnHeuristic = (MobilityHeuristic) pHeuristique;
+    }
+    else
+    {
+      _pawnHeuristic = null;
+    }
+  }
+
+  /**
+   * Active / désactive les réductions des coups tardifs (si le moteur les supporte).
+   * 
+   * @param pActif A "true" pour activer les réductions des coups tardifs, à "false" sinon.
+   */
+  public final void setLateMoveReductionsEnabled(final boolean pActif)
+  {
+    _lateMoveReductionsEnabled = pActif;
   }
 
   /**
@@ -400,6 +932,16 @@ abstract class AbstractEngine implements Engine
     _moveSorter = pComparateur;
   }
 
+  /**
+   * Active / désactive l'élagage par coup nul (si le moteur le supporte).
+   * 
+   * @param pActif A "true" pour activer l'élagage par coup nul, à "false" sinon.
+   */
+  public final void setNullMoveEnabled(final boolean pActif)
+  {
+    _nullMoveEnabled = pActif;
+  }
+
   /**
    * Active / désactive l'utilisation de la bibliothèque d'ouvertures.
    * 
@@ -410,6 +952,26 @@ abstract class AbstractEngine implements Engine
     _openingsEnabled = pActif;
   }
 
+  /**
+   * Active / désactive la recherche de quiescence.
+   * 
+   * @param pActif A "true" pour activer la recherche de quiescence, à "false" sinon.
+   */
+  public final void setQuiescenceEnabled(final boolean pActif)
+  {
+    _quiescenceEnabled = pActif;
+  }
+
+  /**
+   * Demande / annule l'interruption des recherches. Peut être appelé depuis n'importe quel thread.
+   * 
+   * @param pInterrompre A "true" pour interrompre les recherches, à "false" pour les autoriser.
+   */
+  public final void setSearchAborted(final boolean pInterrompre)
+  {
+    _searchAborted = pInterrompre;
+  }
+
   /**
    * Alimente le score obtenu par le dernier mouvement calculé.
    * 
@@ -420,6 +982,18 @@ abstract class AbstractEngine implements Engine
     _score = pScore;
   }
 
+  /**
+   * Modifie le type de représentation de l'échiquier utilisé par les recherches.
+   * 
+   * @param pType Type de représentation.
+   */
+  public final void setSearchBoardType(final BoardFactory.Type pType)
+  {
+    assert pType != null;
+
+    _searchBoardType = pType;
+  }
+
   /**
    * Aliment la valeur de la limite de la profondeur de recherche (en demi-coups).
    * 
@@ -432,4 +1006,65 @@ abstract class AbstractEngine implements Engine
 
     _searchDepthLimit = pLimite;
   }
+
+  /**
+   * Modifie le nombre de threads utilisés par une recherche (si le moteur supporte la recherche
+   * parallèle).
+   * 
+   * @param pNombre Nombre de threads (>= 1).
+   */
+  public final void setSearchThreads(final int pNombre)
+  {
+    assert pNombre >= 1;
+
+    _searchThreads = pNombre;
+  }
+
+  /**
+   * Modifie le temps alloué à chaque recherche. Lorsqu'un temps est alloué, la recherche procède
+   * par approfondissements successifs jusqu'à la limite de profondeur, et s'interrompt une fois le
+   * temps épuisé.
+   * 
+   * @param pDuree Temps alloué (en ms, >= 0), ou 0 pour une recherche à profondeur fixe.
+   */
+  public final void setSearchTimeLimit(final long pDuree)
+  {
+    assert pDuree >= 0;
+
+    _searchTimeLimit = pDuree;
+  }
+
+  /**
+   * Modifie le répertoire des tables de finales. Les tables qui ne peuvent y être lues sont
+   * remplacées par celles livrées avec l'application.
+   * 
+   * @param pRepertoire Répertoire des tables, ou null pour les tables livrées avec l'application.
+   */
+  public final void setTablebaseDirectory(final File pRepertoire)
+  {
+    _tablebaseDirectory = pRepertoire;
+  }
+
+  /**
+   * Active / désactive l'utilisation des tables de finales.
+   * 
+   * @param pActif A "true" pour activer l'utilisation des tables de finales, à "false" sinon.
+   */
+  public final void setTablebaseEnabled(final boolean pActif)
+  {
+    _tablebaseEnabled = pActif;
+  }
+
+  /**
+   * Modifie la taille de la table de transposition utilisée par le moteur (s'il en utilise une).
+   * La nouvelle taille est prise en compte lors de la recherche suivante.
+   * 
+   * @param pTaille Taille de la table de transposition (en Mo, > 0).
+   */
+  public final void setTranspositionTableSize(final int pTaille)
+  {
+    assert pTaille > 0;
+
+    _transpositionTableSize = pTaille;
+  }
 }
@@ -18,11 +18,13 @@
  */
 package fr.free.jchecs.ai;
 
-import java.util.Arrays;
 import java.util.Comparator;
 
+import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.MoveList;
+import fr.free.jchecs.core.ReversibleMoveGenerator;
 
 /**
  * Moteur d'IA basé sur un alpha/beta (façon NegaMax) sur 5 demi-coups.
@@ -44,31 +46,37 @@ final class AlphaBetaEngine extends AbstractEngine
   /**
    * Recherche le meilleur coup évalué à partir d'une position.
    * 
-   * @param pEtat Etat de l'échiquier.
+   * @param pEtat Etat de l'échiquier, restauré au retour.
    * @param pProfondeur Profondeur d'évaluation actuelle.
    * @param pAlpha Seuil alpha.
    * @param pBeta Seuil beta.
    * @return Meilleure évaluation obtenue à ce niveau.
    */
-  private int alphabeta(final MoveGenerator pEtat, final int pProfondeur, final int pAlpha,
-      final int pBeta)
+  private int alphabeta(final ReversibleMoveGenerator pEtat, final int pProfondeur,
+      final int pAlpha, final int pBeta)
   {
     assert pEtat != null;
     assert pProfondeur >= 0;
     assert pAlpha <= pBeta;
 
+    final int finale = probeTablebase(pEtat);
+    if (finale != Tablebase.UNKNOWN)
+    {
+      return finale;
+    }
+
     final boolean trait = pEtat.isWhiteActive();
 
     if (pProfondeur == 0)
     {
-      return getHeuristic().evaluate(pEtat, trait);
+      return quiesce(pEtat, pAlpha, pBeta);
     }
 
-    final Move [] coups = pEtat.getValidMoves(trait);
-    final int l = coups.length;
+    final MoveList coups = getMoveList(pEtat.getPly());
+    final int l = pEtat.getValidMoves(trait, coups);
     if (l == 0)
     {
-      return getHeuristic().evaluate(pEtat, trait);
+      return evaluate(pEtat, trait);
     }
 
     int res = MATE_VALUE - 1;
@@ -83,12 +91,15 @@ final class AlphaBetaEngine extends AbstractEngine
     {
       killer = null;
     }
-    Arrays.sort(coups, tri);
+    scoreMoves(coups, tri, pEtat.getPly(), 0);
     addHalfmove(l);
     int alpha = pAlpha;
-    for (final Move mvt : coups)
+    for (int i = 0; i < l; i++)
     {
-      final int note = -alphabeta(pEtat.derive(mvt, true), pProfondeur - 1, -pBeta, -alpha);
+      final int mvt = coups.pick(i);
+      pEtat.makeMove(mvt);
+      final int note = -alphabeta(pEtat, pProfondeur - 1, -pBeta, -alpha);
+      pEtat.unmakeMove();
       if (note > res)
       {
         res = note;
@@ -99,7 +110,7 @@ final class AlphaBetaEngine extends AbstractEngine
           {
             if (killer != null)
             {
-              killer.put(mvt);
+              killer.put(mvt, pEtat.getPly());
             }
             return res;
           }
@@ -127,13 +138,15 @@ final class AlphaBetaEngine extends AbstractEngine
     assert l > 0;
     addHalfmove(l);
     final Comparator<Move> tri = getMoveSorter();
-    Arrays.sort(pCoups, tri);
+    sortRootMoves(pCoups);
     Move res = pCoups[0];
     int alpha = MATE_VALUE - 1;
+    final ReversibleMoveGenerator etat = BoardFactory.newReversible(getSearchBoardType(), pEtat);
     for (final Move mvt : pCoups)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
+      etat.makeMove(mvt);
       final int note = -alphabeta(etat, getSearchDepthLimit() - 1, MATE_VALUE, -alpha);
+      etat.unmakeMove();
       if ((note > alpha) || ((note == alpha) && RANDOMIZER.nextBoolean()))
       {
         // Un peu de hasard sert à partager les évaluations identiques : jeu plus agréable.
@@ -19,17 +19,18 @@
 package fr.free.jchecs.ai;
 
 import static fr.free.jchecs.ai.AbstractEngine.MATE_VALUE;
-import static fr.free.jchecs.core.Constants.FILE_COUNT;
-import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.PieceSquareTable.BOARD_CONTROL;
 
 import fr.free.jchecs.core.MoveGenerator;
-import fr.free.jchecs.core.Piece;
-import fr.free.jchecs.core.PieceType;
-import fr.free.jchecs.core.Square;
 
 /**
  * Fonction d'évaluation basée sur le matériel et la position des pièces présentes sur le plateau.
  * <p>
+ * Le matériel et les bonus/malus de position (voir
+ * {@link fr.free.jchecs.core.PieceSquareTable#BOARD_CONTROL}) étant maintenus par l'état lors des
+ * dérivations, l'évaluation ne parcourt pas le plateau.
+ * </p>
+ * <p>
  * Classe sûre vis-à-vis des threads.
  * </p>
  * 
@@ -40,58 +41,6 @@ final class BoardControlHeuristic implements Heuristic
   /** Identifiant de la classe pour la sérialisation. */
   private static final long serialVersionUID = -7163145298434616262L;
 
-  /**
-   * Bonus/Malus d'un cavalier (blanc par défaut) en fonction de sa position.
-   */
-  private static final int [] KNIGHT_POSITIONS = { //  
-      -50, -30, -30, -30, -30, -30, -30, -50, // a1 ... h1
-        -30, -20, -20, -20, -20, -20, -20, -30, // a2 ... h2
-        -20, 0, 20, 20, 20, 20, 0, -20, // a3 ... h3
-        -20, 0, 20, 20, 20, 20, 0, -20, // a4 ... h4
-        -20, 0, 10, 20, 20, 10, 0, -20, // a5 ... h5
-        -20, 0, 10, 10, 10, 10, 0, -20, // a6 ... h6
-        -20, -10, 0, 0, 0, 0, -10, -20, // a7 ... h7
-        -40, -20, -20, -20, -20, -20, -20, -40, // a8 ... h8
-      };
-  static
-  {
-    assert KNIGHT_POSITIONS.length == 64;
-  }
-
-  /**
-   * Bonus/Malus d'un pion (blanc par défaut) en fonction de sa position.
-   */
-  private static final int [] PAWN_POSITIONS = { 0, 0, 0, 0, 0, 0, 0, 0, // a1 ... h1
-    2, 2, 2, -2, -2, 2, 2, 2, // a2 ... h2
-    -2, -2, -2, 4, 4, -2, -2, -2, // a3 ... h3
-    0, 0, 0, 4, 4, 0, 0, 0, // a4 ... h4
-    2, 4, 6, 8, 8, 6, 4, 2, // a5 ... h5
-    4, 6, 8, 10, 10, 8, 6, 4, // a6 ... h6
-    4, 6, 8, 10, 10, 8, 6, 4, // a7 ... h7
-    500, 500, 500, 500, 500, 500, 500, 500, // a8 ... h8
-  };
-  static
-  {
-    assert PAWN_POSITIONS.length == 64;
-  }
-
-  /**
-   * Bonus/Malus de base liés à la position d'une pièce (symétrique : adapté aux deux couleurs).
-   */
-  private static final int [] DEFAULT_POSITIONS = { 0, 0, 0, 0, 0, 0, 0, 0, // a1 ... h1
-    0, 0, 0, 5, 5, 0, 0, 0, // a2 ... h2
-    0, 0, 5, 5, 5, 5, 0, 0, // a3 ... h3
-    0, 5, 5, 10, 10, 5, 5, 0, // a4 ... h4
-    0, 5, 5, 10, 10, 5, 5, 0, // a5 ... h5
-    0, 0, 5, 5, 5, 5, 0, 0, // a6 ... h6
-    0, 0, 0, 5, 5, 0, 0, 0, // a7 ... h7
-    0, 0, 0, 0, 0, 0, 0, 0, // a8 ... h8
-  };
-  static
-  {
-    assert DEFAULT_POSITIONS.length == 64;
-  }
-
   /**
    * Crée une nouvelle instance.
    */
@@ -112,78 +61,26 @@ final class BoardControlHeuristic implements Heuristic
   {
     assert pEtat != null;
 
-    int res = -pEtat.getHalfmoveCount();
+    int res = pEtat.getMaterialBalance() + pEtat.getPositionalBalance(BOARD_CONTROL);
+    if (!pTrait)
+    {
+      res = -res;
+    }
+    res -= pEtat.getHalfmoveCount();
 
-    for (final Square s : Square.values())
+    // Pas de valeur de position pour le roi, mais un malus pour le roi adverse en échec...
+    final boolean adversaire = !pTrait;
+    if ((pEtat.getFullmoveNumber() > 10) && pEtat.isInCheck(adversaire))
     {
-      final Piece piece = pEtat.getPieceAt(s);
-      if (piece != null)
+      if (pEtat.getValidMoves(adversaire).length == 0)
+      {
+        // Malus pour un mat...
+        res -= MATE_VALUE;
+      }
+      else
       {
-        final boolean traitPiece = piece.isWhite();
-        final PieceType typePiece = piece.getType();
-        final int val = typePiece.getValue();
-        final int pos;
-        switch (typePiece)
-        {
-          case BISHOP :
-          case QUEEN :
-          case ROOK :
-            pos = DEFAULT_POSITIONS[s.getIndex()];
-            break;
-          case KING :
-            if ((traitPiece != pTrait) && (pEtat.getFullmoveNumber() > 10)
-                && pEtat.isInCheck(traitPiece))
-            {
-              if (pEtat.getValidMoves(traitPiece).length == 0)
-              {
-                // Malus pour un mat...
-                pos = MATE_VALUE;
-              }
-              else
-              {
-                // Malus pour un échec...
-                pos = -250;
-              }
-            }
-            else
-            {
-              // Pas de valeur de position pour le roi.
-              pos = 0;
-            }
-            break;
-          case KNIGHT :
-            if (traitPiece)
-            {
-              pos = KNIGHT_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              pos = KNIGHT_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
-            break;
-          case PAWN :
-            if (traitPiece)
-            {
-              pos = PAWN_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              pos = PAWN_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
-            break;
-          default :
-            assert false;
-            pos = 0;
-        }
-        final int score = val + pos;
-        if (traitPiece == pTrait)
-        {
-          res += score;
-        }
-        else
-        {
-          res -= score;
-        }
+        // Malus pour un échec...
+        res += 250;
       }
     }
 
@@ -18,36 +18,41 @@
  */
 package fr.free.jchecs.ai;
 
-import java.io.Serializable;
-import java.util.Comparator;
-
-import fr.free.jchecs.core.Move;
-
 /**
  * Interface présentée par les méthodes de tri des mouvements tenant compte du contexte de la
  * recherche.
  * 
  * @author David Cotton
  */
-interface ContextSorter extends Comparator<Move>, Serializable
+interface ContextSorter extends MoveScorer
 {
   /**
    * Efface le contexte mémorisé.
    */
   void clear();
 
+  /**
+   * Crée une nouvelle instance de la même méthode de tri, au contexte vide (par exemple pour un
+   * thread auxiliaire de la recherche, qui ne doit pas partager le contexte de l'instance).
+   * 
+   * @return Nouvelle instance.
+   */
+  ContextSorter newInstance();
+
   /**
    * Renvoie l'évaluation d'un mouvement.
    * 
-   * @param pMouvement Mouvement à rechercher.
+   * @param pMouvement Identifiant du mouvement à rechercher.
+   * @param pDemiCoup Demi-coup de profondeur de la recherche auquel le mouvement est joué.
    * @return Valeur liée au mouvement.
    */
-  int get(final Move pMouvement);
+  int get(final int pMouvement, final int pDemiCoup);
 
   /**
    * Mémorise un mouvement important.
    * 
-   * @param pMouvement Mouvement à mémoriser.
+   * @param pMouvement Identifiant du mouvement à mémoriser.
+   * @param pDemiCoup Demi-coup de profondeur de la recherche auquel le mouvement a été joué.
    */
-  void put(final Move pMouvement);
+  void put(final int pMouvement, final int pDemiCoup);
 }
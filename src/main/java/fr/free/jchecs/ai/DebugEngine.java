@@ -79,7 +79,7 @@ final class DebugEngine extends AbstractEngine
         {
           final MoveGenerator etat3 = etat2.derive(mvt3, true);
           final BoardScore bs =
-              new BoardScore(mvt3, etat2, getHeuristic().evaluate(etat3, !etat3.isWhiteActive()));
+              new BoardScore(mvt3, etat2, evaluate(etat3, !etat3.isWhiteActive()));
           echiquiersRang3.add(bs);
         }
       }
@@ -18,8 +18,10 @@
  */
 package fr.free.jchecs.ai;
 
+import java.io.File;
 import java.util.Comparator;
 
+import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
 
@@ -65,11 +67,27 @@ public interface Engine
    */
   int getMinimalSearchDepth();
 
+  /**
+   * Renvoi le nombre total de consultations des tables de structures de pions ayant trouvé la
+   * structure recherchée.
+   * 
+   * @return Nombre total de succès des tables de structures de pions.
+   */
+  long getPawnHashHits();
+
+  /**
+   * Renvoi le nombre total de consultations des tables de structures de pions.
+   * 
+   * @return Nombre total de consultations des tables de structures de pions.
+   */
+  long getPawnHashProbes();
+
   /**
    * Recherche un mouvement répondant à un état de l'échiquier.
    * 
    * @param pEtat Etat de l'échiquier.
-   * @return Mouvement trouvé.
+   * @return Mouvement trouvé, ou null si la recherche a été interrompue (voir
+   *         {@link #setSearchAborted(boolean)}).
    */
   Move getMoveFor(final MoveGenerator pEtat);
 
@@ -87,6 +105,14 @@ public interface Engine
    */
   int getScore();
 
+  /**
+   * Renvoi le type de représentation de l'échiquier utilisé par les recherches.
+   * 
+   * @return Type de représentation (voir {@link BoardFactory#newReversible(BoardFactory.Type,
+   *         fr.free.jchecs.core.Board)}).
+   */
+  BoardFactory.Type getSearchBoardType();
+
   /**
    * Renvoi la valeur limite de la profondeur de recherche (en demi-coups).
    * 
@@ -95,6 +121,52 @@ public interface Engine
    */
   int getSearchDepthLimit();
 
+  /**
+   * Renvoi le nombre de threads utilisés par une recherche (si le moteur supporte la recherche
+   * parallèle).
+   * 
+   * @return Nombre de threads (>= 1).
+   */
+  int getSearchThreads();
+
+  /**
+   * Renvoi le temps alloué à chaque recherche.
+   * 
+   * @return Temps alloué (en ms), ou 0 pour une recherche à profondeur fixe.
+   */
+  long getSearchTimeLimit();
+
+  /**
+   * Renvoi le répertoire des tables de finales.
+   * 
+   * @return Répertoire des tables, ou null pour les tables livrées avec l'application.
+   */
+  File getTablebaseDirectory();
+
+  /**
+   * Renvoi la taille de la table de transposition utilisée par le moteur (s'il en utilise une).
+   * 
+   * @return Taille de la table de transposition (en Mo, > 0).
+   */
+  int getTranspositionTableSize();
+
+  /**
+   * Indique si les réductions des coups tardifs sont activées (si le moteur les supporte) : les
+   * mouvements calmes examinés en fin de liste le sont d'abord à profondeur réduite, et ne sont
+   * réexaminés à pleine profondeur que s'ils s'avèrent meilleurs que prévu.
+   * 
+   * @return "true" si les réductions des coups tardifs sont utilisées, "false" sinon.
+   */
+  boolean isLateMoveReductionsEnabled();
+
+  /**
+   * Indique si l'élagage par coup nul est activé (si le moteur le supporte) : une position où
+   * passer son tour suffit à dépasser le seuil beta n'est pas examinée plus avant.
+   * 
+   * @return "true" si l'élagage par coup nul est utilisé, "false" sinon.
+   */
+  boolean isNullMoveEnabled();
+
   /**
    * Indique si l'utilisation de la bibliothèque d'ouvertures est activée.
    * 
@@ -102,6 +174,30 @@ public interface Engine
    */
   boolean isOpeningsEnabled();
 
+  /**
+   * Indique si la recherche de quiescence (prises examinées au-delà de la profondeur limite) est
+   * activée.
+   * 
+   * @return "true" si la recherche de quiescence est utilisée, "false" sinon.
+   */
+  boolean isQuiescenceEnabled();
+
+  /**
+   * Indique si l'interruption des recherches est demandée.
+   * 
+   * @return "true" si les recherches doivent être interrompues, "false" sinon.
+   */
+  boolean isSearchAborted();
+
+  /**
+   * Indique si l'utilisation des tables de finales est activée : les positions ne comptant plus
+   * que les deux rois et une dame ou une tour sont alors jouées parfaitement, à la racine comme au
+   * sein de la recherche.
+   * 
+   * @return "true" si les tables de finales sont utilisées, "false" sinon.
+   */
+  boolean isTablebaseEnabled();
+
   /**
    * Modifie la fonction d'évaluation utilisée par le moteur.
    * 
@@ -116,6 +212,20 @@ public interface Engine
    */
   void setMoveSorter(final Comparator<Move> pComparateur);
 
+  /**
+   * Active / désactive les réductions des coups tardifs (si le moteur les supporte).
+   * 
+   * @param pActif A "true" pour activer les réductions des coups tardifs, à "false" sinon.
+   */
+  void setLateMoveReductionsEnabled(final boolean pActif);
+
+  /**
+   * Active / désactive l'élagage par coup nul (si le moteur le supporte).
+   * 
+   * @param pActif A "true" pour activer l'élagage par coup nul, à "false" sinon.
+   */
+  void setNullMoveEnabled(final boolean pActif);
+
   /**
    * Active / désactive l'utilisation de la bibliothèque d'ouvertures.
    * 
@@ -123,6 +233,30 @@ public interface Engine
    */
   void setOpeningsEnabled(final boolean pActif);
 
+  /**
+   * Active / désactive la recherche de quiescence.
+   * 
+   * @param pActif A "true" pour activer la recherche de quiescence, à "false" sinon.
+   */
+  void setQuiescenceEnabled(final boolean pActif);
+
+  /**
+   * Demande / annule l'interruption des recherches. Peut être appelé depuis un autre thread que
+   * celui de la recherche en cours, qui s'arrête alors au plus tôt : {@link #getMoveFor} renvoi
+   * null. La demande reste active, y compris pour les recherches suivantes, jusqu'à son annulation.
+   * 
+   * @param pInterrompre A "true" pour interrompre les recherches, à "false" pour les autoriser.
+   */
+  void setSearchAborted(final boolean pInterrompre);
+
+  /**
+   * Modifie le type de représentation de l'échiquier utilisé par les recherches (par défaut
+   * {@link BoardFactory.Type#FASTEST}), par exemple pour comparer leurs performances.
+   * 
+   * @param pType Type de représentation.
+   */
+  void setSearchBoardType(final BoardFactory.Type pType);
+
   /**
    * Aliment la valeur de la limite de la profondeur de recherche (en demi-coups).
    * 
@@ -130,4 +264,45 @@ public interface Engine
    *          getMaximalSearchDepth()]).
    */
   void setSearchDepthLimit(final int pLimite);
+
+  /**
+   * Modifie le nombre de threads utilisés par une recherche (si le moteur supporte la recherche
+   * parallèle).
+   * 
+   * @param pNombre Nombre de threads (>= 1).
+   */
+  void setSearchThreads(final int pNombre);
+
+  /**
+   * Modifie le temps alloué à chaque recherche. Lorsqu'un temps est alloué, la recherche procède
+   * par approfondissements successifs jusqu'à la limite de profondeur, et s'interrompt une fois le
+   * temps épuisé.
+   * 
+   * @param pDuree Temps alloué (en ms, >= 0), ou 0 pour une recherche à profondeur fixe.
+   */
+  void setSearchTimeLimit(final long pDuree);
+
+  /**
+   * Modifie le répertoire des tables de finales (fichiers produits par
+   * {@link TablebaseGenerator}). Les tables qui ne peuvent y être lues sont remplacées par celles
+   * livrées avec l'application.
+   * 
+   * @param pRepertoire Répertoire des tables, ou null pour les tables livrées avec l'application.
+   */
+  void setTablebaseDirectory(final File pRepertoire);
+
+  /**
+   * Active / désactive l'utilisation des tables de finales.
+   * 
+   * @param pActif A "true" pour activer l'utilisation des tables de finales, à "false" sinon.
+   */
+  void setTablebaseEnabled(final boolean pActif);
+
+  /**
+   * Modifie la taille de la table de transposition utilisée par le moteur (s'il en utilise une).
+   * La nouvelle taille est prise en compte lors de la recherche suivante.
+   * 
+   * @param pTaille Taille de la table de transposition (en Mo, > 0).
+   */
+  void setTranspositionTableSize(final int pTaille);
 }
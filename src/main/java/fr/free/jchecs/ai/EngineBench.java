@@ -22,6 +22,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.FENUtils;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
 
@@ -32,6 +34,41 @@ import fr.free.jchecs.core.MoveGenerator;
  */
 public final class EngineBench
 {
+  /** Moteur utilisé pour mesurer l'accélération de la recherche parallèle. */
+  private static final String SPEEDUP_ENGINE = "jChecs.NegaScout";
+
+  /** Profondeur de recherche utilisée pour mesurer l'accélération de la recherche parallèle. */
+  private static final int SPEEDUP_DEPTH = 5;
+
+  /** Positions (FEN) utilisées pour mesurer l'accélération de la recherche parallèle. */
+  private static final String [] SPEEDUP_POSITIONS = {
+      FENUtils.STANDART_STARTING_FEN,
+      "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+      "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 10",
+      "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 40", };
+
+  /** Nombre de répétitions de la comparaison des représentations de l'échiquier. */
+  private static final int BOARDS_ROUNDS = 5;
+
+  /** Profondeur de recherche utilisée pour mesurer l'effet des élagages. */
+  private static final int PRUNING_DEPTH = 5;
+
+  /** Profondeur de recherche utilisée sur les positions tactiques. */
+  private static final int TACTICS_DEPTH = 4;
+
+  /** Positions tactiques (FEN) : prises, échecs et sacrifices à trouver. */
+  private static final String [] TACTICS_POSITIONS = {
+      "2rr3k/pp3pp1/1nnqbN1p/3pN3/2pP4/2P3Q1/PPB4P/R4RK1 w - - 0 1",
+      "8/7p/5k2/5p2/p1p2P2/Pr1pPK2/1P1R3P/8 b - - 0 1",
+      "5rk1/1ppb3p/p1pb4/6q1/3P1p1r/2P1R2P/PP1BQ1P1/5RKN w - - 0 1",
+      "r1bq2rk/pp3pbp/2p1p1pQ/7P/3P4/2PB1N2/PP3PPR/2KR4 w - - 0 1",
+      "5k2/6pp/p1qN4/1p1p4/3P4/2PKP2Q/PP3r2/3R4 b - - 0 1",
+      "7k/p7/1R5K/6r1/6p1/6P1/8/8 w - - 0 1",
+      "rnbqkb1r/pppp1ppp/8/4P3/6n1/7P/PPPNPPP1/R1BQKBNR b KQkq - 0 1",
+      "r4q1k/p2bR1rp/2p2Q1N/5p2/5p2/2P5/PP3PPP/R5K1 w - - 0 1",
+      "3q1rk1/p4pp1/2pb3p/3p4/6Pr/1PNQ4/P1PB1PP1/4RRK1 b - - 0 1",
+      "2br2k1/2q3rn/p2NppQ1/2p1P3/Pp5R/4P3/1P3PPP/3R2K1 w - - 0 1", };
+
   /**
    * Classe utilitaire : ne pas intancier.
    */
@@ -40,13 +77,276 @@ public final class EngineBench
     // Rien de spécifique...
   }
 
+  /**
+   * Compare les représentations modifiables de l'échiquier utilisées par les recherches :
+   * demi-coups évalués par seconde pour atteindre une profondeur fixe sur une série fixe de
+   * positions (celles des mesures de la recherche parallèle puis les positions tactiques). Chaque
+   * mesure est répétée afin de ne retenir que des temps obtenus après compilation par la JVM.
+   */
+  private static void benchBoards()
+  {
+    final MoveGenerator [] positions = allPositions();
+
+    System.out.println("Représentations de l'échiquier (" + SPEEDUP_ENGINE + ", profondeur "
+        + SPEEDUP_DEPTH + ", " + positions.length + " positions) :");
+    final BoardFactory.Type [] types = { BoardFactory.Type.X88, BoardFactory.Type.BITBOARD, };
+    for (int tour = 1; tour <= BOARDS_ROUNDS; tour++)
+    {
+      for (final BoardFactory.Type type : types)
+      {
+        long duree = 0;
+        long demiCoups = 0;
+        for (final MoveGenerator etat : positions)
+        {
+          final Engine moteur = EngineFactory.newInstance(SPEEDUP_ENGINE);
+          moteur.setOpeningsEnabled(false);
+          moteur.setSearchDepthLimit(SPEEDUP_DEPTH);
+          moteur.setSearchBoardType(type);
+          moteur.getMoveFor(etat);
+          duree += moteur.getElapsedTime();
+          demiCoups += moteur.getHalfmoveCount();
+        }
+        if (tour == BOARDS_ROUNDS)
+        {
+          duree = Math.max(1, duree);
+          System.out.println(" - " + type + " : " + demiCoups + " demi-coups en " + duree + "ms, "
+              + demiCoups / duree + " kdemi-coups/s");
+        }
+      }
+    }
+  }
+
+  /**
+   * Mesure l'effet de l'élagage par coup nul et des réductions des coups tardifs sur une série fixe
+   * de positions (celles des mesures de la recherche parallèle puis les positions tactiques) :
+   * demi-coups évalués et temps nécessaire pour atteindre une profondeur fixe, pour chaque
+   * combinaison des deux options.
+   */
+  private static void benchPruning()
+  {
+    final MoveGenerator [] positions = allPositions();
+
+    System.out.println("Elagages (" + SPEEDUP_ENGINE + ", profondeur " + PRUNING_DEPTH + ", "
+        + positions.length + " positions) :");
+    long reference = 0;
+    for (int c = 0; c < 4; c++)
+    {
+      final boolean coupNul = (c & 1) != 0;
+      final boolean reductions = (c & 2) != 0;
+      long duree = 0;
+      long demiCoups = 0;
+      for (final MoveGenerator etat : positions)
+      {
+        final Engine moteur = EngineFactory.newInstance(SPEEDUP_ENGINE);
+        moteur.setOpeningsEnabled(false);
+        moteur.setSearchDepthLimit(PRUNING_DEPTH);
+        moteur.setNullMoveEnabled(coupNul);
+        moteur.setLateMoveReductionsEnabled(reductions);
+        moteur.getMoveFor(etat);
+        duree += moteur.getElapsedTime();
+        demiCoups += moteur.getHalfmoveCount();
+      }
+      duree = Math.max(1, duree);
+      if (c == 0)
+      {
+        reference = duree;
+      }
+      System.out.println(" - coup nul " + onOff(coupNul) + ", réductions " + onOff(reductions)
+          + " : " + demiCoups + " demi-coups en " + duree + "ms, accélération x"
+          + (reference * 100 / duree) / 100.0F);
+    }
+  }
+
+  /**
+   * Mesure l'effet de la recherche de quiescence sur une série de positions tactiques : demi-coups
+   * évalués et temps nécessaire pour atteindre une profondeur fixe.
+   */
+  private static void benchTactics()
+  {
+    final MoveGenerator [] positions = toPositions(TACTICS_POSITIONS);
+
+    System.out.println("Positions tactiques (profondeur " + TACTICS_DEPTH + ", "
+        + positions.length + " positions) :");
+    for (final String nom : new String [] { "jChecs.AlphaBeta", "jChecs.NegaScout", })
+    {
+      for (int q = 0; q < 2; q++)
+      {
+        final boolean quiescence = q == 1;
+        long duree = 0;
+        long demiCoups = 0;
+        for (final MoveGenerator etat : positions)
+        {
+          final Engine moteur = EngineFactory.newInstance(nom);
+          moteur.setOpeningsEnabled(false);
+          moteur.setSearchDepthLimit(TACTICS_DEPTH);
+          moteur.setQuiescenceEnabled(quiescence);
+          moteur.getMoveFor(etat);
+          duree += moteur.getElapsedTime();
+          demiCoups += moteur.getHalfmoveCount();
+        }
+        final String mode;
+        if (quiescence)
+        {
+          mode = "avec";
+        }
+        else
+        {
+          mode = "sans";
+        }
+        System.out.println(" - " + nom + ' ' + mode + " quiescence : " + demiCoups
+            + " demi-coups en " + duree + "ms");
+      }
+    }
+  }
+
+  /**
+   * Mesure l'accélération de la recherche parallèle en fonction du nombre de threads : temps
+   * nécessaire pour atteindre une profondeur fixe sur une série de positions.
+   */
+  private static void benchThreads()
+  {
+    final MoveGenerator [] positions = toPositions(SPEEDUP_POSITIONS);
+
+    System.out.println("Accélération de la recherche parallèle (" + SPEEDUP_ENGINE
+        + ", profondeur " + SPEEDUP_DEPTH + ", " + positions.length + " positions) :");
+    final int nbProcesseurs = Runtime.getRuntime().availableProcessors();
+    long reference = 0;
+    for (int n = 1; n <= nbProcesseurs; n *= 2)
+    {
+      long duree = 0;
+      long demiCoups = 0;
+      long succes = 0;
+      long consultations = 0;
+      for (final MoveGenerator etat : positions)
+      {
+        final Engine moteur = EngineFactory.newInstance(SPEEDUP_ENGINE);
+        moteur.setOpeningsEnabled(false);
+        moteur.setSearchDepthLimit(SPEEDUP_DEPTH);
+        moteur.setSearchThreads(n);
+        moteur.getMoveFor(etat);
+        duree += moteur.getElapsedTime();
+        demiCoups += moteur.getHalfmoveCount();
+        succes += moteur.getPawnHashHits();
+        consultations += moteur.getPawnHashProbes();
+      }
+      duree = Math.max(1, duree);
+      if (n == 1)
+      {
+        reference = duree;
+      }
+      System.out.println(" - " + n + " thread(s) : " + duree + "ms, " + demiCoups
+          + " demi-coups, accélération x" + (reference * 100 / duree) / 100.0F
+          + ", table des pions : " + hitRate(succes, consultations));
+    }
+  }
+
+  /**
+   * Renvoi les positions des mesures de la recherche parallèle suivies des positions tactiques.
+   * 
+   * @return Etats correspondants.
+   */
+  private static MoveGenerator [] allPositions()
+  {
+    final MoveGenerator [] parallele = toPositions(SPEEDUP_POSITIONS);
+    final MoveGenerator [] tactiques = toPositions(TACTICS_POSITIONS);
+    final MoveGenerator [] res = new MoveGenerator [ parallele.length + tactiques.length ];
+    System.arraycopy(parallele, 0, res, 0, parallele.length);
+    System.arraycopy(tactiques, 0, res, parallele.length, tactiques.length);
+
+    return res;
+  }
+
+  /**
+   * Formate le taux de succès d'une table de hachage.
+   * 
+   * @param pSucces Nombre de consultations ayant abouti.
+   * @param pConsultations Nombre total de consultations.
+   * @return Taux de succès et nombre de consultations.
+   */
+  private static String hitRate(final long pSucces, final long pConsultations)
+  {
+    if (pConsultations == 0)
+    {
+      return "aucune consultation";
+    }
+
+    return (pSucces * 1000 / pConsultations) / 10.0F + "% de " + pConsultations + " consultations";
+  }
+
+  /**
+   * Formate l'état d'une option.
+   * 
+   * @param pActif Etat de l'option.
+   * @return "oui" si l'option est active, "non" sinon.
+   */
+  private static String onOff(final boolean pActif)
+  {
+    if (pActif)
+    {
+      return "oui";
+    }
+
+    return "non";
+  }
+
+  /**
+   * Convertit une série de descriptions FEN en états de l'échiquier.
+   * 
+   * @param pFEN Descriptions FEN.
+   * @return Etats correspondants.
+   */
+  private static MoveGenerator [] toPositions(final String [] pFEN)
+  {
+    final MoveGenerator [] res = new MoveGenerator [ pFEN.length ];
+    for (int i = 0; i < res.length; i++)
+    {
+      try
+      {
+        res[i] = BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.EMPTY)
+            .derive(FENUtils.toBoard(pFEN[i]));
+      }
+      catch (final FENException e)
+      {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    return res;
+  }
+
   /**
    * Teste l'efficacité des moteurs de recherche du meilleur mouvement.
    * 
-   * @param pArgs Arguments de la ligne de commande : ignorés, aucun argument attendu.
+   * @param pArgs Arguments de la ligne de commande : "threads" pour ne mesurer que l'accélération
+   *          de la recherche parallèle, "tactics" pour ne mesurer que l'effet de la recherche de
+   *          quiescence, "pruning" pour ne mesurer que l'effet de l'élagage par coup nul et des
+   *          réductions des coups tardifs, "boards" pour ne comparer que les représentations de
+   *          l'échiquier utilisées par les recherches, aucun argument pour les parties croisées
+   *          entre moteurs.
    */
   public static void main(final String [] pArgs)
   {
+    if ((pArgs.length > 0) && "boards".equals(pArgs[0]))
+    {
+      benchBoards();
+      return;
+    }
+    if ((pArgs.length > 0) && "pruning".equals(pArgs[0]))
+    {
+      benchPruning();
+      return;
+    }
+    if ((pArgs.length > 0) && "threads".equals(pArgs[0]))
+    {
+      benchThreads();
+      return;
+    }
+    if ((pArgs.length > 0) && "tactics".equals(pArgs[0]))
+    {
+      benchTactics();
+      return;
+    }
+
     final int nbManches = 10;
     final int nbCoups = 50;
     System.out.println("Parties croisées (en " + nbManches + " manches de " + nbCoups
@@ -130,7 +430,8 @@ public final class EngineBench
         final long demisCoups = nbDemiCoups.get(nomMoteur);
         final long duree = durees.get(nomMoteur);
       System.out.println(" - " + nomMoteur + " : " + demisCoups + " demi-coups évalués en " + duree
-          + "ms, soit " + (int) (1000.0 / duree * demisCoups) + " demi-coups/s");
+          + "ms, soit " + (int) (1000.0 / duree * demisCoups) + " demi-coups/s, table des pions : "
+          + hitRate(eng.getPawnHashHits(), eng.getPawnHashProbes()));
     }
   }
 }
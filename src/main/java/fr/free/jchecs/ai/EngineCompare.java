@@ -61,6 +61,22 @@ public final class EngineCompare
     enhancedMinimaxEngine.setOpeningsEnabled(openings);
     alphabetaEngine.setOpeningsEnabled(openings);
     negascoutEngine.setOpeningsEnabled(openings);
+    // Le moteur de débugage n'utilise pas la recherche de quiescence : scores comparables.
+    final boolean quiescence = false;
+    minimaxEngine.setQuiescenceEnabled(quiescence);
+    enhancedMinimaxEngine.setQuiescenceEnabled(quiescence);
+    alphabetaEngine.setQuiescenceEnabled(quiescence);
+    negascoutEngine.setQuiescenceEnabled(quiescence);
+    // ... ni élagage par coup nul, ni réductions des coups tardifs : même arbre de recherche.
+    negascoutEngine.setNullMoveEnabled(false);
+    negascoutEngine.setLateMoveReductionsEnabled(false);
+    // ... ni tables de finales.
+    final boolean tablebase = false;
+    debugEngine.setTablebaseEnabled(tablebase);
+    minimaxEngine.setTablebaseEnabled(tablebase);
+    enhancedMinimaxEngine.setTablebaseEnabled(tablebase);
+    alphabetaEngine.setTablebaseEnabled(tablebase);
+    negascoutEngine.setTablebaseEnabled(tablebase);
     final Heuristic heuristic = new BoardControlHeuristic();
     debugEngine.setHeuristic(heuristic);
     minimaxEngine.setHeuristic(heuristic);
@@ -18,10 +18,11 @@
  */
 package fr.free.jchecs.ai;
 
-import java.util.Arrays;
-
+import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.MoveList;
+import fr.free.jchecs.core.ReversibleMoveGenerator;
 
 /**
  * Moteur d'IA basé sur un mini/max ammélioré par un élagae simple, sur 4 demi-coups.
@@ -47,12 +48,12 @@ final class EnhancedMiniMaxEngine extends AbstractEngine
   /**
    * Recherche la meilleure réplique évaluée à partir d'une position.
    * 
-   * @param pEtat Etat de l'échiquier.
+   * @param pEtat Etat de l'échiquier, restauré au retour.
    * @param pProfondeur Profondeur d'évaluation actuelle.
    * @param pMax Valeur du max du noeud père (petite optimisation, en attendant un vrai Alpha/Béta).
    * @return Meilleure évaluation obtenue à ce niveau.
    */
-  private int findMin(final MoveGenerator pEtat, final int pProfondeur, final int pMax)
+  private int findMin(final ReversibleMoveGenerator pEtat, final int pProfondeur, final int pMax)
   {
     assert pEtat != null;
     assert pProfondeur >= 0;
@@ -61,18 +62,24 @@ final class EnhancedMiniMaxEngine extends AbstractEngine
 
     if (pProfondeur == 0)
     {
-      return getHeuristic().evaluate(pEtat, _trait);
+      if (isQuiescenceEnabled())
+      {
+        return -quiesce(pEtat, MATE_VALUE, -MATE_VALUE);
+      }
+      return evaluate(pEtat, _trait);
     }
 
     int res = -MATE_VALUE;
 
-    final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
-    Arrays.sort(coups, getMoveSorter());
-    addHalfmove(coups.length);
-    for (final Move mvt : coups)
+    final MoveList coups = getMoveList(pEtat.getPly());
+    final int l = pEtat.getValidMoves(pEtat.isWhiteActive(), coups);
+    scoreMoves(coups, getMoveSorter(), pEtat.getPly(), 0);
+    addHalfmove(l);
+    for (int i = 0; i < l; i++)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = findMax(etat, pProfondeur - 1, res);
+      pEtat.makeMove(coups.pick(i));
+      final int note = findMax(pEtat, pProfondeur - 1, res);
+      pEtat.unmakeMove();
       if (note < pMax)
       {
         // Début d'élagage, ajouté par rapport à un mini/max pur...
@@ -90,12 +97,12 @@ final class EnhancedMiniMaxEngine extends AbstractEngine
   /**
    * Recherche le meilleur coup évalué à partir d'une position.
    * 
-   * @param pEtat Etat de l'échiquier.
+   * @param pEtat Etat de l'échiquier, restauré au retour.
    * @param pProfondeur Profondeur d'évaluation actuelle.
    * @param pMin Valeur du min du noeud père (petite optimisation, en attendant un vrai Alpha/Béta).
    * @return Meilleure évaluation obtenue à ce niveau.
    */
-  private int findMax(final MoveGenerator pEtat, final int pProfondeur, final int pMin)
+  private int findMax(final ReversibleMoveGenerator pEtat, final int pProfondeur, final int pMin)
   {
     assert pEtat != null;
     assert pProfondeur >= 0;
@@ -104,18 +111,24 @@ final class EnhancedMiniMaxEngine extends AbstractEngine
 
     if (pProfondeur == 0)
     {
-      return getHeuristic().evaluate(pEtat, _trait);
+      if (isQuiescenceEnabled())
+      {
+        return quiesce(pEtat, MATE_VALUE, -MATE_VALUE);
+      }
+      return evaluate(pEtat, _trait);
     }
 
     int res = MATE_VALUE;
 
-    final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
-    Arrays.sort(coups, getMoveSorter());
-    addHalfmove(coups.length);
-    for (final Move mvt : coups)
+    final MoveList coups = getMoveList(pEtat.getPly());
+    final int l = pEtat.getValidMoves(pEtat.isWhiteActive(), coups);
+    scoreMoves(coups, getMoveSorter(), pEtat.getPly(), 0);
+    addHalfmove(l);
+    for (int i = 0; i < l; i++)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = findMin(etat, pProfondeur - 1, res);
+      pEtat.makeMove(coups.pick(i));
+      final int note = findMin(pEtat, pProfondeur - 1, res);
+      pEtat.unmakeMove();
       if (note > pMin)
       {
         // Début d'élagage, ajouté par rapport à un mini/max pur...
@@ -148,13 +161,15 @@ final class EnhancedMiniMaxEngine extends AbstractEngine
     final int l = pCoups.length;
     assert l > 0;
     addHalfmove(l);
-    Arrays.sort(pCoups, getMoveSorter());
+    sortRootMoves(pCoups);
     Move res = pCoups[0];
     int meilleur = MATE_VALUE - 1;
+    final ReversibleMoveGenerator etat = BoardFactory.newReversible(getSearchBoardType(), pEtat);
     for (final Move mvt : pCoups)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
+      etat.makeMove(mvt);
       final int note = findMin(etat, getSearchDepthLimit() - 1, meilleur);
+      etat.unmakeMove();
       if ((note > meilleur) || ((note == meilleur) && RANDOMIZER.nextBoolean()))
       {
         // Un peu de hasard sert à partager les évaluations identiques : jeu plus agréable.
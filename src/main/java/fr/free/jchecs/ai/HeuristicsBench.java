@@ -18,6 +18,10 @@
  */
 package fr.free.jchecs.ai;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
@@ -35,6 +39,12 @@ public final class HeuristicsBench
   /** Nombre de coups par partie. */
   private static final int MOVES_COUNT = 50;
 
+  /** Nombre de positions évaluées par la mesure de vitesse. */
+  private static final int POSITIONS_COUNT = 2000;
+
+  /** Nombre de passes sur les positions lors de la mesure de vitesse. */
+  private static final int EVALUATIONS_PASSES = 200;
+
   /**
    * Classe utilitaire.
    */
@@ -44,11 +54,115 @@ public final class HeuristicsBench
   }
 
   /**
-   * Teste l'efficacité de la gestion des ouvertures.
+   * Mesure la vitesse d'évaluation de chaque heuristique, pour chaque représentation de
+   * l'échiquier, sur des positions issues de parties aléatoires.
+   */
+  private static void benchEvaluate()
+  {
+    final Heuristic [] heuristiques =
+        { new MinimalHeuristic(), new BoardControlHeuristic(), new MobilityHeuristic(), };
+    final List<MoveGenerator> positions = randomPositions(POSITIONS_COUNT, new Random(0));
+    System.out.println("Benchmark (" + positions.size() + " positions x " + EVALUATIONS_PASSES
+        + ") : evaluate(MoveGenerator,boolean)");
+    for (final Heuristic h : heuristiques)
+    {
+      for (final BoardFactory.Type t : BoardFactory.Type.values())
+      {
+        if (t == BoardFactory.Type.FASTEST)
+        {
+          continue;
+        }
+        final MoveGenerator modele = BoardFactory.valueOf(t, BoardFactory.State.EMPTY);
+        final MoveGenerator [] etats = new MoveGenerator [ positions.size() ];
+        for (int i = 0; i < etats.length; i++)
+        {
+          etats[i] = modele.derive(positions.get(i));
+        }
+        // Passes préalables, pour laisser le compilateur JIT faire son office...
+        evaluate(h, etats, EVALUATIONS_PASSES / 4);
+        final long debut = System.nanoTime();
+        final long somme = evaluate(h, etats, EVALUATIONS_PASSES);
+        final long duree = Math.max(1, System.nanoTime() - debut);
+        System.out.println("  " + h.getClass().getSimpleName() + " / "
+            + modele.getClass().getSimpleName() + " = " + (long) etats.length * EVALUATIONS_PASSES
+            * 1000000000L / duree + " évaluations/s (contrôle : " + somme / EVALUATIONS_PASSES
+            + ')');
+      }
+    }
+  }
+
+  /**
+   * Evalue plusieurs fois une série d'états, du point de vue du joueur ayant le trait.
+   * 
+   * @param pHeuristique Fonction d'évaluation.
+   * @param pEtats Etats à évaluer.
+   * @param pPasses Nombre de passes.
+   * @return Somme des évaluations (pour que les appels ne puissent pas être éliminés).
+   */
+  private static long evaluate(final Heuristic pHeuristique, final MoveGenerator [] pEtats,
+      final int pPasses)
+  {
+    long res = 0;
+    for (int p = pPasses; p > 0; p--)
+    {
+      for (final MoveGenerator etat : pEtats)
+      {
+        res += pHeuristique.evaluate(etat, etat.isWhiteActive());
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Teste l'efficacité des heuristiques : vitesse d'évaluation, puis parties croisées.
    * 
-   * @param pArgs Arguments de la ligne de commande : ignorés, aucun argument attendu.
+   * @param pArgs Arguments de la ligne de commande : "-speed" pour ne mesurer que la vitesse
+   *          d'évaluation.
    */
   public static void main(final String [] pArgs)
+  {
+    benchEvaluate();
+    if ((pArgs.length > 0) && "-speed".equals(pArgs[0]))
+    {
+      return;
+    }
+    playGames();
+  }
+
+  /**
+   * Renvoi des positions issues de parties jouées au hasard.
+   * 
+   * @param pNombre Nombre de positions souhaitées.
+   * @param pHasard Générateur de nombres aléatoires.
+   * @return Liste des positions.
+   */
+  static List<MoveGenerator> randomPositions(final int pNombre, final Random pHasard)
+  {
+    final List<MoveGenerator> res = new ArrayList<>(pNombre);
+    while (res.size() < pNombre)
+    {
+      MoveGenerator etat =
+          BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.STARTING);
+      for (int i = 0; (i < 2 * MOVES_COUNT) && (res.size() < pNombre); i++)
+      {
+        final Move [] mvts = etat.getValidMoves(etat.isWhiteActive());
+        if (mvts.length == 0)
+        {
+          break;
+        }
+        etat = etat.derive(mvts[pHasard.nextInt(mvts.length)], true);
+        res.add(etat);
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Teste l'efficacité des heuristiques en parties croisées.
+   */
+  private static void playGames()
   {
     System.out.println("Parties croisées (en " + GAMES_COUNT + " manches de " + MOVES_COUNT
         + " coups maximum).");
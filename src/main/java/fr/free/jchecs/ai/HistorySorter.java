@@ -58,6 +58,16 @@ final class HistorySorter implements ContextSorter
     Arrays.fill(_history, 0);
   }
 
+  /**
+   * Crée une nouvelle instance, au contexte vide.
+   * 
+   * @return Nouvelle instance.
+   */
+  public ContextSorter newInstance()
+  {
+    return new HistorySorter();
+  }
+
   /**
    * Tri des mouvements.
    * 
@@ -67,33 +77,8 @@ final class HistorySorter implements ContextSorter
    */
   public int compare(final Move pMvt1, final Move pMvt2)
   {
-    int v1 = get(pMvt1);
-    int v2 = get(pMvt2);
-
-    final Piece prise1 = pMvt1.getCaptured();
-    final int vPiece1 = pMvt1.getPiece().getType().getValue();
-    if (prise1 == null)
-    {
-      v1 += vPiece1;
-    }
-    else
-    {
-      v1 += 1000 * prise1.getType().getValue();
-      v1 -= vPiece1;
-    }
-
-    final Piece prise2 = pMvt2.getCaptured();
-    final int vPiece2 = pMvt2.getPiece().getType().getValue();
-    if (prise2 == null)
-    {
-      v2 += vPiece2;
-    }
-    else
-    {
-      v2 += 1000 * prise2.getType().getValue();
-      v2 -= vPiece2;
-    }
-
+    final int v1 = score(pMvt1.toId(), 0);
+    final int v2 = score(pMvt2.toId(), 0);
     if (v1 > v2)
     {
       return -1;
@@ -106,29 +91,47 @@ final class HistorySorter implements ContextSorter
     return 0;
   }
 
+
   /**
    * Renvoie l'évaluation d'un mouvement.
    * 
-   * @param pMouvement Mouvement à rechercher.
+   * @param pMouvement Identifiant du mouvement à rechercher.
+   * @param pDemiCoup Demi-coup de profondeur (ignoré : l'historique est commun à tous).
    * @return Valeur liée au mouvement (ou 0 si le mouvement n'est pas dans la liste).
    */
-  public int get(final Move pMouvement)
+  public int get(final int pMouvement, final int pDemiCoup)
   {
-    assert pMouvement != null;
-
-    return _history[pMouvement.getFrom().getIndex() + 64 * pMouvement.getTo().getIndex()]
+    return _history[Move.fromOf(pMouvement) + 64 * Move.toOf(pMouvement)]
         + HISTORY_MOVE_PRIORITY;
   }
 
   /**
    * Ajoute un mouvement à l'historique.
    * 
-   * @param pMouvement Mouvement à mémoriser.
+   * @param pMouvement Identifiant du mouvement à mémoriser.
+   * @param pDemiCoup Demi-coup de profondeur (ignoré : l'historique est commun à tous).
    */
-  public void put(final Move pMouvement)
+  public void put(final int pMouvement, final int pDemiCoup)
   {
-    assert pMouvement != null;
+    _history[Move.fromOf(pMouvement) + 64 * Move.toOf(pMouvement)]++;
+  }
+
+  /**
+   * Renvoi le score d'un mouvement : contexte, puis valeur des prises et valeur des pièces.
+   * 
+   * @param pMouvement Identifiant du mouvement.
+   * @param pDemiCoup Demi-coup de profondeur de la recherche auquel le mouvement est joué.
+   * @return Score du mouvement.
+   */
+  public int score(final int pMouvement, final int pDemiCoup)
+  {
+    final int vPiece = Move.pieceOf(pMouvement).getType().getValue();
+    final Piece prise = Move.capturedOf(pMouvement);
+    if (prise == null)
+    {
+      return get(pMouvement, pDemiCoup) + vPiece;
+    }
 
-    _history[pMouvement.getFrom().getIndex() + 64 * pMouvement.getTo().getIndex()]++;
+    return get(pMouvement, pDemiCoup) + 1000 * prise.getType().getValue() - vPiece;
   }
 }
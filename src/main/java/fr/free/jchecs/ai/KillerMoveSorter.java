@@ -28,6 +28,11 @@ import fr.free.jchecs.core.Piece;
 /**
  * Trie les mouvements en fonction de "killer moves", puis par valeur des prises et valeur des
  * pièces.
+ * <p>
+ * Les "killer moves" sont mémorisés par demi-coup de profondeur de la recherche : seuls les
+ * mouvements ayant provoqué une coupure au même niveau de l'arbre sont favorisés, dans la limite
+ * des deux plus récents.
+ * </p>
  * 
  * @author David Cotton
  */
@@ -39,11 +44,14 @@ final class KillerMoveSorter implements ContextSorter
   /** Priorité donnée à un "killer move". */
   private static final int KILLER_MOVE_PRIORITY = 1000000 * QUEEN.getValue();
 
-  /** Buffer des "killer moves". */
-  private final Move [] _killerMoves = new Move [ 5 ];
+  /** Nombre de "killer moves" mémorisés par demi-coup de profondeur. */
+  private static final int SLOTS = 2;
 
-  /** Indice du prochain emplacement pouvant accueillir un "killer move". */
-  private int _nextIndex;
+  /**
+   * Identifiants des "killer moves", {@link #SLOTS} par demi-coup de profondeur, du plus récent au
+   * plus ancien (0 pour un emplacement libre).
+   */
+  private int [] _killerMoves = new int [ 32 * SLOTS ];
 
   /**
    * Crée une nouvelle instance.
@@ -58,8 +66,17 @@ final class KillerMoveSorter implements ContextSorter
    */
   public void clear()
   {
-    Arrays.fill(_killerMoves, null);
-    _nextIndex = 0;
+    Arrays.fill(_killerMoves, 0);
+  }
+
+  /**
+   * Crée une nouvelle instance, au contexte vide.
+   * 
+   * @return Nouvelle instance.
+   */
+  public ContextSorter newInstance()
+  {
+    return new KillerMoveSorter();
   }
 
   /**
@@ -71,33 +88,8 @@ final class KillerMoveSorter implements ContextSorter
    */
   public int compare(final Move pMvt1, final Move pMvt2)
   {
-    int v1 = get(pMvt1);
-    int v2 = get(pMvt2);
-
-    final Piece prise1 = pMvt1.getCaptured();
-    final int vPiece1 = pMvt1.getPiece().getType().getValue();
-    if (prise1 == null)
-    {
-      v1 += vPiece1;
-    }
-    else
-    {
-      v1 += 1000 * prise1.getType().getValue();
-      v1 -= vPiece1;
-    }
-
-    final Piece prise2 = pMvt2.getCaptured();
-    final int vPiece2 = pMvt2.getPiece().getType().getValue();
-    if (prise2 == null)
-    {
-      v2 += vPiece2;
-    }
-    else
-    {
-      v2 += 1000 * prise2.getType().getValue();
-      v2 -= vPiece2;
-    }
-
+    final int v1 = score(pMvt1.toId(), 0);
+    final int v2 = score(pMvt2.toId(), 0);
     if (v1 > v2)
     {
       return -1;
@@ -110,19 +102,30 @@ final class KillerMoveSorter implements ContextSorter
     return 0;
   }
 
+
   /**
    * Renvoie l'évaluation d'un mouvement.
    * 
-   * @param pMouvement Mouvement à rechercher.
-   * @return Valeur liée au mouvement (ou 0 si le mouvement n'est pas dans la liste).
+   * @param pMouvement Identifiant du mouvement à rechercher.
+   * @param pDemiCoup Demi-coup de profondeur de la recherche auquel le mouvement est joué.
+   * @return Valeur liée au mouvement (ou 0 si le mouvement n'est pas un "killer move" de ce
+   *         demi-coup).
    */
-  public int get(final Move pMouvement)
+  public int get(final int pMouvement, final int pDemiCoup)
   {
-    assert pMouvement != null;
+    assert pDemiCoup >= 0;
 
-    if (pMouvement.equals(_killerMoves[0]) || pMouvement.equals(_killerMoves[1])
-        || pMouvement.equals(_killerMoves[2]) || pMouvement.equals(_killerMoves[3])
-        || pMouvement.equals(_killerMoves[4]))
+    final int [] killers = _killerMoves;
+    final int i = pDemiCoup * SLOTS;
+    if (i >= killers.length)
+    {
+      return 0;
+    }
+    if (pMouvement == killers[i])
+    {
+      return KILLER_MOVE_PRIORITY + 1;
+    }
+    if (pMouvement == killers[i + 1])
     {
       return KILLER_MOVE_PRIORITY;
     }
@@ -131,18 +134,47 @@ final class KillerMoveSorter implements ContextSorter
   }
 
   /**
-   * Mémorise un "killer move".
+   * Mémorise un "killer move", qui remplace le plus ancien de son demi-coup.
    * 
-   * @param pMouvement Mouvement à mémoriser.
+   * @param pMouvement Identifiant du mouvement à mémoriser.
+   * @param pDemiCoup Demi-coup de profondeur de la recherche auquel le mouvement a été joué.
    */
-  public void put(final Move pMouvement)
+  public void put(final int pMouvement, final int pDemiCoup)
   {
-    assert pMouvement != null;
+    assert pMouvement != 0;
+    assert pDemiCoup >= 0;
 
-    _killerMoves[_nextIndex++] = pMouvement;
-    if (_nextIndex >= 5)
+    final int i = pDemiCoup * SLOTS;
+    if (i >= _killerMoves.length)
+    {
+      final int [] extension = new int [ i * 2 ];
+      System.arraycopy(_killerMoves, 0, extension, 0, _killerMoves.length);
+      _killerMoves = extension;
+    }
+    final int [] killers = _killerMoves;
+    if (killers[i] != pMouvement)
     {
-      _nextIndex = 0;
+      killers[i + 1] = killers[i];
+      killers[i] = pMouvement;
     }
   }
+
+  /**
+   * Renvoi le score d'un mouvement : contexte, puis valeur des prises et valeur des pièces.
+   * 
+   * @param pMouvement Identifiant du mouvement.
+   * @param pDemiCoup Demi-coup de profondeur de la recherche auquel le mouvement est joué.
+   * @return Score du mouvement.
+   */
+  public int score(final int pMouvement, final int pDemiCoup)
+  {
+    final int vPiece = Move.pieceOf(pMouvement).getType().getValue();
+    final Piece prise = Move.capturedOf(pMouvement);
+    if (prise == null)
+    {
+      return get(pMouvement, pDemiCoup) + vPiece;
+    }
+
+    return get(pMouvement, pDemiCoup) + 1000 * prise.getType().getValue() - vPiece;
+  }
 }
@@ -0,0 +1,125 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Classe utilitaire projetant en mémoire ({@link java.nio.MappedByteBuffer}), en lecture seule,
+ * les fichiers de données des moteurs (bibliothèque d'ouvertures, tables de finales).
+ * 
+ * @author David Cotton
+ */
+final class MappedFiles
+{
+  /**
+   * Classe utilitaire : ne pas instancier.
+   */
+  private MappedFiles()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Projette un fichier en mémoire, en lecture seule.
+   * 
+   * @param pFichier Fichier à projeter.
+   * @return Contenu du fichier.
+   * @throws IOException En cas d'erreur de lecture.
+   */
+  static ByteBuffer map(final File pFichier) throws IOException
+  {
+    assert pFichier != null;
+
+    final RandomAccessFile fichier = new RandomAccessFile(pFichier, "r");
+    try
+    {
+      // La projection reste valide après la fermeture du fichier.
+      final FileChannel canal = fichier.getChannel();
+      return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+    }
+    finally
+    {
+      fichier.close();
+    }
+  }
+
+  /**
+   * Projette une ressource en mémoire, en lecture seule. Une ressource qui n'est pas directement un
+   * fichier (par exemple contenue dans une archive JAR) est d'abord copiée dans un fichier
+   * temporaire, qui peut alors être projeté.
+   * 
+   * @param pRessource Adresse de la ressource.
+   * @return Contenu de la ressource.
+   * @throws IOException En cas d'erreur de lecture.
+   */
+  static ByteBuffer map(final URL pRessource) throws IOException
+  {
+    assert pRessource != null;
+
+    if ("file".equals(pRessource.getProtocol()))
+    {
+      try
+      {
+        return map(new File(pRessource.toURI()));
+      }
+      catch (final URISyntaxException e)
+      {
+        throw new IOException(e);
+      }
+    }
+
+    final File copie = File.createTempFile("jchecs", ".tmp");
+    copie.deleteOnExit();
+    final InputStream in = pRessource.openStream();
+    try
+    {
+      final OutputStream out = new FileOutputStream(copie);
+      try
+      {
+        final byte [] tampon = new byte [ 8192 ];
+        int lus = in.read(tampon);
+        while (lus >= 0)
+        {
+          out.write(tampon, 0, lus);
+          lus = in.read(tampon);
+        }
+      }
+      finally
+      {
+        out.close();
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+
+    return map(copie);
+  }
+}
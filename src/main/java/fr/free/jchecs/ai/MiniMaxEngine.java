@@ -18,8 +18,11 @@
  */
 package fr.free.jchecs.ai;
 
+import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.MoveList;
+import fr.free.jchecs.core.ReversibleMoveGenerator;
 
 /**
  * Moteur d'IA basé sur un mini/max sur 3 demi-coups.
@@ -42,11 +45,11 @@ final class MiniMaxEngine extends AbstractEngine
   /**
    * Recherche la meilleure réplique évaluée à partir d'une position.
    * 
-   * @param pEtat Etat de l'échiquier.
+   * @param pEtat Etat de l'échiquier, restauré au retour.
    * @param pProfondeur Profondeur d'évaluation actuelle.
    * @return Meilleure évaluation obtenue à ce niveau.
    */
-  private int findMin(final MoveGenerator pEtat, final int pProfondeur)
+  private int findMin(final ReversibleMoveGenerator pEtat, final int pProfondeur)
   {
     assert pEtat != null;
     assert pProfondeur >= 0;
@@ -55,17 +58,23 @@ final class MiniMaxEngine extends AbstractEngine
 
     if (pProfondeur == 0)
     {
-      return getHeuristic().evaluate(pEtat, _trait);
+      if (isQuiescenceEnabled())
+      {
+        return -quiesce(pEtat, MATE_VALUE, -MATE_VALUE);
+      }
+      return evaluate(pEtat, _trait);
     }
 
     int res = -MATE_VALUE;
 
-    final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
-    addHalfmove(coups.length);
-    for (final Move mvt : coups)
+    final MoveList coups = getMoveList(pEtat.getPly());
+    final int l = pEtat.getValidMoves(pEtat.isWhiteActive(), coups);
+    addHalfmove(l);
+    for (int i = 0; i < l; i++)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = findMax(etat, pProfondeur - 1);
+      pEtat.makeMove(coups.get(i));
+      final int note = findMax(pEtat, pProfondeur - 1);
+      pEtat.unmakeMove();
       if (note < res)
       {
         res = note;
@@ -78,11 +87,11 @@ final class MiniMaxEngine extends AbstractEngine
   /**
    * Recherche le meilleur coup évalué à partir d'une position.
    * 
-   * @param pEtat Etat de l'échiquier.
+   * @param pEtat Etat de l'échiquier, restauré au retour.
    * @param pProfondeur Profondeur d'évaluation actuelle.
    * @return Meilleure évaluation obtenue à ce niveau.
    */
-  private int findMax(final MoveGenerator pEtat, final int pProfondeur)
+  private int findMax(final ReversibleMoveGenerator pEtat, final int pProfondeur)
   {
     assert pEtat != null;
     assert pProfondeur >= 0;
@@ -91,17 +100,23 @@ final class MiniMaxEngine extends AbstractEngine
 
     if (pProfondeur == 0)
     {
-      return getHeuristic().evaluate(pEtat, _trait);
+      if (isQuiescenceEnabled())
+      {
+        return quiesce(pEtat, MATE_VALUE, -MATE_VALUE);
+      }
+      return evaluate(pEtat, _trait);
     }
 
     int res = MATE_VALUE;
 
-    final Move [] coups = pEtat.getValidMoves(pEtat.isWhiteActive());
-    addHalfmove(coups.length);
-    for (final Move mvt : coups)
+    final MoveList coups = getMoveList(pEtat.getPly());
+    final int l = pEtat.getValidMoves(pEtat.isWhiteActive(), coups);
+    addHalfmove(l);
+    for (int i = 0; i < l; i++)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = findMin(etat, pProfondeur - 1);
+      pEtat.makeMove(coups.get(i));
+      final int note = findMin(pEtat, pProfondeur - 1);
+      pEtat.unmakeMove();
       if (note > res)
       {
         res = note;
@@ -131,10 +146,12 @@ final class MiniMaxEngine extends AbstractEngine
     addHalfmove(l);
     Move res = pCoups[0];
     int meilleur = MATE_VALUE - 1;
+    final ReversibleMoveGenerator etat = BoardFactory.newReversible(getSearchBoardType(), pEtat);
     for (final Move mvt : pCoups)
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
+      etat.makeMove(mvt);
       final int note = findMin(etat, getSearchDepthLimit() - 1);
+      etat.unmakeMove();
       if ((note > meilleur) || ((note == meilleur) && RANDOMIZER.nextBoolean()))
       {
         // Un peu de hasard sert à partager les évaluations identiques : jeu plus agréable.
@@ -19,8 +19,6 @@
 package fr.free.jchecs.ai;
 
 import fr.free.jchecs.core.MoveGenerator;
-import fr.free.jchecs.core.Piece;
-import fr.free.jchecs.core.Square;
 
 /**
  * Implémentation d'une fonction d'évaluation minimale : se base uniquement le matériel,
@@ -56,25 +54,13 @@ final class MinimalHeuristic implements Heuristic
   {
     assert pEtat != null;
 
-    int res = 0;
-
-    for (final Square s : Square.values())
+    // Le bilan matériel est maintenu par l'état lui-même...
+    final int res = pEtat.getMaterialBalance();
+    if (pTrait)
     {
-      final Piece piece = pEtat.getPieceAt(s);
-      if (piece != null)
-      {
-        final int valeur = piece.getType().getValue();
-        if (piece.isWhite() == pTrait)
-        {
-          res += valeur;
-        }
-        else
-        {
-          res -= valeur;
-        }
-      }
+      return res;
     }
 
-    return res;
+    return -res;
   }
 }
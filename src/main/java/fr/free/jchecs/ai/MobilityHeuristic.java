@@ -21,18 +21,31 @@ package fr.free.jchecs.ai;
 import static fr.free.jchecs.ai.AbstractEngine.MATE_VALUE;
 import static fr.free.jchecs.core.Constants.FILE_COUNT;
 import static fr.free.jchecs.core.Constants.RANK_COUNT;
-import static fr.free.jchecs.core.PieceType.KING;
-import static fr.free.jchecs.core.PieceType.PAWN;
+import static fr.free.jchecs.core.Piece.BLACK_PAWN;
+import static fr.free.jchecs.core.Piece.WHITE_PAWN;
+import static fr.free.jchecs.core.PieceSquareTable.MOBILITY_PAWNS;
+import static fr.free.jchecs.core.PieceSquareTable.MOBILITY_PIECES;
 
 import fr.free.jchecs.core.MoveGenerator;
 import fr.free.jchecs.core.Piece;
-import fr.free.jchecs.core.PieceType;
 import fr.free.jchecs.core.Square;
 
 /**
  * Fonction d'évaluation basée sur le matériel, la position des pièces présentes sur le plateau et
  * leur mobilité.
  * <p>
+ * Le matériel, les bonus/malus de position des pièces autres que les rois (voir
+ * {@link fr.free.jchecs.core.PieceSquareTable#MOBILITY_PIECES} et
+ * {@link fr.free.jchecs.core.PieceSquareTable#MOBILITY_PAWNS}) et le nombre de pions par colonne
+ * étant maintenus par l'état lors des dérivations, seuls les termes liés à la mobilité, aux
+ * attaques et aux rois demandent un parcours des pièces.
+ * </p>
+ * <p>
+ * L'évaluation de la structure de pions (pions doublés, isolés et passés) ne dépendant que de la
+ * position des pions, elle peut être conservée d'une évaluation à l'autre dans une
+ * {@link PawnHashTable}, indexée par la clé "Zobrist" des pions de l'état.
+ * </p>
+ * <p>
  * Classe sûre vis-à-vis des threads.
  * </p>
  * 
@@ -49,21 +62,76 @@ final class MobilityHeuristic implements Heuristic
   /** Identifiant de la classe pour la sérialisation. */
   private static final long serialVersionUID = 8752973612245818678L;
 
+  /** Malus de chaque pion doublé (au-delà du premier pion d'une colonne). */
+  private static final int DOUBLED_PAWN = 5;
+
+  /** Malus d'un pion isolé (sans pion de sa couleur sur les colonnes voisines). */
+  private static final int ISOLATED_PAWN = 10;
+
   /**
-   * Bonus/Malus d'un fou (blanc par défaut) en fonction de sa position.
+   * Bonus d'un pion passé, en fonction de sa rangée (vue de son camp).
    */
-  private static final int [] BISHOP_POSITIONS = { -5, -5, -5, -5, -5, -5, -5, -5, // a1 ... h1
-    -5, 10, 5, 10, 10, 5, 10, -5, // a2 ... h2
-    -5, 5, 3, 12, 12, 3, 5, -5, // a3 ... h3
-    -5, 3, 12, 3, 3, 12, 3, -5, // a4 ... h4
-    -5, 3, 12, 3, 3, 12, 3, -5, // a5 ... h5
-    -5, 5, 3, 12, 12, 3, 5, -5, // a6 ... h6
-    -5, 10, 5, 10, 10, 5, 10, -5, // a7 ... h7
-    -5, -5, -5, -5, -5, -5, -5, -5, // a8 ... h8
-  };
+  private static final int [] PASSED_PAWN = { 0, 5, 10, 15, 25, 40, 60, 0 };
   static
   {
-    assert BISHOP_POSITIONS.length == 64;
+    assert PASSED_PAWN.length == RANK_COUNT;
+  }
+
+  /** Cartes binaires des cases de chaque colonne. */
+  private static final long [] FILES = new long [ FILE_COUNT ];
+
+  /** Cartes binaires des cases des colonnes voisines de chaque colonne. */
+  private static final long [] ADJACENT_FILES = new long [ FILE_COUNT ];
+
+  /**
+   * Cartes binaires, par case, des cases devant être libres de pions adverses pour qu'un pion blanc
+   * y soit passé.
+   */
+  private static final long [] WHITE_PASSED_SPANS = new long [ FILE_COUNT * RANK_COUNT ];
+
+  /**
+   * Cartes binaires, par case, des cases devant être libres de pions adverses pour qu'un pion noir
+   * y soit passé.
+   */
+  private static final long [] BLACK_PASSED_SPANS = new long [ FILE_COUNT * RANK_COUNT ];
+  static
+  {
+    for (int x = 0; x < FILE_COUNT; x++)
+    {
+      for (int y = 0; y < RANK_COUNT; y++)
+      {
+        FILES[x] |= 1L << (y * FILE_COUNT + x);
+      }
+    }
+    for (int x = 0; x < FILE_COUNT; x++)
+    {
+      if (x > 0)
+      {
+        ADJACENT_FILES[x] |= FILES[x - 1];
+      }
+      if (x < FILE_COUNT - 1)
+      {
+        ADJACENT_FILES[x] |= FILES[x + 1];
+      }
+    }
+    for (int i = 0; i < WHITE_PASSED_SPANS.length; i++)
+    {
+      final int x = i % FILE_COUNT;
+      final int y = i / FILE_COUNT;
+      final long colonnes = FILES[x] | ADJACENT_FILES[x];
+      for (int r = 0; r < RANK_COUNT; r++)
+      {
+        final long rangee = 0xFFL << (r * FILE_COUNT);
+        if (r > y)
+        {
+          WHITE_PASSED_SPANS[i] |= colonnes & rangee;
+        }
+        else if (r < y)
+        {
+          BLACK_PASSED_SPANS[i] |= colonnes & rangee;
+        }
+      }
+    }
   }
 
   /**
@@ -100,74 +168,6 @@ final class MobilityHeuristic implements Heuristic
     assert KING_END_POSITIONS.length == 64;
   }
 
-  /**
-   * Bonus/Malus d'un cavalier (blanc par défaut) en fonction de sa position.
-   */
-  private static final int [] KNIGHT_POSITIONS = { -10, -5, -3, -1, -1, -3, -5, -10, // a1 ... h1
-    -5, 0, 0, 3, 3, 0, 0, -5, // a2 ... h2
-    -3, 0, 5, 5, 5, 5, 0, -3, // a3 ... h3
-    -1, 1, 5, 10, 10, 5, 1, -1, // a4 ... h4
-    -1, 1, 7, 12, 12, 7, 1, -1, // a5 ... h5
-    -3, 0, 5, 7, 7, 5, 0, -3, // a6 ... h6
-    -5, 0, 0, 3, 3, 0, 0, -5, // a7 ... h7
-    -10, -5, -3, -1, -1, -3, -5, -10, // a8 ... h8
-  };
-  static
-  {
-    assert KNIGHT_POSITIONS.length == 64;
-  }
-
-  /**
-   * Bonus/Malus d'un pion (blanc par défaut) en fonction de sa position.
-   */
-  private static final int [] PAWN_POSITIONS = { 0, 0, 0, 0, 0, 0, 0, 0, // a1 ... h1
-    0, 0, 0, -5, -5, 0, 0, 0, // a2 ... h2
-    1, 2, 4, 4, 4, 3, 2, 1, // a3 ... h3
-    2, 4, 7, 8, 8, 6, 4, 2, // a4 ... h4
-    3, 6, 11, 12, 12, 9, 6, 3, // a5 ... h5
-    4, 8, 12, 16, 16, 12, 8, 4, // a6 ... h6
-    5, 10, 15, 20, 20, 15, 10, 5, // a7 ... h7
-    100, 100, 100, 100, 100, 100, 100, 100, // a8 ... h9
-  };
-  static
-  {
-    assert PAWN_POSITIONS.length == 64;
-  }
-
-  /**
-   * Bonus/Malus d'une reine (blanche par défaut) en fonction de sa position.
-   */
-  private static final int [] QUEEN_POSITIONS = { -5, -5, -5, 0, 0, -5, -5, -5, // a1 ... h1
-    0, 0, 3, 3, 3, 0, 0, 0, // a2 ... h2
-    0, 3, 3, 3, 3, 0, 0, 0, // a3 ... h3
-    0, 0, 0, 5, 5, 0, 0, 0, // a4 ... h4
-    0, 0, 0, 5, 5, 0, 0, 0, // a5 ... h5
-    -5, -5, 0, 0, 0, 0, 0, 0, // a6 ... h6
-    -5, -5, 0, 0, 0, 0, 0, 0, // a7 ... h7
-    -5, -5, 0, 0, 0, 0, 0, 0, // a8 ... h8
-  };
-  static
-  {
-    assert QUEEN_POSITIONS.length == 64;
-  }
-
-  /**
-   * Bonus/Malus d'une tour (blanche par défaut) en fonction de sa position.
-   */
-  private static final int [] ROOK_POSITIONS = { 0, 0, 0, 5, 5, 0, 0, 0, // a1 ... h1
-    -2, 0, 0, 0, 0, 0, 0, -2, // a2 ... h2
-    -2, 0, 0, 0, 0, 0, 0, -2, // a3 ... h3
-    -2, 0, 0, 0, 0, 0, 0, -2, // a4 ... h4
-    -2, 0, 0, 0, 0, 0, 0, -2, // a5 ... h5
-    -2, 0, 0, 0, 0, 0, 0, -2, // a6 ... h6
-    10, 10, 10, 10, 10, 10, 10, 10, // a7 ... h7
-    0, 0, 0, 0, 0, 0, 0, 0, // a8 ... h8
-  };
-  static
-  {
-    assert ROOK_POSITIONS.length == 64;
-  }
-
   /**
    * Crée une nouvelle instance.
    */
@@ -185,239 +185,238 @@ final class MobilityHeuristic implements Heuristic
    * @see Heuristic#evaluate(MoveGenerator,boolean)
    */
   public int evaluate(final MoveGenerator pEtat, final boolean pTrait)
+  {
+    return evaluate(pEtat, pTrait, null);
+  }
+
+  /**
+   * Renvoi la valeur estimée d'un état du jeu, en s'appuyant sur une table de hachage des
+   * structures de pions.
+   * 
+   * @param pEtat Etat du jeu.
+   * @param pTrait Positionné à "true" si l'on veut une évaluation du point de vue des blancs.
+   * @param pPions Table des structures de pions propre à la recherche en cours (ou null).
+   * @return Valeur estimée.
+   */
+  int evaluate(final MoveGenerator pEtat, final boolean pTrait, final PawnHashTable pPions)
   {
     assert pEtat != null;
 
-    final int [] pionsTrait = new int [ FILE_COUNT ];
-    final int [] pionsAdversaire = new int [ FILE_COUNT ];
+    final int nbPieces = pEtat.getPieceCount();
 
-    int res = -pEtat.getHalfmoveCount() * 2;
-
-    int nbPieces = 0;
-    for (final Square s : Square.values())
+    // Termes maintenus par l'état : matériel et positions (les pions comptent double en fin de
+    // partie)...
+    int bilan = pEtat.getMaterialBalance() + pEtat.getPositionalBalance(MOBILITY_PIECES);
+    if (nbPieces > END_GAME)
     {
-      final Piece piece = pEtat.getPieceAt(s);
-      if (piece != null)
+      bilan += pEtat.getPositionalBalance(MOBILITY_PAWNS);
+    }
+    else
+    {
+      bilan += pEtat.getPositionalBalance(MOBILITY_PAWNS) * 2;
+    }
+    // ... structure de pions (éventuellement déjà connue)...
+    final long blancs;
+    final long noirs;
+    final int entree;
+    if (pPions == null)
+    {
+      entree = -1;
+    }
+    else
+    {
+      entree = pPions.probe(pEtat.pawnZobristKey());
+    }
+    if (entree >= 0)
+    {
+      bilan += pPions.getScore(entree);
+      blancs = pPions.getPassedPawns(entree, true);
+      noirs = pPions.getPassedPawns(entree, false);
+    }
+    else
+    {
+      long pionsBlancs = 0;
+      long pionsNoirs = 0;
+      for (int i = 0, reste = nbPieces; reste > 0; i++)
       {
-        nbPieces++;
-        if (piece.getType() == PAWN)
+        final Piece piece = pEtat.getPieceAt(Square.valueOf(i));
+        if (piece != null)
         {
-          final int idx = s.getFile();
-          if (piece.isWhite() == pTrait)
+          reste--;
+          if (piece == WHITE_PAWN)
           {
-            pionsTrait[idx]++;
-            if (pionsTrait[idx] > 1)
-            {
-              res -= 5;
-            }
+            pionsBlancs |= 1L << i;
           }
-          else
+          else if (piece == BLACK_PAWN)
           {
-            pionsAdversaire[idx]++;
-            if (pionsAdversaire[idx] > 1)
-            {
-              res += 5;
-            }
+            pionsNoirs |= 1L << i;
           }
         }
       }
+      final int structure = pawnStructure(pionsBlancs) - pawnStructure(pionsNoirs);
+      blancs = passedPawns(pionsBlancs, pionsNoirs, WHITE_PASSED_SPANS);
+      noirs = passedPawns(pionsNoirs, pionsBlancs, BLACK_PASSED_SPANS);
+      if (pPions != null)
+      {
+        pPions.store(pEtat.pawnZobristKey(), structure, blancs, noirs);
+      }
+      bilan += structure;
+    }
+    // ... et bonus des pions passés, dont l'importance croît en fin de partie.
+    int passes = 0;
+    for (long b = blancs; b != 0; b &= b - 1)
+    {
+      passes += PASSED_PAWN[Long.numberOfTrailingZeros(b) / FILE_COUNT];
+    }
+    for (long b = noirs; b != 0; b &= b - 1)
+    {
+      passes -= PASSED_PAWN[(RANK_COUNT - 1) - Long.numberOfTrailingZeros(b) / FILE_COUNT];
+    }
+    if (nbPieces > END_GAME)
+    {
+      bilan += passes;
+    }
+    else
+    {
+      bilan += passes * 2;
+    }
+    int res = -pEtat.getHalfmoveCount() * 2;
+    if (pTrait)
+    {
+      res += bilan;
+    }
+    else
+    {
+      res -= bilan;
+    }
+
+    // Rois...
+    for (int c = 0; c < 2; c++)
+    {
+      final boolean traitRoi = c == 0;
+      final int score;
+      if ((pEtat.getFullmoveNumber() > 5) && pEtat.isInCheck(traitRoi))
+      {
+        if (pEtat.getValidMoves(traitRoi).length == 0)
+        {
+          // Mat : inutile d'aller plus loin...
+          if (traitRoi == pTrait)
+          {
+            return MATE_VALUE;
+          }
+
+          return -MATE_VALUE;
+        }
+
+        // Malus pour un échec...
+        score = -250;
+      }
+      else
+      {
+        final Square s = pEtat.getKingSquare(traitRoi);
+        final int idx;
+        if (traitRoi)
+        {
+          idx = s.getIndex();
+        }
+        else
+        {
+          idx = ((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile();
+        }
+        int pos;
+        if (nbPieces >= END_GAME)
+        {
+          pos = KING_POSITIONS[idx];
+        }
+        else
+        {
+          pos = KING_END_POSITIONS[idx];
+        }
+        if ((pEtat.getFullmoveNumber() <= 32) && pEtat.isCastled(traitRoi))
+        {
+          // Pour favoriser le roque en début de partie...
+          pos += 25;
+        }
+        score = pos;
+      }
+      if (traitRoi == pTrait)
+      {
+        res += score;
+      }
+      else
+      {
+        res -= score;
+      }
     }
 
-    for (final Square s : Square.values())
+    // ... puis mobilité, menaces et cas particuliers des autres pièces.
+    for (int i = 0, reste = nbPieces; reste > 0; i++)
     {
+      final Square s = Square.valueOf(i);
       final Piece piece = pEtat.getPieceAt(s);
       if (piece != null)
       {
+        reste--;
         final boolean traitPiece = piece.isWhite();
-        final PieceType typePiece = piece.getType();
-        final int mat = typePiece.getValue();
-        final int pos;
-        final int mob;
-        switch (typePiece)
+        final int mat = piece.getType().getValue();
+        int score = 0;
+        switch (piece.getType())
         {
           case BISHOP :
-            if (traitPiece)
-            {
-              pos = BISHOP_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              pos = BISHOP_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
             if (nbPieces >= MIDDLE_GAME)
             {
-              mob = pEtat.getBishopTargets(s, traitPiece).length * 4;
-            }
-            else
-            {
-              mob = 0;
+              score = pEtat.getBishopTargets(s, traitPiece).length * 4;
             }
             break;
           case KING :
-            if ((pEtat.getFullmoveNumber() > 5) && pEtat.isInCheck(traitPiece))
-            {
-              pos = 0;
-              if (pEtat.getValidMoves(traitPiece).length == 0)
-              {
-                // Mat : inutile d'aller plus loin...
-                if (traitPiece == pTrait)
-                {
-                  return MATE_VALUE;
-                }
-
-                return -MATE_VALUE;
-              }
-
-              // Malus pour un échec...
-              mob = -250;
-            }
-            else
-            {
-              final int idx;
-              if (traitPiece)
-              {
-                idx = s.getIndex();
-              }
-              else
-              {
-                idx = ((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile();
-              }
-              if (nbPieces >= END_GAME)
-              {
-                pos = KING_POSITIONS[idx];
-              }
-              else
-              {
-                pos = KING_END_POSITIONS[idx];
-              }
-              if ((pEtat.getFullmoveNumber() <= 32) && pEtat.isCastled(traitPiece))
-              {
-                // Pour favoriser le roque en début de partie...
-                mob = 25;
-              }
-              else
-              {
-                mob = 0;
-              }
-            }
-            break;
+            // Déjà évalué.
+            continue;
           case KNIGHT :
-            if (traitPiece)
-            {
-              pos = KNIGHT_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              pos = KNIGHT_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
             if (nbPieces >= MIDDLE_GAME)
             {
-              mob = pEtat.getKnightTargets(s, traitPiece).length * 4;
-            }
-            else
-            {
-              mob = 0;
+              score = pEtat.getKnightTargets(s, traitPiece).length * 4;
             }
             break;
           case PAWN :
-            if (traitPiece)
-            {
-              pos = PAWN_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              pos = PAWN_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
-            if (nbPieces > END_GAME)
-            {
-              mob = 0;
-            }
-            else
-            {
-              mob = pos;
-            }
             break;
           case QUEEN :
-            int posReine = 0;
-            if (traitPiece)
-            {
-              posReine = QUEEN_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              posReine =
-                  QUEEN_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
             if (pEtat.getFullmoveNumber() < 12)
             {
               // Essayer d'éviter de déplacer la reine trop tôt...
-              if ((traitPiece && (s.getIndex() != 3)) || ((!traitPiece) && (s.getIndex() != 59)))
+              if ((traitPiece && (i != 3)) || ((!traitPiece) && (i != 59)))
               {
-                posReine -= 30;
+                score -= 30;
               }
             }
-            pos = posReine;
             if ((nbPieces >= END_GAME) && (nbPieces <= MIDDLE_GAME))
             {
-              mob = pEtat.getQueenTargets(s, traitPiece).length;
-            }
-            else
-            {
-              mob = 0;
+              score += pEtat.getQueenTargets(s, traitPiece).length;
             }
             break;
           case ROOK :
-            if (traitPiece)
-            {
-              pos = ROOK_POSITIONS[s.getIndex()];
-            }
-            else
-            {
-              pos = ROOK_POSITIONS[((RANK_COUNT - 1) - s.getRank()) * FILE_COUNT + s.getFile()];
-            }
             if (nbPieces >= END_GAME)
             {
-              final int nbPions;
-              if (traitPiece == pTrait)
-              {
-                nbPions = pionsTrait[s.getFile()];
-              }
-              else
+              if (pEtat.getPawnCount(traitPiece, s.getFile()) == 0)
               {
-                nbPions = pionsAdversaire[s.getFile()];
-              }
-              if (nbPions == 0)
-              {
-                mob = 10;
-              }
-              else
-              {
-                mob = 0;
+                score = 10;
               }
             }
             else
             {
-              mob = pEtat.getRookTargets(s, traitPiece).length * 2;
+              score = pEtat.getRookTargets(s, traitPiece).length * 2;
             }
             break;
           default :
             assert false;
-            pos = 0;
-            mob = 0;
         }
-        int att = 0;
-        if (typePiece != KING)
+        if (pEtat.isAttacked(s, traitPiece))
         {
-          if (pEtat.isAttacked(s, traitPiece))
-          {
-            att += mat / 20;
-          }
-          if (pEtat.isAttacked(s, !traitPiece))
-          {
-            att -= mat / 10;
-          }
+          score += mat / 20;
+        }
+        if (pEtat.isAttacked(s, !traitPiece))
+        {
+          score -= mat / 10;
         }
-        final int score = mat + pos + mob + att;
         if (traitPiece == pTrait)
         {
           res += score;
@@ -431,4 +430,53 @@ final class MobilityHeuristic implements Heuristic
 
     return res;
   }
+
+  /**
+   * Renvoi la carte binaire des pions passés d'une couleur.
+   * 
+   * @param pPions Carte binaire des pions de la couleur.
+   * @param pAdversaires Carte binaire des pions adverses.
+   * @param pEtendues Cases devant être libres de pions adverses, par case, pour la couleur.
+   * @return Carte binaire des pions passés.
+   */
+  private static long passedPawns(final long pPions, final long pAdversaires,
+      final long [] pEtendues)
+  {
+    long res = 0;
+    for (long b = pPions; b != 0; b &= b - 1)
+    {
+      final int i = Long.numberOfTrailingZeros(b);
+      if ((pEtendues[i] & pAdversaires) == 0)
+      {
+        res |= 1L << i;
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi le malus de structure (pions doublés et isolés) des pions d'une couleur.
+   * 
+   * @param pPions Carte binaire des pions de la couleur.
+   * @return Malus de structure (<= 0).
+   */
+  private static int pawnStructure(final long pPions)
+  {
+    int res = 0;
+    for (int x = 0; x < FILE_COUNT; x++)
+    {
+      final int nb = Long.bitCount(pPions & FILES[x]);
+      if (nb > 0)
+      {
+        res -= (nb - 1) * DOUBLED_PAWN;
+        if ((pPions & ADJACENT_FILES[x]) == 0)
+        {
+          res -= nb * ISOLATED_PAWN;
+        }
+      }
+    }
+
+    return res;
+  }
 }
@@ -0,0 +1,70 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import fr.free.jchecs.core.MoveList;
+
+/**
+ * Jeu de listes de mouvements réutilisables, une par demi-coup de profondeur d'une recherche.
+ * <p>
+ * Les instances de cette classe ne sont pas sûres vis-à-vis des threads : chaque thread de
+ * recherche doit disposer de la sienne.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class MoveLists
+{
+  /** Listes allouées, indexées par demi-coup. */
+  private MoveList [] _lists = new MoveList [ 16 ];
+
+  /**
+   * Crée un nouveau jeu de listes.
+   */
+  MoveLists()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Renvoi la liste propre à un demi-coup de profondeur, en l'allouant si nécessaire.
+   * 
+   * @param pDemiCoup Demi-coup de profondeur (>= 0).
+   * @return Liste réservée à ce demi-coup.
+   */
+  MoveList get(final int pDemiCoup)
+  {
+    assert pDemiCoup >= 0;
+
+    if (pDemiCoup >= _lists.length)
+    {
+      final MoveList [] extension = new MoveList [ pDemiCoup * 2 ];
+      System.arraycopy(_lists, 0, extension, 0, _lists.length);
+      _lists = extension;
+    }
+    MoveList res = _lists[pDemiCoup];
+    if (res == null)
+    {
+      res = new MoveList();
+      _lists[pDemiCoup] = res;
+    }
+
+    return res;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+import fr.free.jchecs.core.Move;
+
+/**
+ * Interface présentée par les méthodes de tri des mouvements capables d'attribuer directement un
+ * score à l'identifiant d'un mouvement (voir {@link Move#toId()}), sans instancier de
+ * {@link Move}.
+ * <p>
+ * Le tri induit par {@link #compare(Object, Object)} doit classer les mouvements par scores
+ * décroissants, pour les mouvements initiaux d'une recherche (demi-coup de profondeur 0).
+ * </p>
+ * 
+ * @author David Cotton
+ */
+interface MoveScorer extends Comparator<Move>, Serializable
+{
+  /**
+   * Renvoi le score d'un mouvement : les mouvements de plus fort score sont examinés en premier.
+   * 
+   * @param pMouvement Identifiant du mouvement.
+   * @param pDemiCoup Demi-coup de profondeur de la recherche auquel le mouvement est joué (0 pour
+   *          les mouvements initiaux).
+   * @return Score du mouvement.
+   */
+  int score(final int pMouvement, final int pDemiCoup);
+}
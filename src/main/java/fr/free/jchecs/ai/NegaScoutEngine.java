@@ -18,22 +18,88 @@
  */
 package fr.free.jchecs.ai;
 
-import java.util.Arrays;
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.PieceType.PAWN;
+
 import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import fr.free.jchecs.core.BoardFactory;
 import fr.free.jchecs.core.Move;
 import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.MoveList;
+import fr.free.jchecs.core.ReversibleMoveGenerator;
 
 /**
  * Moteur d'IA basé sur l'algorithme NegaScout (aussi appelé Principal Variation Search), avec table
  * de transposition, sur 5 demi-coups.
+ * <p>
+ * Lorsque plusieurs threads de recherche sont demandés (voir {@link #setSearchThreads(int)}), la
+ * recherche suit le schéma "Lazy SMP" : des threads auxiliaires explorent la même position, à des
+ * profondeurs et dans des ordres légèrement différents, en partageant la table de transposition du
+ * moteur. Seul le résultat du thread principal est retenu : les auxiliaires ne font qu'alimenter la
+ * table, ce qui accélère la recherche principale.
+ * </p>
+ * <p>
+ * La recherche peut être élaguée par coup nul (voir {@link #setNullMoveEnabled(boolean)}) et
+ * réduite pour les coups tardifs (voir {@link #setLateMoveReductionsEnabled(boolean)}) : les
+ * mouvements calmes classés après les {@link #LATE_MOVE_COUNT} premiers sont examinés un demi-coup
+ * moins loin, puis réexaminés à pleine profondeur s'ils dépassent le seuil alpha.
+ * </p>
  * 
  * @author David Cotton
  */
 final class NegaScoutEngine extends AbstractEngine
 {
-  /** Table de transposition. */
-  private static final TranspositionTable TRANSPOSITIONS = new TranspositionTable(1000000);
+  /** Nombre de mouvements examinés à pleine profondeur avant les réductions des coups tardifs. */
+  private static final int LATE_MOVE_COUNT = 3;
+
+  /** Réduction de profondeur appliquée à la recherche suivant un coup nul. */
+  private static final int NULL_MOVE_REDUCTION = 2;
+
+  /** Profondeur restante minimale pour l'élagage par coup nul et les réductions. */
+  private static final int PRUNING_DEPTH = 3;
+
+  /** Durée d'inactivité au bout de laquelle les threads auxiliaires sont libérés (en s). */
+  private static final long HELPERS_KEEP_ALIVE = 60;
+
+  /** Fabrique des threads auxiliaires (démons, pour ne pas bloquer l'arrêt de la JVM). */
+  private static final ThreadFactory HELPERS_FACTORY = new ThreadFactory()
+  {
+    /**
+     * Crée un thread auxiliaire.
+     * 
+     * @param pTache Tâche du thread.
+     * @return Thread créé.
+     */
+    public Thread newThread(final Runnable pTache)
+    {
+      final Thread res = new Thread(pTache, "NegaScout-helper");
+      res.setDaemon(true);
+      return res;
+    }
+  };
+
+  /** Pool des threads auxiliaires (alloué lors de la première recherche parallèle). */
+  private ThreadPoolExecutor _helpers;
+
+  /** Tables des structures de pions des threads auxiliaires, une par thread du pool. */
+  private PawnHashTable [] _helperPawnHashTables;
+
+  /** Drapeau demandant l'arrêt des threads auxiliaires. */
+  private volatile boolean _stopHelpers;
+
+  /** Table de transposition (propre au moteur, allouée lors de la première recherche). */
+  private TranspositionTable _transpositions;
+
+  /** Taille de la table de transposition allouée (en Mo). */
+  private int _transpositionsSize;
 
   /**
    * Instancie un nouveau moteur IA Negascout.
@@ -46,109 +112,84 @@ final class NegaScoutEngine extends AbstractEngine
   }
 
   /**
-   * Recherche le meilleur coup évalué à partir d'une position.
+   * Renvoi le type d'entrée de la table de transposition correspondant à une évaluation obtenue
+   * pour une fenêtre de recherche.
    * 
-   * @param pEtat Etat de l'échiquier.
-   * @param pProfondeur Profondeur d'évaluation actuelle.
-   * @param pAlpha Seuil alpha.
-   * @param pBeta Seuil beta.
-   * @param pLimite Profondeur limite.
-   * @return Meilleure évaluation obtenue à ce niveau.
+   * @param pValeur Evaluation obtenue.
+   * @param pAlpha Seuil alpha de la recherche.
+   * @param pBeta Seuil beta de la recherche.
+   * @return Type de la valeur ({@link TranspositionTable#ALPHA}, {@link TranspositionTable#BETA}
+   *         ou {@link TranspositionTable#EXACT}).
    */
-  private int negascout(final MoveGenerator pEtat, final int pProfondeur, final int pAlpha,
-      final int pBeta, final int pLimite)
+  private static int getType(final int pValeur, final int pAlpha, final int pBeta)
   {
-    assert pEtat != null;
-    assert pAlpha <= pBeta;
-
-    final Integer resultat = TRANSPOSITIONS.get(pEtat, pProfondeur, pAlpha, pBeta);
-    if (resultat != null)
+    if (pValeur <= pAlpha)
     {
-        return resultat;
+      return TranspositionTable.ALPHA;
     }
-
-    final boolean trait = pEtat.isWhiteActive();
-
-    if (pProfondeur <= pLimite)
+    if (pValeur >= pBeta)
     {
-      final int valeur = getHeuristic().evaluate(pEtat, trait);
-      TRANSPOSITIONS.put(pEtat, pProfondeur, pAlpha, pBeta, valeur);
-
-      return valeur;
+      return TranspositionTable.BETA;
     }
 
-    final Move [] coups = pEtat.getValidMoves(trait);
-    final int l = coups.length;
-    if (l == 0)
-    {
-      final int valeur = getHeuristic().evaluate(pEtat, trait);
-      TRANSPOSITIONS.put(pEtat, pProfondeur, pAlpha, pBeta, valeur);
+    return TranspositionTable.EXACT;
+  }
 
-      return valeur;
+  /**
+   * Indique si un état ne comporte plus que des rois et des pions. Ces finales sont propices au
+   * zugzwang (toute possibilité de jeu détériore la position) : l'élagage par coup nul, qui suppose
+   * que passer son tour est le pire des choix, y est écarté.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @return "true" si seuls restent les rois et des pions.
+   */
+  private static boolean isPawnEnding(final MoveGenerator pEtat)
+  {
+    int pions = 2;
+    for (int x = 0; x < FILE_COUNT; x++)
+    {
+      pions += pEtat.getPawnCount(true, x) + pEtat.getPawnCount(false, x);
     }
 
-    int res = MATE_VALUE - 1;
+    return pEtat.getPieceCount() == pions;
+  }
 
-    final Comparator<Move> tri = getMoveSorter();
-    final ContextSorter ctx;
-    if (tri instanceof ContextSorter)
+  /**
+   * Indique si un mouvement est calme, c'est-à-dire ni une prise ni une promotion.
+   * 
+   * @param pMouvement Identifiant du mouvement.
+   * @return "true" si le mouvement est calme.
+   */
+  private static boolean isQuiet(final int pMouvement)
+  {
+    if (Move.capturedOf(pMouvement) != null)
     {
-      ctx = (ContextSorter) tri;
+      return false;
     }
-    else
+    if (Move.pieceOf(pMouvement).getType() != PAWN)
     {
-      ctx = null;
+      return true;
     }
-    Arrays.sort(coups, tri);
-    addHalfmove(l);
-    int alpha = pAlpha;
-    for (int i = 0; i < l; i++)
+
+    final int y = Move.toOf(pMouvement) / FILE_COUNT;
+    return (y > 0) && (y < RANK_COUNT - 1);
+  }
+
+  /**
+   * Renvoi une fonction de tri des mouvements utilisable par un thread auxiliaire.
+   * 
+   * @return Fonction de tri : une nouvelle instance si celle du moteur dépend du contexte, sinon
+   *         celle du moteur.
+   */
+  private Comparator<Move> newHelperSorter()
+  {
+    final Comparator<Move> tri = getMoveSorter();
+    if (tri instanceof ContextSorter)
     {
-      final Move mvt = coups[i];
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int limite;
-      if (((pProfondeur == 1) && ((l <= 3) || (mvt.getCaptured() != null)))
-          || etat.isInCheck(etat.isWhiteActive()))
-      {
-        limite = -1;
-      }
-      else
-      {
-        limite = 0;
-      }
-      int note;
-      if (i == 0)
-      {
-        note = -negascout(etat, pProfondeur - 1, -pBeta, -alpha, limite);
-      }
-      else
-      {
-        note = -negascout(etat, pProfondeur - 1, -alpha - 1, -alpha, limite);
-      }
-      if (note > res)
-      {
-        if ((i > 0) && (alpha < note) && (note < pBeta) && (pProfondeur > limite + 2))
-        {
-          note = -negascout(etat, pProfondeur - 1, -pBeta, -note, limite);
-        }
-        res = note;
-        if (res > alpha)
-        {
-          alpha = res;
-          if (alpha > pBeta)
-          {
-            if (ctx != null)
-            {
-              ctx.put(mvt);
-            }
-            break;
-          }
-        }
-      }
+      return ((ContextSorter) tri).newInstance();
     }
 
-    TRANSPOSITIONS.put(pEtat, pProfondeur, alpha, pBeta, res);
-    return res;
+    return tri;
   }
 
   /**
@@ -166,26 +207,45 @@ final class NegaScoutEngine extends AbstractEngine
 
     final int l = pCoups.length;
     assert l > 0;
+    final int taille = getTranspositionTableSize();
+    if ((_transpositions == null) || (_transpositionsSize != taille))
+    {
+      _transpositions = new TranspositionTable(taille);
+      _transpositionsSize = taille;
+    }
+    _transpositions.newSearch();
     addHalfmove(l);
     final Comparator<Move> tri = getMoveSorter();
-    Arrays.sort(pCoups, tri);
+    sortRootMoves(pCoups);
+
+    final int profondeur = getSearchDepthLimit();
+    final Searcher [] auxiliaires = startHelpers(pEtat, pCoups, profondeur);
     Move res = pCoups[0];
     int alpha = MATE_VALUE - 1;
-    for (final Move mvt : pCoups)
+    try
     {
-      final MoveGenerator etat = pEtat.derive(mvt, true);
-      final int note = -negascout(etat, getSearchDepthLimit() - 1, MATE_VALUE, -alpha, 0);
-      if ((note > alpha) || ((note == alpha) && RANDOMIZER.nextBoolean()))
+      final Searcher principal = new Searcher(_transpositions, getPawnHashTable(), tri, false);
+      final ReversibleMoveGenerator etat = BoardFactory.newReversible(getSearchBoardType(), pEtat);
+      for (final Move mvt : pCoups)
       {
-        // Un peu de hasard sert à partager les évaluations identiques : jeu plus agréable.
-        alpha = note;
-        res = mvt;
+        etat.makeMove(mvt);
+        final int note = -principal.negascout(etat, profondeur - 1, MATE_VALUE, -alpha, 0, false);
+        etat.unmakeMove();
+        if ((note > alpha) || ((note == alpha) && RANDOMIZER.nextBoolean()))
+        {
+          // Un peu de hasard sert à partager les évaluations identiques : jeu plus agréable.
+          alpha = note;
+          res = mvt;
+        }
       }
     }
+    finally
+    {
+      stopHelpers(auxiliaires);
+    }
 
     setScore(alpha);
 
-    TRANSPOSITIONS.clear();
     if (tri instanceof ContextSorter)
     {
       ((ContextSorter) tri).clear();
@@ -194,4 +254,365 @@ final class NegaScoutEngine extends AbstractEngine
     assert res != null;
     return res;
   }
+
+  /**
+   * Lance les recherches des threads auxiliaires.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pCoups Liste des mouvement initiaux valides, triés.
+   * @param pProfondeur Profondeur de la recherche principale.
+   * @return Recherches auxiliaires lancées (éventuellement aucune).
+   */
+  private Searcher [] startHelpers(final MoveGenerator pEtat, final Move [] pCoups,
+      final int pProfondeur)
+  {
+    assert pEtat != null;
+    assert pCoups != null;
+
+    final int nb = getSearchThreads() - 1;
+    if (nb <= 0)
+    {
+      return new Searcher [ 0 ];
+    }
+
+    if ((_helpers == null) || (_helpers.getMaximumPoolSize() != nb))
+    {
+      if (_helpers != null)
+      {
+        _helpers.shutdown();
+      }
+      _helpers =
+          new ThreadPoolExecutor(nb, nb, HELPERS_KEEP_ALIVE, TimeUnit.SECONDS,
+              new LinkedBlockingQueue<Runnable>(), HELPERS_FACTORY);
+      _helpers.allowCoreThreadTimeOut(true);
+      _helperPawnHashTables = new PawnHashTable [ nb ];
+      for (int i = 0; i < nb; i++)
+      {
+        _helperPawnHashTables[i] = new PawnHashTable(PawnHashTable.DEFAULT_SIZE);
+      }
+    }
+
+    _stopHelpers = false;
+    final Searcher [] res = new Searcher [ nb ];
+    final int l = pCoups.length;
+    for (int i = 0; i < nb; i++)
+    {
+      // Chaque auxiliaire commence par un mouvement différent, et un sur deux va un cran plus loin.
+      final Move [] coups = new Move [ l ];
+      final int decalage = (i + 1) % l;
+      System.arraycopy(pCoups, decalage, coups, 0, l - decalage);
+      System.arraycopy(pCoups, 0, coups, l - decalage, decalage);
+      final PawnHashTable pions = _helperPawnHashTables[i];
+      pions.setHeuristic(getHeuristic());
+      res[i] = new Searcher(_transpositions, pions, newHelperSorter(), true);
+      res[i]._task = _helpers.submit(res[i].rootTask(pEtat, coups, pProfondeur + ((i + 1) & 1)));
+    }
+
+    return res;
+  }
+
+  /**
+   * Arrête les threads auxiliaires et attend la fin de leurs recherches.
+   * 
+   * @param pAuxiliaires Recherches auxiliaires à arrêter.
+   */
+  private void stopHelpers(final Searcher [] pAuxiliaires)
+  {
+    assert pAuxiliaires != null;
+
+    _stopHelpers = true;
+    int nb = 0;
+    for (final Searcher aux : pAuxiliaires)
+    {
+      try
+      {
+        aux._task.get();
+      }
+      catch (final InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      catch (final ExecutionException e)
+      {
+        throw new IllegalStateException(e.getCause());
+      }
+      nb += aux._halfmoves;
+      addPawnHashStatistics(aux._pawns);
+    }
+    addHelperHalfmoves(nb);
+  }
+
+  /**
+   * Contexte de recherche propre à un thread : fonction de tri (et donc coups "killer"), listes de
+   * mouvements, table des structures de pions et décompte des demi-coups. Seule la table de
+   * transposition est partagée entre les threads.
+   */
+  private final class Searcher
+  {
+    /** Drapeau identifiant une recherche auxiliaire. */
+    private final boolean _helper;
+
+    /** Listes de mouvements, une par demi-coup de profondeur. */
+    private final MoveLists _moveLists = new MoveLists();
+
+    /** Table des structures de pions propre au thread. */
+    private final PawnHashTable _pawns;
+
+    /** Recherche de quiescence propre au thread. */
+    private final QuiescenceSearch _quiescence;
+
+    /** Fonction de tri des mouvements. */
+    private final Comparator<Move> _sorter;
+
+    /** Table de transposition partagée. */
+    private final TranspositionTable _table;
+
+    /** Nombre de demi-coups évalués par une recherche auxiliaire. */
+    private int _halfmoves;
+
+    /** Tâche d'une recherche auxiliaire en cours. */
+    private Future<?> _task;
+
+    /**
+     * Instancie un nouveau contexte de recherche.
+     * 
+     * @param pTable Table de transposition partagée.
+     * @param pPions Table des structures de pions propre au thread.
+     * @param pTri Fonction de tri des mouvements.
+     * @param pAuxiliaire A "true" pour une recherche menée par un thread auxiliaire.
+     */
+    Searcher(final TranspositionTable pTable, final PawnHashTable pPions,
+        final Comparator<Move> pTri, final boolean pAuxiliaire)
+    {
+      assert pTable != null;
+      assert pPions != null;
+      assert pTri != null;
+
+      _table = pTable;
+      _pawns = pPions;
+      _quiescence = new QuiescenceSearch(NegaScoutEngine.this, _moveLists, pPions);
+      _sorter = pTri;
+      _helper = pAuxiliaire;
+    }
+
+    /**
+     * Décompte des demi-coups évalués. Une recherche auxiliaire s'interrompt ici dès que la
+     * recherche principale est terminée.
+     * 
+     * @param pNombre Nombre de demi-coups à ajouter.
+     */
+    private void addHalfmoves(final int pNombre)
+    {
+      if (_helper)
+      {
+        _halfmoves += pNombre;
+        if (_stopHelpers)
+        {
+          throw SearchTimeoutException.INSTANCE;
+        }
+      }
+      else
+      {
+        addHalfmove(pNombre);
+      }
+    }
+
+    /**
+     * Recherche le meilleur coup évalué à partir d'une position.
+     * 
+     * @param pEtat Etat de l'échiquier, restauré au retour.
+     * @param pProfondeur Profondeur d'évaluation actuelle.
+     * @param pAlpha Seuil alpha.
+     * @param pBeta Seuil beta.
+     * @param pLimite Profondeur limite.
+     * @param pCoupNul A "true" si l'état a été atteint par un coup nul.
+     * @return Meilleure évaluation obtenue à ce niveau.
+     */
+    private int negascout(final ReversibleMoveGenerator pEtat, final int pProfondeur,
+        final int pAlpha, final int pBeta, final int pLimite, final boolean pCoupNul)
+    {
+      assert pEtat != null;
+      assert pAlpha <= pBeta;
+
+      final long cle = pEtat.zobristKey();
+      final long entree = _table.probe(cle);
+      if (TranspositionTable.isConclusive(entree, pProfondeur, pAlpha, pBeta))
+      {
+        return TranspositionTable.getValue(entree);
+      }
+
+      final int finale = probeTablebase(pEtat);
+      if (finale != Tablebase.UNKNOWN)
+      {
+        return finale;
+      }
+
+      final boolean trait = pEtat.isWhiteActive();
+
+      final boolean quiescence = isQuiescenceEnabled();
+      if (pProfondeur <= pLimite)
+      {
+        if (!quiescence)
+        {
+          final int valeur = evaluate(pEtat, trait, _pawns);
+          _table.store(cle, pProfondeur, TranspositionTable.EXACT, valeur, 0);
+
+          return valeur;
+        }
+
+        final int valeur = _quiescence.search(pEtat, pAlpha, pBeta);
+        addHalfmoves(_quiescence.takeHalfmoves());
+        _table.store(cle, pProfondeur, getType(valeur, pAlpha, pBeta), valeur, 0);
+
+        return valeur;
+      }
+
+      final boolean elagable = pProfondeur >= PRUNING_DEPTH;
+      final boolean enEchec = elagable && pEtat.isInCheck(trait);
+      if (elagable && (!pCoupNul) && (!enEchec) && isNullMoveEnabled() && (!isPawnEnding(pEtat)))
+      {
+        // Si passer son tour suffit à dépasser beta, un vrai mouvement le ferait aussi.
+        addHalfmoves(1);
+        pEtat.makeNullMove();
+        final int note =
+            -negascout(pEtat, pProfondeur - 1 - NULL_MOVE_REDUCTION, -pBeta - 1, -pBeta, 0, true);
+        pEtat.unmakeMove();
+        if (note > pBeta)
+        {
+          return note;
+        }
+      }
+
+      final MoveList coups = _moveLists.get(pEtat.getPly());
+      final int l = pEtat.getValidMoves(trait, coups);
+      if (l == 0)
+      {
+        final int valeur = evaluate(pEtat, trait, _pawns);
+        _table.store(cle, pProfondeur, TranspositionTable.EXACT, valeur, 0);
+
+        return valeur;
+      }
+
+      int res = MATE_VALUE - 1;
+      int meilleur = 0;
+
+      final Comparator<Move> tri = _sorter;
+      final ContextSorter ctx;
+      if (tri instanceof ContextSorter)
+      {
+        ctx = (ContextSorter) tri;
+      }
+      else
+      {
+        ctx = null;
+      }
+      scoreMoves(coups, tri, pEtat.getPly(), TranspositionTable.getMove(entree));
+      addHalfmoves(l);
+      int alpha = pAlpha;
+      final boolean reductions = elagable && (!enEchec) && isLateMoveReductionsEnabled();
+      for (int i = 0; i < l; i++)
+      {
+        final int mvt = coups.pick(i);
+        pEtat.makeMove(mvt);
+        final int limite;
+        // Les échecs sont prolongés ; sans recherche de quiescence, les prises le sont aussi.
+        if (pEtat.isInCheck(pEtat.isWhiteActive())
+            || ((!quiescence) && (pProfondeur == 1)
+                && ((l <= 3) || (Move.capturedOf(mvt) != null))))
+        {
+          limite = -1;
+        }
+        else
+        {
+          limite = 0;
+        }
+        int note;
+        if (i == 0)
+        {
+          note = -negascout(pEtat, pProfondeur - 1, -pBeta, -alpha, limite, false);
+        }
+        else
+        {
+          note = alpha + 1;
+          if (reductions && (i >= LATE_MOVE_COUNT) && (limite == 0) && isQuiet(mvt))
+          {
+            // Coup tardif : examiné moins loin, et réexaminé seulement s'il dépasse alpha.
+            note = -negascout(pEtat, pProfondeur - 2, -alpha - 1, -alpha, limite, false);
+          }
+          if (note > alpha)
+          {
+            note = -negascout(pEtat, pProfondeur - 1, -alpha - 1, -alpha, limite, false);
+          }
+        }
+        final boolean ameliore = note > res;
+        if (ameliore && (i > 0) && (alpha < note) && (note < pBeta) && (pProfondeur > limite + 2))
+        {
+          note = -negascout(pEtat, pProfondeur - 1, -pBeta, -note, limite, false);
+        }
+        pEtat.unmakeMove();
+        if (ameliore)
+        {
+          res = note;
+          meilleur = mvt;
+          if (res > alpha)
+          {
+            alpha = res;
+            if (alpha > pBeta)
+            {
+              if (ctx != null)
+              {
+                ctx.put(mvt, pEtat.getPly());
+              }
+              break;
+            }
+          }
+        }
+      }
+
+      _table.store(cle, pProfondeur, getType(res, pAlpha, pBeta), res, meilleur);
+
+      return res;
+    }
+
+    /**
+     * Renvoi la tâche d'une recherche auxiliaire, examinant tous les mouvements initiaux jusqu'à
+     * son interruption.
+     * 
+     * @param pEtat Etat de l'échiquier.
+     * @param pCoups Liste des mouvement initiaux valides, dans l'ordre d'examen.
+     * @param pProfondeur Profondeur de la recherche.
+     * @return Tâche de recherche.
+     */
+    Runnable rootTask(final MoveGenerator pEtat, final Move [] pCoups, final int pProfondeur)
+    {
+      return new Runnable()
+      {
+        /**
+         * Recherche auxiliaire.
+         */
+        public void run()
+        {
+          try
+          {
+            int alpha = MATE_VALUE - 1;
+            final ReversibleMoveGenerator etat = BoardFactory.newReversible(getSearchBoardType(), pEtat);
+            for (final Move mvt : pCoups)
+            {
+              etat.makeMove(mvt);
+              final int note = -negascout(etat, pProfondeur - 1, MATE_VALUE, -alpha, 0, false);
+              etat.unmakeMove();
+              if (note > alpha)
+              {
+                alpha = note;
+              }
+            }
+          }
+          catch (final SearchTimeoutException e)
+          {
+            // Arrêt demandé par la recherche principale.
+          }
+        }
+      };
+    }
+  }
 }
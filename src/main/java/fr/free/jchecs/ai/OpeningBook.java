@@ -0,0 +1,283 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+
+/**
+ * Bibliothèque d'ouvertures lue par projection en mémoire ({@link java.nio.MappedByteBuffer}) d'un
+ * fichier binaire.
+ * <p>
+ * Le fichier débute par un en-tête de {@link #HEADER_SIZE} octets (signature {@link #MAGIC},
+ * version {@link #VERSION}, nombre d'enregistrements), suivi d'enregistrements de taille fixe
+ * ({@link #RECORD_SIZE} octets) triés par clé "Zobrist" sur 64 bits croissante :
+ * <ul>
+ * <li>octets 0 à 7 : clé "Zobrist" de la position (voir {@link MoveGenerator#zobristKey()}) ;</li>
+ * <li>octets 8 à 11 : poids du mouvement (bits 24 à 31, > 0) et identifiant du mouvement (bits 0 à
+ * 23, voir {@link Move#toId()}).</li>
+ * </ul>
+ * Les mouvements d'une même position sont consécutifs : ils sont retrouvés par recherche
+ * dichotomique, puis l'un d'eux est tiré au hasard en proportion de son poids.
+ * </p>
+ * <p>
+ * Les consultations n'utilisent que des lectures absolues du buffer, qui ne modifient pas son
+ * état : elles ne nécessitent donc aucun verrou.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class OpeningBook
+{
+  /** Signature des fichiers de bibliothèque d'ouvertures ("JCBK"). */
+  static final int MAGIC = 0x4A43424B;
+
+  /** Version du format des fichiers. */
+  static final int VERSION = 1;
+
+  /** Taille de l'en-tête (en octets). */
+  static final int HEADER_SIZE = 16;
+
+  /** Taille d'un enregistrement (en octets). */
+  static final int RECORD_SIZE = 12;
+
+  /** Poids maximal d'un mouvement. */
+  static final int MAX_WEIGHT = 0xFF;
+
+  /** Nom de la ressource contenant la bibliothèque d'ouvertures par défaut. */
+  static final String RESOURCE = "jchecs.book";
+
+  /** Masque de l'identifiant du mouvement dans un enregistrement. */
+  private static final int MOVE_MASK = 0xFFFFFF;
+
+  /** Décalage du poids du mouvement dans un enregistrement. */
+  private static final int WEIGHT_SHIFT = 24;
+
+  /** Contenu du fichier (en-tête compris). */
+  private final ByteBuffer _buffer;
+
+  /** Nombre d'enregistrements. */
+  private final int _size;
+
+  /**
+   * Instancie une bibliothèque à partir du contenu d'un fichier.
+   * 
+   * @param pContenu Contenu du fichier (en-tête compris).
+   * @throws IOException Si le contenu n'est pas celui d'une bibliothèque d'ouvertures.
+   */
+  OpeningBook(final ByteBuffer pContenu) throws IOException
+  {
+    assert pContenu != null;
+
+    if ((pContenu.capacity() < HEADER_SIZE) || (pContenu.getInt(0) != MAGIC)
+        || (pContenu.getInt(4) != VERSION))
+    {
+      throw new IOException("Invalid opening book header");
+    }
+    final long nb = pContenu.getLong(8);
+    if ((nb < 0) || (HEADER_SIZE + nb * RECORD_SIZE != pContenu.capacity()))
+    {
+      throw new IOException("Invalid opening book size");
+    }
+    _buffer = pContenu;
+    _size = (int) nb;
+  }
+
+  /**
+   * Renvoi les données (poids et mouvement) d'un enregistrement.
+   * 
+   * @param pIndice Indice de l'enregistrement.
+   * @return Données de l'enregistrement.
+   */
+  private int dataAt(final int pIndice)
+  {
+    return _buffer.getInt(HEADER_SIZE + pIndice * RECORD_SIZE + 8);
+  }
+
+  /**
+   * Renvoi la bibliothèque d'ouvertures par défaut, chargée lors du premier appel.
+   * 
+   * @return Bibliothèque d'ouvertures par défaut (ou null si elle n'a pas pu être chargée).
+   */
+  static OpeningBook getDefault()
+  {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Renvoi un mouvement de la bibliothèque pour une position, tiré au hasard en proportion des
+   * poids des mouvements connus pour cette position.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pHasard Générateur de nombres aléatoires.
+   * @return Mouvement trouvé (ou null si la position est inconnue).
+   */
+  Move getMove(final MoveGenerator pEtat, final Random pHasard)
+  {
+    assert pEtat != null;
+    assert pHasard != null;
+
+    final long cle = pEtat.zobristKey();
+    final int premier = indexOf(cle);
+    if (premier < 0)
+    {
+      return null;
+    }
+
+    int total = 0;
+    int i = premier;
+    while ((i < _size) && (keyAt(i) == cle))
+    {
+      total += dataAt(i) >>> WEIGHT_SHIFT;
+      i++;
+    }
+    int tirage = pHasard.nextInt(total);
+    i = premier;
+    int donnees = dataAt(i);
+    while (tirage >= donnees >>> WEIGHT_SHIFT)
+    {
+      tirage -= donnees >>> WEIGHT_SHIFT;
+      donnees = dataAt(++i);
+    }
+
+    return Move.valueOf(donnees & MOVE_MASK);
+  }
+
+  /**
+   * Renvoi l'indice du premier enregistrement d'une position, par recherche dichotomique.
+   * 
+   * @param pCle Clé "Zobrist" de la position.
+   * @return Indice du premier enregistrement de la position (ou -1 si elle est inconnue).
+   */
+  private int indexOf(final long pCle)
+  {
+    int bas = 0;
+    int haut = _size;
+    while (bas < haut)
+    {
+      final int milieu = (bas + haut) >>> 1;
+      if (keyAt(milieu) < pCle)
+      {
+        bas = milieu + 1;
+      }
+      else
+      {
+        haut = milieu;
+      }
+    }
+    if ((bas < _size) && (keyAt(bas) == pCle))
+    {
+      return bas;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Renvoi la clé "Zobrist" d'un enregistrement.
+   * 
+   * @param pIndice Indice de l'enregistrement.
+   * @return Clé de l'enregistrement.
+   */
+  private long keyAt(final int pIndice)
+  {
+    return _buffer.getLong(HEADER_SIZE + pIndice * RECORD_SIZE);
+  }
+
+  /**
+   * Ouvre un fichier de bibliothèque d'ouvertures, projeté en mémoire en lecture seule.
+   * 
+   * @param pFichier Fichier à ouvrir.
+   * @return Bibliothèque d'ouvertures.
+   * @throws IOException En cas d'erreur de lecture ou de format.
+   */
+  static OpeningBook open(final File pFichier) throws IOException
+  {
+    return new OpeningBook(MappedFiles.map(pFichier));
+  }
+
+  /**
+   * Ouvre une ressource de bibliothèque d'ouvertures, projetée en mémoire en lecture seule.
+   * 
+   * @param pRessource Adresse de la ressource.
+   * @return Bibliothèque d'ouvertures.
+   * @throws IOException En cas d'erreur de lecture ou de format.
+   * @see MappedFiles#map(URL)
+   */
+  static OpeningBook open(final URL pRessource) throws IOException
+  {
+    return new OpeningBook(MappedFiles.map(pRessource));
+  }
+
+  /**
+   * Renvoi le nombre d'enregistrements (couples position / mouvement) de la bibliothèque.
+   * 
+   * @return Nombre d'enregistrements.
+   */
+  int size()
+  {
+    return _size;
+  }
+
+  /**
+   * Chargement différé de la bibliothèque d'ouvertures par défaut, lors du premier accès.
+   */
+  private static final class DefaultHolder
+  {
+    /** Bibliothèque d'ouvertures par défaut (ou null si elle n'a pas pu être chargée). */
+    static final OpeningBook INSTANCE = load();
+
+    /**
+     * Classe de chargement : ne pas instancier.
+     */
+    private DefaultHolder()
+    {
+      // Rien de spécifique...
+    }
+
+    /**
+     * Charge la bibliothèque d'ouvertures par défaut.
+     * 
+     * @return Bibliothèque chargée (ou null en cas d'erreur).
+     */
+    private static OpeningBook load()
+    {
+      final URL ressource = OpeningBook.class.getResource(RESOURCE);
+      if (ressource == null)
+      {
+        return null;
+      }
+      try
+      {
+        return open(ressource);
+      }
+      catch (final IOException e)
+      {
+        // Pas grave, les coups seront calculés...
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,429 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.PGNException;
+import fr.free.jchecs.core.PGNReader;
+import fr.free.jchecs.core.ReversibleMoveGenerator;
+
+/**
+ * Classe utilitaire construisant un fichier de bibliothèque d'ouvertures (voir
+ * {@link OpeningBook}) à partir d'anciennes bibliothèques (fichiers ".opn" compressés, indexés par
+ * les clés de hachage sur 32 bits) et de collections de parties au format PGN.
+ * <p>
+ * Les anciennes bibliothèques ne conservant pas les positions, celles-ci sont reconstituées en
+ * explorant depuis la position initiale tous les mouvements valides des positions connues : seules
+ * les positions atteignables ainsi sont reprises, et chaque mouvement reçoit un poids de 1. Les
+ * positions ayant trop de réponses connues n'y figurant pas, elles sont franchies lorsqu'elles
+ * suivent un mouvement de la bibliothèque. Les mouvements des parties PGN sont retenus jusqu'au
+ * {@link #PGN_DEPTH}ème demi-coup, avec pour poids leur nombre d'occurrences.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class OpeningBookConverter
+{
+  /** Nombre de demi-coups retenus au début de chaque partie PGN. */
+  private static final int PGN_DEPTH = 24;
+
+  /** Mouvements retenus, avec leurs poids, par position (clé "Zobrist" sur 64 bits). */
+  private final SortedMap<Long, SortedMap<Integer, Integer>> _moves = new TreeMap<>();
+
+  /**
+   * Instancie un nouveau convertisseur, sans aucun mouvement.
+   */
+  OpeningBookConverter()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Ajoute un mouvement pour une position, en cumulant son poids avec celui d'un ajout précédent.
+   * 
+   * @param pCle Clé "Zobrist" de la position.
+   * @param pMouvement Identifiant du mouvement.
+   * @param pPoids Poids à ajouter (> 0).
+   */
+  void addMove(final long pCle, final int pMouvement, final int pPoids)
+  {
+    assert pPoids > 0;
+
+    SortedMap<Integer, Integer> mvts = _moves.get(pCle);
+    if (mvts == null)
+    {
+      mvts = new TreeMap<>();
+      _moves.put(pCle, mvts);
+    }
+    final Integer poids = mvts.get(pMouvement);
+    if (poids == null)
+    {
+      mvts.put(pMouvement, pPoids);
+    }
+    else
+    {
+      mvts.put(pMouvement, poids + pPoids);
+    }
+  }
+
+  /**
+   * Ajoute les mouvements d'une ancienne bibliothèque d'ouvertures (fichier ".opn" compressé).
+   * 
+   * @param pFlux Flux de lecture de l'ancienne bibliothèque (fermé au retour).
+   * @throws IOException En cas d'erreur de lecture.
+   */
+  void addOpenings(final InputStream pFlux) throws IOException
+  {
+    assert pFlux != null;
+
+    final Map<Integer, int []> anciens = new HashMap<>();
+    final DataInputStream in = new DataInputStream(new GZIPInputStream(pFlux));
+    try
+    {
+      while (true)
+      {
+        final int nb = in.readByte();
+        final int cle = in.readInt();
+        final int [] mvtsId = new int [ nb ];
+        for (int i = 0; i < nb; i++)
+        {
+          mvtsId[i] = (in.readUnsignedShort() << 8) + in.readUnsignedByte();
+        }
+        anciens.put(cle, mvtsId);
+      }
+    }
+    catch (final EOFException e)
+    {
+      // Fin de la bibliothèque.
+    }
+    finally
+    {
+      in.close();
+    }
+
+    // Reconstitue les positions depuis la position initiale : l'adversaire pouvant jouer n'importe
+    // quel mouvement, tous les mouvements valides d'une position connue sont explorés.
+    final Set<Long> vues = new HashSet<>();
+    final Deque<MoveGenerator> aTraiter = new ArrayDeque<>();
+    aTraiter.push(BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.STARTING));
+    while (!aTraiter.isEmpty())
+    {
+      final MoveGenerator etat = aTraiter.pop();
+      final int [] mvtsId = anciens.get(etat.hashCode());
+      if (mvtsId == null)
+      {
+        continue;
+      }
+      for (final Move mvt : etat.getValidMoves(etat.isWhiteActive()))
+      {
+        final int id = mvt.toId();
+        boolean connu = false;
+        for (final int ancien : mvtsId)
+        {
+          if (ancien == id)
+          {
+            connu = true;
+            break;
+          }
+        }
+        // Les clés sur 32 bits n'étant pas infaillibles, seuls les mouvements valides sont repris.
+        if (connu)
+        {
+          addMove(etat.zobristKey(), id, 1);
+        }
+        final MoveGenerator suivant = etat.derive(mvt, true);
+        if (!vues.add(suivant.zobristKey()))
+        {
+          continue;
+        }
+        aTraiter.push(suivant);
+        if (connu && (!anciens.containsKey(suivant.hashCode())))
+        {
+          // Position absente (trop de réponses connues) : les lignes reprennent après elle.
+          for (final Move reponse : suivant.getValidMoves(suivant.isWhiteActive()))
+          {
+            final MoveGenerator apres = suivant.derive(reponse, true);
+            if (vues.add(apres.zobristKey()))
+            {
+              aTraiter.push(apres);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Ajoute les mouvements de toutes les parties d'une collection au format PGN, jusqu'au
+   * {@link #PGN_DEPTH}ème demi-coup de chacune. La collection est lue au fil de l'eau : la mémoire
+   * utilisée ne dépend pas de sa taille, mais seulement du nombre de mouvements retenus.
+   * 
+   * @param pFlux Flux de lecture de la collection (fermé au retour).
+   * @return Nombre de parties lues.
+   * @throws IOException En cas d'erreur de lecture.
+   * @throws PGNException En cas d'erreur dans le format d'une partie.
+   */
+  int addPGN(final Reader pFlux) throws IOException, PGNException
+  {
+    assert pFlux != null;
+
+    final PGNReader lecteur = new PGNReader(pFlux);
+    try
+    {
+      PGNReader.Event evt = lecteur.next();
+      while (evt != null)
+      {
+        if (evt == PGNReader.Event.MOVE)
+        {
+          final ReversibleMoveGenerator etat = lecteur.getBoard();
+          addMove(etat.zobristKey(), lecteur.getMove(), 1);
+          if (etat.getPly() + 1 >= PGN_DEPTH)
+          {
+            // La suite de la partie n'est pas retenue : inutile de résoudre ses mouvements.
+            lecteur.skipGame();
+          }
+        }
+        evt = lecteur.next();
+      }
+    }
+    finally
+    {
+      lecteur.close();
+    }
+
+    return lecteur.getGameCount();
+  }
+
+  /**
+   * Ajoute les mouvements de toutes les parties de plusieurs fichiers PGN, lus en parallèle.
+   * <p>
+   * Chaque fichier est lu par sa propre tâche dans un convertisseur intermédiaire, dont les
+   * mouvements sont ensuite cumulés dans celui-ci, dans l'ordre des fichiers.
+   * </p>
+   * 
+   * @param pFichiers Fichiers PGN (encodés en UTF-8).
+   * @param pThreads Nombre de fichiers lus simultanément (>= 1).
+   * @return Nombre de parties lues, par fichier.
+   * @throws IOException En cas d'erreur de lecture.
+   * @throws PGNException En cas d'erreur dans le format d'une partie.
+   */
+  int [] addPGN(final List<File> pFichiers, final int pThreads) throws IOException, PGNException
+  {
+    assert pFichiers != null;
+    assert pThreads >= 1;
+
+    final ExecutorService taches = Executors.newFixedThreadPool(pThreads);
+    try
+    {
+      final List<Future<OpeningBookConverter>> resultats = new ArrayList<>();
+      final int [] res = new int [ pFichiers.size() ];
+      for (int i = 0; i < res.length; i++)
+      {
+        final File fichier = pFichiers.get(i);
+        final int indice = i;
+        resultats.add(taches.submit(new Callable<OpeningBookConverter>()
+        {
+          /**
+           * Lit un fichier dans un convertisseur intermédiaire.
+           * 
+           * @return Convertisseur intermédiaire.
+           * @throws Exception En cas d'erreur de lecture ou de format.
+           */
+          public OpeningBookConverter call() throws Exception
+          {
+            final OpeningBookConverter partiel = new OpeningBookConverter();
+            res[indice] =
+                partiel.addPGN(new InputStreamReader(new FileInputStream(fichier), "UTF-8"));
+            return partiel;
+          }
+        }));
+      }
+
+      for (final Future<OpeningBookConverter> resultat : resultats)
+      {
+        final OpeningBookConverter partiel;
+        try
+        {
+          partiel = resultat.get();
+        }
+        catch (final InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("PGN import interrupted");
+        }
+        catch (final ExecutionException e)
+        {
+          final Throwable cause = e.getCause();
+          if (cause instanceof IOException)
+          {
+            throw (IOException) cause;
+          }
+          if (cause instanceof PGNException)
+          {
+            throw (PGNException) cause;
+          }
+          throw new IllegalStateException(cause);
+        }
+        for (final Map.Entry<Long, SortedMap<Integer, Integer>> position : partiel._moves
+            .entrySet())
+        {
+          for (final Map.Entry<Integer, Integer> mvt : position.getValue().entrySet())
+          {
+            addMove(position.getKey(), mvt.getKey(), mvt.getValue());
+          }
+        }
+      }
+
+      return res;
+    }
+    finally
+    {
+      taches.shutdownNow();
+    }
+  }
+
+  /**
+   * Renvoi le nombre d'enregistrements (couples position / mouvement) retenus.
+   * 
+   * @return Nombre d'enregistrements.
+   */
+  int size()
+  {
+    int res = 0;
+    for (final SortedMap<Integer, Integer> mvts : _moves.values())
+    {
+      res += mvts.size();
+    }
+
+    return res;
+  }
+
+  /**
+   * Ecrit la bibliothèque d'ouvertures au format lu par {@link OpeningBook}. Les poids sont
+   * plafonnés à {@link OpeningBook#MAX_WEIGHT}.
+   * 
+   * @param pFichier Fichier à écrire.
+   * @throws IOException En cas d'erreur d'écriture.
+   */
+  void write(final File pFichier) throws IOException
+  {
+    assert pFichier != null;
+
+    final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pFichier)));
+    try
+    {
+      out.writeInt(OpeningBook.MAGIC);
+      out.writeInt(OpeningBook.VERSION);
+      out.writeLong(size());
+      for (final Map.Entry<Long, SortedMap<Integer, Integer>> position : _moves.entrySet())
+      {
+        for (final Map.Entry<Integer, Integer> mvt : position.getValue().entrySet())
+        {
+          final int poids = Math.min(mvt.getValue(), OpeningBook.MAX_WEIGHT);
+          out.writeLong(position.getKey());
+          out.writeInt((poids << 24) | mvt.getKey());
+        }
+      }
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  /**
+   * Construit un fichier de bibliothèque d'ouvertures.
+   * 
+   * @param pArgs Arguments de la ligne de commande : le fichier à produire, puis les fichiers à
+   *          convertir (anciennes bibliothèques ".opn" ou collections de parties ".pgn").
+   * @throws Exception En cas d'erreur de lecture, de format ou d'écriture.
+   */
+  public static void main(final String [] pArgs) throws Exception
+  {
+    if (pArgs.length < 2)
+    {
+      System.err.println("Usage: OpeningBookConverter <sortie.book> <entrée.opn|entrée.pgn>...");
+      System.exit(1);
+    }
+
+    final OpeningBookConverter convertisseur = new OpeningBookConverter();
+    final List<File> pgns = new ArrayList<>();
+    for (int i = 1; i < pArgs.length; i++)
+    {
+      final String nom = pArgs[i];
+      if (nom.endsWith(".opn"))
+      {
+        convertisseur.addOpenings(new FileInputStream(nom));
+      }
+      else
+      {
+        pgns.add(new File(nom));
+      }
+    }
+    if (!pgns.isEmpty())
+    {
+      final long debut = System.currentTimeMillis();
+      final int [] nbs =
+          convertisseur.addPGN(pgns, Runtime.getRuntime().availableProcessors());
+      final long duree = Math.max(1, System.currentTimeMillis() - debut);
+      int total = 0;
+      for (int i = 0; i < nbs.length; i++)
+      {
+        System.out.println(pgns.get(i) + " : " + nbs[i] + " parties");
+        total += nbs[i];
+      }
+      System.out.println(total + " parties en " + duree + " ms (" + (total * 1000L / duree)
+          + " parties/s)");
+    }
+    convertisseur.write(new File(pArgs[0]));
+    System.out.println(pArgs[0] + " : " + convertisseur.size() + " mouvements");
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import java.util.Arrays;
+
+/**
+ * Table de hachage des structures de pions, permettant à une fonction d'évaluation de ne pas
+ * réévaluer une structure de pions déjà rencontrée.
+ * <p>
+ * La structure de pions ne changeant qu'avec les mouvements de pions et leurs prises, la plupart
+ * des positions évaluées lors d'une recherche partagent leur structure avec une position déjà
+ * évaluée. Chaque entrée, indexée par la clé "Zobrist" de la structure (voir
+ * {@link fr.free.jchecs.core.Board#pawnZobristKey()}), conserve le score de la structure et les
+ * cartes binaires des pions passés de chaque couleur.
+ * </p>
+ * <p>
+ * La table est de taille fixe, à correspondance directe (une entrée remplace simplement la
+ * précédente de même indice), et propre à un contexte de recherche : elle n'est <b>pas</b> sûre
+ * vis-à-vis des threads. Elle tient aussi le compte des consultations et des succès.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class PawnHashTable
+{
+  /** Nombre d'entrées par défaut d'une table (256 Ko). */
+  static final int DEFAULT_SIZE = 1 << 13;
+
+  /** Nombre de mots de 64 bits par entrée : clé, score, pions passés blancs et noirs. */
+  private static final int ENTRY_LENGTH = 4;
+
+  /** Bit signalant une entrée renseignée, dans le mot contenant le score. */
+  private static final long VALID = 1L << 32;
+
+  /** Table des entrées. */
+  private final long [] _entries;
+
+  /** Masque appliqué aux clés pour obtenir l'indice d'une entrée. */
+  private final int _mask;
+
+  /** Fonction d'évaluation ayant alimenté la table (ou null). */
+  private Heuristic _heuristic;
+
+  /** Nombre de consultations de la table. */
+  private long _probes;
+
+  /** Nombre de consultations ayant trouvé la structure recherchée. */
+  private long _hits;
+
+  /**
+   * Instancie une nouvelle table.
+   * 
+   * @param pTaille Nombre d'entrées (> 0), arrondi à la puissance de 2 inférieure.
+   */
+  PawnHashTable(final int pTaille)
+  {
+    assert pTaille > 0;
+
+    final int taille = Integer.highestOneBit(pTaille);
+    _mask = taille - 1;
+    _entries = new long [ taille * ENTRY_LENGTH ];
+  }
+
+  /**
+   * Vide la table.
+   */
+  void clear()
+  {
+    Arrays.fill(_entries, 0);
+  }
+
+  /**
+   * Renvoi le nombre de consultations ayant trouvé la structure recherchée depuis le dernier appel
+   * à {@link #resetStatistics()}.
+   * 
+   * @return Nombre de succès.
+   */
+  long getHits()
+  {
+    return _hits;
+  }
+
+  /**
+   * Renvoi la carte binaire des pions passés d'une couleur, pour une entrée.
+   * 
+   * @param pEntree Indice de l'entrée, renvoyé par {@link #probe(long)} ou {@link #store}.
+   * @param pBlanc Positionné à "true" pour obtenir les pions passés blancs.
+   * @return Carte binaire (bit i pour la case d'indice i) des pions passés de la couleur.
+   */
+  long getPassedPawns(final int pEntree, final boolean pBlanc)
+  {
+    if (pBlanc)
+    {
+      return _entries[pEntree + 2];
+    }
+
+    return _entries[pEntree + 3];
+  }
+
+  /**
+   * Renvoi le nombre de consultations de la table depuis le dernier appel à
+   * {@link #resetStatistics()}.
+   * 
+   * @return Nombre de consultations.
+   */
+  long getProbes()
+  {
+    return _probes;
+  }
+
+  /**
+   * Renvoi le score de la structure de pions d'une entrée.
+   * 
+   * @param pEntree Indice de l'entrée, renvoyé par {@link #probe(long)} ou {@link #store}.
+   * @return Score de la structure (du point de vue des blancs).
+   */
+  int getScore(final int pEntree)
+  {
+    return (int) _entries[pEntree + 1];
+  }
+
+  /**
+   * Recherche l'entrée correspondant à une structure de pions, sans allocation.
+   * 
+   * @param pCle Clé "Zobrist" 64 bits de la structure de pions.
+   * @return Indice de l'entrée, ou -1 si la structure est inconnue.
+   */
+  int probe(final long pCle)
+  {
+    _probes++;
+    final int res = ((int) pCle & _mask) * ENTRY_LENGTH;
+    if ((_entries[res] == pCle) && ((_entries[res + 1] & VALID) != 0))
+    {
+      _hits++;
+      return res;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Remet à zéro les compteurs de consultations et de succès.
+   */
+  void resetStatistics()
+  {
+    _probes = 0;
+    _hits = 0;
+  }
+
+  /**
+   * Prépare la table pour une recherche : elle est vidée si elle a été alimentée par une autre
+   * fonction d'évaluation.
+   * 
+   * @param pHeuristique Fonction d'évaluation utilisée par la recherche.
+   */
+  void setHeuristic(final Heuristic pHeuristique)
+  {
+    assert pHeuristique != null;
+
+    if (pHeuristique != _heuristic)
+    {
+      clear();
+      _heuristic = pHeuristique;
+    }
+  }
+
+  /**
+   * Stocke l'évaluation d'une structure de pions.
+   * 
+   * @param pCle Clé "Zobrist" 64 bits de la structure de pions.
+   * @param pScore Score de la structure (du point de vue des blancs).
+   * @param pPassesBlancs Carte binaire des pions passés blancs.
+   * @param pPassesNoirs Carte binaire des pions passés noirs.
+   * @return Indice de l'entrée.
+   */
+  int store(final long pCle, final int pScore, final long pPassesBlancs, final long pPassesNoirs)
+  {
+    final int res = ((int) pCle & _mask) * ENTRY_LENGTH;
+    _entries[res] = pCle;
+    _entries[res + 1] = (pScore & 0xFFFFFFFFL) | VALID;
+    _entries[res + 2] = pPassesBlancs;
+    _entries[res + 3] = pPassesNoirs;
+
+    return res;
+  }
+}
@@ -0,0 +1,372 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static fr.free.jchecs.ai.AbstractEngine.MATE_VALUE;
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.PieceType.PAWN;
+import static fr.free.jchecs.core.PieceType.QUEEN;
+
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveList;
+import fr.free.jchecs.core.Piece;
+import fr.free.jchecs.core.ReversibleMoveGenerator;
+
+/**
+ * Recherche de quiescence : prolonge une recherche au-delà de sa profondeur limite en n'examinant
+ * que les prises (et les promotions), jusqu'à une position calme, pour éviter les erreurs dues à
+ * l'effet d'horizon.
+ * <p>
+ * Le camp au trait peut toujours s'abstenir de prendre ("stand pat") : l'évaluation statique de la
+ * position sert de borne inférieure. Les prises ne pouvant pas remonter le score jusqu'au seuil
+ * alpha, même avec une marge, sont ignorées ("delta pruning"), de même que les prises perdantes
+ * selon l'évaluation statique de l'échange qu'elles engagent (SEE).
+ * </p>
+ * <p>
+ * Un camp en échec ne peut en revanche pas s'abstenir : tous ses mouvements sont alors examinés,
+ * sans élagage, et l'absence de parade est évaluée comme un mat. Le nombre de parades successives
+ * examinées sur une même ligne est borné, pour que des échecs croisés ne prolongent pas la
+ * recherche indéfiniment.
+ * </p>
+ * <p>
+ * Les instances de cette classe ne sont pas sûres vis-à-vis des threads : chaque thread de
+ * recherche doit disposer de la sienne.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class QuiescenceSearch
+{
+  /** Marge de sécurité du "delta pruning" (en centièmes de pion). */
+  private static final int DELTA_MARGIN = 200;
+
+  /** Nombre maximum de parades à un échec examinées sur une même ligne. */
+  private static final int MAX_EVASIONS = 8;
+
+  /** Nombre maximum de prises d'un échange évalué par la SEE. */
+  private static final int MAX_EXCHANGE = 32;
+
+  /** Moteur dont la fonction d'évaluation est utilisée. */
+  private final AbstractEngine _engine;
+
+  /** Listes de mouvements du thread, une par demi-coup de profondeur. */
+  private final MoveLists _moveLists;
+
+  /** Table des structures de pions du thread (ou null). */
+  private final PawnHashTable _pawns;
+
+  /** Gains successifs de l'échange évalué par la SEE. */
+  private final int [] _gains = new int [ MAX_EXCHANGE + 1 ];
+
+  /** Nombre de demi-coups examinés depuis le dernier appel à {@link #takeHalfmoves()}. */
+  private int _halfmoves;
+
+  /**
+   * Instancie une nouvelle recherche de quiescence.
+   * 
+   * @param pMoteur Moteur dont la fonction d'évaluation est utilisée.
+   * @param pListes Listes de mouvements du thread : la recherche utilise celles des demi-coups
+   *          suivant la position qui lui est transmise.
+   * @param pPions Table des structures de pions du thread (ou null).
+   */
+  QuiescenceSearch(final AbstractEngine pMoteur, final MoveLists pListes,
+      final PawnHashTable pPions)
+  {
+    assert pMoteur != null;
+    assert pListes != null;
+
+    _engine = pMoteur;
+    _moveLists = pListes;
+    _pawns = pPions;
+  }
+
+  /**
+   * Renvoi la priorité d'examen d'un mouvement : les prises, par valeur de la pièce prise puis de
+   * la pièce la moins précieuse, et les promotions avant les autres mouvements.
+   * 
+   * @param pMouvement Identifiant du mouvement.
+   * @return Priorité du mouvement (positive pour une prise ou une promotion, nulle sinon).
+   */
+  private static int getPriority(final int pMouvement)
+  {
+    final Piece prise = Move.capturedOf(pMouvement);
+    if (prise != null)
+    {
+      return 1000 * prise.getType().getValue() - Move.pieceOf(pMouvement).getType().getValue();
+    }
+    if (isPromotion(pMouvement))
+    {
+      return 1000 * QUEEN.getValue();
+    }
+
+    return 0;
+  }
+
+  /**
+   * Indique si un mouvement est une promotion.
+   * 
+   * @param pMouvement Identifiant du mouvement.
+   * @return "true" si le mouvement amène un pion sur la dernière rangée.
+   */
+  private static boolean isPromotion(final int pMouvement)
+  {
+    if (Move.pieceOf(pMouvement).getType() != PAWN)
+    {
+      return false;
+    }
+
+    final int y = Move.toOf(pMouvement) / FILE_COUNT;
+    return (y == 0) || (y == RANK_COUNT - 1);
+  }
+
+  /**
+   * Recherche la meilleure évaluation d'une position, en ne jouant que des prises et des
+   * promotions (ou toutes les parades si le camp au trait est en échec).
+   * 
+   * @param pEtat Etat de l'échiquier, restauré au retour.
+   * @param pAlpha Seuil alpha.
+   * @param pBeta Seuil beta.
+   * @return Meilleure évaluation obtenue, du point de vue du camp au trait (une borne supérieure si
+   *         elle est inférieure à alpha, une borne inférieure si elle dépasse beta).
+   */
+  int search(final ReversibleMoveGenerator pEtat, final int pAlpha, final int pBeta)
+  {
+    return search(pEtat, pAlpha, pBeta, 0);
+  }
+
+  /**
+   * Corps de la recherche de quiescence.
+   * 
+   * @param pEtat Etat de l'échiquier, restauré au retour.
+   * @param pAlpha Seuil alpha.
+   * @param pBeta Seuil beta.
+   * @param pParades Nombre de parades à un échec déjà jouées sur la ligne examinée.
+   * @return Meilleure évaluation obtenue, du point de vue du camp au trait.
+   */
+  private int search(final ReversibleMoveGenerator pEtat, final int pAlpha, final int pBeta,
+      final int pParades)
+  {
+    assert pEtat != null;
+    assert pAlpha <= pBeta;
+    assert pParades >= 0;
+
+    final boolean trait = pEtat.isWhiteActive();
+    if ((pParades < MAX_EVASIONS) && pEtat.isInCheck(trait))
+    {
+      return searchEvasions(pEtat, pAlpha, pBeta, pParades);
+    }
+
+    final int statique = _engine.evaluate(pEtat, trait, _pawns);
+    if (statique >= pBeta)
+    {
+      return statique;
+    }
+    int res = statique;
+    int alpha = pAlpha;
+    if (statique > alpha)
+    {
+      alpha = statique;
+    }
+
+    // Seules les prises et les promotions sont conservées, par valeur des prises...
+    final MoveList coups = _moveLists.get(pEtat.getPly());
+    final int l = pEtat.getValidMoves(trait, coups);
+    int n = 0;
+    for (int i = 0; i < l; i++)
+    {
+      final int mvt = coups.get(i);
+      final int priorite = getPriority(mvt);
+      if (priorite > 0)
+      {
+        coups.set(n, mvt);
+        coups.setScore(n++, priorite);
+      }
+    }
+    _halfmoves += n;
+
+    for (int i = 0; i < n; i++)
+    {
+      final int mvt = coups.pick(i);
+      final Piece prise = Move.capturedOf(mvt);
+      final boolean promotion = isPromotion(mvt);
+      if (!promotion)
+      {
+        // ... en ignorant celles qui ne peuvent pas suffire...
+        if (statique + prise.getType().getValue() + DELTA_MARGIN <= alpha)
+        {
+          continue;
+        }
+        // ... et celles qui perdent du matériel.
+        if ((Move.pieceOf(mvt).getType().getValue() > prise.getType().getValue())
+            && (see(pEtat, mvt) < 0))
+        {
+          continue;
+        }
+      }
+      pEtat.makeMove(mvt);
+      final int note = -search(pEtat, -pBeta, -alpha, pParades);
+      pEtat.unmakeMove();
+      if (note > res)
+      {
+        res = note;
+        if (note >= pBeta)
+        {
+          return note;
+        }
+        if (note > alpha)
+        {
+          alpha = note;
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Recherche la meilleure parade d'un camp en échec, parmi tous ses mouvements.
+   * 
+   * @param pEtat Etat de l'échiquier, restauré au retour.
+   * @param pAlpha Seuil alpha.
+   * @param pBeta Seuil beta.
+   * @param pParades Nombre de parades à un échec déjà jouées sur la ligne examinée.
+   * @return Meilleure évaluation obtenue, du point de vue du camp au trait ({@link
+   *         AbstractEngine#MATE_VALUE} s'il est mat).
+   */
+  private int searchEvasions(final ReversibleMoveGenerator pEtat, final int pAlpha,
+      final int pBeta, final int pParades)
+  {
+    final MoveList coups = _moveLists.get(pEtat.getPly());
+    final int l = pEtat.getValidMoves(pEtat.isWhiteActive(), coups);
+    if (l == 0)
+    {
+      return MATE_VALUE;
+    }
+    for (int i = 0; i < l; i++)
+    {
+      coups.setScore(i, getPriority(coups.get(i)));
+    }
+    _halfmoves += l;
+
+    int res = MATE_VALUE - 1;
+    int alpha = pAlpha;
+    for (int i = 0; i < l; i++)
+    {
+      final int mvt = coups.pick(i);
+      pEtat.makeMove(mvt);
+      final int note = -search(pEtat, -pBeta, -alpha, pParades + 1);
+      pEtat.unmakeMove();
+      if (note > res)
+      {
+        res = note;
+        if (note >= pBeta)
+        {
+          return note;
+        }
+        if (note > alpha)
+        {
+          alpha = note;
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Evaluation statique d'un échange ("Static Exchange Evaluation") : bilan matériel de la prise,
+   * en supposant que les deux camps reprennent ensuite sur la même case avec leur pièce la moins
+   * précieuse, tant qu'ils y ont intérêt.
+   * 
+   * @param pEtat Etat de l'échiquier, restauré au retour.
+   * @param pMouvement Identifiant de la prise à évaluer.
+   * @return Gain matériel de la prise pour le camp qui la joue (négatif si elle perd du matériel).
+   */
+  int see(final ReversibleMoveGenerator pEtat, final int pMouvement)
+  {
+    assert pEtat != null;
+    assert Move.capturedOf(pMouvement) != null;
+
+    final int [] gains = _gains;
+    final int cible = Move.toOf(pMouvement);
+    gains[0] = Move.capturedOf(pMouvement).getType().getValue();
+    int enPrise = Move.pieceOf(pMouvement).getType().getValue();
+    pEtat.makeMove(pMouvement);
+    int n = 0;
+    while (n < MAX_EXCHANGE)
+    {
+      // Reprise par la pièce la moins précieuse (le roi en dernier : il ne peut pas être pris)...
+      final MoveList coups = _moveLists.get(pEtat.getPly());
+      final int l = pEtat.getValidMoves(pEtat.isWhiteActive(), coups);
+      int reprise = 0;
+      int valeur = Integer.MAX_VALUE;
+      for (int i = 0; i < l; i++)
+      {
+        final int mvt = coups.get(i);
+        if (Move.toOf(mvt) == cible)
+        {
+          int v = Move.pieceOf(mvt).getType().getValue();
+          if (v == 0)
+          {
+            v = Integer.MAX_VALUE - 1;
+          }
+          if (v < valeur)
+          {
+            valeur = v;
+            reprise = mvt;
+          }
+        }
+      }
+      if (reprise == 0)
+      {
+        break;
+      }
+      n++;
+      gains[n] = enPrise - gains[n - 1];
+      enPrise = Move.pieceOf(reprise).getType().getValue();
+      pEtat.makeMove(reprise);
+    }
+    for (int i = 0; i <= n; i++)
+    {
+      pEtat.unmakeMove();
+    }
+
+    // ... chaque camp pouvant renoncer à reprendre.
+    while (n > 0)
+    {
+      gains[n - 1] = -Math.max(-gains[n - 1], gains[n]);
+      n--;
+    }
+
+    return gains[0];
+  }
+
+  /**
+   * Renvoi le nombre de demi-coups examinés depuis le précédent appel, et remet ce décompte à zéro.
+   * 
+   * @return Nombre de demi-coups examinés.
+   */
+  int takeHalfmoves()
+  {
+    final int res = _halfmoves;
+    _halfmoves = 0;
+    return res;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+/**
+ * Signale l'épuisement du temps alloué à une recherche par approfondissements successifs, ou une
+ * demande d'interruption de la recherche (voir {@link Engine#setSearchAborted(boolean)}).
+ * <p>
+ * Cette exception ne sort jamais d'un moteur : elle est levée au cours de la recherche, lors du
+ * décompte des demi-coups, et interceptée par {@link AbstractEngine#getMoveFor}, qui renvoi alors
+ * le résultat de la dernière itération complète (ou null en cas d'interruption demandée). Une
+ * instance unique, sans pile d'appels, est utilisée : l'interruption d'une recherche ne coûte donc
+ * aucune allocation.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class SearchTimeoutException extends RuntimeException
+{
+  /** Instance unique de l'exception. */
+  static final SearchTimeoutException INSTANCE = new SearchTimeoutException();
+
+  /** Identifiant de la classe pour la sérialisation. */
+  private static final long serialVersionUID = 4182377621460311235L;
+
+  /**
+   * Instancie l'exception.
+   */
+  private SearchTimeoutException()
+  {
+    super("Search time limit exceeded");
+  }
+
+  /**
+   * Ne renseigne pas la pile d'appels, inutile ici.
+   * 
+   * @return Cette instance.
+   */
+  @Override
+  public synchronized Throwable fillInStackTrace()
+  {
+    return this;
+  }
+}
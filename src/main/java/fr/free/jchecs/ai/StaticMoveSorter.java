@@ -18,7 +18,6 @@
  */
 package fr.free.jchecs.ai;
 
-import java.io.Serializable;
 import java.util.Comparator;
 
 import fr.free.jchecs.core.Move;
@@ -31,7 +30,7 @@ import fr.free.jchecs.core.Piece;
  * 
  * @author David Cotton
  */
-final class StaticMoveSorter implements Comparator<Move>, Serializable
+final class StaticMoveSorter implements MoveScorer
 {
   /** Identifiant de la classe pour la sérialisation. */
   private static final long serialVersionUID = -1345309675511434759L;
@@ -89,4 +88,25 @@ final class StaticMoveSorter implements Comparator<Move>, Serializable
 
     return res;
   }
+
+  /**
+   * Renvoi le score d'un mouvement, cohérent avec {@link #compare(Move, Move)} : les prises de la
+   * plus forte à la plus faible (par la pièce la plus faible), puis les autres mouvements de la
+   * pièce la plus forte à la plus faible.
+   * 
+   * @param pMouvement Identifiant du mouvement.
+   * @param pDemiCoup Demi-coup de profondeur (ignoré : le tri est statique).
+   * @return Score du mouvement.
+   */
+  public int score(final int pMouvement, final int pDemiCoup)
+  {
+    final int vPiece = Move.pieceOf(pMouvement).getType().getValue();
+    final Piece prise = Move.capturedOf(pMouvement);
+    if (prise == null)
+    {
+      return vPiece;
+    }
+
+    return 1000000 + 1000 * prise.getType().getValue() - vPiece;
+  }
 }
@@ -0,0 +1,448 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.Constants.RANK_COUNT;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.Piece;
+import fr.free.jchecs.core.PieceType;
+import fr.free.jchecs.core.Square;
+
+/**
+ * Tables de finales à 3 pièces (roi et dame ou tour contre roi), lues par projection en mémoire
+ * des fichiers produits par {@link TablebaseGenerator}.
+ * <p>
+ * Chaque table associe à toute position (camp au trait, roi du camp fort, roi du camp faible,
+ * pièce du camp fort ; voir {@link #indexOf(int, int, int, int)}) un octet : 0 pour une nulle (ou
+ * une position illégale), sinon la distance au mat en demi-coups augmentée de 1. Les positions où
+ * la pièce est noire sont ramenées à celles où elle est blanche par symétrie.
+ * </p>
+ * <p>
+ * Un fichier de table débute par un en-tête de {@link #HEADER_SIZE} octets (signature
+ * {@link #MAGIC}, version {@link #VERSION}, nombre de positions, taille des blocs, nombre de
+ * blocs), suivi des positions de début de chaque bloc (et de fin du dernier) dans le fichier, puis
+ * des blocs compressés ({@link java.util.zip.Deflater}). Les blocs décompressés sont conservés
+ * dans un cache, qui libère les moins récemment utilisés au-delà de {@link #CACHE_SIZE} blocs.
+ * </p>
+ * <p>
+ * Les consultations peuvent être menées en parallèle par plusieurs threads : seul l'accès au cache
+ * est synchronisé.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class Tablebase
+{
+  /** Signature des fichiers de tables de finales ("JCTB"). */
+  static final int MAGIC = 0x4A435442;
+
+  /** Version du format des fichiers. */
+  static final int VERSION = 1;
+
+  /** Taille de l'en-tête (en octets). */
+  static final int HEADER_SIZE = 20;
+
+  /** Nombre de positions d'une table (camp au trait x roi fort x roi faible x pièce). */
+  static final int POSITIONS = 2 * 64 * 64 * 64;
+
+  /** Nombre de positions par bloc. */
+  static final int BLOCK_SIZE = 4096;
+
+  /** Nombre maximal de pièces (rois compris) des positions couvertes par les tables. */
+  static final int MAX_PIECES = 3;
+
+  /** Extension des fichiers de tables. */
+  static final String EXTENSION = ".jtb";
+
+  /** Valeur renvoyée par {@link #probe(MoveGenerator)} pour une position non couverte. */
+  static final int UNKNOWN = Integer.MIN_VALUE;
+
+  /** Score d'une position gagnée (diminué de la distance au mat). */
+  static final int WIN_VALUE = -AbstractEngine.MATE_VALUE / 2;
+
+  /** Nombre de blocs décompressés conservés en cache. */
+  private static final int CACHE_SIZE = 64;
+
+  /** Log de la classe. */
+  private static final Logger LOGGER = Logger.getLogger(Tablebase.class.getName());
+
+  /** Tables ouvertes, par répertoire. */
+  private static final Map<File, Tablebase> S_opened = new HashMap<>();
+
+  /** Contenu des fichiers des tables, indexé par type de pièce (ou null si absent). */
+  private final ByteBuffer [] _tables = new ByteBuffer [ PieceType.values().length ];
+
+  /** Cache des blocs décompressés, indexés par (type de pièce, numéro de bloc). */
+  private final Map<Integer, byte []> _blocks = new LinkedHashMap<Integer, byte []>(16, 0.75F,
+      true)
+  {
+    /** Identifiant de la classe pour la sérialisation. */
+    private static final long serialVersionUID = -2619218702155651839L;
+
+    /**
+     * Libère le bloc le moins récemment utilisé une fois le cache plein.
+     * 
+     * @param pAncien Bloc le moins récemment utilisé.
+     * @return "true" si le cache est plein.
+     */
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<Integer, byte []> pAncien)
+    {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  /** Nombre de blocs décompressés. */
+  private long _inflations;
+
+  /** Nombre de consultations du cache. */
+  private long _lookups;
+
+  /**
+   * Instancie un jeu de tables, sans aucune table.
+   */
+  Tablebase()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Ajoute une table au jeu.
+   * 
+   * @param pType Type de la pièce du camp fort ({@link PieceType#QUEEN} ou {@link PieceType#ROOK}).
+   * @param pContenu Contenu du fichier de la table.
+   * @throws IOException Si le contenu n'est pas celui d'une table de finales.
+   */
+  void add(final PieceType pType, final ByteBuffer pContenu) throws IOException
+  {
+    assert pType != null;
+    assert pContenu != null;
+
+    if ((pContenu.capacity() < HEADER_SIZE) || (pContenu.getInt(0) != MAGIC)
+        || (pContenu.getInt(4) != VERSION) || (pContenu.getInt(8) != POSITIONS)
+        || (pContenu.getInt(12) != BLOCK_SIZE) || (pContenu.getInt(16) != POSITIONS / BLOCK_SIZE))
+    {
+      throw new IOException("Invalid tablebase header");
+    }
+    _tables[pType.ordinal()] = pContenu;
+  }
+
+  /**
+   * Renvoi un bloc décompressé d'une table, depuis le cache si possible.
+   * 
+   * @param pType Type de la pièce du camp fort.
+   * @param pBloc Numéro du bloc.
+   * @return Bloc décompressé.
+   */
+  private byte [] getBlock(final PieceType pType, final int pBloc)
+  {
+    final Integer cle = Integer.valueOf(pType.ordinal() * (POSITIONS / BLOCK_SIZE) + pBloc);
+    synchronized (_blocks)
+    {
+      _lookups++;
+      final byte [] res = _blocks.get(cle);
+      if (res != null)
+      {
+        return res;
+      }
+    }
+
+    final ByteBuffer table = _tables[pType.ordinal()];
+    final int debut = table.getInt(HEADER_SIZE + pBloc * 4);
+    final int fin = table.getInt(HEADER_SIZE + (pBloc + 1) * 4);
+    final byte [] compresse = new byte [ fin - debut ];
+    final ByteBuffer lecture = table.duplicate();
+    lecture.position(debut);
+    lecture.get(compresse);
+    final byte [] res = new byte [ BLOCK_SIZE ];
+    final Inflater decompression = new Inflater();
+    try
+    {
+      decompression.setInput(compresse);
+      if (decompression.inflate(res) != BLOCK_SIZE)
+      {
+        throw new IllegalStateException("Truncated tablebase block");
+      }
+    }
+    catch (final DataFormatException e)
+    {
+      throw new IllegalStateException(e);
+    }
+    finally
+    {
+      decompression.end();
+    }
+    synchronized (_blocks)
+    {
+      _inflations++;
+      _blocks.put(cle, res);
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi le jeu de tables livré avec l'application, chargé lors du premier appel.
+   * 
+   * @return Jeu de tables livré (éventuellement vide).
+   */
+  static Tablebase getDefault()
+  {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Renvoi le nombre de blocs décompressés (absents du cache lors de leur consultation).
+   * 
+   * @return Nombre de blocs décompressés.
+   */
+  long getInflations()
+  {
+    synchronized (_blocks)
+    {
+      return _inflations;
+    }
+  }
+
+  /**
+   * Renvoi le nombre de consultations du cache des blocs.
+   * 
+   * @return Nombre de consultations.
+   */
+  long getLookups()
+  {
+    synchronized (_blocks)
+    {
+      return _lookups;
+    }
+  }
+
+  /**
+   * Renvoi l'indice d'une position dans une table.
+   * 
+   * @param pTrait 0 si le camp fort a le trait, 1 sinon.
+   * @param pFort Indice de la case du roi du camp fort.
+   * @param pFaible Indice de la case du roi du camp faible.
+   * @param pPiece Indice de la case de la pièce du camp fort.
+   * @return Indice de la position (de 0 à {@link #POSITIONS} - 1).
+   */
+  static int indexOf(final int pTrait, final int pFort, final int pFaible, final int pPiece)
+  {
+    return ((pTrait * 64 + pFort) * 64 + pFaible) * 64 + pPiece;
+  }
+
+  /**
+   * Renvoi le nom du fichier d'une table.
+   * 
+   * @param pType Type de la pièce du camp fort.
+   * @return Nom du fichier (par exemple "KQK.jtb").
+   */
+  static String nameOf(final PieceType pType)
+  {
+    return 'K' + pType.getSANLetter() + 'K' + EXTENSION;
+  }
+
+  /**
+   * Renvoi le jeu des tables présentes dans un répertoire. Les jeux ouverts sont conservés : les
+   * moteurs utilisant le même répertoire partagent les projections et le cache.
+   * <p>
+   * Une table absente du répertoire, ou illisible, est remplacée par celle livrée avec
+   * l'application (un avertissement est alors émis, une seule fois par répertoire).
+   * </p>
+   * 
+   * @param pRepertoire Répertoire contenant les fichiers des tables.
+   * @return Jeu de tables, complété par les tables livrées.
+   */
+  static Tablebase open(final File pRepertoire)
+  {
+    assert pRepertoire != null;
+
+    synchronized (S_opened)
+    {
+      Tablebase res = S_opened.get(pRepertoire);
+      if (res == null)
+      {
+        res = new Tablebase();
+        final StringBuilder absentes = new StringBuilder();
+        for (final PieceType type : TablebaseGenerator.TYPES)
+        {
+          final File fichier = new File(pRepertoire, nameOf(type));
+          String erreur = "not found";
+          if (fichier.isFile())
+          {
+            try
+            {
+              res.add(type, MappedFiles.map(fichier));
+              continue;
+            }
+            catch (final IOException e)
+            {
+              erreur = e.getMessage();
+            }
+          }
+          absentes.append(' ').append(fichier.getName()).append(" (").append(erreur).append(')');
+          res._tables[type.ordinal()] = getDefault()._tables[type.ordinal()];
+        }
+        if (absentes.length() > 0)
+        {
+          LOGGER.warning("Tablebases not read from [" + pRepertoire + "]:" + absentes
+              + ", bundled tables used");
+        }
+        S_opened.put(pRepertoire, res);
+      }
+
+      return res;
+    }
+  }
+
+  /**
+   * Recherche une position dans les tables.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @return Score de la position du point de vue du camp au trait ({@link #WIN_VALUE} diminué de la
+   *         distance au mat en demi-coups pour un gain, son opposé pour une perte, 0 pour une
+   *         nulle), ou {@link #UNKNOWN} si la position n'est pas couverte.
+   */
+  int probe(final MoveGenerator pEtat)
+  {
+    assert pEtat != null;
+
+    final int nb = pEtat.getPieceCount();
+    if (nb > MAX_PIECES)
+    {
+      return UNKNOWN;
+    }
+    if (nb < MAX_PIECES)
+    {
+      // Rois seuls.
+      return 0;
+    }
+
+    Piece piece = null;
+    int iPiece = 0;
+    for (int i = FILE_COUNT * RANK_COUNT; --i >= 0; /* Pré-décrémenté */)
+    {
+      final Piece p = pEtat.getPieceAt(Square.valueOf(i));
+      if ((p != null) && (p.getType() != PieceType.KING))
+      {
+        piece = p;
+        iPiece = i;
+        break;
+      }
+    }
+    assert piece != null;
+    final PieceType type = piece.getType();
+    if ((type == PieceType.BISHOP) || (type == PieceType.KNIGHT))
+    {
+      // Matériel insuffisant pour mater.
+      return 0;
+    }
+    if (_tables[type.ordinal()] == null)
+    {
+      return UNKNOWN;
+    }
+
+    final boolean fort = piece.isWhite();
+    int iFort = pEtat.getKingSquare(fort).getIndex();
+    int iFaible = pEtat.getKingSquare(!fort).getIndex();
+    if (!fort)
+    {
+      // Symétrie horizontale : la pièce est ramenée du côté des blancs.
+      iFort ^= 56;
+      iFaible ^= 56;
+      iPiece ^= 56;
+    }
+    int trait = 1;
+    if (pEtat.isWhiteActive() == fort)
+    {
+      trait = 0;
+    }
+    final int indice = indexOf(trait, iFort, iFaible, iPiece);
+    final int valeur = getBlock(type, indice / BLOCK_SIZE)[indice % BLOCK_SIZE] & 0xFF;
+    if (valeur == 0)
+    {
+      return 0;
+    }
+
+    final int res = WIN_VALUE - (valeur - 1);
+    if (trait == 0)
+    {
+      return res;
+    }
+
+    return -res;
+  }
+
+  /**
+   * Chargement différé du jeu de tables livré avec l'application, lors du premier accès.
+   */
+  private static final class DefaultHolder
+  {
+    /** Jeu de tables livré (éventuellement vide). */
+    static final Tablebase INSTANCE = load();
+
+    /**
+     * Classe de chargement : ne pas instancier.
+     */
+    private DefaultHolder()
+    {
+      // Rien de spécifique...
+    }
+
+    /**
+     * Charge les tables livrées avec l'application.
+     * 
+     * @return Jeu des tables qui ont pu être chargées.
+     */
+    private static Tablebase load()
+    {
+      final Tablebase res = new Tablebase();
+      for (final PieceType type : TablebaseGenerator.TYPES)
+      {
+        final URL ressource = Tablebase.class.getResource(nameOf(type));
+        if (ressource != null)
+        {
+          try
+          {
+            res.add(type, MappedFiles.map(ressource));
+          }
+          catch (final IOException e)
+          {
+            // Pas grave, les coups seront calculés...
+          }
+        }
+      }
+
+      return res;
+    }
+  }
+}
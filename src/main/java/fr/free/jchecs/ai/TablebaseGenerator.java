@@ -0,0 +1,479 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static fr.free.jchecs.ai.Tablebase.BLOCK_SIZE;
+import static fr.free.jchecs.ai.Tablebase.POSITIONS;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import fr.free.jchecs.core.PieceType;
+
+/**
+ * Classe utilitaire construisant par analyse rétrograde les tables de finales roi et dame / roi et
+ * tour contre roi (voir {@link Tablebase}).
+ * <p>
+ * Les positions où le camp faible est mat reçoivent une distance de 0. Ensuite, à chaque passe,
+ * les positions du camp fort disposant d'un mouvement vers une position à distance n reçoivent la
+ * distance n + 1, puis les positions du camp faible dont tous les mouvements mènent à des positions
+ * déjà résolues, la plus longue à distance n + 1, reçoivent la distance n + 2. Les positions jamais
+ * résolues (pat, prise de la pièce non défendue, ...) sont nulles.
+ * </p>
+ * <p>
+ * Le générateur est autonome : il ne dépend pas des échiquiers du paquetage "core", afin que la
+ * validité des tables ne repose que sur lui.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class TablebaseGenerator
+{
+  /** Types des pièces du camp fort pour lesquels des tables sont construites. */
+  static final PieceType [] TYPES = { PieceType.QUEEN, PieceType.ROOK, };
+
+  /** Directions des déplacements (en colonnes, en lignes) : 4 orthogonales puis 4 diagonales. */
+  private static final int [][] DIRECTIONS =
+      { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 }, { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 }, };
+
+  /** Valeur des positions non (encore) résolues. */
+  private static final byte UNRESOLVED = 0;
+
+  /** Valeur des positions illégales. */
+  private static final byte ILLEGAL = -1;
+
+  /** Type de la pièce du camp fort. */
+  private final PieceType _type;
+
+  /** Nombre de directions de déplacement de la pièce du camp fort (4 ou 8). */
+  private final int _directions;
+
+  /** Distances au mat augmentées de 1 (ou {@link #UNRESOLVED} / {@link #ILLEGAL}) par position. */
+  private final byte [] _values = new byte [ POSITIONS ];
+
+  /** Plus grande distance au mat rencontrée (en demi-coups). */
+  private int _maxDistance;
+
+  /**
+   * Instancie un nouveau générateur.
+   * 
+   * @param pType Type de la pièce du camp fort (parmi {@link #TYPES}).
+   */
+  TablebaseGenerator(final PieceType pType)
+  {
+    assert Arrays.asList(TYPES).contains(pType);
+
+    _type = pType;
+    if (pType == PieceType.ROOK)
+    {
+      _directions = 4;
+    }
+    else
+    {
+      _directions = 8;
+    }
+  }
+
+  /**
+   * Indique si deux cases sont voisines (ou confondues).
+   * 
+   * @param pCase1 Indice de la première case.
+   * @param pCase2 Indice de la seconde case.
+   * @return "true" si les cases sont à une distance d'au plus une case.
+   */
+  private static boolean adjacent(final int pCase1, final int pCase2)
+  {
+    return (Math.abs((pCase1 & 7) - (pCase2 & 7)) <= 1)
+        && (Math.abs((pCase1 >> 3) - (pCase2 >> 3)) <= 1);
+  }
+
+  /**
+   * Indique si la pièce du camp fort attaque une case.
+   * 
+   * @param pPiece Indice de la case de la pièce.
+   * @param pCible Indice de la case visée.
+   * @param pObstacle Indice de la case du seul obstacle possible (le roi du camp fort).
+   * @return "true" si la case visée est attaquée.
+   */
+  private boolean attacks(final int pPiece, final int pCible, final int pObstacle)
+  {
+    for (int d = 0; d < _directions; d++)
+    {
+      int colonne = (pPiece & 7) + DIRECTIONS[d][0];
+      int ligne = (pPiece >> 3) + DIRECTIONS[d][1];
+      while ((colonne >= 0) && (colonne < 8) && (ligne >= 0) && (ligne < 8))
+      {
+        final int i = ligne * 8 + colonne;
+        if (i == pCible)
+        {
+          return true;
+        }
+        if (i == pObstacle)
+        {
+          break;
+        }
+        colonne += DIRECTIONS[d][0];
+        ligne += DIRECTIONS[d][1];
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Construit la table.
+   * 
+   * @return Contenu de la table, au format des valeurs de {@link Tablebase} (0 pour une nulle ou
+   *         une position illégale, la distance au mat augmentée de 1 sinon).
+   */
+  byte [] generate()
+  {
+    Arrays.fill(_values, UNRESOLVED);
+    _maxDistance = 0;
+    for (int fort = 0; fort < 64; fort++)
+    {
+      for (int faible = 0; faible < 64; faible++)
+      {
+        for (int piece = 0; piece < 64; piece++)
+        {
+          if ((piece == fort) || (piece == faible) || adjacent(fort, faible))
+          {
+            _values[Tablebase.indexOf(0, fort, faible, piece)] = ILLEGAL;
+            _values[Tablebase.indexOf(1, fort, faible, piece)] = ILLEGAL;
+          }
+          else if (attacks(piece, faible, fort))
+          {
+            // Le camp fort ne peut avoir le trait alors que le roi adverse est en échec...
+            _values[Tablebase.indexOf(0, fort, faible, piece)] = ILLEGAL;
+            if (isMate(fort, faible, piece))
+            {
+              _values[Tablebase.indexOf(1, fort, faible, piece)] = 1;
+            }
+          }
+        }
+      }
+    }
+
+    boolean modifie = true;
+    for (int n = 0; modifie; n += 2)
+    {
+      modifie = resolveStrong(n);
+      if (modifie)
+      {
+        _maxDistance = n + 1;
+        if (resolveWeak(n + 1))
+        {
+          _maxDistance = n + 2;
+        }
+      }
+    }
+
+    final byte [] res = new byte [ POSITIONS ];
+    for (int i = 0; i < POSITIONS; i++)
+    {
+      if (_values[i] != ILLEGAL)
+      {
+        res[i] = _values[i];
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi la plus grande distance au mat de la dernière table construite.
+   * 
+   * @return Plus grande distance au mat (en demi-coups).
+   */
+  int getMaximalDistance()
+  {
+    return _maxDistance;
+  }
+
+  /**
+   * Indique si le roi du camp faible, en échec, ne dispose d'aucun mouvement.
+   * 
+   * @param pFort Indice de la case du roi du camp fort.
+   * @param pFaible Indice de la case du roi du camp faible.
+   * @param pPiece Indice de la case de la pièce du camp fort.
+   * @return "true" si le camp faible est mat.
+   */
+  private boolean isMate(final int pFort, final int pFaible, final int pPiece)
+  {
+    for (int d = 0; d < 8; d++)
+    {
+      final int colonne = (pFaible & 7) + DIRECTIONS[d][0];
+      final int ligne = (pFaible >> 3) + DIRECTIONS[d][1];
+      if ((colonne >= 0) && (colonne < 8) && (ligne >= 0) && (ligne < 8))
+      {
+        final int cible = ligne * 8 + colonne;
+        if (!adjacent(cible, pFort)
+            && ((cible == pPiece) || !attacks(pPiece, cible, pFort)))
+        {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Résout les positions où le camp fort a le trait et peut atteindre une position à distance n.
+   * 
+   * @param pDistance Distance n des positions visées (en demi-coups).
+   * @return "true" si au moins une position a été résolue.
+   */
+  private boolean resolveStrong(final int pDistance)
+  {
+    final byte visee = (byte) (pDistance + 1);
+    boolean res = false;
+    for (int fort = 0; fort < 64; fort++)
+    {
+      for (int faible = 0; faible < 64; faible++)
+      {
+        for (int piece = 0; piece < 64; piece++)
+        {
+          final int indice = Tablebase.indexOf(0, fort, faible, piece);
+          if ((_values[indice] == UNRESOLVED) && reaches(fort, faible, piece, visee))
+          {
+            _values[indice] = (byte) (visee + 1);
+            res = true;
+          }
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Indique si le camp fort, ayant le trait, peut atteindre une position de valeur donnée.
+   * 
+   * @param pFort Indice de la case du roi du camp fort.
+   * @param pFaible Indice de la case du roi du camp faible.
+   * @param pPiece Indice de la case de la pièce du camp fort.
+   * @param pValeur Valeur recherchée.
+   * @return "true" si un mouvement mène à une position de cette valeur.
+   */
+  private boolean reaches(final int pFort, final int pFaible, final int pPiece, final byte pValeur)
+  {
+    for (int d = 0; d < 8; d++)
+    {
+      final int colonne = (pFort & 7) + DIRECTIONS[d][0];
+      final int ligne = (pFort >> 3) + DIRECTIONS[d][1];
+      if ((colonne >= 0) && (colonne < 8) && (ligne >= 0) && (ligne < 8))
+      {
+        final int cible = ligne * 8 + colonne;
+        if ((cible != pPiece) && !adjacent(cible, pFaible)
+            && (_values[Tablebase.indexOf(1, cible, pFaible, pPiece)] == pValeur))
+        {
+          return true;
+        }
+      }
+    }
+    for (int d = 0; d < _directions; d++)
+    {
+      int colonne = (pPiece & 7) + DIRECTIONS[d][0];
+      int ligne = (pPiece >> 3) + DIRECTIONS[d][1];
+      while ((colonne >= 0) && (colonne < 8) && (ligne >= 0) && (ligne < 8))
+      {
+        final int cible = ligne * 8 + colonne;
+        if ((cible == pFort) || (cible == pFaible))
+        {
+          break;
+        }
+        if (_values[Tablebase.indexOf(1, pFort, pFaible, cible)] == pValeur)
+        {
+          return true;
+        }
+        colonne += DIRECTIONS[d][0];
+        ligne += DIRECTIONS[d][1];
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Résout les positions où le camp faible a le trait et dont tous les mouvements mènent à des
+   * positions résolues, la plus longue à distance n.
+   * 
+   * @param pDistance Distance n de la plus longue des positions atteintes (en demi-coups).
+   * @return "true" si au moins une position a été résolue.
+   */
+  private boolean resolveWeak(final int pDistance)
+  {
+    final byte visee = (byte) (pDistance + 1);
+    boolean res = false;
+    for (int fort = 0; fort < 64; fort++)
+    {
+      for (int faible = 0; faible < 64; faible++)
+      {
+        for (int piece = 0; piece < 64; piece++)
+        {
+          final int indice = Tablebase.indexOf(1, fort, faible, piece);
+          if (_values[indice] == UNRESOLVED)
+          {
+            final int plusLongue = longestReply(fort, faible, piece);
+            if (plusLongue == visee)
+            {
+              _values[indice] = (byte) (visee + 1);
+              res = true;
+            }
+          }
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi la plus grande valeur des positions atteintes par les mouvements du camp faible.
+   * 
+   * @param pFort Indice de la case du roi du camp fort.
+   * @param pFaible Indice de la case du roi du camp faible.
+   * @param pPiece Indice de la case de la pièce du camp fort.
+   * @return Plus grande valeur atteinte, ou {@link #UNRESOLVED} si un mouvement mène à une position
+   *         non résolue (ou nulle), ou s'il n'y a aucun mouvement (pat).
+   */
+  private int longestReply(final int pFort, final int pFaible, final int pPiece)
+  {
+    int res = UNRESOLVED;
+    for (int d = 0; d < 8; d++)
+    {
+      final int colonne = (pFaible & 7) + DIRECTIONS[d][0];
+      final int ligne = (pFaible >> 3) + DIRECTIONS[d][1];
+      if ((colonne >= 0) && (colonne < 8) && (ligne >= 0) && (ligne < 8))
+      {
+        final int cible = ligne * 8 + colonne;
+        if (!adjacent(cible, pFort))
+        {
+          if (cible == pPiece)
+          {
+            // Prise de la pièce non défendue : nulle.
+            return UNRESOLVED;
+          }
+          if (!attacks(pPiece, cible, pFort))
+          {
+            final byte valeur = _values[Tablebase.indexOf(0, pFort, cible, pPiece)];
+            if (valeur == UNRESOLVED)
+            {
+              return UNRESOLVED;
+            }
+            assert valeur != ILLEGAL;
+            res = Math.max(res, valeur);
+          }
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Ecrit une table dans un fichier, au format lu par {@link Tablebase}.
+   * 
+   * @param pTable Contenu de la table (voir {@link #generate()}).
+   * @param pFichier Fichier à produire.
+   * @throws IOException En cas d'erreur d'écriture.
+   */
+  static void write(final byte [] pTable, final File pFichier) throws IOException
+  {
+    assert pTable.length == POSITIONS;
+    assert pFichier != null;
+
+    final int nbBlocs = POSITIONS / BLOCK_SIZE;
+    final byte [][] blocs = new byte [ nbBlocs ][];
+    final byte [] tampon = new byte [ BLOCK_SIZE * 2 ];
+    final Deflater compression = new Deflater(Deflater.BEST_COMPRESSION);
+    try
+    {
+      for (int b = 0; b < nbBlocs; b++)
+      {
+        compression.reset();
+        compression.setInput(pTable, b * BLOCK_SIZE, BLOCK_SIZE);
+        compression.finish();
+        final int lg = compression.deflate(tampon);
+        assert compression.finished();
+        blocs[b] = Arrays.copyOf(tampon, lg);
+      }
+    }
+    finally
+    {
+      compression.end();
+    }
+
+    final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pFichier)));
+    try
+    {
+      out.writeInt(Tablebase.MAGIC);
+      out.writeInt(Tablebase.VERSION);
+      out.writeInt(POSITIONS);
+      out.writeInt(BLOCK_SIZE);
+      out.writeInt(nbBlocs);
+      int position = Tablebase.HEADER_SIZE + (nbBlocs + 1) * 4;
+      for (final byte [] bloc : blocs)
+      {
+        out.writeInt(position);
+        position += bloc.length;
+      }
+      out.writeInt(position);
+      for (final byte [] bloc : blocs)
+      {
+        out.write(bloc);
+      }
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  /**
+   * Construit les fichiers des tables de finales.
+   * 
+   * @param pArgs Arguments de la ligne de commande : le répertoire où produire les fichiers.
+   * @throws Exception En cas d'erreur d'écriture.
+   */
+  public static void main(final String [] pArgs) throws Exception
+  {
+    if (pArgs.length != 1)
+    {
+      System.err.println("Usage: TablebaseGenerator <répertoire>");
+      System.exit(1);
+    }
+
+    for (final PieceType type : TYPES)
+    {
+      final TablebaseGenerator generateur = new TablebaseGenerator(type);
+      final File fichier = new File(pArgs[0], Tablebase.nameOf(type));
+      write(generateur.generate(), fichier);
+      System.out.println(fichier + " : mat en " + generateur.getMaximalDistance()
+          + " demi-coups au plus");
+    }
+  }
+}
@@ -20,52 +20,84 @@ package fr.free.jchecs.ai;
 
 import java.util.Arrays;
 
-import fr.free.jchecs.core.Board;
-
 /**
  * Classe implémentant la gestion d'une table de transposition intégrable dans un moteur d'I.A.
+ * <p>
+ * Chaque entrée occupe deux mots de 64 bits consécutifs d'un unique tableau de "long" : le premier
+ * contient la clé Zobrist de l'état combinée (XOR) avec le second, qui regroupe toutes les données
+ * de l'entrée. Une entrée dont les deux mots ont été écrits par des threads différents ne vérifie
+ * plus la relation clé / données et est simplement ignorée : les lectures et écritures concurrentes
+ * ne nécessitent donc aucun verrou.
+ * </p>
+ * <p>
+ * Les entrées sont regroupées par seaux de 4 (64 octets). Lors d'une écriture, l'entrée remplacée
+ * dans le seau est celle de la même position si elle existe, sinon la moins profonde des entrées
+ * les plus anciennes (voir {@link #newSearch()}).
+ * </p>
+ * <p>
+ * Organisation du mot de données :
+ * <ul>
+ * <li>bits 0 à 31 : score ;</li>
+ * <li>bits 32 à 51 : meilleur mouvement ({@code Move.toId() >>> 4}, 0 si inconnu) ;</li>
+ * <li>bits 52 à 57 : profondeur (décalée de {@link #DEPTH_OFFSET}) ;</li>
+ * <li>bits 58 à 59 : type de la valeur ({@link #ALPHA}, {@link #BETA} ou {@link #EXACT}) ;</li>
+ * <li>bits 60 à 63 : génération de la recherche ayant écrit l'entrée.</li>
+ * </ul>
+ * Le type n'étant jamais nul, un mot de données valide n'est jamais nul : {@link #probe(long)}
+ * renvoi 0 pour signaler l'absence d'entrée.
+ * </p>
  * 
  * @author David Cotton
  */
 final class TranspositionTable
 {
-  /** Nombre maximum de collisions entre les clés avant l'abandon. */
-  private static final int MAX_COLLISIONS = 3;
+  /** Taille par défaut d'une table de transposition (en Mo). */
+  static final int DEFAULT_SIZE = 8;
 
-  /** Identifiant d'une valeur de type "ALPHA". */
-  private static final int ALPHA = 0;
+  /** Identifiant d'une valeur de type "ALPHA" (borne haute). */
+  static final int ALPHA = 1;
 
-  /** Identifiant d'une valeur de type "BETA". */
-  private static final int BETA = 1;
+  /** Identifiant d'une valeur de type "BETA" (borne basse). */
+  static final int BETA = 2;
 
   /** Identifiant d'une valeur de type "EXACT". */
-  private static final int EXACT = 2;
+  static final int EXACT = 3;
+
+  /** Nombre d'entrées par seau. */
+  private static final int BUCKET_SIZE = 4;
+
+  /** Décalage appliqué aux profondeurs (qui peuvent être négatives en fin de recherche). */
+  private static final int DEPTH_OFFSET = 8;
 
-  /** Tableau accueillant les clés de hachage identifiant les états de jeu. */
-  private final int [] _hashCodes;
+  /** Taille d'une entrée, en octets. */
+  private static final int ENTRY_SIZE = 16;
 
-  /** Tableau types d'éléments. */
-  private final byte [] _types;
+  /** Masque des 4 bits de génération. */
+  private static final int GENERATION_MASK = 0xF;
 
-  /** Tableau des profondeurs. */
-  private final byte [] _depths;
+  /** Table des entrées : paires (clé ^ données, données). */
+  private final long [] _entries;
 
-  /** Tableau des valeurs. */
-  private final int [] _values;
+  /** Masque appliqué aux clés pour obtenir l'indice du seau. */
+  private final int _bucketMask;
+
+  /** Génération de la recherche en cours. */
+  private volatile int _generation;
 
   /**
    * Instancie une nouvelle table de transposition.
    * 
-   * @param pCapacite Taille maximale de la table de transposition.
+   * @param pTaille Taille de la table, en Mo (> 0). Le nombre de seaux est arrondi à la puissance
+   *          de 2 inférieure.
    */
-  TranspositionTable(final int pCapacite)
+  TranspositionTable(final int pTaille)
   {
-    assert pCapacite > 0;
+    assert pTaille > 0;
 
-    _hashCodes = new int [ pCapacite ];
-    _types = new byte [ pCapacite ];
-    _depths = new byte [ pCapacite ];
-    _values = new int [ pCapacite ];
+    final long nbSeaux = ((long) pTaille << 20) / (ENTRY_SIZE * BUCKET_SIZE);
+    final int seaux = Integer.highestOneBit((int) Math.min(nbSeaux, 1 << 26));
+    _bucketMask = seaux - 1;
+    _entries = new long [ seaux * BUCKET_SIZE * 2 ];
   }
 
   /**
@@ -73,102 +105,185 @@ final class TranspositionTable
    */
   void clear()
   {
-    Arrays.fill(_hashCodes, 0);
+    Arrays.fill(_entries, 0);
   }
 
   /**
-   * Renvoi l'éventuel valeur correspondant à un état de jeu dans le contexte de I.A. en cours.
+   * Renvoi le nombre d'entrées de la table.
    * 
-   * @param pEtat Etat recherché.
-   * @param pProfondeur Profondeur du résulat.
-   * @param pAlpha Valeur alpha.
-   * @param pBeta Valeur beta.
-   * @return Valeur correspondante, ou null si inconnue.
+   * @return Nombre d'entrées (> 0).
    */
-  Integer get(final Board pEtat, final int pProfondeur, final int pAlpha, final int pBeta)
+  int getCapacity()
   {
-    assert pEtat != null;
-    // TODO: assert pAlpha <= pBeta;
-
-    final int cleCherchee = pEtat.hashCode();
-    final int capacite = _hashCodes.length;
-    int pos = Math.abs(cleCherchee % capacite);
-    int cle = _hashCodes[pos];
-    for (int i = MAX_COLLISIONS; (cle != 0) && (--i >= 0); /* Pré-décrémenté */)
+    return _entries.length / 2;
+  }
+
+  /**
+   * Signale le début d'une nouvelle recherche : les entrées écrites auparavant restent utilisables
+   * mais deviennent prioritaires pour le remplacement.
+   */
+  void newSearch()
+  {
+    _generation = (_generation + 1) & GENERATION_MASK;
+  }
+
+  /**
+   * Recherche l'entrée correspondant à un état de jeu, sans allocation.
+   * 
+   * @param pCle Clé Zobrist 64 bits de l'état de jeu.
+   * @return Mot de données de l'entrée (à décoder avec les méthodes statiques), ou 0 si inconnu.
+   */
+  long probe(final long pCle)
+  {
+    final long [] entrees = _entries;
+    final int debut = ((int) pCle & _bucketMask) * BUCKET_SIZE * 2;
+    for (int i = debut; i < debut + BUCKET_SIZE * 2; i += 2)
     {
-      if (cle == cleCherchee)
+      final long donnees = entrees[i + 1];
+      if ((donnees != 0) && ((entrees[i] ^ donnees) == pCle))
       {
-        if (_depths[pos] >= pProfondeur)
-        {
-          final int type = _types[pos];
-          final int val = _values[pos];
-          if ((type == EXACT) || ((type == ALPHA) && (val <= pAlpha))
-              || ((type == BETA) && (val >= pBeta)))
-          {
-              return val;
-          }
-        }
-        break;
-      }
-      pos++;
-      if (pos >= capacite)
-      {
-        pos -= capacite;
+        return donnees;
       }
-      cle = _hashCodes[pos];
     }
 
-    return null;
+    return 0;
   }
 
   /**
    * Stocke la valeur donnée à un état dans la table de transposition.
    * 
-   * @param pEtat Etat de jeu.
+   * @param pCle Clé Zobrist 64 bits de l'état de jeu.
    * @param pProfondeur Profondeur liée au résultat.
-   * @param pAlpha Valeur alpha.
-   * @param pBeta Valeur beta.
+   * @param pType Type de la valeur ({@link #ALPHA}, {@link #BETA} ou {@link #EXACT}).
    * @param pValeur Valeur du résultat.
+   * @param pMouvement Identifiant du meilleur mouvement ({@code Move.toId()}), ou 0 si inconnu.
    */
-  void put(final Board pEtat, final int pProfondeur, final int pAlpha, final int pBeta,
-      final int pValeur)
+  void store(final long pCle, final int pProfondeur, final int pType, final int pValeur,
+      final int pMouvement)
   {
-    assert pEtat != null;
-    // TODO: assert pAlpha <= pBeta;
-
-    final int cleEtat = pEtat.hashCode();
-    final int capacite = _hashCodes.length;
-    int pos = Math.abs(cleEtat % capacite);
-    int cle = _hashCodes[pos];
-    for (int i = MAX_COLLISIONS; (cle != 0) && (cle != cleEtat) && (--i >= 0); /* Pré-décrémenté */)
+    assert (pType >= ALPHA) && (pType <= EXACT);
+    assert (pProfondeur >= -DEPTH_OFFSET) && (pProfondeur < 64 - DEPTH_OFFSET);
+
+    final long [] entrees = _entries;
+    final int generation = _generation;
+    final int debut = ((int) pCle & _bucketMask) * BUCKET_SIZE * 2;
+    int cible = debut;
+    int priorite = Integer.MAX_VALUE;
+    int mvt = pMouvement >>> 4;
+    for (int i = debut; i < debut + BUCKET_SIZE * 2; i += 2)
     {
-      pos++;
-      if (pos >= capacite)
+      final long donnees = entrees[i + 1];
+      if (donnees == 0)
       {
-        pos -= capacite;
+        cible = i;
+        break;
       }
-      cle = _hashCodes[pos];
-    }
-
-    if ((cle == 0) || ((cle == cleEtat) && (_depths[pos] < pProfondeur)))
-    {
-      byte type = EXACT;
-      if (pProfondeur > 0)
+      if ((entrees[i] ^ donnees) == pCle)
       {
-        if (pValeur > pBeta)
+        // Même position : on ne remplace pas un résultat plus profond de la recherche en cours.
+        if ((pType != EXACT) && (getDepth(donnees) > pProfondeur)
+            && (getGeneration(donnees) == generation))
         {
-          type = BETA;
+          return;
         }
-        else if (pValeur < pAlpha)
+        if (mvt == 0)
         {
-          type = ALPHA;
+          mvt = getMove(donnees) >>> 4;
         }
+        cible = i;
+        break;
       }
+      final int age = (generation - getGeneration(donnees)) & GENERATION_MASK;
+      final int p = getDepth(donnees) - 8 * age;
+      if (p < priorite)
+      {
+        priorite = p;
+        cible = i;
+      }
+    }
 
-      _hashCodes[pos] = cleEtat;
-      _types[pos] = type;
-      _depths[pos] = (byte) pProfondeur;
-      _values[pos] = pValeur;
+    final long donnees = (pValeur & 0xFFFFFFFFL) | ((long) mvt << 32)
+        | ((long) (pProfondeur + DEPTH_OFFSET) << 52) | ((long) pType << 58)
+        | ((long) generation << 60);
+    entrees[cible + 1] = donnees;
+    entrees[cible] = pCle ^ donnees;
+  }
+
+  /**
+   * Renvoi la profondeur d'une entrée.
+   * 
+   * @param pDonnees Mot de données d'une entrée (non nul).
+   * @return Profondeur liée au résultat.
+   */
+  static int getDepth(final long pDonnees)
+  {
+    return (int) ((pDonnees >>> 52) & 0x3F) - DEPTH_OFFSET;
+  }
+
+  /**
+   * Renvoi la génération de la recherche ayant écrit une entrée.
+   * 
+   * @param pDonnees Mot de données d'une entrée (non nul).
+   * @return Génération ([0, 15]).
+   */
+  private static int getGeneration(final long pDonnees)
+  {
+    return (int) (pDonnees >>> 60) & GENERATION_MASK;
+  }
+
+  /**
+   * Renvoi le meilleur mouvement d'une entrée.
+   * 
+   * @param pDonnees Mot de données d'une entrée (non nul).
+   * @return Identifiant du mouvement ({@code Move.toId()}), ou 0 si inconnu.
+   */
+  static int getMove(final long pDonnees)
+  {
+    return (int) ((pDonnees >>> 32) & 0xFFFFF) << 4;
+  }
+
+  /**
+   * Renvoi le type de la valeur d'une entrée.
+   * 
+   * @param pDonnees Mot de données d'une entrée (non nul).
+   * @return Type de valeur ({@link #ALPHA}, {@link #BETA} ou {@link #EXACT}).
+   */
+  static int getType(final long pDonnees)
+  {
+    return (int) (pDonnees >>> 58) & 0x3;
+  }
+
+  /**
+   * Renvoi la valeur d'une entrée.
+   * 
+   * @param pDonnees Mot de données d'une entrée (non nul).
+   * @return Valeur du résultat.
+   */
+  static int getValue(final long pDonnees)
+  {
+    return (int) pDonnees;
+  }
+
+  /**
+   * Indique si une entrée permet de conclure directement la recherche d'une position.
+   * 
+   * @param pDonnees Mot de données d'une entrée (0 si inconnu).
+   * @param pProfondeur Profondeur de la recherche en cours.
+   * @param pAlpha Valeur alpha.
+   * @param pBeta Valeur beta.
+   * @return "true" si la valeur de l'entrée peut être renvoyée telle quelle.
+   */
+  static boolean isConclusive(final long pDonnees, final int pProfondeur, final int pAlpha,
+      final int pBeta)
+  {
+    if ((pDonnees == 0) || (getDepth(pDonnees) < pProfondeur))
+    {
+      return false;
     }
+
+    final int type = getType(pDonnees);
+    final int val = getValue(pDonnees);
+    return (type == EXACT) || ((type == ALPHA) && (val <= pAlpha))
+        || ((type == BETA) && (val >= pBeta));
   }
 }
@@ -20,6 +20,7 @@ package fr.free.jchecs.core;
 
 import static fr.free.jchecs.core.Constants.FILE_COUNT;
 import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.PieceType.PAWN;
 
 import java.util.Random;
 
@@ -52,6 +53,53 @@ abstract class AbstractBoard implements Board
   /** Constante de grand roque pour les blancs pour le calcul de clés de hachage "Zobrist". */
   protected static final int ZOBRIST_WHITE_CASTLE_SHORT;
 
+  /** Constantes de pièce / position pour le calcul des clés "Zobrist" sur 64 bits. */
+  protected static final long [][] ZOBRIST64_PIECE_POSITION;
+
+  /**
+   * Constantes de pion / position pour le calcul des clés "Zobrist" sur 64 bits de la structure de
+   * pions (nulles pour les autres pièces).
+   */
+  protected static final long [][] ZOBRIST64_PAWN_POSITION;
+
+  /** Constante de prise en passant pour le calcul des clés "Zobrist" sur 64 bits. */
+  protected static final long [] ZOBRIST64_EN_PASSANT;
+
+  /** Constante de petit roque pour les noirs pour le calcul des clés "Zobrist" sur 64 bits. */
+  protected static final long ZOBRIST64_BLACK_CASTLE_LONG;
+
+  /** Constante de grand roque pour les noirs pour le calcul des clés "Zobrist" sur 64 bits. */
+  protected static final long ZOBRIST64_BLACK_CASTLE_SHORT;
+
+  /** Constante de trait aux blancs pour le calcul des clés "Zobrist" sur 64 bits. */
+  protected static final long ZOBRIST64_WHITE_ACTIVE;
+
+  /** Constante de petit roque pour les blancs pour le calcul des clés "Zobrist" sur 64 bits. */
+  protected static final long ZOBRIST64_WHITE_CASTLE_LONG;
+
+  /** Constante de grand roque pour les blancs pour le calcul des clés "Zobrist" sur 64 bits. */
+  protected static final long ZOBRIST64_WHITE_CASTLE_SHORT;
+
+  /**
+   * Contributions de pièce / position au bilan matériel et positionnel (voir {@link #balance()}).
+   */
+  protected static final long [][] BALANCE_PIECE_POSITION;
+
+  /**
+   * Contributions de pièce / position au décompte des pièces et des pions par colonne (voir
+   * {@link #structure()}).
+   */
+  protected static final long [][] STRUCTURE_PIECE_POSITION;
+
+  /** Nombre de bits d'un champ du bilan. */
+  private static final int BALANCE_FIELD_BITS = 16;
+
+  /** Nombre de bits d'un compteur de pions par colonne. */
+  private static final int PAWN_COUNT_BITS = 3;
+
+  /** Position du compteur de pièces dans la structure. */
+  private static final int PIECE_COUNT_SHIFT = 2 * FILE_COUNT * PAWN_COUNT_BITS;
+
   static
   {
     final Random rnd = new Random(123456789L);
@@ -74,6 +122,70 @@ abstract class AbstractBoard implements Board
     ZOBRIST_WHITE_ACTIVE = rnd.nextInt();
     ZOBRIST_WHITE_CASTLE_LONG = rnd.nextInt();
     ZOBRIST_WHITE_CASTLE_SHORT = rnd.nextInt();
+
+    // Les clés sur 64 bits utilisent leur propre suite, pour ne pas modifier les clés sur 32 bits
+    // (la bibliothèque d'ouvertures en dépend).
+    final Random rnd64 = new Random(987654321L);
+    ZOBRIST64_PIECE_POSITION = new long [ nbPieces ] [ FILE_COUNT * RANK_COUNT ];
+    for (int i = nbPieces; --i >= 0; /* Pré-décrémenté */)
+    {
+      for (int j = FILE_COUNT * RANK_COUNT; --j >= 0; /* Pré-décrémenté */)
+      {
+        ZOBRIST64_PIECE_POSITION[i][j] = rnd64.nextLong();
+      }
+    }
+    ZOBRIST64_PAWN_POSITION = new long [ nbPieces ] [];
+    for (final Piece p : Piece.values())
+    {
+      if (p.getType() == PAWN)
+      {
+        ZOBRIST64_PAWN_POSITION[p.ordinal()] = ZOBRIST64_PIECE_POSITION[p.ordinal()];
+      }
+      else
+      {
+        ZOBRIST64_PAWN_POSITION[p.ordinal()] = new long [ FILE_COUNT * RANK_COUNT ];
+      }
+    }
+    ZOBRIST64_EN_PASSANT = new long [ FILE_COUNT ];
+    for (int i = FILE_COUNT; --i >= 0; /* Pré-décrémenté */)
+    {
+      ZOBRIST64_EN_PASSANT[i] = rnd64.nextLong();
+    }
+    ZOBRIST64_BLACK_CASTLE_LONG = rnd64.nextLong();
+    ZOBRIST64_BLACK_CASTLE_SHORT = rnd64.nextLong();
+    ZOBRIST64_WHITE_ACTIVE = rnd64.nextLong();
+    ZOBRIST64_WHITE_CASTLE_LONG = rnd64.nextLong();
+    ZOBRIST64_WHITE_CASTLE_SHORT = rnd64.nextLong();
+
+    // Le bilan regroupe dans un même entier long des champs signés de 16 bits : le matériel puis
+    // chaque table de positions. Les contributions étant linéaires, une pièce s'ajoute ou se
+    // retire avec une simple addition / soustraction, quel que soit le signe des champs.
+    final PieceSquareTable [] tables = PieceSquareTable.values();
+    assert (tables.length + 1) * BALANCE_FIELD_BITS <= Long.SIZE;
+    BALANCE_PIECE_POSITION = new long [ nbPieces ] [ FILE_COUNT * RANK_COUNT ];
+    STRUCTURE_PIECE_POSITION = new long [ nbPieces ] [ FILE_COUNT * RANK_COUNT ];
+    for (final Piece p : Piece.values())
+    {
+      for (final Square s : Square.values())
+      {
+        long bilan = p.getType().getValue();
+        for (final PieceSquareTable t : tables)
+        {
+          bilan += (long) t.getValue(p, s) << ((t.ordinal() + 1) * BALANCE_FIELD_BITS);
+        }
+        if (!p.isWhite())
+        {
+          bilan = -bilan;
+        }
+        BALANCE_PIECE_POSITION[p.ordinal()][s.getIndex()] = bilan;
+        long structure = 1L << PIECE_COUNT_SHIFT;
+        if (p.getType() == PAWN)
+        {
+          structure += 1L << pawnCountShift(p.isWhite(), s.getFile());
+        }
+        STRUCTURE_PIECE_POSITION[p.ordinal()][s.getIndex()] = structure;
+      }
+    }
   }
 
   /** Drapeau indiquant le droit de roquer côté roi (petit roque) pour les noirs. */
@@ -146,6 +258,53 @@ abstract class AbstractBoard implements Board
     _whiteCastleLong = pEtat._whiteCastleLong;
   }
 
+  /**
+   * Implémentation par défaut du calcul du bilan matériel et positionnel, regroupant dans un entier
+   * long les sommes des contributions de {@link #BALANCE_PIECE_POSITION}.
+   * <p>
+   * Les implémentations concrètes devraient surcharger cette méthode et maintenir le bilan de façon
+   * incrémentale lors des dérivations.
+   * </p>
+   * 
+   * @return Bilan matériel et positionnel.
+   */
+  protected long balance()
+  {
+    long res = 0;
+    for (final Square s : Square.values())
+    {
+      final Piece p = getPieceAt(s);
+      if (p != null)
+      {
+        res += BALANCE_PIECE_POSITION[p.ordinal()][s.getIndex()];
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Extrait un champ signé du bilan.
+   * <p>
+   * Un champ négatif ayant retenu une unité sur le champ suivant, celle-ci est rendue en ajoutant
+   * la moitié de l'amplitude d'un champ avant le décalage.
+   * </p>
+   * 
+   * @param pBilan Bilan matériel et positionnel.
+   * @param pChamp Rang du champ (0 pour le matériel, puis 1 + rang de la table de positions).
+   * @return Valeur du champ.
+   */
+  private static int balanceField(final long pBilan, final int pChamp)
+  {
+    if (pChamp == 0)
+    {
+      return (short) pBilan;
+    }
+
+    final int decalage = pChamp * BALANCE_FIELD_BITS;
+    return (short) ((pBilan + (1L << (decalage - 1))) >> decalage);
+  }
+
   /**
    * Renvoi l'état du droit de roquer côté roi (petit roque) pour une couleur.
    * 
@@ -412,6 +571,54 @@ abstract class AbstractBoard implements Board
     return res;
   }
 
+  /**
+   * Renvoi le bilan matériel de l'état.
+   * 
+   * @return Bilan matériel (du point de vue des blancs).
+   */
+  public final int getMaterialBalance()
+  {
+    return balanceField(balance(), 0);
+  }
+
+  /**
+   * Renvoi le nombre de pions d'une couleur présents sur une colonne.
+   * 
+   * @param pBlanc Positionné à "true" pour obtenir le nombre de pions blancs.
+   * @param pColonne Colonne (de 0 à 7).
+   * @return Nombre de pions de la couleur sur la colonne.
+   */
+  public final int getPawnCount(final boolean pBlanc, final int pColonne)
+  {
+    assert (pColonne >= 0) && (pColonne < FILE_COUNT);
+
+    final int masque = (1 << PAWN_COUNT_BITS) - 1;
+    return (int) (structure() >>> pawnCountShift(pBlanc, pColonne)) & masque;
+  }
+
+  /**
+   * Renvoi le nombre de pièces présentes sur le plateau.
+   * 
+   * @return Nombre de pièces.
+   */
+  public final int getPieceCount()
+  {
+    return (int) (structure() >>> PIECE_COUNT_SHIFT);
+  }
+
+  /**
+   * Renvoi le bilan d'une table de positions.
+   * 
+   * @param pTable Table de positions.
+   * @return Bilan de la table (du point de vue des blancs).
+   */
+  public final int getPositionalBalance(final PieceSquareTable pTable)
+  {
+    assert pTable != null;
+
+    return balanceField(balance(), pTable.ordinal() + 1);
+  }
+
   /**
    * Indique si le trait est aux blancs.
    * 
@@ -422,6 +629,47 @@ abstract class AbstractBoard implements Board
     return _whiteActive;
   }
 
+  /**
+   * Implémentation par défaut du calcul de la clé "Zobrist" sur 64 bits de la structure de pions.
+   * <p>
+   * Les implémentations concrètes devraient surcharger cette méthode et maintenir la clé de façon
+   * incrémentale lors des dérivations.
+   * </p>
+   * 
+   * @return Clé "Zobrist" sur 64 bits de la structure de pions.
+   */
+  public long pawnZobristKey()
+  {
+    long res = 0;
+    for (final Square s : Square.values())
+    {
+      final Piece p = getPieceAt(s);
+      if (p != null)
+      {
+        res ^= ZOBRIST64_PAWN_POSITION[p.ordinal()][s.getIndex()];
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi la position du compteur des pions d'une couleur sur une colonne dans la structure.
+   * 
+   * @param pBlanc Positionné à "true" pour les pions blancs.
+   * @param pColonne Colonne (de 0 à 7).
+   * @return Position du compteur.
+   */
+  private static int pawnCountShift(final boolean pBlanc, final int pColonne)
+  {
+    if (pBlanc)
+    {
+      return pColonne * PAWN_COUNT_BITS;
+    }
+
+    return (FILE_COUNT + pColonne) * PAWN_COUNT_BITS;
+  }
+
   /**
    * Alimente l'état du droit de roquer côté roi (petit roque) pour une couleur.
    * <p>
@@ -521,6 +769,32 @@ abstract class AbstractBoard implements Board
     _whiteActive = pTrait;
   }
 
+  /**
+   * Implémentation par défaut du calcul de la structure : nombre de pièces et nombre de pions de
+   * chaque couleur par colonne, regroupés dans un entier long par sommation des contributions de
+   * {@link #STRUCTURE_PIECE_POSITION}.
+   * <p>
+   * Les implémentations concrètes devraient surcharger cette méthode et maintenir la structure de
+   * façon incrémentale lors des dérivations.
+   * </p>
+   * 
+   * @return Structure de l'état.
+   */
+  protected long structure()
+  {
+    long res = 0;
+    for (final Square s : Square.values())
+    {
+      final Piece p = getPieceAt(s);
+      if (p != null)
+      {
+        res += STRUCTURE_PIECE_POSITION[p.ordinal()][s.getIndex()];
+      }
+    }
+
+    return res;
+  }
+
   /**
    * Renvoi une chaine représentant le plateau.
    * 
@@ -551,6 +825,31 @@ abstract class AbstractBoard implements Board
     return res.toString();
   }
 
+  /**
+   * Implémentation par défaut du calcul de la clé "Zobrist" sur 64 bits.
+   * <p>
+   * Les implémentations concrètes devraient surcharger cette méthode et maintenir la clé de façon
+   * incrémentale lors des dérivations. Les résultats doivent rester compatibles entre les
+   * différentes implémentations.
+   * </p>
+   * 
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  public long zobristKey()
+  {
+    long res = zobristRoot64();
+    for (final Square s : Square.values())
+    {
+      final Piece p = getPieceAt(s);
+      if (p != null)
+      {
+        res ^= ZOBRIST64_PIECE_POSITION[p.ordinal()][s.getIndex()];
+      }
+    }
+
+    return res;
+  }
+
   /**
    * Calcule le début de la clé de hachage "Zobrist".
    * 
@@ -587,4 +886,41 @@ abstract class AbstractBoard implements Board
 
     return res;
   }
+
+  /**
+   * Calcule le début de la clé "Zobrist" sur 64 bits.
+   * 
+   * @return Partie de la clé correspondant aux données internes de cette classe.
+   */
+  protected final long zobristRoot64()
+  {
+    long res = 0;
+
+    if (_blackCastleLong)
+    {
+      res ^= ZOBRIST64_BLACK_CASTLE_LONG;
+    }
+    if (_blackCastleShort)
+    {
+      res ^= ZOBRIST64_BLACK_CASTLE_SHORT;
+    }
+    if (_enPassant != null)
+    {
+      res ^= ZOBRIST64_EN_PASSANT[_enPassant.getFile()];
+    }
+    if (_whiteActive)
+    {
+      res ^= ZOBRIST64_WHITE_ACTIVE;
+    }
+    if (_whiteCastleLong)
+    {
+      res ^= ZOBRIST64_WHITE_CASTLE_LONG;
+    }
+    if (_whiteCastleShort)
+    {
+      res ^= ZOBRIST64_WHITE_CASTLE_SHORT;
+    }
+
+    return res;
+  }
 }
@@ -83,6 +83,17 @@ final class ArrayBoard extends AbstractMoveGenerator
     etat._pieces[FILE_COUNT - 1][RANK_COUNT - 1] = BLACK_ROOK;
     etat.setKingSquare(false, Square.valueOf(4, 7));
     etat.setKingSquare(true, Square.valueOf(4, 0));
+    for (final Square s : Square.values())
+    {
+      final Piece p = etat.getPieceAt(s);
+      if (p != null)
+      {
+        etat._zobristKey ^= ZOBRIST64_PIECE_POSITION[p.ordinal()][s.getIndex()];
+        etat._balance += BALANCE_PIECE_POSITION[p.ordinal()][s.getIndex()];
+        etat._structure += STRUCTURE_PIECE_POSITION[p.ordinal()][s.getIndex()];
+        etat._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[p.ordinal()][s.getIndex()];
+      }
+    }
     STARTING = etat;
   }
 
@@ -101,12 +112,24 @@ final class ArrayBoard extends AbstractMoveGenerator
   /** Buffer de la clé de hachage (peut être à null). */
   private Integer _hashCode;
 
+  /** Bilan matériel et positionnel. */
+  private long _balance;
+
+  /** Structure (nombre de pièces et de pions par colonne). */
+  private long _structure;
+
+  /** Clé "Zobrist" sur 64 bits de la structure de pions. */
+  private long _pawnZobristKey;
+
+  /** Clé "Zobrist" sur 64 bits. */
+  private long _zobristKey;
+
   /**
    * Crée une nouvelle instance interne.
    */
   private ArrayBoard()
   {
-    // Rien de spécifique...
+    _zobristKey = zobristRoot64();
   }
 
   /**
@@ -122,6 +145,10 @@ final class ArrayBoard extends AbstractMoveGenerator
     {
       _pieces[s.getFile()][s.getRank()] = pEtat.getPieceAt(s);
     }
+    _zobristKey = super.zobristKey();
+    _balance = super.balance();
+    _structure = super.structure();
+    _pawnZobristKey = super.pawnZobristKey();
   }
 
   /**
@@ -137,6 +164,22 @@ final class ArrayBoard extends AbstractMoveGenerator
     {
       System.arraycopy(pEtat._pieces[x], 0, _pieces[x], 0, RANK_COUNT);
     }
+    _zobristKey = pEtat._zobristKey;
+    _balance = pEtat._balance;
+    _structure = pEtat._structure;
+    _pawnZobristKey = pEtat._pawnZobristKey;
+  }
+
+  /**
+   * Surcharge du calcul du bilan matériel et positionnel, maintenu lors des dérivations.
+   * 
+   * @return Bilan matériel et positionnel.
+   */
+  @Override
+  protected long balance()
+  {
+    assert _balance == super.balance();
+    return _balance;
   }
 
   /**
@@ -170,6 +213,7 @@ final class ArrayBoard extends AbstractMoveGenerator
     {
       final boolean t = !isWhiteActive();
       res.setWhiteActive(t);
+      res._zobristKey ^= ZOBRIST64_WHITE_ACTIVE;
       if (t)
       {
         res.setFullmoveNumber(getFullmoveNumber() + 1);
@@ -192,10 +236,28 @@ final class ArrayBoard extends AbstractMoveGenerator
     final int ySrc = src.getRank();
     assert res._pieces[xSrc][ySrc] == piece;
     res._pieces[xSrc][ySrc] = null;
+    final int pieceOrdinal = piece.ordinal();
+    res._zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][src.getIndex()];
+    res._balance -= BALANCE_PIECE_POSITION[pieceOrdinal][src.getIndex()];
+    res._structure -= STRUCTURE_PIECE_POSITION[pieceOrdinal][src.getIndex()];
+    res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][src.getIndex()];
     final Square dst = pMouvement.getTo();
     final int xDst = dst.getFile();
     final int yDst = dst.getRank();
+    final int iDst = dst.getIndex();
+    final Piece pieceDst = _pieces[xDst][yDst];
+    if (pieceDst != null)
+    {
+      res._zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      res._balance -= BALANCE_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      res._structure -= STRUCTURE_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceDst.ordinal()][iDst];
+    }
     res._pieces[xDst][yDst] = piece;
+    res._zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iDst];
+    res._balance += BALANCE_PIECE_POSITION[pieceOrdinal][iDst];
+    res._structure += STRUCTURE_PIECE_POSITION[pieceOrdinal][iDst];
+    res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iDst];
     // ... éxécute un mouvement spécifique de type "roque" et gère le suivi des rois ...
     if (typePiece == KING)
     {
@@ -210,6 +272,11 @@ final class ArrayBoard extends AbstractMoveGenerator
           assert tour.getType() == ROOK;
           res._pieces[0][yDst] = null;
           res._pieces[3][yDst] = tour;
+          final int i = yDst * FILE_COUNT;
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[tour.ordinal()][i];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[tour.ordinal()][i + 3];
+          res._balance -= BALANCE_PIECE_POSITION[tour.ordinal()][i];
+          res._balance += BALANCE_PIECE_POSITION[tour.ordinal()][i + 3];
           res.setCastled(trait, true);
         }
         else if (xDst == 6)
@@ -220,6 +287,11 @@ final class ArrayBoard extends AbstractMoveGenerator
           assert tour.getType() == ROOK;
           res._pieces[FILE_COUNT - 1][yDst] = null;
           res._pieces[5][yDst] = tour;
+          final int i = FILE_COUNT - 1 + yDst * FILE_COUNT;
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[tour.ordinal()][i];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[tour.ordinal()][i - 2];
+          res._balance -= BALANCE_PIECE_POSITION[tour.ordinal()][i];
+          res._balance += BALANCE_PIECE_POSITION[tour.ordinal()][i - 2];
           res.setCastled(trait, true);
         }
       }
@@ -227,14 +299,22 @@ final class ArrayBoard extends AbstractMoveGenerator
     // ... éxécute un mouvement spécifique du type "en passant" ...
     if ((typePiece == PAWN) && (dst == getEnPassant()))
     {
+      final int yPrise;
       if (trait)
       {
-        res._pieces[xDst][yDst - 1] = null;
+        yPrise = yDst - 1;
       }
       else
       {
-        res._pieces[xDst][yDst + 1] = null;
+        yPrise = yDst + 1;
       }
+      final int prise = _pieces[xDst][yPrise].ordinal();
+      final int iPrise = xDst + yPrise * FILE_COUNT;
+      res._zobristKey ^= ZOBRIST64_PIECE_POSITION[prise][iPrise];
+      res._balance -= BALANCE_PIECE_POSITION[prise][iPrise];
+      res._structure -= STRUCTURE_PIECE_POSITION[prise][iPrise];
+      res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[prise][iPrise];
+      res._pieces[xDst][yPrise] = null;
     }
     // Gére la promotion des pions...
     if (typePiece == PAWN)
@@ -245,6 +325,14 @@ final class ArrayBoard extends AbstractMoveGenerator
         if (yDst == RANK_COUNT - 1)
         {
           res._pieces[xDst][yDst] = WHITE_QUEEN;
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iDst];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          res._balance -= BALANCE_PIECE_POSITION[pieceOrdinal][iDst];
+          res._balance += BALANCE_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          res._structure -= STRUCTURE_PIECE_POSITION[pieceOrdinal][iDst];
+          res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iDst];
+          res._structure += STRUCTURE_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[WHITE_QUEEN.ordinal()][iDst];
         }
       }
       else
@@ -253,6 +341,14 @@ final class ArrayBoard extends AbstractMoveGenerator
         if (yDst == 0)
         {
           res._pieces[xDst][yDst] = BLACK_QUEEN;
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iDst];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          res._balance -= BALANCE_PIECE_POSITION[pieceOrdinal][iDst];
+          res._balance += BALANCE_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          res._structure -= STRUCTURE_PIECE_POSITION[pieceOrdinal][iDst];
+          res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iDst];
+          res._structure += STRUCTURE_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[BLACK_QUEEN.ordinal()][iDst];
         }
       }
     }
@@ -262,6 +358,14 @@ final class ArrayBoard extends AbstractMoveGenerator
       if ((typePiece == KING) || ((typePiece == ROOK) && (xSrc == FILE_COUNT - 1)))
       {
         res.setCastleShort(trait, false);
+        if (trait)
+        {
+          res._zobristKey ^= ZOBRIST64_WHITE_CASTLE_SHORT;
+        }
+        else
+        {
+          res._zobristKey ^= ZOBRIST64_BLACK_CASTLE_SHORT;
+        }
       }
     }
     if (canCastleLong(trait))
@@ -269,9 +373,18 @@ final class ArrayBoard extends AbstractMoveGenerator
       if ((typePiece == KING) || ((typePiece == ROOK) && (xSrc == 0)))
       {
         res.setCastleLong(trait, false);
+        if (trait)
+        {
+          res._zobristKey ^= ZOBRIST64_WHITE_CASTLE_LONG;
+        }
+        else
+        {
+          res._zobristKey ^= ZOBRIST64_BLACK_CASTLE_LONG;
+        }
       }
     }
     // Détecte si une possibilité de prise "en passant" doit être signalée...
+    final Square epOrig = getEnPassant();
     res.setEnPassant(null);
     if (typePiece == PAWN)
     {
@@ -296,6 +409,19 @@ final class ArrayBoard extends AbstractMoveGenerator
       }
     }
 
+
+    final Square epFinal = res.getEnPassant();
+    if (epOrig != epFinal)
+    {
+      if (epOrig != null)
+      {
+        res._zobristKey ^= ZOBRIST64_EN_PASSANT[epOrig.getFile()];
+      }
+      if (epFinal != null)
+      {
+        res._zobristKey ^= ZOBRIST64_EN_PASSANT[epFinal.getFile()];
+      }
+    }
     return res;
   }
 
@@ -1203,4 +1329,41 @@ final class ArrayBoard extends AbstractMoveGenerator
 
     return false;
   }
+
+  /**
+   * Surcharge du calcul de la clé "Zobrist" de la structure de pions, maintenue lors des
+   * dérivations.
+   * 
+   * @return Clé "Zobrist" sur 64 bits de la structure de pions.
+   */
+  @Override
+  public long pawnZobristKey()
+  {
+    assert _pawnZobristKey == super.pawnZobristKey();
+    return _pawnZobristKey;
+  }
+
+  /**
+   * Surcharge du calcul de la structure, maintenue lors des dérivations.
+   * 
+   * @return Structure de l'état.
+   */
+  @Override
+  protected long structure()
+  {
+    assert _structure == super.structure();
+    return _structure;
+  }
+
+  /**
+   * Surcharge du calcul de la clé "Zobrist" sur 64 bits, maintenue lors des dérivations.
+   * 
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  @Override
+  public long zobristKey()
+  {
+    assert _zobristKey == super.zobristKey();
+    return _zobristKey;
+  }
 }
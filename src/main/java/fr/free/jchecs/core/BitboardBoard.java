@@ -0,0 +1,1211 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.Constants.RANK_COUNT;
+import static fr.free.jchecs.core.Piece.BLACK_BISHOP;
+import static fr.free.jchecs.core.Piece.BLACK_KING;
+import static fr.free.jchecs.core.Piece.BLACK_KNIGHT;
+import static fr.free.jchecs.core.Piece.BLACK_PAWN;
+import static fr.free.jchecs.core.Piece.BLACK_QUEEN;
+import static fr.free.jchecs.core.Piece.BLACK_ROOK;
+import static fr.free.jchecs.core.Piece.WHITE_BISHOP;
+import static fr.free.jchecs.core.Piece.WHITE_KING;
+import static fr.free.jchecs.core.Piece.WHITE_KNIGHT;
+import static fr.free.jchecs.core.Piece.WHITE_PAWN;
+import static fr.free.jchecs.core.Piece.WHITE_QUEEN;
+import static fr.free.jchecs.core.Piece.WHITE_ROOK;
+import static fr.free.jchecs.core.PieceType.KING;
+import static fr.free.jchecs.core.PieceType.PAWN;
+import static fr.free.jchecs.core.PieceType.ROOK;
+
+/**
+ * Représentation d'un état de la partie basée sur des cartes binaires ("bitboards") : un entier de
+ * 64 bits par type de pièce, chaque bit correspondant à une case (bit 0 pour a1, bit 63 pour h8).
+ * <p>
+ * Les cases attaquées par les pièces à déplacement simple (roi, cavalier, pion) sont lues dans des
+ * tables précalculées. Celles des pièces glissantes (fou, tour, dame) sont obtenues à partir de
+ * rayons précalculés, tronqués au premier obstacle rencontré (recherche du bit de poids faible ou
+ * fort selon la direction). Un tableau de pièces indexé par case est maintenu en parallèle pour
+ * l'accès direct au contenu d'une case.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+class BitboardBoard extends AbstractMoveGenerator
+{
+  /** Identifiant de la classe pour la sérialisation. */
+  private static final long serialVersionUID = -5316237024913305877L;
+
+  /** Nombre de cases du plateau. */
+  private static final int SQUARE_COUNT = FILE_COUNT * RANK_COUNT;
+
+  /** Décalages des directions des rayons (N, NE, E, NO, S, SO, O, SE). */
+  private static final int [][] DIRECTIONS =
+      { { 0, 1 }, { 1, 1 }, { 1, 0 }, { -1, 1 }, { 0, -1 }, { -1, -1 }, { -1, 0 }, { 1, -1 }, };
+
+  /** Rayons (cases vides supposées) partant de chaque case, pour chaque direction. */
+  private static final long [][] RAYS = new long [ DIRECTIONS.length ] [ SQUARE_COUNT ];
+
+  /** Cases atteintes par un roi, pour chaque case. */
+  private static final long [] KING_ATTACKS = new long [ SQUARE_COUNT ];
+
+  /** Cases atteintes par un cavalier, pour chaque case. */
+  private static final long [] KNIGHT_ATTACKS = new long [ SQUARE_COUNT ];
+
+  /** Cases attaquées par un pion blanc, pour chaque case. */
+  private static final long [] WHITE_PAWN_ATTACKS = new long [ SQUARE_COUNT ];
+
+  /** Cases attaquées par un pion noir, pour chaque case. */
+  private static final long [] BLACK_PAWN_ATTACKS = new long [ SQUARE_COUNT ];
+
+  /** Liste de cases cibles vides. */
+  private static final Square [] NO_SQUARE = new Square [ 0 ];
+
+  static
+  {
+    final int [][] cavalier = { { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 }, { -1, -2 }, { -2, -1 },
+                                { -2, 1 }, { -1, 2 }, };
+    for (int s = 0; s < SQUARE_COUNT; s++)
+    {
+      final int x = s % FILE_COUNT;
+      final int y = s / FILE_COUNT;
+      for (int d = 0; d < DIRECTIONS.length; d++)
+      {
+        final int dx = DIRECTIONS[d][0];
+        final int dy = DIRECTIONS[d][1];
+        KING_ATTACKS[s] |= getMask(x + dx, y + dy);
+        for (int i = 1; i < FILE_COUNT; i++)
+        {
+          RAYS[d][s] |= getMask(x + i * dx, y + i * dy);
+        }
+      }
+      for (final int [] c : cavalier)
+      {
+        KNIGHT_ATTACKS[s] |= getMask(x + c[0], y + c[1]);
+      }
+      if (y < RANK_COUNT - 1)
+      {
+        WHITE_PAWN_ATTACKS[s] = getMask(x - 1, y + 1) | getMask(x + 1, y + 1);
+      }
+      if (y > 0)
+      {
+        BLACK_PAWN_ATTACKS[s] = getMask(x - 1, y - 1) | getMask(x + 1, y - 1);
+      }
+    }
+  }
+
+  /** Cartes binaires des pièces, indexées par le rang des pièces dans leur énumération. */
+  private final long [] _bitboards = new long [ Piece.values().length ];
+
+  /** Description du plateau, case par case. */
+  final Piece [] _pieces = new Piece [ SQUARE_COUNT ];
+
+  /** Carte binaire des pièces blanches. */
+  private long _whitePieces;
+
+  /** Carte binaire des pièces noires. */
+  private long _blackPieces;
+
+  /** Clé de hachage. */
+  int _hashCode;
+
+  /** Bilan matériel et positionnel. */
+  long _balance;
+
+  /** Structure (nombre de pièces et de pions par colonne). */
+  long _structure;
+
+  /** Clé "Zobrist" sur 64 bits de la structure de pions. */
+  long _pawnZobristKey;
+
+  /** Clé "Zobrist" sur 64 bits. */
+  long _zobristKey;
+
+  /**
+   * Crée une nouvelle instance, initialisée à partir de l'état reçu en paramètre.
+   * 
+   * @param pEtat Instance initial.
+   */
+  BitboardBoard(final Board pEtat)
+  {
+    super(pEtat);
+
+    for (final Square s : Square.values())
+    {
+      final Piece p = pEtat.getPieceAt(s);
+      if (p != null)
+      {
+        put(s.getIndex(), p);
+      }
+    }
+    _hashCode = super.hashCode();
+    _zobristKey = super.zobristKey();
+  }
+
+  /**
+   * Crée une nouvelle instance, copie conforme de l'instance reçue.
+   * 
+   * @param pEtat Instance à copier.
+   */
+  private BitboardBoard(final BitboardBoard pEtat)
+  {
+    super(pEtat);
+
+    System.arraycopy(pEtat._bitboards, 0, _bitboards, 0, _bitboards.length);
+    System.arraycopy(pEtat._pieces, 0, _pieces, 0, SQUARE_COUNT);
+    _whitePieces = pEtat._whitePieces;
+    _blackPieces = pEtat._blackPieces;
+    _hashCode = pEtat._hashCode;
+    _zobristKey = pEtat._zobristKey;
+    _balance = pEtat._balance;
+    _structure = pEtat._structure;
+    _pawnZobristKey = pEtat._pawnZobristKey;
+  }
+
+  /**
+   * Renvoi la carte des cases cibles des mouvements possibles (y compris ceux mettant le roi en
+   * échec) pour la pièce contenue par une case.
+   * 
+   * @param pOrigine Indice de la case à l'origine du mouvement.
+   * @return Carte des cases cibles (vide si la case est vide).
+   */
+  private long allTargets(final int pOrigine)
+  {
+    final Piece piece = _pieces[pOrigine];
+    if (piece == null)
+    {
+      return 0;
+    }
+
+    final boolean trait = piece.isWhite();
+    final long occupees = _whitePieces | _blackPieces;
+    final long propres = getPieces(trait);
+    switch (piece.getType())
+    {
+      case BISHOP :
+        return bishopAttacks(pOrigine, occupees) & ~propres;
+      case KING :
+        return kingTargets(pOrigine, trait);
+      case KNIGHT :
+        return KNIGHT_ATTACKS[pOrigine] & ~propres;
+      case PAWN :
+        return pawnTargets(pOrigine, trait);
+      case QUEEN :
+        return (bishopAttacks(pOrigine, occupees) | rookAttacks(pOrigine, occupees)) & ~propres;
+      case ROOK :
+        return rookAttacks(pOrigine, occupees) & ~propres;
+      default :
+        assert false;
+        return 0;
+    }
+  }
+
+  /**
+   * Surcharge du calcul du bilan matériel et positionnel, maintenu lors des dérivations.
+   * 
+   * @return Bilan matériel et positionnel.
+   */
+  @Override
+  protected long balance()
+  {
+    assert _balance == super.balance();
+    return _balance;
+  }
+
+  /**
+   * Renvoi une nouvelle instance, initialisée à partir d'un état quelconque.
+   * 
+   * @param pEtat Etat de départ.
+   * @return Copie de l'état.
+   */
+  public MoveGenerator derive(final Board pEtat)
+  {
+    assert pEtat != null;
+
+    return new BitboardBoard(pEtat);
+  }
+
+  /**
+   * Renvoi une nouvelle instance décrivant l'état du jeu après application d'un mouvement.
+   * 
+   * @param pMouvement Description de mouvement.
+   * @param pSuivant Drapeau positionné si l'on souhaite que le trait soit modifié.
+   * @return Instance dérivée.
+   */
+  public MoveGenerator derive(final Move pMouvement, final boolean pSuivant)
+  {
+    assert pMouvement != null;
+
+    final BitboardBoard res = new BitboardBoard(this);
+    res.play(pMouvement.toId(), pSuivant);
+
+    return res;
+  }
+
+  /**
+   * Méthode spécialisée pour tester l'égalité entre deux descriptions de ce type.
+   * 
+   * @param pObjet Objet avec lequel comparer.
+   * @return Vrai si les deux objets sont égaux.
+   */
+  @Override
+  public boolean equals(final Object pObjet)
+  {
+    if (pObjet == this)
+    {
+      return true;
+    }
+
+    if (pObjet instanceof BitboardBoard)
+    {
+      if (hashCode() != pObjet.hashCode())
+      {
+        return false;
+      }
+
+      final BitboardBoard o = (BitboardBoard) pObjet;
+      for (int i = _bitboards.length; --i >= 0; /* Pré-décrémenté */)
+      {
+        if (_bitboards[i] != o._bitboards[i])
+        {
+          return false;
+        }
+      }
+
+      return equalsInternal(o);
+    }
+
+    return super.equals(pObjet);
+  }
+
+  /**
+   * Renvoi toutes les cases cibles des mouvements possibles (y compris ceux mettant le roi en
+   * échec) pour la pièce contenue par une case.
+   * 
+   * @param pOrigine Case à l'origine du mouvement.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getAllTargets(final Square pOrigine)
+  {
+    assert pOrigine != null;
+
+    return toSquares(allTargets(pOrigine.getIndex()));
+  }
+
+  /**
+   * Renvoi toutes les cases cibles possibles d'un mouvement de type "fou" d'une certaine couleur (y
+   * compris ceux mettant le roi en échec) à partir d'une case.
+   * 
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc Positionné à vrai si la recherche concerne les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getBishopTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    return toSquares(bishopAttacks(pOrigine.getIndex(), _whitePieces | _blackPieces)
+        & ~getPieces(pBlanc));
+  }
+
+  /**
+   * Renvoi la liste des cases pouvant être atteintes par un mouvement de type roi.
+   * 
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getKingTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    return toSquares(kingTargets(pOrigine.getIndex(), pBlanc));
+  }
+
+  /**
+   * Renvoi la liste des cases pouvant être atteintes par un mouvement de type cavalier.
+   * 
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getKnightTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    return toSquares(KNIGHT_ATTACKS[pOrigine.getIndex()] & ~getPieces(pBlanc));
+  }
+
+  /**
+   * Renvoi la liste des cases pouvant être atteintes par un mouvement de type pion.
+   * 
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getPawnTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    return toSquares(pawnTargets(pOrigine.getIndex(), pBlanc));
+  }
+
+  /**
+   * Renvoi l'éventuelle pièce présente sur la case indiquée.
+   * 
+   * @param pCase Case à tester.
+   * @return Pièce présente sur la case (ou null si aucune).
+   */
+  public Piece getPieceAt(final Square pCase)
+  {
+    assert pCase != null;
+
+    return _pieces[pCase.getIndex()];
+  }
+
+  /**
+   * Renvoi l'éventuelle pièce présente sur la case dont les coordonnées sont indiquées.
+   * 
+   * @param pColonne Colonne de la case à tester (de 0 à 7).
+   * @param pLigne Ligne de la case à tester (de 0 à 7).
+   * @return Pièce présente sur la case (ou null).
+   */
+  public Piece getPieceAt(final int pColonne, final int pLigne)
+  {
+    assert (pColonne >= 0) && (pColonne < FILE_COUNT);
+    assert (pLigne >= 0) && (pLigne < RANK_COUNT);
+
+    return _pieces[pLigne * FILE_COUNT + pColonne];
+  }
+
+  /**
+   * Renvoi la carte des pièces d'une couleur.
+   * 
+   * @param pBlanc A vrai pour obtenir les pièces blanches.
+   * @return Carte binaire des pièces de la couleur.
+   */
+  private long getPieces(final boolean pBlanc)
+  {
+    if (pBlanc)
+    {
+      return _whitePieces;
+    }
+
+    return _blackPieces;
+  }
+
+  /**
+   * Renvoi toutes les cases cibles possibles d'un mouvement de type "dame" d'une certaine couleur
+   * (y compris ceux mettant le roi en échec) à partir d'une case.
+   * 
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc Mis à vrai pour rechercher pour les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getQueenTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    final int idx = pOrigine.getIndex();
+    final long occupees = _whitePieces | _blackPieces;
+    return toSquares((bishopAttacks(idx, occupees) | rookAttacks(idx, occupees))
+        & ~getPieces(pBlanc));
+  }
+
+  /**
+   * Renvoi toutes les cases cibles possibles d'un mouvement de type "tour" d'une certaine couleur
+   * (y compris ceux mettant le roi en échec) à partir d'une case.
+   * 
+   * @param pOrigine Case à l'origine du mouvement.
+   * @param pBlanc Mis à vrai pour rechercher pour les blancs.
+   * @return Liste des cases cibles (y compris celles conduisant à un échec).
+   */
+  public Square [] getRookTargets(final Square pOrigine, final boolean pBlanc)
+  {
+    assert pOrigine != null;
+
+    return toSquares(rookAttacks(pOrigine.getIndex(), _whitePieces | _blackPieces)
+        & ~getPieces(pBlanc));
+  }
+
+  /**
+   * Renvoi tous les mouvements valides pour une couleur.
+   * 
+   * @param pTrait Positionné à "true" pour indiquer une recherche pour les blancs.
+   * @return Liste des mouvements valides.
+   */
+  public Move [] getValidMoves(final boolean pTrait)
+  {
+    // Un premier passage détermine les cases cibles et leur nombre, pour allouer le résultat à la
+    // bonne taille...
+    long pieces = getPieces(pTrait);
+    final long [] cibles = new long [ Long.bitCount(pieces) ];
+    final int [] origines = new int [ cibles.length ];
+    int nbPieces = 0;
+    int nb = 0;
+    while (pieces != 0)
+    {
+      final int orig = Long.numberOfTrailingZeros(pieces);
+      pieces &= pieces - 1;
+      final long c = validTargets(orig);
+      if (c != 0)
+      {
+        cibles[nbPieces] = c;
+        origines[nbPieces++] = orig;
+        nb += Long.bitCount(c);
+      }
+    }
+
+    final Move [] res = new Move [ nb ];
+    final Square ep = getEnPassant();
+    nb = 0;
+    for (int i = 0; i < nbPieces; i++)
+    {
+      final int orig = origines[i];
+      final Piece p = _pieces[orig];
+      final Square src = Square.valueOf(orig);
+      long c = cibles[i];
+      while (c != 0)
+      {
+        final int idx = Long.numberOfTrailingZeros(c);
+        c &= c - 1;
+        final Square dst = Square.valueOf(idx);
+        final Piece prise;
+        if ((p.getType() != PAWN) || (dst != ep))
+        {
+          prise = _pieces[idx];
+        }
+        else if (pTrait)
+        {
+          prise = _pieces[idx - FILE_COUNT];
+        }
+        else
+        {
+          prise = _pieces[idx + FILE_COUNT];
+        }
+        res[nb++] = new Move(p, src, dst, prise);
+      }
+    }
+
+    return res;
+  }
+  /**
+   * Alimente une liste avec les identifiants de tous les mouvements valides pour une couleur.
+   * 
+   * @param pTrait Positionné à "true" pour indiquer une recherche pour les blancs.
+   * @param pMouvements Liste à alimenter (vidée au préalable).
+   * @return Nombre de mouvements valides.
+   */
+  public int getValidMoves(final boolean pTrait, final MoveList pMouvements)
+  {
+    assert pMouvements != null;
+
+    pMouvements.clear();
+    final Square ep = getEnPassant();
+    final int iEp;
+    if (ep == null)
+    {
+      iEp = -1;
+    }
+    else
+    {
+      iEp = ep.getIndex();
+    }
+    long pieces = getPieces(pTrait);
+    while (pieces != 0)
+    {
+      final int orig = Long.numberOfTrailingZeros(pieces);
+      pieces &= pieces - 1;
+      final Piece p = _pieces[orig];
+      long c = validTargets(orig);
+      while (c != 0)
+      {
+        final int idx = Long.numberOfTrailingZeros(c);
+        c &= c - 1;
+        final Piece prise;
+        if ((idx != iEp) || (p.getType() != PAWN))
+        {
+          prise = _pieces[idx];
+        }
+        else if (pTrait)
+        {
+          prise = _pieces[idx - FILE_COUNT];
+        }
+        else
+        {
+          prise = _pieces[idx + FILE_COUNT];
+        }
+        pMouvements.add(Move.idOf(p, orig, idx, prise));
+      }
+    }
+
+    return pMouvements.size();
+  }
+
+
+  /**
+   * Renvoi toutes les cases cibles des mouvements valides à partir d'une case.
+   * 
+   * @param pOrigine Case à l'origine du mouvement.
+   * @return Liste des cases cibles.
+   */
+  public Square [] getValidTargets(final Square pOrigine)
+  {
+    assert pOrigine != null;
+
+    return toSquares(validTargets(pOrigine.getIndex()));
+  }
+
+  /**
+   * Surcharge du calcul des clés de hachage, pour optimisation.
+   * 
+   * @return Clé de hachage.
+   */
+  @Override
+  public int hashCode()
+  {
+    assert _hashCode == super.hashCode();
+    return _hashCode;
+  }
+
+  /**
+   * Indique si une case est attaquée par une couleur.
+   * 
+   * @param pCible Case cible.
+   * @param pCouleur Positionné à "true" pour tester l'attaque par les blancs.
+   * @return Vrai si la case est attaquée.
+   */
+  public boolean isAttacked(final Square pCible, final boolean pCouleur)
+  {
+    assert pCible != null;
+
+    return isAttacked(pCible.getIndex(), pCouleur, _whitePieces | _blackPieces, 0);
+  }
+
+  /**
+   * Indique si une case est attaquée par une couleur, pour une occupation du plateau donnée : cela
+   * permet de tester l'état résultant d'un mouvement sans le construire.
+   * 
+   * @param pCase Indice de la case testée.
+   * @param pCouleur Positionné à "true" pour tester l'attaque par les blancs.
+   * @param pOccupees Carte des cases occupées.
+   * @param pPrises Carte des cases dont les pièces (prises) ne doivent pas être prises en compte.
+   * @return Vrai si la case est attaquée.
+   */
+  private boolean isAttacked(final int pCase, final boolean pCouleur, final long pOccupees,
+      final long pPrises)
+  {
+    assert (pCase >= 0) && (pCase < SQUARE_COUNT);
+
+    final long [] bb = _bitboards;
+    final long tours;
+    final long fous;
+    if (pCouleur)
+    {
+      if ((((KNIGHT_ATTACKS[pCase] & bb[WHITE_KNIGHT.ordinal()])
+          | (KING_ATTACKS[pCase] & bb[WHITE_KING.ordinal()])
+          | (BLACK_PAWN_ATTACKS[pCase] & bb[WHITE_PAWN.ordinal()])) & ~pPrises) != 0)
+      {
+        return true;
+      }
+      tours = (bb[WHITE_ROOK.ordinal()] | bb[WHITE_QUEEN.ordinal()]) & ~pPrises;
+      fous = (bb[WHITE_BISHOP.ordinal()] | bb[WHITE_QUEEN.ordinal()]) & ~pPrises;
+    }
+    else
+    {
+      if ((((KNIGHT_ATTACKS[pCase] & bb[BLACK_KNIGHT.ordinal()])
+          | (KING_ATTACKS[pCase] & bb[BLACK_KING.ordinal()])
+          | (WHITE_PAWN_ATTACKS[pCase] & bb[BLACK_PAWN.ordinal()])) & ~pPrises) != 0)
+      {
+        return true;
+      }
+      tours = (bb[BLACK_ROOK.ordinal()] | bb[BLACK_QUEEN.ordinal()]) & ~pPrises;
+      fous = (bb[BLACK_BISHOP.ordinal()] | bb[BLACK_QUEEN.ordinal()]) & ~pPrises;
+    }
+
+    return (((tours & rookAttacks(pCase, pOccupees)) | (fous & bishopAttacks(pCase, pOccupees)))
+        != 0);
+  }
+
+  /**
+   * Indique si le roi d'une couleur est en échec.
+   * 
+   * @param pCouleur Positionné à "true" pour tester l'échec sur les blancs, à "false" sinon.
+   * @return Vrai si le roi est en échec.
+   */
+  public boolean isInCheck(final boolean pCouleur)
+  {
+    return isAttacked(getKingSquare(pCouleur).getIndex(), !pCouleur, _whitePieces | _blackPieces,
+        0);
+  }
+
+  /**
+   * Renvoi la carte des cases pouvant être atteintes par un mouvement de type roi (y compris les
+   * roques, dont la validité n'est pas vérifiée).
+   * 
+   * @param pOrigine Indice de la case à l'origine du mouvement.
+   * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
+   * @return Carte des cases cibles.
+   */
+  private long kingTargets(final int pOrigine, final boolean pBlanc)
+  {
+    long res = KING_ATTACKS[pOrigine] & ~getPieces(pBlanc);
+    if ((res != 0) && ((pOrigine % FILE_COUNT) == 4))
+    {
+      final Piece [] pieces = _pieces;
+      if (canCastleShort(pBlanc) && (pieces[pOrigine + 1] == null)
+          && (pieces[pOrigine + 2] == null))
+      {
+        final Piece t = pieces[pOrigine + 3];
+        if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
+        {
+          res |= 1L << (pOrigine + 2);
+        }
+      }
+      if (canCastleLong(pBlanc) && (pieces[pOrigine - 1] == null)
+          && (pieces[pOrigine - 2] == null) && (pieces[pOrigine - 3] == null))
+      {
+        final Piece t = pieces[pOrigine - 4];
+        if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
+        {
+          res |= 1L << (pOrigine - 2);
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Renvoi la carte des cases pouvant être atteintes par un mouvement de type pion.
+   * 
+   * @param pOrigine Indice de la case à l'origine du mouvement.
+   * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
+   * @return Carte des cases cibles.
+   */
+  private long pawnTargets(final int pOrigine, final boolean pBlanc)
+  {
+    final long libres = ~(_whitePieces | _blackPieces);
+    final Square ep = getEnPassant();
+    long prenables;
+    if (ep == null)
+    {
+      prenables = 0;
+    }
+    else
+    {
+      prenables = 1L << ep.getIndex();
+    }
+    final int ySrc = pOrigine / FILE_COUNT;
+    long res = 0;
+    if (pBlanc)
+    {
+      if (ySrc < RANK_COUNT - 1)
+      {
+        prenables |= _blackPieces;
+        res = (1L << (pOrigine + FILE_COUNT)) & libres;
+        if ((res != 0) && (ySrc == 1))
+        {
+          res |= (1L << (pOrigine + 2 * FILE_COUNT)) & libres;
+        }
+        res |= WHITE_PAWN_ATTACKS[pOrigine] & prenables;
+      }
+    }
+    else
+    {
+      if (ySrc > 0)
+      {
+        prenables |= _whitePieces;
+        res = (1L << (pOrigine - FILE_COUNT)) & libres;
+        if ((res != 0) && (ySrc == RANK_COUNT - 2))
+        {
+          res |= (1L << (pOrigine - 2 * FILE_COUNT)) & libres;
+        }
+        res |= BLACK_PAWN_ATTACKS[pOrigine] & prenables;
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Applique un mouvement à l'instance elle-même.
+   * <p>
+   * Potentiellement dangeureux : attention à ne pas casser le contrat qui veut que les
+   * implémentations se comportent comme des objets immuables. Seules les copies fraîchement créées
+   * et les états réversibles (voir {@link ReversibleBitboardBoard}) peuvent être ainsi modifiés.
+   * </p>
+   * 
+   * @param pMouvement Identifiant du mouvement (voir {@link Move#toId()}).
+   * @param pSuivant Drapeau positionné si l'on souhaite que le trait soit modifié.
+   */
+  final void play(final int pMouvement, final boolean pSuivant)
+  {
+    // Ajuste les compteurs...
+    if (pSuivant)
+    {
+      final boolean t = !isWhiteActive();
+      setWhiteActive(t);
+      _hashCode ^= ZOBRIST_WHITE_ACTIVE;
+      _zobristKey ^= ZOBRIST64_WHITE_ACTIVE;
+      if (t)
+      {
+        setFullmoveNumber(getFullmoveNumber() + 1);
+      }
+      if (Move.capturedOf(pMouvement) == null)
+      {
+        setHalfmoveCount(getHalfmoveCount() + 1);
+      }
+      else
+      {
+        setHalfmoveCount(0);
+      }
+    }
+    // Déplace la pièce...
+    final Piece piece = Move.pieceOf(pMouvement);
+    final PieceType typePiece = piece.getType();
+    final boolean trait = piece.isWhite();
+    final Square src = Square.valueOf(Move.fromOf(pMouvement));
+    final int iSrc = src.getIndex();
+    final int xSrc = src.getFile();
+    assert _pieces[iSrc] == piece;
+    remove(iSrc);
+    final Square dst = Square.valueOf(Move.toOf(pMouvement));
+    final int iDst = dst.getIndex();
+    final int xDst = dst.getFile();
+    final int yDst = dst.getRank();
+    if (_pieces[iDst] != null)
+    {
+      remove(iDst);
+    }
+    put(iDst, piece);
+    // ... éxécute un mouvement spécifique de type "roque" et gère le suivi des rois ...
+    if (typePiece == KING)
+    {
+      setKingSquare(trait, dst);
+      if (xSrc == 4)
+      {
+        if (xDst == 2)
+        {
+          // ... côté reine...
+          final int i = yDst * FILE_COUNT;
+          final Piece tour = _pieces[i];
+          assert tour != null;
+          assert tour.getType() == ROOK;
+          remove(i);
+          put(i + 3, tour);
+          setCastled(trait, true);
+        }
+        else if (xDst == 6)
+        {
+          // ... côté roi...
+          final int i = FILE_COUNT - 1 + yDst * FILE_COUNT;
+          final Piece tour = _pieces[i];
+          assert tour != null;
+          assert tour.getType() == ROOK;
+          remove(i);
+          put(i - 2, tour);
+          setCastled(trait, true);
+        }
+      }
+    }
+    // Tient compte des interdictions de roquer que le mouvement peut provoquer...
+    if (canCastleShort(trait))
+    {
+      if ((typePiece == KING) || ((typePiece == ROOK) && (xSrc == FILE_COUNT - 1)))
+      {
+        setCastleShort(trait, false);
+        if (trait)
+        {
+          _hashCode ^= ZOBRIST_WHITE_CASTLE_SHORT;
+          _zobristKey ^= ZOBRIST64_WHITE_CASTLE_SHORT;
+        }
+        else
+        {
+          _hashCode ^= ZOBRIST_BLACK_CASTLE_SHORT;
+          _zobristKey ^= ZOBRIST64_BLACK_CASTLE_SHORT;
+        }
+      }
+    }
+    if (canCastleLong(trait))
+    {
+      if ((typePiece == KING) || ((typePiece == ROOK) && (xSrc == 0)))
+      {
+        setCastleLong(trait, false);
+        if (trait)
+        {
+          _hashCode ^= ZOBRIST_WHITE_CASTLE_LONG;
+          _zobristKey ^= ZOBRIST64_WHITE_CASTLE_LONG;
+        }
+        else
+        {
+          _hashCode ^= ZOBRIST_BLACK_CASTLE_LONG;
+          _zobristKey ^= ZOBRIST64_BLACK_CASTLE_LONG;
+        }
+      }
+    }
+    // Détecte si une prise "en passant" doit être effectuée ou signalée et gère la promotion...
+    final Square epOrig = getEnPassant();
+    setEnPassant(null);
+    if (typePiece == PAWN)
+    {
+      final int ySrc = src.getRank();
+      // En profite pour aussi gérer le compteur de demis coups...
+      if (pSuivant)
+      {
+        setHalfmoveCount(0);
+      }
+      if (trait)
+      {
+        assert yDst > ySrc;
+        if (yDst == RANK_COUNT - 1)
+        {
+          remove(iDst);
+          put(iDst, WHITE_QUEEN);
+        }
+        else if ((ySrc == 1) && (yDst == 3))
+        {
+          setEnPassant(Square.valueOf(xDst, 2));
+        }
+        else if (dst == epOrig)
+        {
+          remove(iDst - FILE_COUNT);
+        }
+      }
+      else
+      {
+        assert yDst < ySrc;
+        if (yDst == 0)
+        {
+          remove(iDst);
+          put(iDst, BLACK_QUEEN);
+        }
+        else if ((ySrc == RANK_COUNT - 2) && (yDst == RANK_COUNT - 4))
+        {
+          setEnPassant(Square.valueOf(xDst, RANK_COUNT - 3));
+        }
+        else if (dst == epOrig)
+        {
+          remove(iDst + FILE_COUNT);
+        }
+      }
+    }
+
+    final Square epFinal = getEnPassant();
+    if ((epOrig != null) && ((epFinal == null) || (!epOrig.equals(epFinal))))
+    {
+      _hashCode ^= ZOBRIST_EN_PASSANT[epOrig.getFile()];
+      _zobristKey ^= ZOBRIST64_EN_PASSANT[epOrig.getFile()];
+    }
+    if ((epFinal != null) && ((epOrig == null) || (!epFinal.equals(epOrig))))
+    {
+      _hashCode ^= ZOBRIST_EN_PASSANT[epFinal.getFile()];
+      _zobristKey ^= ZOBRIST64_EN_PASSANT[epFinal.getFile()];
+    }
+  }
+
+  /**
+   * Place une pièce sur une case vide, en mettant à jour les cartes binaires, les clés et les
+   * bilans.
+   * 
+   * @param pIndice Indice de la case.
+   * @param pPiece Pièce à placer.
+   */
+  final void put(final int pIndice, final Piece pPiece)
+  {
+    assert _pieces[pIndice] == null;
+
+    _pieces[pIndice] = pPiece;
+    final long b = 1L << pIndice;
+    final int o = pPiece.ordinal();
+    _bitboards[o] |= b;
+    if (pPiece.isWhite())
+    {
+      _whitePieces |= b;
+    }
+    else
+    {
+      _blackPieces |= b;
+    }
+    _hashCode ^= ZOBRIST_PIECE_POSITION[o][pIndice];
+    _zobristKey ^= ZOBRIST64_PIECE_POSITION[o][pIndice];
+    _balance += BALANCE_PIECE_POSITION[o][pIndice];
+    _structure += STRUCTURE_PIECE_POSITION[o][pIndice];
+    _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[o][pIndice];
+  }
+
+  /**
+   * Retire la pièce présente sur une case, en mettant à jour les cartes binaires, les clés et les
+   * bilans.
+   * 
+   * @param pIndice Indice de la case (occupée).
+   */
+  final void remove(final int pIndice)
+  {
+    final Piece p = _pieces[pIndice];
+    assert p != null;
+
+    _pieces[pIndice] = null;
+    final long b = ~(1L << pIndice);
+    final int o = p.ordinal();
+    _bitboards[o] &= b;
+    _whitePieces &= b;
+    _blackPieces &= b;
+    _hashCode ^= ZOBRIST_PIECE_POSITION[o][pIndice];
+    _zobristKey ^= ZOBRIST64_PIECE_POSITION[o][pIndice];
+    _balance -= BALANCE_PIECE_POSITION[o][pIndice];
+    _structure -= STRUCTURE_PIECE_POSITION[o][pIndice];
+    _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[o][pIndice];
+  }
+
+  /**
+   * Renvoi la carte des cases valides (ne laissant pas le roi en échec) pour la pièce contenue par
+   * une case.
+   * 
+   * @param pOrigine Indice de la case à l'origine du mouvement.
+   * @return Carte des cases cibles valides.
+   */
+  private long validTargets(final int pOrigine)
+  {
+    final long cibles = allTargets(pOrigine);
+    if (cibles == 0)
+    {
+      return 0;
+    }
+
+    final Piece piece = _pieces[pOrigine];
+    final boolean trait = piece.isWhite();
+    final PieceType typePiece = piece.getType();
+    final long src = 1L << pOrigine;
+    final long occupees = (_whitePieces | _blackPieces) & ~src;
+    final int roi;
+    if (typePiece == KING)
+    {
+      roi = -1;
+    }
+    else
+    {
+      roi = getKingSquare(trait).getIndex();
+    }
+    final Square ep = getEnPassant();
+    long res = cibles;
+    long c = cibles;
+    while (c != 0)
+    {
+      final int idx = Long.numberOfTrailingZeros(c);
+      final long dst = c & -c;
+      c &= c - 1;
+      long prises = dst;
+      if ((typePiece == PAWN) && (ep != null) && (idx == ep.getIndex()))
+      {
+        // Prise "en passant"...
+        if (trait)
+        {
+          prises = 1L << (idx - FILE_COUNT);
+        }
+        else
+        {
+          prises = 1L << (idx + FILE_COUNT);
+        }
+      }
+      final int cible;
+      if (roi < 0)
+      {
+        cible = idx;
+      }
+      else
+      {
+        cible = roi;
+      }
+      if (isAttacked(cible, !trait, (occupees & ~prises) | dst, prises))
+      {
+        res &= ~dst;
+      }
+      else if ((typePiece == KING) && ((pOrigine % FILE_COUNT) == 4))
+      {
+        final int delta = idx - pOrigine;
+        if ((delta == 2) || (delta == -2))
+        {
+          // Elimine le roque si le roi est en échec ou s'il le serait sur la case
+          // intermédiaire...
+          final int passage = pOrigine + delta / 2;
+          if (isAttacked(pOrigine, !trait, occupees | src, 0)
+              || isAttacked(passage, !trait, occupees | (1L << passage), 0))
+          {
+            res &= ~dst;
+          }
+        }
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Surcharge du calcul de la clé "Zobrist" de la structure de pions, maintenue lors des
+   * dérivations.
+   * 
+   * @return Clé "Zobrist" sur 64 bits de la structure de pions.
+   */
+  @Override
+  public long pawnZobristKey()
+  {
+    assert _pawnZobristKey == super.pawnZobristKey();
+    return _pawnZobristKey;
+  }
+
+  /**
+   * Surcharge du calcul de la structure, maintenue lors des dérivations.
+   * 
+   * @return Structure de l'état.
+   */
+  @Override
+  protected long structure()
+  {
+    assert _structure == super.structure();
+    return _structure;
+  }
+
+  /**
+   * Surcharge du calcul de la clé "Zobrist" sur 64 bits, maintenue lors des dérivations.
+   * 
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  @Override
+  public long zobristKey()
+  {
+    assert _zobristKey == super.zobristKey();
+    return _zobristKey;
+  }
+
+  /**
+   * Renvoi la carte des cases atteintes par un mouvement de type "fou" à partir d'une case, en
+   * tenant compte des obstacles.
+   * 
+   * @param pOrigine Indice de la case d'origine.
+   * @param pOccupees Carte des cases occupées.
+   * @return Carte des cases atteintes (obstacles compris, quelle que soit leur couleur).
+   */
+  private static long bishopAttacks(final int pOrigine, final long pOccupees)
+  {
+    return positiveRay(1, pOrigine, pOccupees) | positiveRay(3, pOrigine, pOccupees)
+        | negativeRay(5, pOrigine, pOccupees) | negativeRay(7, pOrigine, pOccupees);
+  }
+
+  /**
+   * Renvoi le masque d'une case à partir de ses coordonnées.
+   * 
+   * @param pColonne Colonne de la case.
+   * @param pLigne Ligne de la case.
+   * @return Masque de la case (vide si les coordonnées sont hors du plateau).
+   */
+  private static long getMask(final int pColonne, final int pLigne)
+  {
+    if ((pColonne < 0) || (pColonne >= FILE_COUNT) || (pLigne < 0) || (pLigne >= RANK_COUNT))
+    {
+      return 0;
+    }
+
+    return 1L << (pLigne * FILE_COUNT + pColonne);
+  }
+
+  /**
+   * Renvoi les cases atteintes dans une direction d'indices décroissants, jusqu'au premier obstacle
+   * compris.
+   * 
+   * @param pDirection Indice de la direction (S, SO, O ou SE).
+   * @param pOrigine Indice de la case d'origine.
+   * @param pOccupees Carte des cases occupées.
+   * @return Carte des cases atteintes.
+   */
+  private static long negativeRay(final int pDirection, final int pOrigine, final long pOccupees)
+  {
+    final long [] rayons = RAYS[pDirection];
+    final long rayon = rayons[pOrigine];
+    final long obstacles = rayon & pOccupees;
+    if (obstacles == 0)
+    {
+      return rayon;
+    }
+
+    return rayon ^ rayons[63 - Long.numberOfLeadingZeros(obstacles)];
+  }
+
+  /**
+   * Renvoi les cases atteintes dans une direction d'indices croissants, jusqu'au premier obstacle
+   * compris.
+   * 
+   * @param pDirection Indice de la direction (N, NE, E ou NO).
+   * @param pOrigine Indice de la case d'origine.
+   * @param pOccupees Carte des cases occupées.
+   * @return Carte des cases atteintes.
+   */
+  private static long positiveRay(final int pDirection, final int pOrigine, final long pOccupees)
+  {
+    final long [] rayons = RAYS[pDirection];
+    final long rayon = rayons[pOrigine];
+    final long obstacles = rayon & pOccupees;
+    if (obstacles == 0)
+    {
+      return rayon;
+    }
+
+    return rayon ^ rayons[Long.numberOfTrailingZeros(obstacles)];
+  }
+
+  /**
+   * Renvoi la carte des cases atteintes par un mouvement de type "tour" à partir d'une case, en
+   * tenant compte des obstacles.
+   * 
+   * @param pOrigine Indice de la case d'origine.
+   * @param pOccupees Carte des cases occupées.
+   * @return Carte des cases atteintes (obstacles compris, quelle que soit leur couleur).
+   */
+  private static long rookAttacks(final int pOrigine, final long pOccupees)
+  {
+    return positiveRay(0, pOrigine, pOccupees) | positiveRay(2, pOrigine, pOccupees)
+        | negativeRay(4, pOrigine, pOccupees) | negativeRay(6, pOrigine, pOccupees);
+  }
+
+  /**
+   * Convertit une carte binaire en liste de cases.
+   * 
+   * @param pCarte Carte binaire.
+   * @return Liste des cases correspondantes.
+   */
+  private static Square [] toSquares(final long pCarte)
+  {
+    if (pCarte == 0)
+    {
+      return NO_SQUARE;
+    }
+
+    final Square [] res = new Square [ Long.bitCount(pCarte) ];
+    long c = pCarte;
+    for (int i = 0; c != 0; i++)
+    {
+      res[i] = Square.valueOf(Long.numberOfTrailingZeros(c));
+      c &= c - 1;
+    }
+
+    return res;
+  }
+}
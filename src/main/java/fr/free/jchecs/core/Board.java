@@ -69,6 +69,29 @@ public interface Board extends Comparable<Board>, Serializable
    */
   int getHalfmoveCount();
 
+  /**
+   * Renvoi le bilan matériel de l'état : somme des valeurs théoriques des pièces blanches moins
+   * celle des pièces noires.
+   * <p>
+   * Comme {@link #getPositionalBalance(PieceSquareTable)}, {@link #getPawnCount(boolean, int)} et
+   * {@link #getPieceCount()}, cette valeur est maintenue lors des dérivations par les
+   * implémentations destinées aux moteurs d'IA : les fonctions d'évaluation peuvent l'utiliser sans
+   * avoir à parcourir le plateau.
+   * </p>
+   * 
+   * @return Bilan matériel (du point de vue des blancs).
+   */
+  int getMaterialBalance();
+
+  /**
+   * Renvoi le nombre de pions d'une couleur présents sur une colonne.
+   * 
+   * @param pBlanc Positionné à "true" pour obtenir le nombre de pions blancs.
+   * @param pColonne Colonne (de 0 à 7).
+   * @return Nombre de pions de la couleur sur la colonne.
+   */
+  int getPawnCount(final boolean pBlanc, final int pColonne);
+
   /**
    * Renvoi l'éventuelle pièce présente sur la case indiquée.
    * 
@@ -86,10 +109,50 @@ public interface Board extends Comparable<Board>, Serializable
    */
   Piece getPieceAt(final int pColonne, final int pLigne);
 
+  /**
+   * Renvoi le nombre de pièces (rois et pions compris) présentes sur le plateau.
+   * 
+   * @return Nombre de pièces.
+   */
+  int getPieceCount();
+
+  /**
+   * Renvoi le bilan d'une table de positions : somme des bonus/malus des pièces blanches moins
+   * celle des pièces noires.
+   * 
+   * @param pTable Table de positions.
+   * @return Bilan de la table (du point de vue des blancs).
+   */
+  int getPositionalBalance(final PieceSquareTable pTable);
+
   /**
    * Indique si le trait est aux blancs.
    * 
    * @return "true" si le trait est aux blancs, "false" s'il est aux noirs.
    */
   boolean isWhiteActive();
+
+  /**
+   * Renvoi la clé de hachage "Zobrist" sur 64 bits de la seule structure de pions de l'état.
+   * <p>
+   * Cette clé, qui ne change qu'avec les mouvements de pions et leurs prises, est destinée aux
+   * tables de hachage des fonctions d'évaluation. Les implémentations doivent rester compatibles
+   * entre elles sur ce calcul.
+   * </p>
+   * 
+   * @return Clé "Zobrist" sur 64 bits de la structure de pions.
+   */
+  long pawnZobristKey();
+
+  /**
+   * Renvoi la clé de hachage "Zobrist" sur 64 bits de l'état.
+   * <p>
+   * Contrairement à hashCode(), limité à 32 bits et donc trop sujet aux collisions pour indexer de
+   * grandes tables de transposition, cette clé est destinée aux moteurs d'IA. Les implémentations
+   * doivent rester compatibles entre elles sur ce calcul.
+   * </p>
+   * 
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  long zobristKey();
 }
@@ -33,6 +33,46 @@ public final class BoardFactory
     // Rien de spécifique...
   }
 
+  /**
+   * Renvoi une nouvelle instance modifiable, initialisée à partir d'un état quelconque.
+   * <p>
+   * L'instance obtenue applique et annule les mouvements sur place : elle est destinée aux
+   * recherches des moteurs d'IA et ne doit pas être partagée entre plusieurs threads.
+   * </p>
+   * 
+   * @param pEtat Etat de départ.
+   * @return Copie modifiable de l'état.
+   */
+  public static ReversibleMoveGenerator newReversible(final Board pEtat)
+  {
+    return newReversible(Type.FASTEST, pEtat);
+  }
+
+  /**
+   * Renvoi une nouvelle instance modifiable d'un type de représentation donné, initialisée à partir
+   * d'un état quelconque.
+   * <p>
+   * Seules les représentations {@link Type#X88} et {@link Type#BITBOARD} ont une version
+   * modifiable ; les autres sont remplacées par la plus rapide ({@link Type#FASTEST}).
+   * </p>
+   * 
+   * @param pType Type de la méthode de représentation de l'instance souhaitée.
+   * @param pEtat Etat de départ.
+   * @return Copie modifiable de l'état.
+   */
+  public static ReversibleMoveGenerator newReversible(final Type pType, final Board pEtat)
+  {
+    assert pType != null;
+    assert pEtat != null;
+
+    if (pType == Type.X88)
+    {
+      return new ReversibleX88Board(pEtat);
+    }
+
+    return new ReversibleBitboardBoard(pEtat);
+  }
+
   /**
    * Renvoi une instance de description de l'état d'une partie.
    * 
@@ -61,20 +101,20 @@ public final class BoardFactory
             assert false;
         }
         break;
-      // case BITMAPS :
-      // switch (pEtat)
-      // {
-      // case EMPTY :
-      // res = BitmapsBoard.EMPTY;
-      // break;
-      // case STARTING :
-      // res = BitmapsBoard.STARTING;
-      // break;
-      // default :
-      // assert false;
-      // }
-      // break;
+      case BITBOARD :
       case FASTEST :
+        switch (pEtat)
+        {
+          case EMPTY :
+            res = new BitboardBoard(ArrayBoard.EMPTY);
+            break;
+          case STARTING :
+            res = new BitboardBoard(ArrayBoard.STARTING);
+            break;
+          default :
+            assert false;
+        }
+        break;
       case MAILBOX :
         switch (pEtat)
         {
@@ -128,13 +168,13 @@ public final class BoardFactory
     /** Description basée sur un tableau bordé, à une dimension. */
     MAILBOX,
 
-    /** Description la plus rapide : actuellement équivalent à MAILBOX. */
+    /** Description la plus rapide : actuellement équivalent à BITBOARD. */
     FASTEST,
 
     /** Description basée sur un tableau à une dimension avec indice filtré par la valeur 0x88. */
-    X88;
+    X88,
 
-    // /** Description basée sur des cartes binaires. */
-    // BITMAPS;
+    /** Description basée sur des cartes binaires de 64 bits ("bitboards"). */
+    BITBOARD;
   }
 }
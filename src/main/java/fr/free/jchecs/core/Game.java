@@ -99,6 +99,22 @@ public final class Game
     _propertyChangeSupport.addPropertyChangeListener(pPropriete, pEcouteur);
   }
 
+  /**
+   * Arrête l'horloge de la partie, libérant le thread de son timer.
+   * <p>
+   * La partie reste consultable, mais son horloge n'est plus décomptée jusqu'au prochain appel à
+   * {@link #resetTo(MoveGenerator)}.
+   * </p>
+   */
+  public void dispose()
+  {
+    if (_timer != null)
+    {
+      _timer.cancel();
+      _timer = null;
+    }
+  }
+
   /**
    * Renvoi la description courante de l'échiquier.
    * 
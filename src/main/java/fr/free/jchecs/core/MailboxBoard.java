@@ -70,25 +70,24 @@ final class MailboxBoard extends AbstractMoveGenerator
   /** Liste de cases cibles vides. */
   private static final Square [] NO_SQUARE = new Square [ 0 ];
 
-  /**
-   * Buffer de travail pour optimiser la recherche des cibles de mouvements.
-   * <p>
-   * L'utilisation d'un buffer statique optimise les performances mais nécessite de faire très
-   * attention à la synchronisation pour que la classe reste sûre vis-à-vis des threads.
-   * </p>
-   */
-  // 27 est le nombre maximum de cases cibles pour une pièce (une dame, dans le meilleur des cas).
-  private static final int [] SQUARES_BUFFER = new int [ 27 ];
-
-  /** Indice du dernier élément valide dans les buffer de travail des cases. */
-  private static int S_nbBufferedSquares;
-
   /** Description du plateau. */
   private final Piece [] _pieces = new Piece [ FILE_COUNT * RANK_COUNT ];
 
   /** Clé de hachage. */
   private int _hashCode;
 
+  /** Bilan matériel et positionnel. */
+  private long _balance;
+
+  /** Structure (nombre de pièces et de pions par colonne). */
+  private long _structure;
+
+  /** Clé "Zobrist" sur 64 bits de la structure de pions. */
+  private long _pawnZobristKey;
+
+  /** Clé "Zobrist" sur 64 bits. */
+  private long _zobristKey;
+
   /**
    * Crée une nouvelle instance, initialisée à partir de l'état reçu en paramètre.
    * 
@@ -103,6 +102,10 @@ final class MailboxBoard extends AbstractMoveGenerator
       _pieces[s.getIndex()] = pEtat.getPieceAt(s);
     }
     _hashCode = super.hashCode();
+    _zobristKey = super.zobristKey();
+    _balance = super.balance();
+    _structure = super.structure();
+    _pawnZobristKey = super.pawnZobristKey();
   }
 
   /**
@@ -116,15 +119,20 @@ final class MailboxBoard extends AbstractMoveGenerator
 
     System.arraycopy(pEtat._pieces, 0, _pieces, 0, FILE_COUNT * RANK_COUNT);
     _hashCode = pEtat._hashCode;
+    _zobristKey = pEtat._zobristKey;
+    _balance = pEtat._balance;
+    _structure = pEtat._structure;
+    _pawnZobristKey = pEtat._pawnZobristKey;
   }
 
   /**
-   * Ajoute au buffer interne toutes les cases cibles des mouvements possibles (y compris ceux
+   * Ajoute au buffer toutes les cases cibles des mouvements possibles (y compris ceux
    * mettant le roi en échec) pour la pièce contenue par une case.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    */
-  private void addAllTargets(final int pOrigine)
+  private void addAllTargets(final SquaresBuffer pBuffer, final int pOrigine)
   {
     assert (pOrigine >= 0) && (pOrigine < FILE_COUNT * RANK_COUNT);
 
@@ -135,23 +143,23 @@ final class MailboxBoard extends AbstractMoveGenerator
       switch (piece.getType())
       {
         case BISHOP :
-          addBishopTargets(pOrigine, trait);
+          addBishopTargets(pBuffer, pOrigine, trait);
           break;
         case KING :
-          addKingTargets(pOrigine, trait);
+          addKingTargets(pBuffer, pOrigine, trait);
           break;
         case KNIGHT :
-          addKnightTargets(pOrigine, trait);
+          addKnightTargets(pBuffer, pOrigine, trait);
           break;
         case PAWN :
-          addPawnTargets(pOrigine, trait);
+          addPawnTargets(pBuffer, pOrigine, trait);
           break;
         case QUEEN :
-          addBishopTargets(pOrigine, trait);
-          addRookTargets(pOrigine, trait);
+          addBishopTargets(pBuffer, pOrigine, trait);
+          addRookTargets(pBuffer, pOrigine, trait);
           break;
         case ROOK :
-          addRookTargets(pOrigine, trait);
+          addRookTargets(pBuffer, pOrigine, trait);
           break;
         default :
           assert false;
@@ -160,13 +168,15 @@ final class MailboxBoard extends AbstractMoveGenerator
   }
 
   /**
-   * Ajoute au buffer interne toutes les cases cibles possibles d'un mouvement de type "fou" d'une
+   * Ajoute au buffer toutes les cases cibles possibles d'un mouvement de type "fou" d'une
    * certaine couleur (y compris ceux mettant le roi en échec) à partir d'une case.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    * @param pBlanc Positionné à vrai si la recherche concerne les blancs.
    */
-  private void addBishopTargets(final int pOrigine, final boolean pBlanc)
+  private void addBishopTargets(final SquaresBuffer pBuffer, final int pOrigine,
+      final boolean pBlanc)
   {
     assert (pOrigine >= 0) && (pOrigine < FILE_COUNT * RANK_COUNT);
 
@@ -180,13 +190,13 @@ final class MailboxBoard extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -202,13 +212,13 @@ final class MailboxBoard extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -224,13 +234,13 @@ final class MailboxBoard extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -246,13 +256,13 @@ final class MailboxBoard extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -262,13 +272,15 @@ final class MailboxBoard extends AbstractMoveGenerator
   }
 
   /**
-   * Ajoute au buffer interne la liste des cases pouvant être atteintes par un mouvement de type
+   * Ajoute au buffer la liste des cases pouvant être atteintes par un mouvement de type
    * roi.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
    */
-  private void addKingTargets(final int pOrigine, final boolean pBlanc)
+  private void addKingTargets(final SquaresBuffer pBuffer, final int pOrigine,
+      final boolean pBlanc)
   {
     assert (pOrigine >= 0) && (pOrigine < FILE_COUNT * RANK_COUNT);
 
@@ -282,7 +294,7 @@ final class MailboxBoard extends AbstractMoveGenerator
         final Piece p = _pieces[dst];
         if ((p == null) || (p.isWhite() != pBlanc))
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
           testerRoque = true;
         }
       }
@@ -295,7 +307,7 @@ final class MailboxBoard extends AbstractMoveGenerator
         final Piece t = _pieces[dst + 3];
         if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst + 2;
+          pBuffer.add(dst + 2);
         }
       }
       if (canCastleLong(pBlanc) && (_pieces[dst - 1] == null) && (_pieces[dst - 2] == null)
@@ -304,20 +316,22 @@ final class MailboxBoard extends AbstractMoveGenerator
         final Piece t = _pieces[dst - 4];
         if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst - 2;
+          pBuffer.add(dst - 2);
         }
       }
     }
   }
 
   /**
-   * Ajoute au buffer interne la liste des cases pouvant être atteintes par un mouvement de type
+   * Ajoute au buffer la liste des cases pouvant être atteintes par un mouvement de type
    * cavalier.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
    */
-  private void addKnightTargets(final int pOrigine, final boolean pBlanc)
+  private void addKnightTargets(final SquaresBuffer pBuffer, final int pOrigine,
+      final boolean pBlanc)
   {
     assert (pOrigine >= 0) && (pOrigine < FILE_COUNT * RANK_COUNT);
 
@@ -330,20 +344,22 @@ final class MailboxBoard extends AbstractMoveGenerator
         final Piece p = _pieces[dst];
         if ((p == null) || (p.isWhite() != pBlanc))
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
       }
     }
   }
 
   /**
-   * Ajoute au buffer interne la liste des cases pouvant être atteintes par un mouvement de type
+   * Ajoute au buffer la liste des cases pouvant être atteintes par un mouvement de type
    * pion.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
    */
-  private void addPawnTargets(final int pOrigine, final boolean pBlanc)
+  private void addPawnTargets(final SquaresBuffer pBuffer, final int pOrigine,
+      final boolean pBlanc)
   {
     assert (pOrigine >= 0) && (pOrigine < FILE_COUNT * RANK_COUNT);
 
@@ -356,11 +372,11 @@ final class MailboxBoard extends AbstractMoveGenerator
         // Mouvement de 1...
         if (_pieces[pOrigine + FILE_COUNT] == null)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine + FILE_COUNT;
+          pBuffer.add(pOrigine + FILE_COUNT);
           // Mouvement initial de 2
           if ((ySrc == 1) && (_pieces[pOrigine + FILE_COUNT * 2] == null))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine + FILE_COUNT * 2;
+            pBuffer.add(pOrigine + FILE_COUNT * 2);
           }
         }
         final int xSrc = cSrc.getFile();
@@ -371,7 +387,7 @@ final class MailboxBoard extends AbstractMoveGenerator
           final Piece pDest = _pieces[iDest];
           if (((pDest != null) && (!pDest.isWhite())) || (Square.valueOf(iDest) == getEnPassant()))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
+            pBuffer.add(iDest);
           }
         }
         if (xSrc < FILE_COUNT - 1)
@@ -381,7 +397,7 @@ final class MailboxBoard extends AbstractMoveGenerator
           final Piece pDest = _pieces[iDest];
           if (((pDest != null) && (!pDest.isWhite())) || (Square.valueOf(iDest) == getEnPassant()))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
+            pBuffer.add(iDest);
           }
         }
       }
@@ -393,11 +409,11 @@ final class MailboxBoard extends AbstractMoveGenerator
         // Mouvement de 1...
         if (_pieces[pOrigine - FILE_COUNT] == null)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine - FILE_COUNT;
+          pBuffer.add(pOrigine - FILE_COUNT);
           // Mouvement initial de 2
           if ((ySrc == RANK_COUNT - 2) && (_pieces[pOrigine - FILE_COUNT * 2] == null))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine - FILE_COUNT * 2;
+            pBuffer.add(pOrigine - FILE_COUNT * 2);
           }
         }
         final int xSrc = cSrc.getFile();
@@ -408,7 +424,7 @@ final class MailboxBoard extends AbstractMoveGenerator
           final Piece pDest = _pieces[iDest];
           if (((pDest != null) && pDest.isWhite()) || (Square.valueOf(iDest) == getEnPassant()))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
+            pBuffer.add(iDest);
           }
         }
         if (xSrc < FILE_COUNT - 1)
@@ -418,7 +434,7 @@ final class MailboxBoard extends AbstractMoveGenerator
           final Piece pDest = _pieces[iDest];
           if (((pDest != null) && pDest.isWhite()) || (Square.valueOf(iDest) == getEnPassant()))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
+            pBuffer.add(iDest);
           }
         }
       }
@@ -426,13 +442,15 @@ final class MailboxBoard extends AbstractMoveGenerator
   }
 
   /**
-   * Ajoute au buffer interne toutes les cases cibles possibles d'un mouvement de type "tour" d'une
+   * Ajoute au buffer toutes les cases cibles possibles d'un mouvement de type "tour" d'une
    * certaine couleur (y compris ceux mettant le roi en échec) à partir d'une case.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    * @param pBlanc Mis à vrai pour rechercher pour les blancs.
    */
-  private void addRookTargets(final int pOrigine, final boolean pBlanc)
+  private void addRookTargets(final SquaresBuffer pBuffer, final int pOrigine,
+      final boolean pBlanc)
   {
     assert (pOrigine >= 0) && (pOrigine < FILE_COUNT * RANK_COUNT);
 
@@ -446,13 +464,13 @@ final class MailboxBoard extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -467,13 +485,13 @@ final class MailboxBoard extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -488,13 +506,13 @@ final class MailboxBoard extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -510,13 +528,13 @@ final class MailboxBoard extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -525,6 +543,18 @@ final class MailboxBoard extends AbstractMoveGenerator
     }
   }
 
+  /**
+   * Surcharge du calcul du bilan matériel et positionnel, maintenu lors des dérivations.
+   * 
+   * @return Bilan matériel et positionnel.
+   */
+  @Override
+  protected long balance()
+  {
+    assert _balance == super.balance();
+    return _balance;
+  }
+
   /**
    * Renvoi une nouvelle instance, initialisée à partir d'un état quelconque.
    * 
@@ -557,6 +587,7 @@ final class MailboxBoard extends AbstractMoveGenerator
       final boolean t = !isWhiteActive();
       res.setWhiteActive(t);
       res._hashCode ^= ZOBRIST_WHITE_ACTIVE;
+      res._zobristKey ^= ZOBRIST64_WHITE_ACTIVE;
       if (t)
       {
         res.setFullmoveNumber(getFullmoveNumber() + 1);
@@ -581,6 +612,10 @@ final class MailboxBoard extends AbstractMoveGenerator
     res._pieces[iSrc] = null;
     final int pieceOrdinal = piece.ordinal();
     res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iSrc];
+    res._zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iSrc];
+    res._balance -= BALANCE_PIECE_POSITION[pieceOrdinal][iSrc];
+    res._structure -= STRUCTURE_PIECE_POSITION[pieceOrdinal][iSrc];
+    res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iSrc];
     final Square dst = pMouvement.getTo();
     final int iDst = dst.getIndex();
     final int xDst = dst.getFile();
@@ -589,9 +624,17 @@ final class MailboxBoard extends AbstractMoveGenerator
     if (pieceDst != null)
     {
       res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      res._zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      res._balance -= BALANCE_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      res._structure -= STRUCTURE_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceDst.ordinal()][iDst];
     }
     res._pieces[iDst] = piece;
     res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+    res._zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iDst];
+    res._balance += BALANCE_PIECE_POSITION[pieceOrdinal][iDst];
+    res._structure += STRUCTURE_PIECE_POSITION[pieceOrdinal][iDst];
+    res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iDst];
     // ... éxécute un mouvement spécifique de type "roque" et gère le suivi des rois ...
     if (typePiece == KING)
     {
@@ -608,8 +651,12 @@ final class MailboxBoard extends AbstractMoveGenerator
           res._pieces[i] = null;
           final int tourOrdinal = tour.ordinal();
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[tourOrdinal][i];
+          res._balance -= BALANCE_PIECE_POSITION[tourOrdinal][i];
           res._pieces[i + 3] = tour;
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i + 3];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[tourOrdinal][i + 3];
+          res._balance += BALANCE_PIECE_POSITION[tourOrdinal][i + 3];
           res.setCastled(trait, true);
         }
         else if (xDst == 6)
@@ -622,8 +669,12 @@ final class MailboxBoard extends AbstractMoveGenerator
           res._pieces[i] = null;
           final int tourOrdinal = tour.ordinal();
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[tourOrdinal][i];
+          res._balance -= BALANCE_PIECE_POSITION[tourOrdinal][i];
           res._pieces[i - 2] = tour;
           res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i - 2];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[tourOrdinal][i - 2];
+          res._balance += BALANCE_PIECE_POSITION[tourOrdinal][i - 2];
           res.setCastled(trait, true);
         }
       }
@@ -637,10 +688,12 @@ final class MailboxBoard extends AbstractMoveGenerator
         if (trait)
         {
           res._hashCode ^= ZOBRIST_WHITE_CASTLE_SHORT;
+          res._zobristKey ^= ZOBRIST64_WHITE_CASTLE_SHORT;
         }
         else
         {
           res._hashCode ^= ZOBRIST_BLACK_CASTLE_SHORT;
+          res._zobristKey ^= ZOBRIST64_BLACK_CASTLE_SHORT;
         }
       }
     }
@@ -652,10 +705,12 @@ final class MailboxBoard extends AbstractMoveGenerator
         if (trait)
         {
           res._hashCode ^= ZOBRIST_WHITE_CASTLE_LONG;
+          res._zobristKey ^= ZOBRIST64_WHITE_CASTLE_LONG;
         }
         else
         {
           res._hashCode ^= ZOBRIST_BLACK_CASTLE_LONG;
+          res._zobristKey ^= ZOBRIST64_BLACK_CASTLE_LONG;
         }
       }
     }
@@ -677,7 +732,15 @@ final class MailboxBoard extends AbstractMoveGenerator
         {
           res._pieces[iDst] = WHITE_QUEEN;
           res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iDst];
+          res._balance -= BALANCE_PIECE_POSITION[pieceOrdinal][iDst];
+          res._structure -= STRUCTURE_PIECE_POSITION[pieceOrdinal][iDst];
+          res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iDst];
           res._hashCode ^= ZOBRIST_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          res._balance += BALANCE_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          res._structure += STRUCTURE_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[WHITE_QUEEN.ordinal()][iDst];
         }
         else if ((ySrc == 1) && (yDst == 3))
         {
@@ -688,6 +751,10 @@ final class MailboxBoard extends AbstractMoveGenerator
           final int epDst = iDst - FILE_COUNT;
           res._pieces[epDst] = null;
           res._hashCode ^= ZOBRIST_PIECE_POSITION[_pieces[epDst].ordinal()][epDst];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[_pieces[epDst].ordinal()][epDst];
+          res._balance -= BALANCE_PIECE_POSITION[_pieces[epDst].ordinal()][epDst];
+          res._structure -= STRUCTURE_PIECE_POSITION[_pieces[epDst].ordinal()][epDst];
+          res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[_pieces[epDst].ordinal()][epDst];
         }
       }
       else
@@ -697,7 +764,15 @@ final class MailboxBoard extends AbstractMoveGenerator
         {
           res._pieces[iDst] = BLACK_QUEEN;
           res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iDst];
+          res._balance -= BALANCE_PIECE_POSITION[pieceOrdinal][iDst];
+          res._structure -= STRUCTURE_PIECE_POSITION[pieceOrdinal][iDst];
+          res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iDst];
           res._hashCode ^= ZOBRIST_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          res._balance += BALANCE_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          res._structure += STRUCTURE_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[BLACK_QUEEN.ordinal()][iDst];
         }
         else if ((ySrc == RANK_COUNT - 2) && (yDst == RANK_COUNT - 4))
         {
@@ -708,6 +783,10 @@ final class MailboxBoard extends AbstractMoveGenerator
           final int epDst = iDst + FILE_COUNT;
           res._pieces[epDst] = null;
           res._hashCode ^= ZOBRIST_PIECE_POSITION[_pieces[epDst].ordinal()][epDst];
+          res._zobristKey ^= ZOBRIST64_PIECE_POSITION[_pieces[epDst].ordinal()][epDst];
+          res._balance -= BALANCE_PIECE_POSITION[_pieces[epDst].ordinal()][epDst];
+          res._structure -= STRUCTURE_PIECE_POSITION[_pieces[epDst].ordinal()][epDst];
+          res._pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[_pieces[epDst].ordinal()][epDst];
         }
       }
     }
@@ -716,10 +795,12 @@ final class MailboxBoard extends AbstractMoveGenerator
     if ((epOrig != null) && ((epFinal == null) || (!epOrig.equals(epFinal))))
     {
       res._hashCode ^= ZOBRIST_EN_PASSANT[epOrig.getFile()];
+      res._zobristKey ^= ZOBRIST64_EN_PASSANT[epOrig.getFile()];
     }
     if ((epFinal != null) && ((epOrig == null) || (!epFinal.equals(epOrig))))
     {
       res._hashCode ^= ZOBRIST_EN_PASSANT[epFinal.getFile()];
+      res._zobristKey ^= ZOBRIST64_EN_PASSANT[epFinal.getFile()];
     }
 
     return res;
@@ -777,19 +858,14 @@ final class MailboxBoard extends AbstractMoveGenerator
     final Piece piece = _pieces[idx];
     if (piece != null)
     {
-      final Square [] res;
+      final SquaresBuffer buf = SquaresBuffer.current();
+      addAllTargets(buf, idx);
 
-      synchronized (SQUARES_BUFFER)
+      final int nb = buf.size();
+      final Square [] res = new Square [ nb ];
+      for (int t = nb; --t >= 0; /* Pré-décrémenté */)
       {
-        S_nbBufferedSquares = 0;
-
-        addAllTargets(idx);
-
-        res = new Square [ S_nbBufferedSquares ];
-        for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-        {
-          res[t] = Square.valueOf(SQUARES_BUFFER[t]);
-        }
+        res[t] = Square.valueOf(buf.get(t));
       }
 
       return res;
@@ -810,19 +886,14 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    addBishopTargets(buf, pOrigine.getIndex(), pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      addBishopTargets(pOrigine.getIndex(), pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(SQUARES_BUFFER[t]);
-      }
+      res[t] = Square.valueOf(buf.get(t));
     }
 
     return res;
@@ -839,19 +910,14 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    addKingTargets(buf, pOrigine.getIndex(), pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      addKingTargets(pOrigine.getIndex(), pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(SQUARES_BUFFER[t]);
-      }
+      res[t] = Square.valueOf(buf.get(t));
     }
 
     return res;
@@ -868,19 +934,14 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    addKnightTargets(buf, pOrigine.getIndex(), pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      addKnightTargets(pOrigine.getIndex(), pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(SQUARES_BUFFER[t]);
-      }
+      res[t] = Square.valueOf(buf.get(t));
     }
 
     return res;
@@ -897,19 +958,14 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    addPawnTargets(buf, pOrigine.getIndex(), pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      addPawnTargets(pOrigine.getIndex(), pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(SQUARES_BUFFER[t]);
-      }
+      res[t] = Square.valueOf(buf.get(t));
     }
 
     return res;
@@ -955,21 +1011,16 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    final int idx = pOrigine.getIndex();
+    addBishopTargets(buf, idx, pBlanc);
+    addRookTargets(buf, idx, pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      final int idx = pOrigine.getIndex();
-      addBishopTargets(idx, pBlanc);
-      addRookTargets(idx, pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(SQUARES_BUFFER[t]);
-      }
+      res[t] = Square.valueOf(buf.get(t));
     }
 
     return res;
@@ -987,19 +1038,14 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    addRookTargets(buf, pOrigine.getIndex(), pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      addRookTargets(pOrigine.getIndex(), pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(SQUARES_BUFFER[t]);
-      }
+      res[t] = Square.valueOf(buf.get(t));
     }
 
     return res;
@@ -1072,59 +1118,57 @@ final class MailboxBoard extends AbstractMoveGenerator
     final Piece piece = _pieces[iSrc];
     if (piece != null)
     {
-      synchronized (SQUARES_BUFFER)
+      final SquaresBuffer buf = SquaresBuffer.current();
+      addAllTargets(buf, iSrc);
+      final int nb = buf.size();
+      int nbFinal = nb;
+      final boolean trait = piece.isWhite();
+      for (int t = nb; --t >= 0; /* Pré-décrémenté */)
       {
-        S_nbBufferedSquares = 0;
-        addAllTargets(iSrc);
-        int nbFinal = S_nbBufferedSquares;
-        final boolean trait = piece.isWhite();
-        for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
+        final int idxCible = buf.get(t);
+        final Square cible = Square.valueOf(idxCible);
+        final Piece prise = _pieces[idxCible];
+        if (derive(new Move(piece, pOrigine, cible, prise), false).isInCheck(trait))
         {
-          final int idxCible = SQUARES_BUFFER[t];
-          final Square cible = Square.valueOf(idxCible);
-          final Piece prise = _pieces[idxCible];
-          if (derive(new Move(piece, pOrigine, cible, prise), false).isInCheck(trait))
-          {
-            SQUARES_BUFFER[t] = -1;
-            nbFinal--;
-          }
-          else if ((piece.getType() == KING) && (pOrigine.getFile() == 4))
+          buf.invalidate(t);
+          nbFinal--;
+        }
+        else if ((piece.getType() == KING) && (pOrigine.getFile() == 4))
+        {
+          final int delta = 4 - cible.getFile();
+          if ((delta == 2) || (delta == -2))
           {
-            final int delta = 4 - cible.getFile();
-            if ((delta == 2) || (delta == -2))
+            // Elimine le roque si le roi est en échec ou s'il le serait sur la case
+            // intermédiaire...
+            if (isInCheck(trait)
+                || derive(
+                    new Move(piece, pOrigine, Square.valueOf(4 - (delta / 2), cible.getRank())),
+                    false).isInCheck(trait))
             {
-              // Elimine le roque si le roi est en échec ou s'il le serait sur la case
-              // intermédiaire...
-              if (isInCheck(trait)
-                  || derive(
-                      new Move(piece, pOrigine, Square.valueOf(4 - (delta / 2), cible.getRank())),
-                      false).isInCheck(trait))
-              {
-                SQUARES_BUFFER[t] = -1;
-                nbFinal--;
-              }
+              buf.invalidate(t);
+              nbFinal--;
             }
           }
         }
-        assert (nbFinal >= 0) && (nbFinal <= S_nbBufferedSquares);
+      }
+      assert (nbFinal >= 0) && (nbFinal <= nb);
 
-        if (nbFinal == 0)
-        {
-          return NO_SQUARE;
-        }
+      if (nbFinal == 0)
+      {
+        return NO_SQUARE;
+      }
 
-        final Square [] res = new Square [ nbFinal ];
-        for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
+      final Square [] res = new Square [ nbFinal ];
+      for (int t = nb; --t >= 0; /* Pré-décrémenté */)
+      {
+        final int idx = buf.get(t);
+        if (idx >= 0)
         {
-          final int idx = SQUARES_BUFFER[t];
-          if (idx >= 0)
-          {
-            res[--nbFinal] = Square.valueOf(idx);
-          }
+          res[--nbFinal] = Square.valueOf(idx);
         }
-
-        return res;
       }
+
+      return res;
     }
 
     return NO_SQUARE;
@@ -1374,4 +1418,41 @@ final class MailboxBoard extends AbstractMoveGenerator
   {
     return isAttacked(getKingSquare(pCouleur), !pCouleur);
   }
+
+  /**
+   * Surcharge du calcul de la clé "Zobrist" de la structure de pions, maintenue lors des
+   * dérivations.
+   * 
+   * @return Clé "Zobrist" sur 64 bits de la structure de pions.
+   */
+  @Override
+  public long pawnZobristKey()
+  {
+    assert _pawnZobristKey == super.pawnZobristKey();
+    return _pawnZobristKey;
+  }
+
+  /**
+   * Surcharge du calcul de la structure, maintenue lors des dérivations.
+   * 
+   * @return Structure de l'état.
+   */
+  @Override
+  protected long structure()
+  {
+    assert _structure == super.structure();
+    return _structure;
+  }
+
+  /**
+   * Surcharge du calcul de la clé "Zobrist" sur 64 bits, maintenue lors des dérivations.
+   * 
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  @Override
+  public long zobristKey()
+  {
+    assert _zobristKey == super.zobristKey();
+    return _zobristKey;
+  }
 }
@@ -0,0 +1,246 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+/**
+ * Liste réutilisable de mouvements, codés sous la forme des entiers renvoyés par
+ * {@link Move#toId()}.
+ * <p>
+ * Une liste est destinée à être réutilisée d'une position à l'autre (typiquement une liste par
+ * demi-coup de profondeur d'une recherche) : la remplir, la trier ou la parcourir ne provoque
+ * aucune allocation. A chaque mouvement est associé un score, utilisé par {@link #sort()} et
+ * {@link #pick(int)}.
+ * </p>
+ * <p>
+ * Les instances de cette classe ne sont pas sûres vis-à-vis des threads.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class MoveList
+{
+  // 218 est le nombre maximum de mouvements valides connu pour une position légale.
+  /** Nombre maximum de mouvements d'une liste. */
+  public static final int CAPACITY = 256;
+
+  /** Identifiants des mouvements. */
+  private final int [] _moves = new int [ CAPACITY ];
+
+  /** Scores des mouvements. */
+  private final int [] _scores = new int [ CAPACITY ];
+
+  /** Nombre de mouvements de la liste. */
+  private int _size;
+
+  /**
+   * Crée une nouvelle liste vide.
+   */
+  public MoveList()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Ajoute un mouvement en fin de liste, avec un score nul.
+   * 
+   * @param pMouvement Identifiant du mouvement.
+   */
+  public void add(final int pMouvement)
+  {
+    assert _size < CAPACITY;
+
+    _scores[_size] = 0;
+    _moves[_size++] = pMouvement;
+  }
+
+  /**
+   * Vide la liste.
+   */
+  public void clear()
+  {
+    _size = 0;
+  }
+
+  /**
+   * Renvoi le mouvement d'une position de la liste.
+   * 
+   * @param pPosition Position dans la liste ([0, size()[).
+   * @return Identifiant du mouvement.
+   */
+  public int get(final int pPosition)
+  {
+    assert (pPosition >= 0) && (pPosition < _size);
+
+    return _moves[pPosition];
+  }
+
+  /**
+   * Renvoi le score du mouvement d'une position de la liste.
+   * 
+   * @param pPosition Position dans la liste ([0, size()[).
+   * @return Score du mouvement.
+   */
+  public int getScore(final int pPosition)
+  {
+    assert (pPosition >= 0) && (pPosition < _size);
+
+    return _scores[pPosition];
+  }
+
+  /**
+   * Place un mouvement en tête de liste, en conservant l'ordre relatif des autres mouvements.
+   * 
+   * @param pMouvement Identifiant du mouvement.
+   * @return "true" si le mouvement était présent dans la liste.
+   */
+  public boolean moveToFront(final int pMouvement)
+  {
+    final int [] mvts = _moves;
+    for (int i = 0; i < _size; i++)
+    {
+      if (mvts[i] == pMouvement)
+      {
+        final int score = _scores[i];
+        System.arraycopy(mvts, 0, mvts, 1, i);
+        System.arraycopy(_scores, 0, _scores, 1, i);
+        mvts[0] = pMouvement;
+        _scores[0] = score;
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Sélectionne, parmi les mouvements d'une position à la fin de la liste, celui de plus fort score
+   * et le place à cette position, en conservant l'ordre relatif des autres mouvements.
+   * <p>
+   * Appelée pour les positions successives d'une liste, cette méthode produit l'ordre de
+   * {@link #sort()}, mais seulement au fur et à mesure du parcours : une recherche s'arrêtant dès
+   * les premiers mouvements ne paie pas le tri de toute la liste.
+   * </p>
+   * 
+   * @param pPosition Position dans la liste ([0, size()[).
+   * @return Identifiant du mouvement sélectionné.
+   */
+  public int pick(final int pPosition)
+  {
+    assert (pPosition >= 0) && (pPosition < _size);
+
+    final int [] mvts = _moves;
+    final int [] scores = _scores;
+    int meilleur = pPosition;
+    for (int i = pPosition + 1; i < _size; i++)
+    {
+      if (scores[i] > scores[meilleur])
+      {
+        meilleur = i;
+      }
+    }
+    final int res = mvts[meilleur];
+    if (meilleur != pPosition)
+    {
+      final int score = scores[meilleur];
+      System.arraycopy(mvts, pPosition, mvts, pPosition + 1, meilleur - pPosition);
+      System.arraycopy(scores, pPosition, scores, pPosition + 1, meilleur - pPosition);
+      mvts[pPosition] = res;
+      scores[pPosition] = score;
+    }
+
+    return res;
+  }
+
+  /**
+   * Modifie le mouvement d'une position de la liste.
+   * 
+   * @param pPosition Position dans la liste ([0, size()[).
+   * @param pMouvement Identifiant du mouvement.
+   */
+  public void set(final int pPosition, final int pMouvement)
+  {
+    assert (pPosition >= 0) && (pPosition < _size);
+
+    _moves[pPosition] = pMouvement;
+  }
+
+  /**
+   * Modifie le score du mouvement d'une position de la liste.
+   * 
+   * @param pPosition Position dans la liste ([0, size()[).
+   * @param pScore Score du mouvement.
+   */
+  public void setScore(final int pPosition, final int pScore)
+  {
+    assert (pPosition >= 0) && (pPosition < _size);
+
+    _scores[pPosition] = pScore;
+  }
+
+  /**
+   * Renvoi le nombre de mouvements de la liste.
+   * 
+   * @return Nombre de mouvements (>= 0).
+   */
+  public int size()
+  {
+    return _size;
+  }
+
+  /**
+   * Trie la liste par scores décroissants. Le tri est stable : des mouvements de même score
+   * conservent leur ordre relatif.
+   */
+  public void sort()
+  {
+    // Les listes sont courtes : un tri par insertion suffit, et n'alloue rien.
+    final int [] mvts = _moves;
+    final int [] scores = _scores;
+    for (int i = 1; i < _size; i++)
+    {
+      final int mvt = mvts[i];
+      final int score = scores[i];
+      int j = i - 1;
+      while ((j >= 0) && (scores[j] < score))
+      {
+        mvts[j + 1] = mvts[j];
+        scores[j + 1] = scores[j];
+        j--;
+      }
+      mvts[j + 1] = mvt;
+      scores[j + 1] = score;
+    }
+  }
+
+  /**
+   * Renvoi les mouvements de la liste sous la forme d'instances de {@link Move}.
+   * 
+   * @return Tableau des mouvements, dans l'ordre de la liste.
+   */
+  public Move [] toMoves()
+  {
+    final Move [] res = new Move [ _size ];
+    for (int i = 0; i < _size; i++)
+    {
+      res[i] = Move.valueOf(_moves[i]);
+    }
+
+    return res;
+  }
+}
@@ -0,0 +1,765 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static fr.free.jchecs.core.BoardFactory.State.STARTING;
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Lecteur de flux PGN "au fil de l'eau" : les parties sont lues événement par événement (tag
+ * d'en-tête, mouvement, fin de partie), sans construire de {@link Game}, à l'aide de tampons
+ * réutilisés d'une partie à l'autre. La mémoire utilisée ne dépend donc ni de la taille du flux,
+ * ni du nombre de parties qu'il contient.
+ * <p>
+ * Les mouvements sont rendus sous leur forme compacte (voir {@link Move#toId()}), résolus sur un
+ * échiquier tenu à jour par le lecteur. Lors d'un événement {@link Event#MOVE}, l'échiquier
+ * renvoyé par {@link #getBoard()} est celui précédant le mouvement : celui-ci n'est joué qu'à
+ * l'appel suivant de {@link #next()}.
+ * </p>
+ * <p>
+ * Les commentaires, variantes, annotations numériques et numéros de coups sont ignorés. Comme
+ * avec {@link SANUtils#toMove(MoveGenerator, String)}, les promotions sont toujours jouées en
+ * dame.
+ * </p>
+ * <p>
+ * Les instances de cette classe ne sont pas sûres vis-à-vis des threads : chaque thread de lecture
+ * doit disposer de la sienne.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class PGNReader implements Closeable
+{
+  /** Taille du tampon de lecture (en caractères). */
+  private static final int BUFFER_SIZE = 8192;
+
+  /** Position de départ standard, partagée par les parties sans tag "FEN". */
+  private static final MoveGenerator STARTING_POSITION = BoardFactory.valueOf(FASTEST, STARTING);
+
+  /** Flux lu. */
+  private final Reader _in;
+
+  /** Tampon de lecture. */
+  private final char [] _buffer = new char [ BUFFER_SIZE ];
+
+  /** Liste réutilisable des mouvements valides, pour la résolution des mouvements. */
+  private final MoveList _moves = new MoveList();
+
+  /** Dernier jeton lu (mouvement ou nom de tag). */
+  private final StringBuilder _token = new StringBuilder();
+
+  /** Valeur du dernier tag lu. */
+  private final StringBuilder _value = new StringBuilder();
+
+  /** Echiquier de la partie en cours (null avant son premier mouvement). */
+  private ReversibleMoveGenerator _board;
+
+  /** Drapeau indiquant que le dernier événement était une fin de partie. */
+  private boolean _ended;
+
+  /** Position de départ de la partie en cours, si elle est fixée par un tag "FEN". */
+  private String _fen;
+
+  /** Nombre de parties lues. */
+  private int _games;
+
+  /** Drapeau indiquant qu'une partie est en cours de lecture. */
+  private boolean _inGame;
+
+  /** Nombre de caractères valides dans le tampon. */
+  private int _limit;
+
+  /** Numéro de la ligne en cours de lecture. */
+  private int _line = 1;
+
+  /** Dernier mouvement lu. */
+  private int _move;
+
+  /** Drapeau indiquant que la liste des mouvements de la partie en cours a commencé. */
+  private boolean _movetext;
+
+  /** Mouvement restant à jouer sur l'échiquier avant l'événement suivant (0 si aucun). */
+  private int _pending;
+
+  /** Position de lecture dans le tampon. */
+  private int _position;
+
+  /** Résultat de la dernière partie lue. */
+  private String _result;
+
+  /** Drapeau indiquant que les mouvements sont ignorés, sans être résolus. */
+  private boolean _skipping;
+
+  /**
+   * Instancie un nouveau lecteur.
+   * 
+   * @param pFlux Flux contenant les données au format PGN (pas besoin de tampon intermédiaire).
+   */
+  public PGNReader(final Reader pFlux)
+  {
+    if (pFlux == null)
+    {
+      throw new NullPointerException("Missing PGN stream");
+    }
+
+    _in = pFlux;
+  }
+
+  /**
+   * Ferme le flux lu.
+   * 
+   * @throws IOException En cas d'erreur de fermeture du flux.
+   */
+  public void close() throws IOException
+  {
+    _in.close();
+  }
+
+  /**
+   * Termine la partie en cours.
+   * 
+   * @param pResultat Résultat de la partie ("1-0", "0-1", "1/2-1/2" ou "*").
+   * @return Evénement de fin de partie.
+   * @throws PGNException En cas d'erreur dans le tag "FEN" de la partie.
+   */
+  private Event endGame(final String pResultat) throws PGNException
+  {
+    getBoard();
+    _result = pResultat;
+    _ended = true;
+    _inGame = false;
+    _movetext = false;
+    _games++;
+
+    return Event.END_OF_GAME;
+  }
+
+  /**
+   * Renvoi l'échiquier de la partie en cours : lors d'un événement {@link Event#MOVE}, la position
+   * précédant le mouvement, lors d'un événement {@link Event#END_OF_GAME}, la position finale
+   * (sauf si la partie a été abandonnée par {@link #skipGame()}).
+   * <p>
+   * L'échiquier appartient au lecteur : il ne doit pas être modifié.
+   * </p>
+   * 
+   * @return Echiquier de la partie en cours.
+   * @throws PGNException En cas d'erreur dans le tag "FEN" de la partie.
+   */
+  public ReversibleMoveGenerator getBoard() throws PGNException
+  {
+    if (_board == null)
+    {
+      if (_fen == null)
+      {
+        _board = BoardFactory.newReversible(STARTING_POSITION);
+      }
+      else
+      {
+        try
+        {
+          _board = BoardFactory.newReversible(STARTING_POSITION.derive(FENUtils.toBoard(_fen)));
+        }
+        catch (final FENException e)
+        {
+          throw new PGNException("Invalid FEN tag (line " + _line + ')', e);
+        }
+      }
+    }
+
+    return _board;
+  }
+
+  /**
+   * Renvoi le nombre de parties entièrement lues.
+   * 
+   * @return Nombre de parties lues.
+   */
+  public int getGameCount()
+  {
+    return _games;
+  }
+
+  /**
+   * Renvoi le numéro de la ligne en cours de lecture.
+   * 
+   * @return Numéro de ligne (à partir de 1).
+   */
+  public int getLineNumber()
+  {
+    return _line;
+  }
+
+  /**
+   * Renvoi le mouvement du dernier événement {@link Event#MOVE}.
+   * 
+   * @return Identifiant du mouvement (voir {@link Move#toId()}).
+   */
+  public int getMove()
+  {
+    return _move;
+  }
+
+  /**
+   * Renvoi le résultat de la dernière partie terminée.
+   * 
+   * @return Résultat ("1-0", "0-1", "1/2-1/2", ou "*" si inconnu), ou null si aucune partie n'est
+   *         terminée.
+   */
+  public String getResult()
+  {
+    return _result;
+  }
+
+  /**
+   * Renvoi le nom du tag du dernier événement {@link Event#TAG}.
+   * 
+   * @return Nom du tag (tampon réutilisé, valable jusqu'à l'appel suivant de {@link #next()}).
+   */
+  public CharSequence getTagName()
+  {
+    return _token;
+  }
+
+  /**
+   * Renvoi la valeur du tag du dernier événement {@link Event#TAG}.
+   * 
+   * @return Valeur du tag (tampon réutilisé, valable jusqu'à l'appel suivant de {@link #next()}).
+   */
+  public CharSequence getTagValue()
+  {
+    return _value;
+  }
+
+  /**
+   * Lit l'événement suivant du flux.
+   * 
+   * @return Evénement lu, ou null en fin de flux.
+   * @throws PGNException En cas d'erreur de lecture ou de format du flux.
+   */
+  public Event next() throws PGNException
+  {
+    if (_pending != 0)
+    {
+      _board.makeMove(_pending);
+      _pending = 0;
+    }
+    if (_ended)
+    {
+      _board = null;
+      _fen = null;
+      _ended = false;
+    }
+
+    try
+    {
+      while (true)
+      {
+        final int c = skipSpaces();
+        if (c < 0)
+        {
+          if (_inGame)
+          {
+            return endGame("*");
+          }
+          return null;
+        }
+
+        switch (c)
+        {
+          case '[' :
+            if (_movetext)
+            {
+              // Nouvelle partie sans résultat pour la précédente.
+              return endGame("*");
+            }
+            read();
+            readTag();
+            _inGame = true;
+            if ("FEN".contentEquals(_token))
+            {
+              _fen = _value.toString();
+            }
+            return Event.TAG;
+          case '{' :
+            // Commentaire...
+            skipUntil('}');
+            break;
+          case ';' :
+          case '%' :
+            // ... commentaire ou échappement jusqu'en fin de ligne...
+            skipUntil('\n');
+            break;
+          case '(' :
+            // ... variante (éventuellement imbriquée)...
+            skipVariation();
+            break;
+          case ')' :
+          case ']' :
+            // ... séparateur orphelin.
+            read();
+            break;
+          default :
+            readToken();
+            final Event res = readMovetext();
+            if (res != null)
+            {
+              return res;
+            }
+        }
+      }
+    }
+    catch (final IOException e)
+    {
+      throw new PGNException("PGN stream reading error (line " + _line + ')', e);
+    }
+  }
+
+  /**
+   * Renvoi le caractère suivant du flux, sans le consommer.
+   * 
+   * @return Caractère suivant, ou -1 en fin de flux.
+   * @throws IOException En cas d'erreur de lecture.
+   */
+  private int peek() throws IOException
+  {
+    if (_position >= _limit)
+    {
+      _limit = _in.read(_buffer);
+      _position = 0;
+      if (_limit <= 0)
+      {
+        _limit = 0;
+        return -1;
+      }
+    }
+
+    return _buffer[_position];
+  }
+
+  /**
+   * Consomme le caractère suivant du flux.
+   * 
+   * @return Caractère consommé, ou -1 en fin de flux.
+   * @throws IOException En cas d'erreur de lecture.
+   */
+  private int read() throws IOException
+  {
+    final int res = peek();
+    if (res >= 0)
+    {
+      _position++;
+      if (res == '\n')
+      {
+        _line++;
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Interprète le dernier jeton lu dans la liste des mouvements.
+   * 
+   * @return Evénement correspondant, ou null si le jeton doit être ignoré.
+   * @throws PGNException En cas de mouvement invalide.
+   */
+  private Event readMovetext() throws PGNException
+  {
+    final StringBuilder jeton = _token;
+    if ("*".contentEquals(jeton))
+    {
+      return endGame("*");
+    }
+    if ("1-0".contentEquals(jeton))
+    {
+      return endGame("1-0");
+    }
+    if ("0-1".contentEquals(jeton))
+    {
+      return endGame("0-1");
+    }
+    if ("1/2-1/2".contentEquals(jeton))
+    {
+      return endGame("1/2-1/2");
+    }
+
+    int deb = 0;
+    final int l = jeton.length();
+    if ((jeton.charAt(0) == '$') || "e.p.".contentEquals(jeton))
+    {
+      // Annotation numérique, ou marque de prise en passant...
+      return null;
+    }
+    if (Character.isDigit(jeton.charAt(0)))
+    {
+      // Numéro de coup, éventuellement accolé au mouvement ("1.e4")...
+      while ((deb < l) && Character.isDigit(jeton.charAt(deb)))
+      {
+        deb++;
+      }
+      if ((deb < l) && (jeton.charAt(deb) != '.'))
+      {
+        // ... sauf pour les roques notés avec des zéros.
+        deb = 0;
+      }
+      while ((deb < l) && (jeton.charAt(deb) == '.'))
+      {
+        deb++;
+      }
+    }
+    if (deb >= l)
+    {
+      return null;
+    }
+
+    _inGame = true;
+    _movetext = true;
+    if (_skipping)
+    {
+      return null;
+    }
+
+    _move = resolve(deb);
+    _pending = _move;
+
+    return Event.MOVE;
+  }
+
+  /**
+   * Lit un tag d'en-tête, dont le crochet ouvrant vient d'être lu.
+   * 
+   * @throws IOException En cas d'erreur de lecture.
+   * @throws PGNException En cas d'erreur de format du tag.
+   */
+  private void readTag() throws IOException, PGNException
+  {
+    _token.setLength(0);
+    _value.setLength(0);
+    int c = skipSpaces();
+    while ((c >= 0) && (c != '"') && (c != ']') && (!Character.isWhitespace(c)))
+    {
+      _token.append((char) read());
+      c = peek();
+    }
+    c = skipSpaces();
+    if (c != '"')
+    {
+      throw new PGNException("Invalid PGN tag (line " + _line + ')', null);
+    }
+    read();
+    c = read();
+    while ((c >= 0) && (c != '"'))
+    {
+      if (c == '\\')
+      {
+        c = read();
+      }
+      if (c >= 0)
+      {
+        _value.append((char) c);
+        c = read();
+      }
+    }
+    while ((c >= 0) && (c != ']'))
+    {
+      c = read();
+    }
+    if ((c < 0) || (_token.length() == 0))
+    {
+      throw new PGNException("Invalid PGN tag (line " + _line + ')', null);
+    }
+  }
+
+  /**
+   * Lit un jeton de la liste des mouvements, jusqu'au prochain séparateur.
+   * 
+   * @throws IOException En cas d'erreur de lecture.
+   */
+  private void readToken() throws IOException
+  {
+    _token.setLength(0);
+    int c = peek();
+    while ((c >= 0) && (!Character.isWhitespace(c)) && ("[]{}();".indexOf(c) < 0))
+    {
+      _token.append((char) read());
+      c = peek();
+    }
+  }
+
+  /**
+   * Résout le mouvement SAN (ou PGN) du dernier jeton lu sur l'échiquier de la partie en cours.
+   * 
+   * @param pDebut Position du début du mouvement dans le jeton.
+   * @return Identifiant du mouvement.
+   * @throws PGNException Si le mouvement est invalide, ambigu ou illégal.
+   */
+  private int resolve(final int pDebut) throws PGNException
+  {
+    final StringBuilder jeton = _token;
+    int fin = jeton.length();
+    while ((fin > pDebut) && ("+#!?".indexOf(jeton.charAt(fin - 1)) >= 0))
+    {
+      fin--;
+    }
+    if ((fin > pDebut) && ("QRBNqrbn".indexOf(jeton.charAt(fin - 1)) >= 0)
+        && (fin - 2 > pDebut) && ("=12345678".indexOf(jeton.charAt(fin - 2)) >= 0))
+    {
+      // Promotion (toujours en dame)...
+      fin--;
+      if (jeton.charAt(fin - 1) == '=')
+      {
+        fin--;
+      }
+    }
+
+    final ReversibleMoveGenerator etat = getBoard();
+    final int nb = etat.getValidMoves(etat.isWhiteActive(), _moves);
+    final char c0 = jeton.charAt(pDebut);
+    if ((c0 == 'O') || (c0 == '0'))
+    {
+      // Roques...
+      final int longueur = fin - pDebut;
+      final int deplacement;
+      if (longueur == 3)
+      {
+        deplacement = 2;
+      }
+      else if (longueur == 5)
+      {
+        deplacement = -2;
+      }
+      else
+      {
+        throw invalid("Invalid PGN move");
+      }
+      for (int i = 0; i < nb; i++)
+      {
+        final int mvt = _moves.get(i);
+        final int dx = (Move.toOf(mvt) & 7) - (Move.fromOf(mvt) & 7);
+        if ((Move.pieceOf(mvt).getType() == PieceType.KING) && (dx == deplacement))
+        {
+          return mvt;
+        }
+      }
+      throw invalid("Illegal PGN move");
+    }
+
+    int deb = pDebut + 1;
+    PieceType type = PieceType.PAWN;
+    switch (c0)
+    {
+      case 'K' :
+        type = PieceType.KING;
+        break;
+      case 'Q' :
+        type = PieceType.QUEEN;
+        break;
+      case 'R' :
+        type = PieceType.ROOK;
+        break;
+      case 'B' :
+        type = PieceType.BISHOP;
+        break;
+      case 'N' :
+        type = PieceType.KNIGHT;
+        break;
+      case 'P' :
+        break;
+      default :
+        // Pion, sans marqueur.
+        deb = pDebut;
+    }
+    if (fin - deb < 2)
+    {
+      throw invalid("Invalid PGN move");
+    }
+    final int colonne = jeton.charAt(fin - 2) - 'a';
+    final int ligne = jeton.charAt(fin - 1) - '1';
+    if ((colonne < 0) || (colonne > 7) || (ligne < 0) || (ligne > 7))
+    {
+      throw invalid("Invalid PGN move");
+    }
+    final int dst = ligne * 8 + colonne;
+    int colonneSrc = -1;
+    int ligneSrc = -1;
+    for (int i = deb; i < fin - 2; i++)
+    {
+      final char c = jeton.charAt(i);
+      if ((c >= 'a') && (c <= 'h'))
+      {
+        colonneSrc = c - 'a';
+      }
+      else if ((c >= '1') && (c <= '8'))
+      {
+        ligneSrc = c - '1';
+      }
+      else if ("x:-@".indexOf(c) < 0)
+      {
+        throw invalid("Invalid PGN move");
+      }
+    }
+
+    int res = 0;
+    for (int i = 0; i < nb; i++)
+    {
+      final int mvt = _moves.get(i);
+      final int src = Move.fromOf(mvt);
+      if ((Move.toOf(mvt) == dst) && (Move.pieceOf(mvt).getType() == type)
+          && ((colonneSrc < 0) || ((src & 7) == colonneSrc))
+          && ((ligneSrc < 0) || ((src >> 3) == ligneSrc)))
+      {
+        if (res != 0)
+        {
+          throw invalid("Ambiguous PGN move");
+        }
+        res = mvt;
+      }
+    }
+    if (res == 0)
+    {
+      throw invalid("Illegal PGN move");
+    }
+
+    return res;
+  }
+
+  /**
+   * Construit l'exception signalant un mouvement invalide.
+   * 
+   * @param pMessage Nature de l'erreur.
+   * @return Exception décrivant l'erreur et le mouvement concerné.
+   */
+  private PGNException invalid(final String pMessage)
+  {
+    return new PGNException(pMessage + " [" + _token + "] (line " + _line + ')', null);
+  }
+
+  /**
+   * Abandonne la lecture de la partie en cours : ses mouvements restants sont ignorés sans être
+   * résolus, jusqu'à sa fin (incluse). Utile lorsque seul le début des parties est exploité.
+   * 
+   * @throws PGNException En cas d'erreur de lecture ou de format du flux.
+   */
+  public void skipGame() throws PGNException
+  {
+    _pending = 0;
+    _skipping = true;
+    try
+    {
+      Event evt = next();
+      while ((evt != null) && (evt != Event.END_OF_GAME))
+      {
+        evt = next();
+      }
+    }
+    finally
+    {
+      _skipping = false;
+    }
+  }
+
+  /**
+   * Passe les blancs du flux.
+   * 
+   * @return Premier caractère qui n'est pas un blanc (non consommé), ou -1 en fin de flux.
+   * @throws IOException En cas d'erreur de lecture.
+   */
+  private int skipSpaces() throws IOException
+  {
+    int c = peek();
+    while ((c >= 0) && Character.isWhitespace(c))
+    {
+      read();
+      c = peek();
+    }
+
+    return c;
+  }
+
+  /**
+   * Passe les caractères du flux jusqu'à un caractère donné (inclus).
+   * 
+   * @param pFin Caractère terminal.
+   * @throws IOException En cas d'erreur de lecture.
+   */
+  private void skipUntil(final char pFin) throws IOException
+  {
+    int c = read();
+    while ((c >= 0) && (c != pFin))
+    {
+      c = read();
+    }
+  }
+
+  /**
+   * Passe une variante, dont la parenthèse ouvrante n'a pas été consommée, avec ses variantes et
+   * commentaires imbriqués.
+   * 
+   * @throws IOException En cas d'erreur de lecture.
+   */
+  private void skipVariation() throws IOException
+  {
+    int profondeur = 0;
+    boolean commentaire = false;
+    int c = read();
+    while (c >= 0)
+    {
+      if (commentaire)
+      {
+        commentaire = c != '}';
+      }
+      else if (c == '{')
+      {
+        commentaire = true;
+      }
+      else if (c == '(')
+      {
+        profondeur++;
+      }
+      else if (c == ')')
+      {
+        profondeur--;
+        if (profondeur == 0)
+        {
+          return;
+        }
+      }
+      c = read();
+    }
+  }
+
+  /**
+   * Evénements produits par la lecture d'un flux PGN.
+   */
+  public static enum Event
+  {
+    /** Tag d'en-tête (voir {@link PGNReader#getTagName()} et {@link PGNReader#getTagValue()}). */
+    TAG,
+
+    /** Mouvement (voir {@link PGNReader#getMove()}). */
+    MOVE,
+
+    /** Fin de partie (voir {@link PGNReader#getResult()}). */
+    END_OF_GAME;
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static fr.free.jchecs.core.BoardFactory.State.STARTING;
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Ecrivain de flux PGN "au fil de l'eau", symétrique de {@link PGNReader} : les parties sont
+ * écrites tag par tag et mouvement par mouvement, les mouvements étant transmis sous leur forme
+ * compacte (voir {@link Move#toId()}) et traduits en SAN sur un échiquier tenu à jour par
+ * l'écrivain. Les tampons sont réutilisés d'une partie à l'autre.
+ * <p>
+ * Une partie s'écrit par ses tags ({@link #writeTag(String, String)}, puis éventuellement
+ * {@link #writeStartingPosition(String)}), ses mouvements ({@link #writeMove(int)}), et enfin son
+ * résultat ({@link #endGame(String)}). Les lignes de mouvements sont limitées à
+ * {@link #LINE_WIDTH} caractères.
+ * </p>
+ * <p>
+ * Les instances de cette classe ne sont pas sûres vis-à-vis des threads.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class PGNWriter implements Closeable, Flushable
+{
+  /** Longueur maximale des lignes de mouvements. */
+  public static final int LINE_WIDTH = 80;
+
+  /** Position de départ standard, partagée par les parties sans position de départ. */
+  private static final MoveGenerator STARTING_POSITION = BoardFactory.valueOf(FASTEST, STARTING);
+
+  /** Flux d'écriture. */
+  private final Writer _out;
+
+  /** Liste réutilisable des mouvements valides. */
+  private final MoveList _moves = new MoveList();
+
+  /** Tampon de construction des mouvements SAN. */
+  private final StringBuilder _san = new StringBuilder();
+
+  /** Echiquier de la partie en cours. */
+  private ReversibleMoveGenerator _board;
+
+  /** Colonne courante dans la liste des mouvements (0 avant le premier mouvement). */
+  private int _column;
+
+  /** Nombre de parties écrites. */
+  private int _games;
+
+  /**
+   * Instancie un nouvel écrivain.
+   * 
+   * @param pFlux Flux recevant les données au format PGN (de préférence avec tampon).
+   */
+  public PGNWriter(final Writer pFlux)
+  {
+    if (pFlux == null)
+    {
+      throw new NullPointerException("Missing PGN stream");
+    }
+
+    _out = pFlux;
+  }
+
+  /**
+   * Ajoute un élément à la liste des mouvements, en passant à la ligne si nécessaire.
+   * 
+   * @param pElement Elément à ajouter.
+   * @throws IOException En cas d'erreur d'écriture.
+   */
+  private void append(final CharSequence pElement) throws IOException
+  {
+    final int l = pElement.length();
+    if (_column == 0)
+    {
+      _out.write('\n');
+    }
+    else if (_column + 1 + l > LINE_WIDTH)
+    {
+      _out.write('\n');
+      _column = 0;
+    }
+    else
+    {
+      _out.write(' ');
+      _column++;
+    }
+    _out.append(pElement);
+    _column += l;
+  }
+
+  /**
+   * Ferme le flux d'écriture.
+   * 
+   * @throws IOException En cas d'erreur d'écriture.
+   */
+  public void close() throws IOException
+  {
+    _out.close();
+  }
+
+  /**
+   * Termine la partie en cours en écrivant son résultat.
+   * 
+   * @param pResultat Résultat de la partie ("1-0", "0-1", "1/2-1/2" ou "*").
+   * @throws IOException En cas d'erreur d'écriture.
+   */
+  public void endGame(final String pResultat) throws IOException
+  {
+    if (!("1-0".equals(pResultat) || "0-1".equals(pResultat) || "1/2-1/2".equals(pResultat)
+        || "*".equals(pResultat)))
+    {
+      throw new IllegalArgumentException("Invalid PGN result [" + pResultat + ']');
+    }
+
+    append(pResultat);
+    _out.write("\n\n");
+    _board = null;
+    _column = 0;
+    _games++;
+  }
+
+  /**
+   * Vide le tampon du flux d'écriture.
+   * 
+   * @throws IOException En cas d'erreur d'écriture.
+   */
+  public void flush() throws IOException
+  {
+    _out.flush();
+  }
+
+  /**
+   * Renvoi l'échiquier de la partie en cours, dans la position atteinte par les mouvements écrits.
+   * <p>
+   * L'échiquier appartient à l'écrivain : il ne doit pas être modifié.
+   * </p>
+   * 
+   * @return Echiquier de la partie en cours.
+   */
+  public ReversibleMoveGenerator getBoard()
+  {
+    if (_board == null)
+    {
+      _board = BoardFactory.newReversible(STARTING_POSITION);
+    }
+
+    return _board;
+  }
+
+  /**
+   * Renvoi le nombre de parties entièrement écrites.
+   * 
+   * @return Nombre de parties écrites.
+   */
+  public int getGameCount()
+  {
+    return _games;
+  }
+
+  /**
+   * Ecrit un mouvement de la partie en cours, en notation SAN.
+   * 
+   * @param pMouvement Identifiant du mouvement (voir {@link Move#toId()}), valide dans la position
+   *          courante.
+   * @throws IOException En cas d'erreur d'écriture.
+   */
+  public void writeMove(final int pMouvement) throws IOException
+  {
+    final ReversibleMoveGenerator etat = getBoard();
+    final boolean trait = etat.isWhiteActive();
+    final int nb = etat.getValidMoves(trait, _moves);
+    boolean valide = false;
+    boolean ambigu = false;
+    boolean colonneAmbigue = false;
+    boolean ligneAmbigue = false;
+    final Piece piece = Move.pieceOf(pMouvement);
+    final int src = Move.fromOf(pMouvement);
+    final int dst = Move.toOf(pMouvement);
+    for (int i = 0; i < nb; i++)
+    {
+      final int mvt = _moves.get(i);
+      if (mvt == pMouvement)
+      {
+        valide = true;
+      }
+      else if ((Move.pieceOf(mvt) == piece) && (Move.toOf(mvt) == dst))
+      {
+        final int autre = Move.fromOf(mvt);
+        ambigu = true;
+        colonneAmbigue |= (autre & 7) == (src & 7);
+        ligneAmbigue |= (autre >> 3) == (src >> 3);
+      }
+    }
+    if (!valide)
+    {
+      throw new IllegalArgumentException("Illegal move [" + Move.valueOf(pMouvement) + ']');
+    }
+
+    if (trait || (_column == 0))
+    {
+      _san.setLength(0);
+      _san.append(etat.getFullmoveNumber());
+      if (trait)
+      {
+        _san.append('.');
+      }
+      else
+      {
+        _san.append("...");
+      }
+      append(_san);
+    }
+
+    _san.setLength(0);
+    final PieceType type = piece.getType();
+    if ((type == PieceType.KING) && (Math.abs((dst & 7) - (src & 7)) > 1))
+    {
+      // Roques...
+      if ((dst & 7) > (src & 7))
+      {
+        _san.append("O-O");
+      }
+      else
+      {
+        _san.append("O-O-O");
+      }
+    }
+    else
+    {
+      _san.append(type.getSANLetter());
+      if (ambigu && (type != PieceType.PAWN))
+      {
+        if ((!colonneAmbigue) || ligneAmbigue)
+        {
+          _san.append((char) ('a' + (src & 7)));
+        }
+        if (colonneAmbigue)
+        {
+          _san.append((char) ('1' + (src >> 3)));
+        }
+      }
+      if (Move.capturedOf(pMouvement) != null)
+      {
+        if (type == PieceType.PAWN)
+        {
+          _san.append((char) ('a' + (src & 7)));
+        }
+        _san.append('x');
+      }
+      _san.append((char) ('a' + (dst & 7))).append((char) ('1' + (dst >> 3)));
+      if ((type == PieceType.PAWN) && ((dst >> 3 == 0) || (dst >> 3 == 7)))
+      {
+        _san.append("=Q");
+      }
+    }
+
+    etat.makeMove(pMouvement);
+    final boolean suivant = etat.isWhiteActive();
+    if (etat.isInCheck(suivant))
+    {
+      if (etat.getValidMoves(suivant, _moves) == 0)
+      {
+        _san.append('#');
+      }
+      else
+      {
+        _san.append('+');
+      }
+    }
+    append(_san);
+  }
+
+  /**
+   * Ecrit les tags d'une position de départ particulière ("SetUp" et "FEN"), à partir de laquelle
+   * les mouvements de la partie seront joués.
+   * 
+   * @param pFEN Description FEN de la position de départ.
+   * @throws IOException En cas d'erreur d'écriture.
+   * @throws FENException En cas d'erreur dans la description FEN.
+   */
+  public void writeStartingPosition(final String pFEN) throws IOException, FENException
+  {
+    _board = BoardFactory.newReversible(STARTING_POSITION.derive(FENUtils.toBoard(pFEN)));
+    writeTag("SetUp", "1");
+    writeTag("FEN", pFEN);
+  }
+
+  /**
+   * Ecrit un tag d'en-tête de la partie, avant ses mouvements.
+   * 
+   * @param pNom Nom du tag.
+   * @param pValeur Valeur du tag.
+   * @throws IOException En cas d'erreur d'écriture.
+   */
+  public void writeTag(final String pNom, final String pValeur) throws IOException
+  {
+    if (_column != 0)
+    {
+      throw new IllegalStateException("Tags must precede moves");
+    }
+
+    _out.write('[');
+    _out.write(pNom);
+    _out.write(" \"");
+    for (int i = 0; i < pValeur.length(); i++)
+    {
+      final char c = pValeur.charAt(i);
+      if ((c == '"') || (c == '\\'))
+      {
+        _out.write('\\');
+      }
+      _out.write(c);
+    }
+    _out.write("\"]\n");
+  }
+}
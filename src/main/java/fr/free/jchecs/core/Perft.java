@@ -0,0 +1,505 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Dénombrement des noeuds de l'arbre de jeu ("perft"), pour valider et mesurer les générateurs de
+ * mouvements.
+ * <p>
+ * Le nombre de positions atteignables à une profondeur donnée ne dépend que des règles du jeu : le
+ * comparer à des valeurs de référence valide complètement la génération des mouvements (roques,
+ * prises en passant, promotions, clouages...). jChecs ne promouvant les pions qu'en dame, les
+ * valeurs de référence de la suite fournie ({@value #SUITE_RESOURCE}) tiennent compte de cette
+ * restriction et diffèrent donc des valeurs publiées dès qu'une promotion est possible.
+ * </p>
+ * <p>
+ * Lancée sans arguments, la méthode {@link #main(String[])} vérifie la suite de référence pour
+ * chaque représentation de l'échiquier, en indiquant le nombre de noeuds parcourus par seconde.
+ * Lancée avec une profondeur (et optionnellement une position FEN), elle détaille le nombre de
+ * noeuds sous chaque mouvement initial ("divide").
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public final class Perft
+{
+  /** Nom de la ressource contenant la suite de positions de référence (format EPD). */
+  public static final String SUITE_RESOURCE = "perft.epd";
+
+  /** Nombre maximum de noeuds par position lors de la vérification de la suite par main(). */
+  private static final long MAIN_NODES_LIMIT = 5000000;
+
+  /**
+   * Classe utilitaire : ne pas instancier.
+   */
+  private Perft()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Détaille, pour chaque mouvement valide d'un état, le nombre de noeuds de l'arbre de jeu
+   * atteints à une profondeur donnée.
+   * 
+   * @param pEtat Etat de départ.
+   * @param pProfondeur Profondeur de l'arbre (>= 1).
+   * @return Nombre de noeuds sous chaque mouvement, dans l'ordre de génération des mouvements.
+   */
+  public static Map<Move, Long> divide(final MoveGenerator pEtat, final int pProfondeur)
+  {
+    assert pEtat != null;
+    assert pProfondeur >= 1;
+
+    final Map<Move, Long> res = new LinkedHashMap<>();
+    for (final Move mvt : pEtat.getValidMoves(pEtat.isWhiteActive()))
+    {
+      res.put(mvt, Long.valueOf(perft(pEtat.derive(mvt, true), pProfondeur - 1)));
+    }
+
+    return res;
+  }
+
+  /**
+   * Vérifie la suite de référence ou détaille un dénombrement.
+   * 
+   * @param pArgs Arguments de la ligne de commande : aucun pour vérifier la suite de référence, ou
+   *          une profondeur, suivie optionnellement d'une position FEN, pour détailler un
+   *          dénombrement.
+   * @throws FENException En cas d'erreur dans une position FEN.
+   * @throws IOException En cas d'erreur de lecture de la suite de référence.
+   */
+  public static void main(final String [] pArgs) throws FENException, IOException
+  {
+    if (pArgs.length > 0)
+    {
+      final int profondeur = Integer.parseInt(pArgs[0]);
+      String fen = FENUtils.STANDART_STARTING_FEN;
+      if (pArgs.length > 1)
+      {
+        final StringBuilder sb = new StringBuilder(pArgs[1]);
+        for (int i = 2; i < pArgs.length; i++)
+        {
+          sb.append(' ').append(pArgs[i]);
+        }
+        fen = sb.toString();
+      }
+      final MoveGenerator etat =
+          BoardFactory.valueOf(BoardFactory.Type.FASTEST, BoardFactory.State.EMPTY).derive(
+              FENUtils.toBoard(fen));
+      long total = 0;
+      final long debut = System.currentTimeMillis();
+      for (final Map.Entry<Move, Long> e : divide(etat, profondeur).entrySet())
+      {
+        System.out.println(SANUtils.toSAN(etat, e.getKey()) + " : " + e.getValue());
+        total += e.getValue().longValue();
+      }
+      final long fin = System.currentTimeMillis();
+      System.out.println("Total = " + total + " noeuds, " + (fin - debut) + "ms");
+      return;
+    }
+
+    final List<Entry> suite = readSuite();
+    final ForkJoinPool pool = new ForkJoinPool();
+    System.out.println("Perft (" + suite.size() + " positions, " + MAIN_NODES_LIMIT
+        + " noeuds maximum par position, " + pool.getParallelism() + " threads en parallèle)");
+    for (final BoardFactory.Type t : BoardFactory.Type.values())
+    {
+      if (t == BoardFactory.Type.FASTEST)
+      {
+        continue;
+      }
+      long noeuds = 0;
+      long duree = 0;
+      long dureeParallele = 0;
+      int erreurs = 0;
+      for (final Entry e : suite)
+      {
+        int profondeur = e.getDepth();
+        while ((profondeur > 1) && (e.getNodes(profondeur) > MAIN_NODES_LIMIT))
+        {
+          profondeur--;
+        }
+        final MoveGenerator etat =
+            BoardFactory.valueOf(t, BoardFactory.State.EMPTY).derive(FENUtils.toBoard(e.getFEN()));
+        long debut = System.currentTimeMillis();
+        final long nb = perft(etat, profondeur);
+        duree += System.currentTimeMillis() - debut;
+        debut = System.currentTimeMillis();
+        final long nbParallele = perft(etat, profondeur, pool);
+        dureeParallele += System.currentTimeMillis() - debut;
+        if ((nb != e.getNodes(profondeur)) || (nbParallele != nb))
+        {
+          System.out.println("  " + e.getFEN() + " ;D" + profondeur + " " + e.getNodes(profondeur)
+              + " => " + nb + " / " + nbParallele);
+          erreurs++;
+        }
+        noeuds += nb;
+      }
+      System.out.println("  " + BoardFactory.valueOf(t, BoardFactory.State.EMPTY).getClass()
+          .getSimpleName() + " = " + noeuds * 1000 / Math.max(1, duree) + " noeuds/s, "
+          + noeuds * 1000 / Math.max(1, dureeParallele) + " noeuds/s en parallèle, " + erreurs
+          + " erreur(s)");
+    }
+    pool.shutdown();
+  }
+
+  /**
+   * Dénombre les noeuds de l'arbre de jeu à une profondeur donnée, en dérivant les états.
+   * 
+   * @param pEtat Etat de départ.
+   * @param pProfondeur Profondeur de l'arbre (>= 0).
+   * @return Nombre de noeuds à la profondeur demandée.
+   */
+  public static long perft(final MoveGenerator pEtat, final int pProfondeur)
+  {
+    assert pEtat != null;
+    assert pProfondeur >= 0;
+
+    if (pProfondeur == 0)
+    {
+      return 1;
+    }
+    final Move [] mvts = pEtat.getValidMoves(pEtat.isWhiteActive());
+    if (pProfondeur == 1)
+    {
+      return mvts.length;
+    }
+
+    long res = 0;
+    for (final Move mvt : mvts)
+    {
+      res += perft(pEtat.derive(mvt, true), pProfondeur - 1);
+    }
+
+    return res;
+  }
+
+  /**
+   * Dénombre les noeuds de l'arbre de jeu à une profondeur donnée, en répartissant les sous-arbres
+   * des mouvements initiaux entre les threads d'un pool.
+   * 
+   * @param pEtat Etat de départ.
+   * @param pProfondeur Profondeur de l'arbre (>= 0).
+   * @param pPool Pool de threads utilisé.
+   * @return Nombre de noeuds à la profondeur demandée.
+   */
+  public static long perft(final MoveGenerator pEtat, final int pProfondeur,
+      final ForkJoinPool pPool)
+  {
+    assert pEtat != null;
+    assert pProfondeur >= 0;
+    assert pPool != null;
+
+    if (pProfondeur <= 1)
+    {
+      return perft(pEtat, pProfondeur);
+    }
+
+    return pPool.invoke(new RootTask(pEtat, pProfondeur)).longValue();
+  }
+
+  /**
+   * Dénombre les noeuds de l'arbre de jeu à une profondeur donnée, en appliquant / annulant les
+   * mouvements.
+   * 
+   * @param pEtat Etat de départ, restauré au retour.
+   * @param pProfondeur Profondeur de l'arbre (>= 0).
+   * @return Nombre de noeuds à la profondeur demandée.
+   */
+  public static long perft(final ReversibleMoveGenerator pEtat, final int pProfondeur)
+  {
+    assert pEtat != null;
+    assert pProfondeur >= 0;
+
+    final MoveList [] listes = new MoveList [ pProfondeur + 1 ];
+    for (int i = 0; i < listes.length; i++)
+    {
+      listes[i] = new MoveList();
+    }
+
+    return perft(pEtat, listes, pProfondeur);
+  }
+
+  /**
+   * Dénombre récursivement les noeuds de l'arbre de jeu, en appliquant / annulant les mouvements.
+   * 
+   * @param pEtat Etat de départ, restauré au retour.
+   * @param pListes Listes de mouvements, une par niveau de profondeur.
+   * @param pProfondeur Profondeur restant à parcourir (>= 0).
+   * @return Nombre de noeuds à la profondeur demandée.
+   */
+  private static long perft(final ReversibleMoveGenerator pEtat, final MoveList [] pListes,
+      final int pProfondeur)
+  {
+    if (pProfondeur == 0)
+    {
+      return 1;
+    }
+    final MoveList mvts = pListes[pProfondeur];
+    final int l = pEtat.getValidMoves(pEtat.isWhiteActive(), mvts);
+    if (pProfondeur == 1)
+    {
+      return l;
+    }
+
+    long res = 0;
+    for (int i = 0; i < l; i++)
+    {
+      pEtat.makeMove(mvts.get(i));
+      res += perft(pEtat, pListes, pProfondeur - 1);
+      pEtat.unmakeMove();
+    }
+
+    return res;
+  }
+
+  /**
+   * Charge la suite de positions de référence.
+   * 
+   * @return Liste des positions de référence.
+   * @throws IOException En cas d'erreur de lecture de la ressource.
+   */
+  public static List<Entry> readSuite() throws IOException
+  {
+    final InputStream is = Perft.class.getResourceAsStream(SUITE_RESOURCE);
+    if (is == null)
+    {
+      throw new IOException("Missing resource " + SUITE_RESOURCE);
+    }
+
+    final List<Entry> res = new ArrayList<>();
+    final BufferedReader in =
+        new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+    try
+    {
+      String ligne = in.readLine();
+      while (ligne != null)
+      {
+        ligne = ligne.trim();
+        if ((ligne.length() > 0) && !ligne.startsWith("#"))
+        {
+          res.add(Entry.valueOf(ligne));
+        }
+        ligne = in.readLine();
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+
+    return Collections.unmodifiableList(res);
+  }
+
+  /**
+   * Position de référence : description FEN et nombres de noeuds attendus à chaque profondeur.
+   */
+  public static final class Entry
+  {
+    /** Description FEN de la position. */
+    private final String _fen;
+
+    /** Nombres de noeuds attendus, à partir de la profondeur 1. */
+    private final long [] _nodes;
+
+    /**
+     * Instancie une nouvelle position de référence.
+     * 
+     * @param pFEN Description FEN de la position.
+     * @param pNoeuds Nombres de noeuds attendus, à partir de la profondeur 1.
+     */
+    private Entry(final String pFEN, final long [] pNoeuds)
+    {
+      _fen = pFEN;
+      _nodes = pNoeuds;
+    }
+
+    /**
+     * Renvoi la profondeur maximale pour laquelle le nombre de noeuds est connu.
+     * 
+     * @return Profondeur maximale (>= 1).
+     */
+    public int getDepth()
+    {
+      return _nodes.length;
+    }
+
+    /**
+     * Renvoi la description FEN de la position.
+     * 
+     * @return Description FEN.
+     */
+    public String getFEN()
+    {
+      return _fen;
+    }
+
+    /**
+     * Renvoi le nombre de noeuds attendu à une profondeur.
+     * 
+     * @param pProfondeur Profondeur ([1, getDepth()]).
+     * @return Nombre de noeuds attendu.
+     */
+    public long getNodes(final int pProfondeur)
+    {
+      assert (pProfondeur >= 1) && (pProfondeur <= _nodes.length);
+
+      return _nodes[pProfondeur - 1];
+    }
+
+    /**
+     * Renvoi la description FEN et les nombres de noeuds attendus, au format EPD.
+     * 
+     * @return Chaine EPD.
+     */
+    @Override
+    public String toString()
+    {
+      final StringBuilder sb = new StringBuilder(_fen);
+      for (int i = 0; i < _nodes.length; i++)
+      {
+        sb.append(" ;D").append(i + 1).append(' ').append(_nodes[i]);
+      }
+
+      return sb.toString();
+    }
+
+    /**
+     * Interprète une ligne EPD de la forme "FEN ;D1 n1 ;D2 n2...".
+     * 
+     * @param pLigne Ligne EPD.
+     * @return Position de référence correspondante.
+     * @throws IOException En cas d'erreur dans le format de la ligne.
+     */
+    static Entry valueOf(final String pLigne) throws IOException
+    {
+      assert pLigne != null;
+
+      final String [] champs = pLigne.split(";");
+      final long [] noeuds = new long [ champs.length - 1 ];
+      for (int i = 1; i < champs.length; i++)
+      {
+        final String champ = champs[i].trim();
+        if (!champ.startsWith("D" + i + ' '))
+        {
+          throw new IOException("Invalid perft line [" + pLigne + ']');
+        }
+        try
+        {
+          noeuds[i - 1] = Long.parseLong(champ.substring(champ.indexOf(' ') + 1).trim());
+        }
+        catch (final NumberFormatException e)
+        {
+          throw new IOException("Invalid perft line [" + pLigne + ']', e);
+        }
+      }
+      if (noeuds.length == 0)
+      {
+        throw new IOException("Invalid perft line [" + pLigne + ']');
+      }
+
+      return new Entry(champs[0].trim(), noeuds);
+    }
+  }
+
+  /**
+   * Tâche dénombrant les noeuds d'un sous-arbre : celle de la racine répartit les sous-arbres de
+   * chacun des mouvements initiaux entre les threads du pool.
+   */
+  private static final class RootTask extends RecursiveTask<Long>
+  {
+    /** Identifiant de la classe pour la sérialisation. */
+    private static final long serialVersionUID = 1L;
+
+    /** Etat de départ. */
+    private final MoveGenerator _state;
+
+    /** Profondeur de l'arbre. */
+    private final int _depth;
+
+    /** Drapeau signalant la tâche de la racine. */
+    private final boolean _root;
+
+    /**
+     * Instancie une nouvelle tâche.
+     * 
+     * @param pEtat Etat de départ.
+     * @param pProfondeur Profondeur de l'arbre (> 1 pour la racine, >= 0 sinon).
+     */
+    RootTask(final MoveGenerator pEtat, final int pProfondeur)
+    {
+      this(pEtat, pProfondeur, true);
+    }
+
+    /**
+     * Instancie une nouvelle tâche.
+     * 
+     * @param pEtat Etat de départ.
+     * @param pProfondeur Profondeur de l'arbre.
+     * @param pRacine A "true" pour la tâche de la racine.
+     */
+    private RootTask(final MoveGenerator pEtat, final int pProfondeur, final boolean pRacine)
+    {
+      _state = pEtat;
+      _depth = pProfondeur;
+      _root = pRacine;
+    }
+
+    /**
+     * Dénombre les noeuds du sous-arbre.
+     * 
+     * @return Nombre de noeuds à la profondeur demandée.
+     */
+    @Override
+    protected Long compute()
+    {
+      if (!_root)
+      {
+        return Long.valueOf(perft(_state, _depth));
+      }
+
+      final List<RootTask> taches = new ArrayList<>();
+      for (final Move mvt : _state.getValidMoves(_state.isWhiteActive()))
+      {
+        taches.add(new RootTask(_state.derive(mvt, true), _depth - 1, false));
+      }
+      long res = 0;
+      for (final RootTask t : ForkJoinTask.invokeAll(taches))
+      {
+        res += t.join().longValue();
+      }
+
+      return Long.valueOf(res);
+    }
+  }
+}
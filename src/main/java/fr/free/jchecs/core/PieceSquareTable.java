@@ -0,0 +1,254 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.Constants.RANK_COUNT;
+
+/**
+ * Enumération des tables de bonus/malus liés à la position des pièces, utilisées par les fonctions
+ * d'évaluation.
+ * <p>
+ * Les totaux de ces tables sont maintenus de façon incrémentale par les représentations de
+ * l'échiquier (voir {@link Board#getPositionalBalance(PieceSquareTable)}) : une fonction
+ * d'évaluation peut donc en disposer sans parcourir le plateau.
+ * </p>
+ * <p>
+ * Les instances de cette classe sont des <b>singletons immuables</b> : classe sûre vis-à-vis des
+ * threads et permettant des comparaisons directes sur les références d'objets.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public enum PieceSquareTable
+{
+  /** Tables de la fonction d'évaluation "BoardControl" (pas de valeur de position pour le roi). */
+  BOARD_CONTROL(Positions.DEFAULT, null, Positions.KNIGHT, Positions.PAWN, Positions.DEFAULT,
+      Positions.DEFAULT),
+
+  /** Tables des pièces de la fonction d'évaluation "Mobility" (hors rois et pions). */
+  MOBILITY_PIECES(Positions.MOBILITY_BISHOP, null, Positions.MOBILITY_KNIGHT, null,
+      Positions.MOBILITY_QUEEN, Positions.MOBILITY_ROOK),
+
+  /**
+   * Table des pions de la fonction d'évaluation "Mobility", séparée des autres pièces car son
+   * poids dépend de la phase de la partie.
+   */
+  MOBILITY_PAWNS(null, null, null, Positions.MOBILITY_PAWN, null, null);
+
+  /** Bonus/Malus, indexés par type de pièce puis par case (du point de vue des blancs). */
+  private final int [][] _positions;
+
+  /**
+   * Instancie une table de positions.
+   * 
+   * @param pFou Bonus/Malus d'un fou blanc (null si aucun).
+   * @param pRoi Bonus/Malus d'un roi blanc (null si aucun).
+   * @param pCavalier Bonus/Malus d'un cavalier blanc (null si aucun).
+   * @param pPion Bonus/Malus d'un pion blanc (null si aucun).
+   * @param pReine Bonus/Malus d'une reine blanche (null si aucun).
+   * @param pTour Bonus/Malus d'une tour blanche (null si aucun).
+   */
+  private PieceSquareTable(final int [] pFou, final int [] pRoi, final int [] pCavalier,
+      final int [] pPion, final int [] pReine, final int [] pTour)
+  {
+    _positions = new int [][] { pFou, pRoi, pCavalier, pPion, pReine, pTour, };
+    assert _positions.length == PieceType.values().length;
+  }
+
+  /**
+   * Renvoi le bonus/malus d'une pièce en fonction de sa position.
+   * <p>
+   * Les tables sont décrites pour les blancs : elles sont lues en miroir pour les noirs.
+   * </p>
+   * 
+   * @param pPiece Pièce.
+   * @param pCase Case occupée par la pièce.
+   * @return Bonus/Malus de la pièce sur cette case (du point de vue de sa couleur).
+   */
+  public int getValue(final Piece pPiece, final Square pCase)
+  {
+    assert pPiece != null;
+    assert pCase != null;
+
+    final int [] table = _positions[pPiece.getType().ordinal()];
+    if (table == null)
+    {
+      return 0;
+    }
+
+    if (pPiece.isWhite())
+    {
+      return table[pCase.getIndex()];
+    }
+
+    return table[((RANK_COUNT - 1) - pCase.getRank()) * FILE_COUNT + pCase.getFile()];
+  }
+
+  /**
+   * Tables des bonus/malus (regroupées ici pour pouvoir être référencées par les constantes).
+   */
+  private static final class Positions
+  {
+    /**
+     * Bonus/Malus de base liés à la position d'une pièce (symétrique : adapté aux deux couleurs).
+     */
+    static final int [] DEFAULT = { 0, 0, 0, 0, 0, 0, 0, 0, // a1 ... h1
+      0, 0, 0, 5, 5, 0, 0, 0, // a2 ... h2
+      0, 0, 5, 5, 5, 5, 0, 0, // a3 ... h3
+      0, 5, 5, 10, 10, 5, 5, 0, // a4 ... h4
+      0, 5, 5, 10, 10, 5, 5, 0, // a5 ... h5
+      0, 0, 5, 5, 5, 5, 0, 0, // a6 ... h6
+      0, 0, 0, 5, 5, 0, 0, 0, // a7 ... h7
+      0, 0, 0, 0, 0, 0, 0, 0, // a8 ... h8
+    };
+    static
+    {
+      assert DEFAULT.length == 64;
+    }
+
+    /**
+     * Bonus/Malus d'un cavalier (blanc par défaut) en fonction de sa position.
+     */
+    static final int [] KNIGHT = { //  
+        -50, -30, -30, -30, -30, -30, -30, -50, // a1 ... h1
+          -30, -20, -20, -20, -20, -20, -20, -30, // a2 ... h2
+          -20, 0, 20, 20, 20, 20, 0, -20, // a3 ... h3
+          -20, 0, 20, 20, 20, 20, 0, -20, // a4 ... h4
+          -20, 0, 10, 20, 20, 10, 0, -20, // a5 ... h5
+          -20, 0, 10, 10, 10, 10, 0, -20, // a6 ... h6
+          -20, -10, 0, 0, 0, 0, -10, -20, // a7 ... h7
+          -40, -20, -20, -20, -20, -20, -20, -40, // a8 ... h8
+        };
+    static
+    {
+      assert KNIGHT.length == 64;
+    }
+
+    /**
+     * Bonus/Malus d'un pion (blanc par défaut) en fonction de sa position.
+     */
+    static final int [] PAWN = { 0, 0, 0, 0, 0, 0, 0, 0, // a1 ... h1
+      2, 2, 2, -2, -2, 2, 2, 2, // a2 ... h2
+      -2, -2, -2, 4, 4, -2, -2, -2, // a3 ... h3
+      0, 0, 0, 4, 4, 0, 0, 0, // a4 ... h4
+      2, 4, 6, 8, 8, 6, 4, 2, // a5 ... h5
+      4, 6, 8, 10, 10, 8, 6, 4, // a6 ... h6
+      4, 6, 8, 10, 10, 8, 6, 4, // a7 ... h7
+      500, 500, 500, 500, 500, 500, 500, 500, // a8 ... h8
+    };
+    static
+    {
+      assert PAWN.length == 64;
+    }
+
+    /**
+     * Bonus/Malus d'un fou (blanc par défaut) en fonction de sa position, pour "Mobility".
+     */
+    static final int [] MOBILITY_BISHOP = { -5, -5, -5, -5, -5, -5, -5, -5, // a1 ... h1
+      -5, 10, 5, 10, 10, 5, 10, -5, // a2 ... h2
+      -5, 5, 3, 12, 12, 3, 5, -5, // a3 ... h3
+      -5, 3, 12, 3, 3, 12, 3, -5, // a4 ... h4
+      -5, 3, 12, 3, 3, 12, 3, -5, // a5 ... h5
+      -5, 5, 3, 12, 12, 3, 5, -5, // a6 ... h6
+      -5, 10, 5, 10, 10, 5, 10, -5, // a7 ... h7
+      -5, -5, -5, -5, -5, -5, -5, -5, // a8 ... h8
+    };
+    static
+    {
+      assert MOBILITY_BISHOP.length == 64;
+    }
+
+    /**
+     * Bonus/Malus d'un cavalier (blanc par défaut) en fonction de sa position, pour "Mobility".
+     */
+    static final int [] MOBILITY_KNIGHT = { -10, -5, -3, -1, -1, -3, -5, -10, // a1 ... h1
+      -5, 0, 0, 3, 3, 0, 0, -5, // a2 ... h2
+      -3, 0, 5, 5, 5, 5, 0, -3, // a3 ... h3
+      -1, 1, 5, 10, 10, 5, 1, -1, // a4 ... h4
+      -1, 1, 7, 12, 12, 7, 1, -1, // a5 ... h5
+      -3, 0, 5, 7, 7, 5, 0, -3, // a6 ... h6
+      -5, 0, 0, 3, 3, 0, 0, -5, // a7 ... h7
+      -10, -5, -3, -1, -1, -3, -5, -10, // a8 ... h8
+    };
+    static
+    {
+      assert MOBILITY_KNIGHT.length == 64;
+    }
+
+    /**
+     * Bonus/Malus d'un pion (blanc par défaut) en fonction de sa position, pour "Mobility".
+     */
+    static final int [] MOBILITY_PAWN = { 0, 0, 0, 0, 0, 0, 0, 0, // a1 ... h1
+      0, 0, 0, -5, -5, 0, 0, 0, // a2 ... h2
+      1, 2, 4, 4, 4, 3, 2, 1, // a3 ... h3
+      2, 4, 7, 8, 8, 6, 4, 2, // a4 ... h4
+      3, 6, 11, 12, 12, 9, 6, 3, // a5 ... h5
+      4, 8, 12, 16, 16, 12, 8, 4, // a6 ... h6
+      5, 10, 15, 20, 20, 15, 10, 5, // a7 ... h7
+      100, 100, 100, 100, 100, 100, 100, 100, // a8 ... h8
+    };
+    static
+    {
+      assert MOBILITY_PAWN.length == 64;
+    }
+
+    /**
+     * Bonus/Malus d'une reine (blanche par défaut) en fonction de sa position, pour "Mobility".
+     */
+    static final int [] MOBILITY_QUEEN = { -5, -5, -5, 0, 0, -5, -5, -5, // a1 ... h1
+      0, 0, 3, 3, 3, 0, 0, 0, // a2 ... h2
+      0, 3, 3, 3, 3, 0, 0, 0, // a3 ... h3
+      0, 0, 0, 5, 5, 0, 0, 0, // a4 ... h4
+      0, 0, 0, 5, 5, 0, 0, 0, // a5 ... h5
+      -5, -5, 0, 0, 0, 0, 0, 0, // a6 ... h6
+      -5, -5, 0, 0, 0, 0, 0, 0, // a7 ... h7
+      -5, -5, 0, 0, 0, 0, 0, 0, // a8 ... h8
+    };
+    static
+    {
+      assert MOBILITY_QUEEN.length == 64;
+    }
+
+    /**
+     * Bonus/Malus d'une tour (blanche par défaut) en fonction de sa position, pour "Mobility".
+     */
+    static final int [] MOBILITY_ROOK = { 0, 0, 0, 5, 5, 0, 0, 0, // a1 ... h1
+      -2, 0, 0, 0, 0, 0, 0, -2, // a2 ... h2
+      -2, 0, 0, 0, 0, 0, 0, -2, // a3 ... h3
+      -2, 0, 0, 0, 0, 0, 0, -2, // a4 ... h4
+      -2, 0, 0, 0, 0, 0, 0, -2, // a5 ... h5
+      -2, 0, 0, 0, 0, 0, 0, -2, // a6 ... h6
+      10, 10, 10, 10, 10, 10, 10, 10, // a7 ... h7
+      0, 0, 0, 0, 0, 0, 0, 0, // a8 ... h8
+    };
+    static
+    {
+      assert MOBILITY_ROOK.length == 64;
+    }
+
+    /**
+     * Classe utilitaire.
+     */
+    private Positions()
+    {
+      // Rien de spécifique...
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+/**
+ * Interface mise à disposition par les générateurs de mouvements modifiables, capables d'appliquer
+ * puis d'annuler un mouvement sans créer de nouvel état.
+ * <p>
+ * Contrairement aux autres implémentations de {@link Board}, ces instances ne sont pas immuables :
+ * elles sont destinées à être parcourues par un unique thread, typiquement pendant une recherche
+ * d'IA, et ne doivent être ni partagées ni conservées. Les méthodes de dérivation continuent à
+ * renvoyer des copies indépendantes et immuables de l'état courant.
+ * </p>
+ * <p>
+ * Les mouvements peuvent y être manipulés sous la forme des entiers renvoyés par
+ * {@link Move#toId()}, stockés dans des {@link MoveList} réutilisables : une recherche n'a alors
+ * plus besoin d'instancier le moindre {@link Move}.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+public interface ReversibleMoveGenerator extends MoveGenerator
+{
+  /**
+   * Renvoi le nombre de mouvements appliqués et pas encore annulés.
+   * 
+   * @return Nombre de mouvements annulables (>= 0).
+   */
+  int getPly();
+
+  /**
+   * Alimente une liste avec les identifiants de tous les mouvements valides pour une couleur, dans
+   * le même ordre que {@link #getValidMoves(boolean)}.
+   * 
+   * @param pTrait Positionné à "true" pour indiquer une recherche pour les blancs.
+   * @param pMouvements Liste à alimenter (vidée au préalable).
+   * @return Nombre de mouvements valides.
+   */
+  int getValidMoves(final boolean pTrait, final MoveList pMouvements);
+
+  /**
+   * Applique un mouvement identifié par un entier, comme {@link #makeMove(Move)}.
+   * 
+   * @param pMouvement Identifiant ({@link Move#toId()}) d'un mouvement valide pour l'état courant.
+   */
+  void makeMove(final int pMouvement);
+
+  /**
+   * Applique un mouvement à l'état courant et donne le trait à l'adversaire, comme le ferait
+   * {@link #derive(Move, boolean) derive(pMouvement, true)}.
+   * 
+   * @param pMouvement Mouvement valide pour l'état courant.
+   */
+  void makeMove(final Move pMouvement);
+
+  /**
+   * Passe le trait à l'adversaire sans déplacer de pièce (coup nul), en supprimant l'éventuelle
+   * case "en passant". Le coup nul compte comme un demi-coup pour {@link #getPly()}.
+   * <p>
+   * Un coup nul n'est pas un mouvement légal : il ne doit pas être appliqué lorsque le roi du camp
+   * ayant le trait est en échec.
+   * </p>
+   */
+  void makeNullMove();
+
+  /**
+   * Annule le dernier mouvement appliqué par {@link #makeMove(Move)}, {@link #makeMove(int)} ou
+   * {@link #makeNullMove()}.
+   */
+  void unmakeMove();
+}
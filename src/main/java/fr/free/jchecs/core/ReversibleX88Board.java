@@ -0,0 +1,176 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
+import static fr.free.jchecs.core.PieceType.KING;
+
+/**
+ * Représentation x88 modifiable d'un état de la partie, appliquant et annulant les mouvements sur
+ * place.
+ * <p>
+ * Les informations nécessaires à l'annulation d'un mouvement sont conservées dans une
+ * {@link UndoStack} : une fois la pile dimensionnée, un cycle {@link #makeMove(int)} /
+ * {@link #unmakeMove()} ne provoque aucune allocation.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class ReversibleX88Board extends X88Board implements ReversibleMoveGenerator
+{
+  /** Identifiant de la classe pour la sérialisation. */
+  private static final long serialVersionUID = -3107415938613735092L;
+
+  /** Pile d'annulation des mouvements. */
+  private final UndoStack _history = new UndoStack();
+
+  /**
+   * Crée une nouvelle instance, initialisée à partir de l'état reçu en paramètre.
+   * 
+   * @param pEtat Instance initial.
+   */
+  ReversibleX88Board(final Board pEtat)
+  {
+    super(pEtat);
+  }
+
+  /**
+   * Renvoi le nombre de mouvements appliqués et pas encore annulés.
+   * 
+   * @return Nombre de mouvements annulables (>= 0).
+   */
+  public int getPly()
+  {
+    return _history.size();
+  }
+
+  /**
+   * Applique un mouvement identifié par un entier à l'état courant et donne le trait à
+   * l'adversaire.
+   * 
+   * @param pMouvement Identifiant ({@link Move#toId()}) d'un mouvement valide pour l'état courant.
+   */
+  public void makeMove(final int pMouvement)
+  {
+    final int dst = Move.toOf(pMouvement);
+    _history.push(this, pMouvement, _pieces[(dst >> 3) * 16 + (dst & 7)], _hashCode,
+        _zobristKey, _balance, _structure, _pawnZobristKey);
+    play(pMouvement, true);
+  }
+
+  /**
+   * Applique un mouvement à l'état courant et donne le trait à l'adversaire.
+   * 
+   * @param pMouvement Mouvement valide pour l'état courant.
+   */
+  public void makeMove(final Move pMouvement)
+  {
+    assert pMouvement != null;
+
+    makeMove(pMouvement.toId());
+  }
+
+  /**
+   * Passe le trait à l'adversaire sans déplacer de pièce (coup nul).
+   */
+  public void makeNullMove()
+  {
+    _history.push(this, 0, null, _hashCode, _zobristKey, _balance, _structure, _pawnZobristKey);
+    final boolean t = !isWhiteActive();
+    setWhiteActive(t);
+    _hashCode ^= ZOBRIST_WHITE_ACTIVE;
+    _zobristKey ^= ZOBRIST64_WHITE_ACTIVE;
+    if (t)
+    {
+      setFullmoveNumber(getFullmoveNumber() + 1);
+    }
+    setHalfmoveCount(getHalfmoveCount() + 1);
+    final Square ep = getEnPassant();
+    if (ep != null)
+    {
+      _hashCode ^= ZOBRIST_EN_PASSANT[ep.getFile()];
+      _zobristKey ^= ZOBRIST64_EN_PASSANT[ep.getFile()];
+      setEnPassant(null);
+    }
+  }
+
+  /**
+   * Annule le dernier mouvement (éventuellement nul) appliqué.
+   */
+  public void unmakeMove()
+  {
+    final int mvt = _history.pop(this);
+    if (mvt == 0)
+    {
+      // Coup nul : seules les clés dépendant du trait et de la case "en passant" ont changé.
+      _hashCode = _history.getHashCode();
+      _zobristKey = _history.getZobristKey();
+      return;
+    }
+    final Piece prise = _history.getCaptured();
+
+    final Piece piece = Move.pieceOf(mvt);
+    final boolean trait = piece.isWhite();
+    final Square src = Square.valueOf(Move.fromOf(mvt));
+    final Square dst = Square.valueOf(Move.toOf(mvt));
+    final int i88Src = src.getRank() * 16 + src.getFile();
+    final int i88Dst = dst.getRank() * 16 + dst.getFile();
+    _pieces[i88Src] = piece;
+    if (!_history.isEnPassantCapture())
+    {
+      _pieces[i88Dst] = prise;
+    }
+    else
+    {
+      _pieces[i88Dst] = null;
+      if (trait)
+      {
+        _pieces[i88Dst - 16] = prise;
+      }
+      else
+      {
+        _pieces[i88Dst + 16] = prise;
+      }
+    }
+    if (piece.getType() == KING)
+    {
+      setKingSquare(trait, src);
+      if (src.getFile() == 4)
+      {
+        final int xDst = dst.getFile();
+        final int i88 = i88Dst - xDst;
+        if (xDst == 2)
+        {
+          _pieces[i88] = _pieces[i88 + 3];
+          _pieces[i88 + 3] = null;
+        }
+        else if (xDst == 6)
+        {
+          _pieces[i88 + FILE_COUNT - 1] = _pieces[i88 + 5];
+          _pieces[i88 + 5] = null;
+        }
+      }
+    }
+    _hashCode = _history.getHashCode();
+    _zobristKey = _history.getZobristKey();
+    _balance = _history.getBalance();
+    _structure = _history.getStructure();
+    _pawnZobristKey = _history.getPawnZobristKey();
+  }
+}
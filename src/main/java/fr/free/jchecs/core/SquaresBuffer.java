@@ -0,0 +1,130 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+/**
+ * Buffer de travail utilisé par les générateurs de mouvements pour accumuler les indices des cases
+ * cibles.
+ * <p>
+ * Chaque thread dispose de sa propre instance (voir {@link #current()}) : les recherches menées en
+ * parallèle par plusieurs moteurs ne se disputent donc plus un buffer statique commun, et aucune
+ * synchronisation n'est nécessaire.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class SquaresBuffer
+{
+  /** Buffers de travail, un par thread. */
+  private static final ThreadLocal<SquaresBuffer> BUFFERS = new ThreadLocal<SquaresBuffer>()
+  {
+    /**
+     * Crée le buffer d'un thread lors de sa première utilisation.
+     * 
+     * @return Nouveau buffer.
+     */
+    @Override
+    protected SquaresBuffer initialValue()
+    {
+      return new SquaresBuffer();
+    }
+  };
+
+  // 27 est le nombre maximum de cases cibles pour une pièce (une dame, dans le meilleur des cas).
+  /** Indices des cases cibles. */
+  private final int [] _squares = new int [ 27 ];
+
+  /** Nombre d'éléments valides dans le buffer. */
+  private int _size;
+
+  /**
+   * Crée un nouveau buffer vide.
+   */
+  SquaresBuffer()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Ajoute l'indice d'une case cible au buffer.
+   * 
+   * @param pIndice Indice de la case (dans la représentation du générateur appelant).
+   */
+  void add(final int pIndice)
+  {
+    _squares[_size++] = pIndice;
+  }
+
+  /**
+   * Vide le buffer et le renvoi, pour permettre l'enchaînement des appels.
+   * 
+   * @return Buffer vidé.
+   */
+  SquaresBuffer clear()
+  {
+    _size = 0;
+
+    return this;
+  }
+
+  /**
+   * Renvoi l'indice de case mémorisé à une position du buffer.
+   * 
+   * @param pPosition Position dans le buffer ([0, size()[).
+   * @return Indice de case mémorisé (ou -1 si la position a été invalidée).
+   */
+  int get(final int pPosition)
+  {
+    assert (pPosition >= 0) && (pPosition < _size);
+
+    return _squares[pPosition];
+  }
+
+  /**
+   * Invalide une position du buffer, en y stockant la valeur -1.
+   * 
+   * @param pPosition Position à invalider ([0, size()[).
+   */
+  void invalidate(final int pPosition)
+  {
+    assert (pPosition >= 0) && (pPosition < _size);
+
+    _squares[pPosition] = -1;
+  }
+
+  /**
+   * Renvoi le nombre d'éléments mémorisés dans le buffer.
+   * 
+   * @return Nombre d'éléments (>= 0).
+   */
+  int size()
+  {
+    return _size;
+  }
+
+  /**
+   * Renvoi le buffer de travail propre au thread courant, vidé.
+   * 
+   * @return Buffer du thread courant.
+   */
+  static SquaresBuffer current()
+  {
+    return BUFFERS.get().clear();
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static fr.free.jchecs.core.PieceType.PAWN;
+
+import java.util.Arrays;
+
+/**
+ * Pile des informations nécessaires à l'annulation des mouvements appliqués sur place par les
+ * générateurs de mouvements réversibles.
+ * <p>
+ * Pour chaque mouvement sont conservés la pièce prise, les droits de roquer, les roques
+ * effectués, la case "en passant", le compteur de demi-coups, les clés de hachage et les bilans
+ * maintenus pour les fonctions d'évaluation, dans des
+ * tableaux de types primitifs réutilisés d'un mouvement à l'autre : une fois la pile dimensionnée,
+ * empiler et dépiler ne provoque aucune allocation.
+ * </p>
+ * 
+ * @author David Cotton
+ */
+final class UndoStack
+{
+  /** Profondeur initiale de la pile. */
+  private static final int INITIAL_DEPTH = 64;
+
+  /** Drapeau du droit au petit roque des blancs. */
+  private static final int WHITE_CASTLE_SHORT = 1;
+
+  /** Drapeau du droit au grand roque des blancs. */
+  private static final int WHITE_CASTLE_LONG = 1 << 1;
+
+  /** Drapeau du droit au petit roque des noirs. */
+  private static final int BLACK_CASTLE_SHORT = 1 << 2;
+
+  /** Drapeau du droit au grand roque des noirs. */
+  private static final int BLACK_CASTLE_LONG = 1 << 3;
+
+  /** Drapeau indiquant que les blancs ont roqué. */
+  private static final int WHITE_CASTLED = 1 << 4;
+
+  /** Drapeau indiquant que les noirs ont roqué. */
+  private static final int BLACK_CASTLED = 1 << 5;
+
+  /** Drapeau indiquant une prise "en passant". */
+  private static final int EN_PASSANT_CAPTURE = 1 << 6;
+
+  /** Décalage de l'indice (+ 1) de la case "en passant" dans les drapeaux. */
+  private static final int EN_PASSANT_SHIFT = 7;
+
+  /** Pile des identifiants des mouvements appliqués. */
+  private int [] _moves = new int [ INITIAL_DEPTH ];
+
+  /** Pile des pièces prises (ou null). */
+  private Piece [] _captures = new Piece [ INITIAL_DEPTH ];
+
+  /** Pile des drapeaux d'état (droits de roquer, roques effectués, case "en passant"). */
+  private int [] _flags = new int [ INITIAL_DEPTH ];
+
+  /** Pile des compteurs de demi-coups. */
+  private int [] _halfmoves = new int [ INITIAL_DEPTH ];
+
+  /** Pile des clés de hachage. */
+  private int [] _hashCodes = new int [ INITIAL_DEPTH ];
+
+  /** Pile des clés "Zobrist" sur 64 bits. */
+  private long [] _zobristKeys = new long [ INITIAL_DEPTH ];
+
+  /** Pile des clés "Zobrist" sur 64 bits des structures de pions. */
+  private long [] _pawnZobristKeys = new long [ INITIAL_DEPTH ];
+
+  /** Pile des bilans matériels et positionnels. */
+  private long [] _balances = new long [ INITIAL_DEPTH ];
+
+  /** Pile des structures (nombre de pièces et de pions par colonne). */
+  private long [] _structures = new long [ INITIAL_DEPTH ];
+
+  /** Nombre d'éléments empilés. */
+  private int _size;
+
+  /**
+   * Crée une nouvelle pile vide.
+   */
+  UndoStack()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Renvoi le bilan matériel et positionnel de l'état précédant le dernier mouvement dépilé.
+   * 
+   * @return Bilan matériel et positionnel.
+   */
+  long getBalance()
+  {
+    return _balances[_size];
+  }
+
+  /**
+   * Renvoi la pièce prise par le dernier mouvement dépilé.
+   * 
+   * @return Pièce prise (ou null).
+   */
+  Piece getCaptured()
+  {
+    return _captures[_size];
+  }
+
+  /**
+   * Renvoi la clé de hachage de l'état précédant le dernier mouvement dépilé.
+   * 
+   * @return Clé de hachage.
+   */
+  int getHashCode()
+  {
+    return _hashCodes[_size];
+  }
+
+  /**
+   * Renvoi la clé "Zobrist" de la structure de pions de l'état précédant le dernier mouvement
+   * dépilé.
+   * 
+   * @return Clé "Zobrist" sur 64 bits de la structure de pions.
+   */
+  long getPawnZobristKey()
+  {
+    return _pawnZobristKeys[_size];
+  }
+
+  /**
+   * Renvoi la structure de l'état précédant le dernier mouvement dépilé.
+   * 
+   * @return Structure (nombre de pièces et de pions par colonne).
+   */
+  long getStructure()
+  {
+    return _structures[_size];
+  }
+
+  /**
+   * Renvoi la clé "Zobrist" de l'état précédant le dernier mouvement dépilé.
+   * 
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  long getZobristKey()
+  {
+    return _zobristKeys[_size];
+  }
+
+  /**
+   * Indique si le dernier mouvement dépilé était une prise "en passant".
+   * 
+   * @return Vrai pour une prise "en passant".
+   */
+  boolean isEnPassantCapture()
+  {
+    return (_flags[_size] & EN_PASSANT_CAPTURE) != 0;
+  }
+
+  /**
+   * Dépile le dernier mouvement, en restaurant le trait, les compteurs, les droits de roquer et la
+   * case "en passant" de l'état. La restauration des pièces et des clés reste à la charge de
+   * l'appelant, à l'aide des autres accesseurs.
+   * 
+   * @param pEtat Etat auquel le mouvement avait été appliqué.
+   * @return Identifiant du mouvement dépilé (voir {@link Move#toId()}), ou 0 pour un coup nul.
+   */
+  int pop(final AbstractMoveGenerator pEtat)
+  {
+    assert pEtat != null;
+    assert _size > 0;
+
+    final int n = --_size;
+    final int res = _moves[n];
+    final int drapeaux = _flags[n];
+
+    final boolean trait;
+    if (res == 0)
+    {
+      trait = !pEtat.isWhiteActive();
+    }
+    else
+    {
+      trait = Move.pieceOf(res).isWhite();
+    }
+    pEtat.setWhiteActive(trait);
+    if (!trait)
+    {
+      pEtat.setFullmoveNumber(pEtat.getFullmoveNumber() - 1);
+    }
+    pEtat.setHalfmoveCount(_halfmoves[n]);
+    pEtat.setCastleShort(true, (drapeaux & WHITE_CASTLE_SHORT) != 0);
+    pEtat.setCastleLong(true, (drapeaux & WHITE_CASTLE_LONG) != 0);
+    pEtat.setCastleShort(false, (drapeaux & BLACK_CASTLE_SHORT) != 0);
+    pEtat.setCastleLong(false, (drapeaux & BLACK_CASTLE_LONG) != 0);
+    pEtat.setCastled(true, (drapeaux & WHITE_CASTLED) != 0);
+    pEtat.setCastled(false, (drapeaux & BLACK_CASTLED) != 0);
+    final int ep = drapeaux >>> EN_PASSANT_SHIFT;
+    if (ep == 0)
+    {
+      pEtat.setEnPassant(null);
+    }
+    else
+    {
+      pEtat.setEnPassant(Square.valueOf(ep - 1));
+    }
+
+    return res;
+  }
+
+  /**
+   * Empile les informations permettant d'annuler un mouvement, avant son application.
+   * 
+   * @param pEtat Etat auquel le mouvement va être appliqué.
+   * @param pMouvement Identifiant du mouvement (voir {@link Move#toId()}), ou 0 pour un coup nul.
+   * @param pCible Pièce présente sur la case cible du mouvement (ou null).
+   * @param pHashCode Clé de hachage de l'état.
+   * @param pZobristKey Clé "Zobrist" sur 64 bits de l'état.
+   * @param pBilan Bilan matériel et positionnel de l'état.
+   * @param pStructure Structure (nombre de pièces et de pions par colonne) de l'état.
+   * @param pPawnZobristKey Clé "Zobrist" sur 64 bits de la structure de pions de l'état.
+   */
+  void push(final AbstractMoveGenerator pEtat, final int pMouvement, final Piece pCible,
+      final int pHashCode, final long pZobristKey, final long pBilan, final long pStructure,
+      final long pPawnZobristKey)
+  {
+    assert pEtat != null;
+
+    final int n = _size;
+    if (n == _moves.length)
+    {
+      final int taille = n * 2;
+      _moves = Arrays.copyOf(_moves, taille);
+      _captures = Arrays.copyOf(_captures, taille);
+      _flags = Arrays.copyOf(_flags, taille);
+      _halfmoves = Arrays.copyOf(_halfmoves, taille);
+      _hashCodes = Arrays.copyOf(_hashCodes, taille);
+      _zobristKeys = Arrays.copyOf(_zobristKeys, taille);
+      _balances = Arrays.copyOf(_balances, taille);
+      _structures = Arrays.copyOf(_structures, taille);
+      _pawnZobristKeys = Arrays.copyOf(_pawnZobristKeys, taille);
+    }
+
+    int drapeaux = 0;
+    if (pEtat.canCastleShort(true))
+    {
+      drapeaux |= WHITE_CASTLE_SHORT;
+    }
+    if (pEtat.canCastleLong(true))
+    {
+      drapeaux |= WHITE_CASTLE_LONG;
+    }
+    if (pEtat.canCastleShort(false))
+    {
+      drapeaux |= BLACK_CASTLE_SHORT;
+    }
+    if (pEtat.canCastleLong(false))
+    {
+      drapeaux |= BLACK_CASTLE_LONG;
+    }
+    if (pEtat.isCastled(true))
+    {
+      drapeaux |= WHITE_CASTLED;
+    }
+    if (pEtat.isCastled(false))
+    {
+      drapeaux |= BLACK_CASTLED;
+    }
+    Piece prise = pCible;
+    final Square ep = pEtat.getEnPassant();
+    if (ep != null)
+    {
+      drapeaux |= (ep.getIndex() + 1) << EN_PASSANT_SHIFT;
+      if ((prise == null) && (pMouvement != 0) && (Move.toOf(pMouvement) == ep.getIndex())
+          && (Move.pieceOf(pMouvement).getType() == PAWN))
+      {
+        drapeaux |= EN_PASSANT_CAPTURE;
+        prise = Move.capturedOf(pMouvement);
+      }
+    }
+
+    _moves[n] = pMouvement;
+    _captures[n] = prise;
+    _flags[n] = drapeaux;
+    _halfmoves[n] = pEtat.getHalfmoveCount();
+    _hashCodes[n] = pHashCode;
+    _zobristKeys[n] = pZobristKey;
+    _balances[n] = pBilan;
+    _structures[n] = pStructure;
+    _pawnZobristKeys[n] = pPawnZobristKey;
+    _size = n + 1;
+  }
+
+  /**
+   * Renvoi le nombre de mouvements empilés.
+   * 
+   * @return Nombre de mouvements (>= 0).
+   */
+  int size()
+  {
+    return _size;
+  }
+}
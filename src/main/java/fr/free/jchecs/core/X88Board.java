@@ -38,14 +38,15 @@ import static fr.free.jchecs.core.PieceType.ROOK;
  * Cette représentation est plus performante que la représentation naturelle avec un tableau à deux
  * dimensions, tout en restant moins complexe que les BitBoards.
  * </p>
+ * <p>
+ * La validité des mouvements est contrôlée par un test d'attaque sur la case du roi, sans
+ * construire l'état résultant.
+ * </p>
  * 
  * @author David Cotton
  */
-final class X88Board extends AbstractMoveGenerator
+class X88Board extends AbstractMoveGenerator
 {
-  /** Indice du dernier élément valide dans les buffer de travail des cases. */
-  private static int S_nbBufferedSquares;
-
   /** Identifiant de la classe pour la sérialisation. */
   private static final long serialVersionUID = 7427708516011286821L;
 
@@ -61,6 +62,9 @@ final class X88Board extends AbstractMoveGenerator
         -1, -1, 48, 49, 50, 51, 52, 53, 54, 55, -1, -1, -1, -1, -1, -1, -1, -1, 56, 57, 58, 59, 60,
         61, 62, 63, -1, -1, -1, -1, -1, -1, -1, -1, };
 
+  /** Liste des modificateurs pour les mouvements d'un fou. */
+  private static final int [] BISHOP_MOVES = { -17, -15, 15, 17 };
+
   /** Liste des modificateurs pour les mouvements d'un roi. */
   private static final int [] KING_MOVES = { -17, -16, -15, -1, 1, 15, 16, 17 };
 
@@ -70,21 +74,26 @@ final class X88Board extends AbstractMoveGenerator
   /** Liste de cases cibles vides. */
   private static final Square [] NO_SQUARE = new Square [ 0 ];
 
-  /**
-   * Buffer de travail pour optimiser la recherche des cibles de mouvements.
-   * <p>
-   * L'utilisation d'un buffer statique optimise les performances mais nécessite de faire très
-   * attention à la synchronisation pour que la classe reste sûre vis-à-vis des threads.
-   * </p>
-   */
-  // 27 est le nombre maximum de cases cibles pour une pièce (une dame, dans le meilleur des cas).
-  private static final int [] SQUARES_BUFFER = new int [ 27 ];
+  /** Liste des modificateurs pour les mouvements d'une tour. */
+  private static final int [] ROOK_MOVES = { -16, -1, 1, 16 };
 
   /** Description du plateau. */
-  private final Piece [] _pieces = new Piece [ FILE_COUNT * RANK_COUNT * 2 - FILE_COUNT ];
+  final Piece [] _pieces = new Piece [ FILE_COUNT * RANK_COUNT * 2 - FILE_COUNT ];
 
   /** Clé de hachage. */
-  private int _hashCode;
+  int _hashCode;
+
+  /** Bilan matériel et positionnel. */
+  long _balance;
+
+  /** Structure (nombre de pièces et de pions par colonne). */
+  long _structure;
+
+  /** Clé "Zobrist" sur 64 bits de la structure de pions. */
+  long _pawnZobristKey;
+
+  /** Clé "Zobrist" sur 64 bits. */
+  long _zobristKey;
 
   /**
    * Crée une nouvelle instance, initialisée à partir de l'état reçu en paramètre.
@@ -100,6 +109,10 @@ final class X88Board extends AbstractMoveGenerator
       _pieces[s.getRank() * 16 + s.getFile()] = pEtat.getPieceAt(s);
     }
     _hashCode = super.hashCode();
+    _zobristKey = super.zobristKey();
+    _balance = super.balance();
+    _structure = super.structure();
+    _pawnZobristKey = super.pawnZobristKey();
   }
 
   /**
@@ -113,15 +126,20 @@ final class X88Board extends AbstractMoveGenerator
 
     System.arraycopy(pEtat._pieces, 0, _pieces, 0, _pieces.length);
     _hashCode = pEtat._hashCode;
+    _zobristKey = pEtat._zobristKey;
+    _balance = pEtat._balance;
+    _structure = pEtat._structure;
+    _pawnZobristKey = pEtat._pawnZobristKey;
   }
 
   /**
-   * Ajoute au buffer interne toutes les cases cibles des mouvements possibles (y compris ceux
+   * Ajoute au buffer toutes les cases cibles des mouvements possibles (y compris ceux
    * mettant le roi en échec) pour la pièce contenue par une case.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    */
-  private void addAllTargets(final int pOrigine)
+  private void addAllTargets(final SquaresBuffer pBuffer, final int pOrigine)
   {
     assert (pOrigine & X88) == 0;
 
@@ -132,23 +150,23 @@ final class X88Board extends AbstractMoveGenerator
       switch (piece.getType())
       {
         case BISHOP :
-          addBishopTargets(pOrigine, trait);
+          addBishopTargets(pBuffer, pOrigine, trait);
           break;
         case KING :
-          addKingTargets(pOrigine, trait);
+          addKingTargets(pBuffer, pOrigine, trait);
           break;
         case KNIGHT :
-          addKnightTargets(pOrigine, trait);
+          addKnightTargets(pBuffer, pOrigine, trait);
           break;
         case PAWN :
-          addPawnTargets(pOrigine, trait);
+          addPawnTargets(pBuffer, pOrigine, trait);
           break;
         case QUEEN :
-          addBishopTargets(pOrigine, trait);
-          addRookTargets(pOrigine, trait);
+          addBishopTargets(pBuffer, pOrigine, trait);
+          addRookTargets(pBuffer, pOrigine, trait);
           break;
         case ROOK :
-          addRookTargets(pOrigine, trait);
+          addRookTargets(pBuffer, pOrigine, trait);
           break;
         default :
           assert false;
@@ -157,13 +175,15 @@ final class X88Board extends AbstractMoveGenerator
   }
 
   /**
-   * Ajoute au buffer interne toutes les cases cibles possibles d'un mouvement de type "fou" d'une
+   * Ajoute au buffer toutes les cases cibles possibles d'un mouvement de type "fou" d'une
    * certaine couleur (y compris ceux mettant le roi en échec) à partir d'une case.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    * @param pBlanc Positionné à vrai si la recherche concerne les blancs.
    */
-  private void addBishopTargets(final int pOrigine, final boolean pBlanc)
+  private void addBishopTargets(final SquaresBuffer pBuffer, final int pOrigine,
+      final boolean pBlanc)
   {
     assert (pOrigine & X88) == 0;
 
@@ -174,13 +194,13 @@ final class X88Board extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -194,13 +214,13 @@ final class X88Board extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -214,13 +234,13 @@ final class X88Board extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -234,13 +254,13 @@ final class X88Board extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -249,13 +269,15 @@ final class X88Board extends AbstractMoveGenerator
   }
 
   /**
-   * Ajoute au buffer interne la liste des cases pouvant être atteintes par un mouvement de type
+   * Ajoute au buffer la liste des cases pouvant être atteintes par un mouvement de type
    * roi.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
    */
-  private void addKingTargets(final int pOrigine, final boolean pBlanc)
+  private void addKingTargets(final SquaresBuffer pBuffer, final int pOrigine,
+      final boolean pBlanc)
   {
     assert (pOrigine & X88) == 0;
 
@@ -268,7 +290,7 @@ final class X88Board extends AbstractMoveGenerator
         final Piece p = _pieces[dst];
         if ((p == null) || (p.isWhite() != pBlanc))
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
           testerRoque = true;
         }
       }
@@ -281,7 +303,7 @@ final class X88Board extends AbstractMoveGenerator
         final Piece t = _pieces[pOrigine + 3];
         if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine + 2;
+          pBuffer.add(pOrigine + 2);
         }
       }
       if (canCastleLong(pBlanc) && (_pieces[pOrigine - 1] == null)
@@ -290,20 +312,22 @@ final class X88Board extends AbstractMoveGenerator
         final Piece t = _pieces[pOrigine - 4];
         if ((t != null) && (t.getType() == ROOK) && (t.isWhite() == pBlanc))
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine - 2;
+          pBuffer.add(pOrigine - 2);
         }
       }
     }
   }
 
   /**
-   * Ajoute au buffer interne la liste des cases pouvant être atteintes par un mouvement de type
+   * Ajoute au buffer la liste des cases pouvant être atteintes par un mouvement de type
    * cavalier.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
    */
-  private void addKnightTargets(final int pOrigine, final boolean pBlanc)
+  private void addKnightTargets(final SquaresBuffer pBuffer, final int pOrigine,
+      final boolean pBlanc)
   {
     assert (pOrigine & X88) == 0;
 
@@ -315,20 +339,22 @@ final class X88Board extends AbstractMoveGenerator
         final Piece p = _pieces[dst];
         if ((p == null) || (p.isWhite() != pBlanc))
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
       }
     }
   }
 
   /**
-   * Ajoute au buffer interne la liste des cases pouvant être atteintes par un mouvement de type
+   * Ajoute au buffer la liste des cases pouvant être atteintes par un mouvement de type
    * pion.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    * @param pBlanc A vrai pour indiquer une recherche sur les blancs.
    */
-  private void addPawnTargets(final int pOrigine, final boolean pBlanc)
+  private void addPawnTargets(final SquaresBuffer pBuffer, final int pOrigine,
+      final boolean pBlanc)
   {
     assert (pOrigine & X88) == 0;
 
@@ -340,11 +366,11 @@ final class X88Board extends AbstractMoveGenerator
         // Mouvement de 1...
         if (_pieces[pOrigine + 16] == null)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine + 16;
+          pBuffer.add(pOrigine + 16);
           // Mouvement initial de 2
           if ((ySrc == 1) && (_pieces[pOrigine + 32] == null))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine + 32;
+            pBuffer.add(pOrigine + 32);
           }
         }
         final int xSrc = pOrigine & 0xF;
@@ -356,7 +382,7 @@ final class X88Board extends AbstractMoveGenerator
           if (((pDest != null) && (!pDest.isWhite()))
               || (Square.valueOf(FROM_X88[iDest]) == getEnPassant()))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
+            pBuffer.add(iDest);
           }
         }
         if (xSrc < FILE_COUNT - 1)
@@ -367,7 +393,7 @@ final class X88Board extends AbstractMoveGenerator
           if (((pDest != null) && (!pDest.isWhite()))
               || (Square.valueOf(FROM_X88[iDest]) == getEnPassant()))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
+            pBuffer.add(iDest);
           }
         }
       }
@@ -379,11 +405,11 @@ final class X88Board extends AbstractMoveGenerator
         // Mouvement de 1...
         if (_pieces[pOrigine - 16] == null)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine - 16;
+          pBuffer.add(pOrigine - 16);
           // Mouvement initial de 2
           if ((ySrc == RANK_COUNT - 2) && (_pieces[pOrigine - 32] == null))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = pOrigine - 32;
+            pBuffer.add(pOrigine - 32);
           }
         }
         final int xSrc = pOrigine & 0xF;
@@ -395,7 +421,7 @@ final class X88Board extends AbstractMoveGenerator
           if (((pDest != null) && pDest.isWhite())
               || (Square.valueOf(FROM_X88[iDest]) == getEnPassant()))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
+            pBuffer.add(iDest);
           }
         }
         if (xSrc < FILE_COUNT - 1)
@@ -406,7 +432,7 @@ final class X88Board extends AbstractMoveGenerator
           if (((pDest != null) && pDest.isWhite())
               || (Square.valueOf(FROM_X88[iDest]) == getEnPassant()))
           {
-            SQUARES_BUFFER[S_nbBufferedSquares++] = iDest;
+            pBuffer.add(iDest);
           }
         }
       }
@@ -414,13 +440,15 @@ final class X88Board extends AbstractMoveGenerator
   }
 
   /**
-   * Ajoute au buffer interne toutes les cases cibles possibles d'un mouvement de type "tour" d'une
+   * Ajoute au buffer toutes les cases cibles possibles d'un mouvement de type "tour" d'une
    * certaine couleur (y compris ceux mettant le roi en échec) à partir d'une case.
    * 
+   * @param pBuffer Buffer de travail recevant les indices des cases cibles.
    * @param pOrigine Indice de la case à l'origine du mouvement.
    * @param pBlanc Mis à vrai pour rechercher pour les blancs.
    */
-  private void addRookTargets(final int pOrigine, final boolean pBlanc)
+  private void addRookTargets(final SquaresBuffer pBuffer, final int pOrigine,
+      final boolean pBlanc)
   {
     assert (pOrigine & X88) == 0;
 
@@ -431,13 +459,13 @@ final class X88Board extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -451,13 +479,13 @@ final class X88Board extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -471,13 +499,13 @@ final class X88Board extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
@@ -491,222 +519,133 @@ final class X88Board extends AbstractMoveGenerator
       final Piece p = _pieces[dst];
       if (p == null)
       {
-        SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+        pBuffer.add(dst);
       }
       else
       {
         if (p.isWhite() != pBlanc)
         {
-          SQUARES_BUFFER[S_nbBufferedSquares++] = dst;
+          pBuffer.add(dst);
         }
         break;
       }
       dst -= 16;
     }
   }
-
   /**
-   * Renvoi une nouvelle instance, initialisée à partir d'un état quelconque.
+   * Ajoute à un buffer les cases cibles des mouvements possibles pour la pièce contenue par une
+   * case, puis invalide celles des mouvements laissant le roi en échec.
    * 
-   * @param pEtat Etat de départ.
-   * @return Copie de l'état.
+   * @param pBuffer Buffer de stockage des indices (x88) des cases cibles.
+   * @param pOrigine Indice (x88) de la case à l'origine du mouvement.
+   * @return Nombre de cases cibles valides restant dans le buffer.
    */
-  public MoveGenerator derive(final Board pEtat)
-  {
-    assert pEtat != null;
-
-    return new X88Board(pEtat);
-  }
-
-  /**
-   * Renvoi une nouvelle instance décrivant l'état du jeu après application d'un mouvement.
-   * 
-   * @param pMouvement Description de mouvement.
-   * @param pSuivant Drapeau positionné si l'on souhaite que le trait soit modifié.
-   * @return Instance dérivée.
-   */
-  public MoveGenerator derive(final Move pMouvement, final boolean pSuivant)
+  private int addValidTargets(final SquaresBuffer pBuffer, final int pOrigine)
   {
-    assert pMouvement != null;
-
-    final X88Board res = new X88Board(this);
+    assert pBuffer != null;
 
-    // Ajuste les compteurs...
-    if (pSuivant)
+    final Piece piece = _pieces[pOrigine];
+    if (piece == null)
     {
-      final boolean t = !isWhiteActive();
-      res.setWhiteActive(t);
-      res._hashCode ^= ZOBRIST_WHITE_ACTIVE;
-      if (t)
-      {
-        res.setFullmoveNumber(getFullmoveNumber() + 1);
-      }
-      if (pMouvement.getCaptured() == null)
-      {
-        res.setHalfmoveCount(getHalfmoveCount() + 1);
-      }
-      else
-      {
-        res.setHalfmoveCount(0);
-      }
+      return 0;
     }
-    // Déplace la pièce...
-    final Piece piece = pMouvement.getPiece();
-    final PieceType typePiece = piece.getType();
+
+    addAllTargets(pBuffer, pOrigine);
+    final int nb = pBuffer.size();
+    int nbFinal = nb;
     final boolean trait = piece.isWhite();
-    final Square src = pMouvement.getFrom();
-    final int iSrc = src.getIndex();
-    final int xSrc = src.getFile();
-    final int i88Src = src.getRank() * 16 + xSrc;
-    assert res._pieces[i88Src] == piece;
-    res._pieces[i88Src] = null;
-    final int pieceOrdinal = piece.ordinal();
-    res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iSrc];
-    final Square dst = pMouvement.getTo();
-    final int iDst = dst.getIndex();
-    final int xDst = dst.getFile();
-    final int yDst = dst.getRank();
-    final int i88Dst = yDst * 16 + xDst;
-    final Piece pieceDst = _pieces[i88Dst];
-    if (pieceDst != null)
-    {
-      res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceDst.ordinal()][iDst];
-    }
-    res._pieces[i88Dst] = piece;
-    res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
-    // ... éxécute un mouvement spécifique de type "roque" et gère le suivi des rois ...
-    if (typePiece == KING)
+    final PieceType typePiece = piece.getType();
+    final Square roi = getKingSquare(trait);
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      res.setKingSquare(trait, dst);
-      if (xSrc == 4)
+      final int idxCible = pBuffer.get(t);
+      final int iRoi;
+      if (typePiece == KING)
       {
-        if (xDst == 2)
-        {
-          // ... côté reine...
-          final int i = yDst * FILE_COUNT;
-          final int i88 = i * 2;
-          final Piece tour = res._pieces[i88];
-          assert tour != null;
-          assert tour.getType() == ROOK;
-          res._pieces[i88] = null;
-          final int tourOrdinal = tour.ordinal();
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
-          res._pieces[i88 + 3] = tour;
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i + 3];
-          res.setCastled(trait, true);
-        }
-        else if (xDst == 6)
-        {
-          // ... côté roi...
-          final int i = FILE_COUNT - 1 + yDst * FILE_COUNT;
-          final int i88 = i + yDst * FILE_COUNT;
-          final Piece tour = res._pieces[i88];
-          assert tour != null;
-          assert tour.getType() == ROOK;
-          res._pieces[i88] = null;
-          final int tourOrdinal = tour.ordinal();
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
-          res._pieces[i88 - 2] = tour;
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i - 2];
-          res.setCastled(trait, true);
-        }
+        iRoi = idxCible;
       }
-    }
-    // Tient compte des interdictions de roquer que le mouvement peut provoquer...
-    if (canCastleShort(trait))
-    {
-      if ((typePiece == KING) || ((typePiece == ROOK) && (xSrc == FILE_COUNT - 1)))
+      else
       {
-        res.setCastleShort(trait, false);
-        if (trait)
-        {
-          res._hashCode ^= ZOBRIST_WHITE_CASTLE_SHORT;
-        }
-        else
-        {
-          res._hashCode ^= ZOBRIST_BLACK_CASTLE_SHORT;
-        }
+        iRoi = roi.getRank() * 16 + roi.getFile();
       }
-    }
-    if (canCastleLong(trait))
-    {
-      if ((typePiece == KING) || ((typePiece == ROOK) && (xSrc == 0)))
+      int iPrise = -1;
+      if ((typePiece == PAWN) && (_pieces[idxCible] == null)
+          && ((idxCible & 0xF) != (pOrigine & 0xF)))
       {
-        res.setCastleLong(trait, false);
+        // Prise "en passant"...
         if (trait)
         {
-          res._hashCode ^= ZOBRIST_WHITE_CASTLE_LONG;
+          iPrise = idxCible - 16;
         }
         else
         {
-          res._hashCode ^= ZOBRIST_BLACK_CASTLE_LONG;
+          iPrise = idxCible + 16;
         }
       }
-    }
-    // Détecte si une prise "en passant" doit être effectuée ou signalée et gère la promotion...
-    final Square epOrig = getEnPassant();
-    res.setEnPassant(null);
-    if (typePiece == PAWN)
-    {
-      final int ySrc = src.getRank();
-      // En profite pour aussi gérer le compteur de demis coups...
-      if (pSuivant)
+      if (isAttackedAfter(iRoi, !trait, pOrigine, idxCible, iPrise, piece))
       {
-        res.setHalfmoveCount(0);
+        pBuffer.invalidate(t);
+        nbFinal--;
       }
-      if (trait)
+      else if ((typePiece == KING) && ((pOrigine & 0xF) == 4))
       {
-        assert yDst > ySrc;
-        if (yDst == RANK_COUNT - 1)
-        {
-          res._pieces[i88Dst] = WHITE_QUEEN;
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
-        }
-        else if ((ySrc == 1) && (yDst == 3))
-        {
-          res.setEnPassant(Square.valueOf(xDst, 2));
-        }
-        else if (dst == epOrig)
+        final int delta = idxCible - pOrigine;
+        if ((delta == 2) || (delta == -2))
         {
-          final int epDst = iDst - FILE_COUNT;
-          final int ep88Dst = i88Dst - 16;
-          res._pieces[ep88Dst] = null;
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[_pieces[ep88Dst].ordinal()][epDst];
-        }
-      }
-      else
-      {
-        assert yDst < ySrc;
-        if (yDst == 0)
-        {
-          res._pieces[i88Dst] = BLACK_QUEEN;
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
-        }
-        else if ((ySrc == RANK_COUNT - 2) && (yDst == RANK_COUNT - 4))
-        {
-          res.setEnPassant(Square.valueOf(xDst, RANK_COUNT - 3));
-        }
-        else if (dst == epOrig)
-        {
-          final int epDst = iDst + FILE_COUNT;
-          final int ep88Dst = i88Dst + 16;
-          res._pieces[ep88Dst] = null;
-          res._hashCode ^= ZOBRIST_PIECE_POSITION[_pieces[ep88Dst].ordinal()][epDst];
+          // Elimine le roque si le roi est en échec ou s'il le serait sur la case
+          // intermédiaire...
+          final int iPassage = pOrigine + delta / 2;
+          if (isInCheck(trait) || isAttackedAfter(iPassage, !trait, pOrigine, iPassage, -1, piece))
+          {
+            pBuffer.invalidate(t);
+            nbFinal--;
+          }
         }
       }
     }
+    assert (nbFinal >= 0) && (nbFinal <= nb);
 
-    final Square epFinal = res.getEnPassant();
-    if ((epOrig != null) && ((epFinal == null) || (!epOrig.equals(epFinal))))
-    {
-      res._hashCode ^= ZOBRIST_EN_PASSANT[epOrig.getFile()];
-    }
-    if ((epFinal != null) && ((epOrig == null) || (!epFinal.equals(epOrig))))
-    {
-      res._hashCode ^= ZOBRIST_EN_PASSANT[epFinal.getFile()];
-    }
+    return nbFinal;
+  }
+
+  /**
+   * Surcharge du calcul du bilan matériel et positionnel, maintenu lors des dérivations.
+   * 
+   * @return Bilan matériel et positionnel.
+   */
+  @Override
+  protected long balance()
+  {
+    assert _balance == super.balance();
+    return _balance;
+  }
+
+  /**
+   * Renvoi une nouvelle instance, initialisée à partir d'un état quelconque.
+   * 
+   * @param pEtat Etat de départ.
+   * @return Copie de l'état.
+   */
+  public MoveGenerator derive(final Board pEtat)
+  {
+    assert pEtat != null;
+
+    return new X88Board(pEtat);
+  }
+
+  /**
+   * Renvoi une nouvelle instance décrivant l'état du jeu après application d'un mouvement.
+   * 
+   * @param pMouvement Description de mouvement.
+   * @param pSuivant Drapeau positionné si l'on souhaite que le trait soit modifié.
+   * @return Instance dérivée.
+   */
+  public MoveGenerator derive(final Move pMouvement, final boolean pSuivant)
+  {
+    assert pMouvement != null;
+
+    final X88Board res = new X88Board(this);
+    res.play(pMouvement.toId(), pSuivant);
 
     return res;
   }
@@ -768,19 +707,14 @@ final class X88Board extends AbstractMoveGenerator
     final Piece piece = _pieces[idx];
     if (piece != null)
     {
-      final Square [] res;
+      final SquaresBuffer buf = SquaresBuffer.current();
+      addAllTargets(buf, idx);
 
-      synchronized (SQUARES_BUFFER)
+      final int nb = buf.size();
+      final Square [] res = new Square [ nb ];
+      for (int t = nb; --t >= 0; /* Pré-décrémenté */)
       {
-        S_nbBufferedSquares = 0;
-
-        addAllTargets(idx);
-
-        res = new Square [ S_nbBufferedSquares ];
-        for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-        {
-          res[t] = Square.valueOf(FROM_X88[SQUARES_BUFFER[t]]);
-        }
+        res[t] = Square.valueOf(FROM_X88[buf.get(t)]);
       }
 
       return res;
@@ -801,19 +735,14 @@ final class X88Board extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    addBishopTargets(buf, pOrigine.getRank() * 16 + pOrigine.getFile(), pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      addBishopTargets(pOrigine.getRank() * 16 + pOrigine.getFile(), pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(FROM_X88[SQUARES_BUFFER[t]]);
-      }
+      res[t] = Square.valueOf(FROM_X88[buf.get(t)]);
     }
 
     return res;
@@ -830,19 +759,14 @@ final class X88Board extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    addKingTargets(buf, pOrigine.getRank() * 16 + pOrigine.getFile(), pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      addKingTargets(pOrigine.getRank() * 16 + pOrigine.getFile(), pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(FROM_X88[SQUARES_BUFFER[t]]);
-      }
+      res[t] = Square.valueOf(FROM_X88[buf.get(t)]);
     }
 
     return res;
@@ -859,19 +783,14 @@ final class X88Board extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    addKnightTargets(buf, pOrigine.getRank() * 16 + pOrigine.getFile(), pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      addKnightTargets(pOrigine.getRank() * 16 + pOrigine.getFile(), pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(FROM_X88[SQUARES_BUFFER[t]]);
-      }
+      res[t] = Square.valueOf(FROM_X88[buf.get(t)]);
     }
 
     return res;
@@ -888,22 +807,42 @@ final class X88Board extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    addPawnTargets(buf, pOrigine.getRank() * 16 + pOrigine.getFile(), pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
+      res[t] = Square.valueOf(FROM_X88[buf.get(t)]);
+    }
 
-      addPawnTargets(pOrigine.getRank() * 16 + pOrigine.getFile(), pBlanc);
+    return res;
+  }
 
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(FROM_X88[SQUARES_BUFFER[t]]);
-      }
+  /**
+   * Renvoi l'éventuelle pièce qui serait présente sur une case après le déplacement d'une pièce.
+   * 
+   * @param pIndice Indice de la case.
+   * @param pOrigine Indice de la case libérée par le mouvement (-1 si aucun mouvement).
+   * @param pDestination Indice de la case occupée par le mouvement (-1 si aucun mouvement).
+   * @param pPrise Indice de la case d'un pion pris "en passant" (-1 si aucun).
+   * @param pPiece Pièce déplacée.
+   * @return Pièce présente sur la case (ou null si aucune).
+   */
+  private Piece getPieceAfter(final int pIndice, final int pOrigine, final int pDestination,
+      final int pPrise, final Piece pPiece)
+  {
+    if (pIndice == pDestination)
+    {
+      return pPiece;
+    }
+    if ((pIndice == pOrigine) || (pIndice == pPrise))
+    {
+      return null;
     }
 
-    return res;
+    return _pieces[pIndice];
   }
 
   /**
@@ -946,21 +885,16 @@ final class X88Board extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    final int idx = pOrigine.getRank() * 16 + pOrigine.getFile();
+    addBishopTargets(buf, idx, pBlanc);
+    addRookTargets(buf, idx, pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      final int idx = pOrigine.getRank() * 16 + pOrigine.getFile();
-      addBishopTargets(idx, pBlanc);
-      addRookTargets(idx, pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(FROM_X88[SQUARES_BUFFER[t]]);
-      }
+      res[t] = Square.valueOf(FROM_X88[buf.get(t)]);
     }
 
     return res;
@@ -978,19 +912,14 @@ final class X88Board extends AbstractMoveGenerator
   {
     assert pOrigine != null;
 
-    final Square [] res;
+    final SquaresBuffer buf = SquaresBuffer.current();
+    addRookTargets(buf, pOrigine.getRank() * 16 + pOrigine.getFile(), pBlanc);
 
-    synchronized (SQUARES_BUFFER)
+    final int nb = buf.size();
+    final Square [] res = new Square [ nb ];
+    for (int t = nb; --t >= 0; /* Pré-décrémenté */)
     {
-      S_nbBufferedSquares = 0;
-
-      addRookTargets(pOrigine.getRank() * 16 + pOrigine.getFile(), pBlanc);
-
-      res = new Square [ S_nbBufferedSquares ];
-      for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-      {
-        res[t] = Square.valueOf(FROM_X88[SQUARES_BUFFER[t]]);
-      }
+      res[t] = Square.valueOf(FROM_X88[buf.get(t)]);
     }
 
     return res;
@@ -1054,79 +983,86 @@ final class X88Board extends AbstractMoveGenerator
 
     return res;
   }
-
   /**
-   * Renvoi toutes les cases cibles des mouvements valides à partir d'une case.
+   * Alimente une liste avec les identifiants de tous les mouvements valides pour une couleur.
    * 
-   * @param pOrigine Case à l'origine du mouvement.
-   * @return Liste des cases cibles.
+   * @param pTrait Positionné à "true" pour indiquer une recherche pour les blancs.
+   * @param pMouvements Liste à alimenter (vidée au préalable).
+   * @return Nombre de mouvements valides.
    */
-  public Square [] getValidTargets(final Square pOrigine)
+  public int getValidMoves(final boolean pTrait, final MoveList pMouvements)
   {
-    assert pOrigine != null;
+    assert pMouvements != null;
 
-    final int iSrc = pOrigine.getRank() * 16 + pOrigine.getFile();
-    final Piece piece = _pieces[iSrc];
-    if (piece != null)
+    pMouvements.clear();
+    final Square ep = getEnPassant();
+    final SquaresBuffer buf = SquaresBuffer.current();
+    for (int i = 0; i < 64; i++)
     {
-      synchronized (SQUARES_BUFFER)
+      final int i88Src = (i >> 3) * 16 + (i & 7);
+      final Piece p = _pieces[i88Src];
+      if ((p != null) && (p.isWhite() == pTrait) && (addValidTargets(buf.clear(), i88Src) > 0))
       {
-        S_nbBufferedSquares = 0;
-        addAllTargets(iSrc);
-        int nbFinal = S_nbBufferedSquares;
-        final boolean trait = piece.isWhite();
-        for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
+        for (int t = 0; t < buf.size(); t++)
         {
-          final int idxCible = SQUARES_BUFFER[t];
-          final Square cible = Square.valueOf(FROM_X88[idxCible]);
-          final Piece prise = _pieces[idxCible];
-          if (derive(new Move(piece, pOrigine, cible, prise), false).isInCheck(trait))
+          final int i88Dst = buf.get(t);
+          if (i88Dst >= 0)
           {
-            SQUARES_BUFFER[t] = -1;
-            nbFinal--;
-          }
-          else if ((piece.getType() == KING) && (pOrigine.getFile() == 4))
-          {
-            final int delta = 4 - cible.getFile();
-            if ((delta == 2) || (delta == -2))
+            final int dst = FROM_X88[i88Dst];
+            final Piece prise;
+            if ((p.getType() != PAWN) || (ep == null) || (dst != ep.getIndex()))
             {
-              // Elimine le roque si le roi est en échec ou s'il le serait sur la case
-              // intermédiaire...
-              if (isInCheck(trait)
-                  || derive(
-                      new Move(piece, pOrigine, Square.valueOf(4 - (delta / 2), cible.getRank())),
-                      false).isInCheck(trait))
-              {
-                SQUARES_BUFFER[t] = -1;
-                nbFinal--;
-              }
+              prise = _pieces[i88Dst];
+            }
+            else if (pTrait)
+            {
+              prise = _pieces[i88Dst - 16];
+            }
+            else
+            {
+              prise = _pieces[i88Dst + 16];
             }
+            pMouvements.add(Move.idOf(p, i, dst, prise));
           }
         }
-        assert (nbFinal >= 0) && (nbFinal <= S_nbBufferedSquares);
+      }
+    }
 
-        if (nbFinal == 0)
-        {
-          return NO_SQUARE;
-        }
+    return pMouvements.size();
+  }
 
-        final Square [] res = new Square [ nbFinal ];
-        for (int t = S_nbBufferedSquares; --t >= 0; /* Pré-décrémenté */)
-        {
-          final int idx = SQUARES_BUFFER[t];
-          if (idx >= 0)
-          {
-            res[--nbFinal] = Square.valueOf(FROM_X88[idx]);
-          }
-        }
 
-        return res;
+  /**
+   * Renvoi toutes les cases cibles des mouvements valides à partir d'une case.
+   * 
+   * @param pOrigine Case à l'origine du mouvement.
+   * @return Liste des cases cibles.
+   */
+  public Square [] getValidTargets(final Square pOrigine)
+  {
+    assert pOrigine != null;
+
+    final SquaresBuffer buf = SquaresBuffer.current();
+    int nbFinal = addValidTargets(buf, pOrigine.getRank() * 16 + pOrigine.getFile());
+    if (nbFinal == 0)
+    {
+      return NO_SQUARE;
+    }
+
+    final Square [] res = new Square [ nbFinal ];
+    for (int t = buf.size(); --t >= 0; /* Pré-décrémenté */)
+    {
+      final int idx = buf.get(t);
+      if (idx >= 0)
+      {
+        res[--nbFinal] = Square.valueOf(FROM_X88[idx]);
       }
     }
 
-    return NO_SQUARE;
+    return res;
   }
 
+
   /**
    * Surcharge du calcul des clés de hachage, pour optimisation.
    * 
@@ -1150,150 +1086,79 @@ final class X88Board extends AbstractMoveGenerator
   {
     assert pCible != null;
 
-    final int iSrc = pCible.getRank() * 16 + pCible.getFile();
-    Piece p = null;
-    int dst = iSrc - 1;
-    // Gauche
-    while ((p == null) && ((dst & X88) == 0))
-    {
-      p = _pieces[dst];
-      dst--;
-    }
-    if ((p != null) && (p.isWhite() == pCouleur))
-    {
-      final PieceType t = p.getType();
-      if ((t == ROOK) || (t == QUEEN))
-      {
-        return true;
-      }
-    }
-
-    p = null;
-    dst = iSrc + 1;
-    // Droite
-    while ((p == null) && ((dst & X88) == 0))
-    {
-      p = _pieces[dst];
-      dst++;
-    }
-    if ((p != null) && (p.isWhite() == pCouleur))
-    {
-      final PieceType t = p.getType();
-      if ((t == ROOK) || (t == QUEEN))
-      {
-        return true;
-      }
-    }
-
-    p = null;
-    dst = iSrc - 16;
-    // Bas
-    while ((p == null) && ((dst & X88) == 0))
-    {
-      p = _pieces[dst];
-      dst -= 16;
-    }
-    if ((p != null) && (p.isWhite() == pCouleur))
-    {
-      final PieceType t = p.getType();
-      if ((t == ROOK) || (t == QUEEN))
-      {
-        return true;
-      }
-    }
-
-    p = null;
-    dst = iSrc + 16;
-    // Haut
-    while ((p == null) && ((dst & X88) == 0))
-    {
-      p = _pieces[dst];
-      dst += 16;
-    }
-    if ((p != null) && (p.isWhite() == pCouleur))
-    {
-      final PieceType t = p.getType();
-      if ((t == ROOK) || (t == QUEEN))
-      {
-        return true;
-      }
-    }
-
-    p = null;
-    dst = iSrc - 17;
-    // Bas / Gauche
-    while ((p == null) && ((dst & X88) == 0))
-    {
-      p = _pieces[dst];
-      dst -= 17;
-    }
-    if ((p != null) && (p.isWhite() == pCouleur))
-    {
-      final PieceType t = p.getType();
-      if ((t == BISHOP) || (t == QUEEN))
-      {
-        return true;
-      }
-    }
+    return isAttackedAfter(pCible.getRank() * 16 + pCible.getFile(), pCouleur, -1, -1, -1, null);
+  }
 
-    p = null;
-    dst = iSrc + 15;
-    // Haut / Gauche
-    while ((p == null) && ((dst & X88) == 0))
-    {
-      p = _pieces[dst];
-      dst += 15;
-    }
-    if ((p != null) && (p.isWhite() == pCouleur))
-    {
-      final PieceType t = p.getType();
-      if ((t == BISHOP) || (t == QUEEN))
-      {
-        return true;
-      }
-    }
+  /**
+   * Indique si une case serait attaquée par une couleur après le déplacement d'une pièce, sans
+   * construire l'état résultant.
+   * 
+   * @param pCase Indice de la case testée.
+   * @param pCouleur Positionné à "true" pour tester l'attaque par les blancs.
+   * @param pOrigine Indice de la case libérée par le mouvement (-1 si aucun mouvement).
+   * @param pDestination Indice de la case occupée par le mouvement (-1 si aucun mouvement).
+   * @param pPrise Indice de la case d'un pion pris "en passant" (-1 si aucun).
+   * @param pPiece Pièce déplacée.
+   * @return Vrai si la case est attaquée.
+   */
+  private boolean isAttackedAfter(final int pCase, final boolean pCouleur, final int pOrigine,
+      final int pDestination, final int pPrise, final Piece pPiece)
+  {
+    assert (pCase & X88) == 0;
 
-    p = null;
-    dst = iSrc + 17;
-    // Haut / Droit
-    while ((p == null) && ((dst & X88) == 0))
+    // Tour / Dame
+    for (final int d : ROOK_MOVES)
     {
-      p = _pieces[dst];
-      dst += 17;
-    }
-    if ((p != null) && (p.isWhite() == pCouleur))
-    {
-      final PieceType t = p.getType();
-      if ((t == BISHOP) || (t == QUEEN))
+      int dst = pCase + d;
+      while ((dst & X88) == 0)
       {
-        return true;
+        final Piece p = getPieceAfter(dst, pOrigine, pDestination, pPrise, pPiece);
+        if (p != null)
+        {
+          if (p.isWhite() == pCouleur)
+          {
+            final PieceType t = p.getType();
+            if ((t == ROOK) || (t == QUEEN))
+            {
+              return true;
+            }
+          }
+          break;
+        }
+        dst += d;
       }
     }
 
-    p = null;
-    dst = iSrc - 15;
-    // Bas / Droit
-    while ((p == null) && ((dst & X88) == 0))
-    {
-      p = _pieces[dst];
-      dst -= 15;
-    }
-    if ((p != null) && (p.isWhite() == pCouleur))
+    // Fou / Dame
+    for (final int d : BISHOP_MOVES)
     {
-      final PieceType t = p.getType();
-      if ((t == BISHOP) || (t == QUEEN))
+      int dst = pCase + d;
+      while ((dst & X88) == 0)
       {
-        return true;
+        final Piece p = getPieceAfter(dst, pOrigine, pDestination, pPrise, pPiece);
+        if (p != null)
+        {
+          if (p.isWhite() == pCouleur)
+          {
+            final PieceType t = p.getType();
+            if ((t == BISHOP) || (t == QUEEN))
+            {
+              return true;
+            }
+          }
+          break;
+        }
+        dst += d;
       }
     }
 
     // Cavalier
     for (final int km : KNIGHT_MOVES)
     {
-      dst = iSrc + km;
+      final int dst = pCase + km;
       if ((dst & X88) == 0)
       {
-        p = _pieces[dst];
+        final Piece p = getPieceAfter(dst, pOrigine, pDestination, pPrise, pPiece);
         if ((p != null) && (p.isWhite() == pCouleur) && (p.getType() == KNIGHT))
         {
           return true;
@@ -1304,10 +1169,10 @@ final class X88Board extends AbstractMoveGenerator
     // Roi
     for (final int km : KING_MOVES)
     {
-      dst = iSrc + km;
+      final int dst = pCase + km;
       if ((dst & X88) == 0)
       {
-        p = _pieces[dst];
+        final Piece p = getPieceAfter(dst, pOrigine, pDestination, pPrise, pPiece);
         if ((p != null) && (p.isWhite() == pCouleur) && (p.getType() == KING))
         {
           return true;
@@ -1316,14 +1181,17 @@ final class X88Board extends AbstractMoveGenerator
     }
 
     // Pions...
+    final int xSrc = pCase & 0xF;
+    final int ySrc = pCase >>> 4;
     if (pCouleur)
     {
-      final int ySrc = pCible.getRank();
       if (ySrc > 1)
       {
-        final int xSrc = pCible.getFile();
-        if (((xSrc > 0) && (_pieces[iSrc - 17] == WHITE_PAWN))
-            || ((xSrc < FILE_COUNT - 1) && (_pieces[iSrc - 15] == WHITE_PAWN)))
+        if (((xSrc > 0)
+            && (getPieceAfter(pCase - 17, pOrigine, pDestination, pPrise, pPiece) == WHITE_PAWN))
+            || ((xSrc < FILE_COUNT - 1)
+                && (getPieceAfter(pCase - 15, pOrigine, pDestination, pPrise, pPiece)
+                    == WHITE_PAWN)))
         {
           return true;
         }
@@ -1331,12 +1199,13 @@ final class X88Board extends AbstractMoveGenerator
     }
     else
     {
-      final int ySrc = pCible.getRank();
       if (ySrc < RANK_COUNT - 2)
       {
-        final int xSrc = pCible.getFile();
-        if (((xSrc > 0) && (_pieces[iSrc + 15] == BLACK_PAWN))
-            || ((xSrc < FILE_COUNT - 1) && (_pieces[iSrc + 17] == BLACK_PAWN)))
+        if (((xSrc > 0)
+            && (getPieceAfter(pCase + 15, pOrigine, pDestination, pPrise, pPiece) == BLACK_PAWN))
+            || ((xSrc < FILE_COUNT - 1)
+                && (getPieceAfter(pCase + 17, pOrigine, pDestination, pPrise, pPiece)
+                    == BLACK_PAWN)))
         {
           return true;
         }
@@ -1356,4 +1225,285 @@ final class X88Board extends AbstractMoveGenerator
   {
     return isAttacked(getKingSquare(pCouleur), !pCouleur);
   }
+
+  /**
+   * Applique un mouvement à l'instance elle-même.
+   * <p>
+   * Potentiellement dangeureux : attention à ne pas casser le contrat qui veut que les
+   * implémentations se comportent comme des objets immuables. Seules les copies fraîchement créées
+   * et les états réversibles (voir {@link ReversibleX88Board}) peuvent être ainsi modifiés.
+   * </p>
+   * 
+   * @param pMouvement Identifiant du mouvement (voir {@link Move#toId()}).
+   * @param pSuivant Drapeau positionné si l'on souhaite que le trait soit modifié.
+   */
+  final void play(final int pMouvement, final boolean pSuivant)
+  {
+    // Ajuste les compteurs...
+    if (pSuivant)
+    {
+      final boolean t = !isWhiteActive();
+      setWhiteActive(t);
+      _hashCode ^= ZOBRIST_WHITE_ACTIVE;
+      _zobristKey ^= ZOBRIST64_WHITE_ACTIVE;
+      if (t)
+      {
+        setFullmoveNumber(getFullmoveNumber() + 1);
+      }
+      if (Move.capturedOf(pMouvement) == null)
+      {
+        setHalfmoveCount(getHalfmoveCount() + 1);
+      }
+      else
+      {
+        setHalfmoveCount(0);
+      }
+    }
+    // Déplace la pièce...
+    final Piece piece = Move.pieceOf(pMouvement);
+    final PieceType typePiece = piece.getType();
+    final boolean trait = piece.isWhite();
+    final Square src = Square.valueOf(Move.fromOf(pMouvement));
+    final int iSrc = src.getIndex();
+    final int xSrc = src.getFile();
+    final int i88Src = src.getRank() * 16 + xSrc;
+    assert _pieces[i88Src] == piece;
+    _pieces[i88Src] = null;
+    final int pieceOrdinal = piece.ordinal();
+    _hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iSrc];
+    _zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iSrc];
+    _balance -= BALANCE_PIECE_POSITION[pieceOrdinal][iSrc];
+    _structure -= STRUCTURE_PIECE_POSITION[pieceOrdinal][iSrc];
+    _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iSrc];
+    final Square dst = Square.valueOf(Move.toOf(pMouvement));
+    final int iDst = dst.getIndex();
+    final int xDst = dst.getFile();
+    final int yDst = dst.getRank();
+    final int i88Dst = yDst * 16 + xDst;
+    final Piece pieceDst = _pieces[i88Dst];
+    if (pieceDst != null)
+    {
+      _hashCode ^= ZOBRIST_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      _zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      _balance -= BALANCE_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      _structure -= STRUCTURE_PIECE_POSITION[pieceDst.ordinal()][iDst];
+      _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceDst.ordinal()][iDst];
+    }
+    _pieces[i88Dst] = piece;
+    _hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+    _zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iDst];
+    _balance += BALANCE_PIECE_POSITION[pieceOrdinal][iDst];
+    _structure += STRUCTURE_PIECE_POSITION[pieceOrdinal][iDst];
+    _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iDst];
+    // ... éxécute un mouvement spécifique de type "roque" et gère le suivi des rois ...
+    if (typePiece == KING)
+    {
+      setKingSquare(trait, dst);
+      if (xSrc == 4)
+      {
+        if (xDst == 2)
+        {
+          // ... côté reine...
+          final int i = yDst * FILE_COUNT;
+          final int i88 = i * 2;
+          final Piece tour = _pieces[i88];
+          assert tour != null;
+          assert tour.getType() == ROOK;
+          _pieces[i88] = null;
+          final int tourOrdinal = tour.ordinal();
+          _hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
+          _zobristKey ^= ZOBRIST64_PIECE_POSITION[tourOrdinal][i];
+          _balance -= BALANCE_PIECE_POSITION[tourOrdinal][i];
+          _pieces[i88 + 3] = tour;
+          _hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i + 3];
+          _zobristKey ^= ZOBRIST64_PIECE_POSITION[tourOrdinal][i + 3];
+          _balance += BALANCE_PIECE_POSITION[tourOrdinal][i + 3];
+          setCastled(trait, true);
+        }
+        else if (xDst == 6)
+        {
+          // ... côté roi...
+          final int i = FILE_COUNT - 1 + yDst * FILE_COUNT;
+          final int i88 = i + yDst * FILE_COUNT;
+          final Piece tour = _pieces[i88];
+          assert tour != null;
+          assert tour.getType() == ROOK;
+          _pieces[i88] = null;
+          final int tourOrdinal = tour.ordinal();
+          _hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i];
+          _zobristKey ^= ZOBRIST64_PIECE_POSITION[tourOrdinal][i];
+          _balance -= BALANCE_PIECE_POSITION[tourOrdinal][i];
+          _pieces[i88 - 2] = tour;
+          _hashCode ^= ZOBRIST_PIECE_POSITION[tourOrdinal][i - 2];
+          _zobristKey ^= ZOBRIST64_PIECE_POSITION[tourOrdinal][i - 2];
+          _balance += BALANCE_PIECE_POSITION[tourOrdinal][i - 2];
+          setCastled(trait, true);
+        }
+      }
+    }
+    // Tient compte des interdictions de roquer que le mouvement peut provoquer...
+    if (canCastleShort(trait))
+    {
+      if ((typePiece == KING) || ((typePiece == ROOK) && (xSrc == FILE_COUNT - 1)))
+      {
+        setCastleShort(trait, false);
+        if (trait)
+        {
+          _hashCode ^= ZOBRIST_WHITE_CASTLE_SHORT;
+          _zobristKey ^= ZOBRIST64_WHITE_CASTLE_SHORT;
+        }
+        else
+        {
+          _hashCode ^= ZOBRIST_BLACK_CASTLE_SHORT;
+          _zobristKey ^= ZOBRIST64_BLACK_CASTLE_SHORT;
+        }
+      }
+    }
+    if (canCastleLong(trait))
+    {
+      if ((typePiece == KING) || ((typePiece == ROOK) && (xSrc == 0)))
+      {
+        setCastleLong(trait, false);
+        if (trait)
+        {
+          _hashCode ^= ZOBRIST_WHITE_CASTLE_LONG;
+          _zobristKey ^= ZOBRIST64_WHITE_CASTLE_LONG;
+        }
+        else
+        {
+          _hashCode ^= ZOBRIST_BLACK_CASTLE_LONG;
+          _zobristKey ^= ZOBRIST64_BLACK_CASTLE_LONG;
+        }
+      }
+    }
+    // Détecte si une prise "en passant" doit être effectuée ou signalée et gère la promotion...
+    final Square epOrig = getEnPassant();
+    setEnPassant(null);
+    if (typePiece == PAWN)
+    {
+      final int ySrc = src.getRank();
+      // En profite pour aussi gérer le compteur de demis coups...
+      if (pSuivant)
+      {
+        setHalfmoveCount(0);
+      }
+      if (trait)
+      {
+        assert yDst > ySrc;
+        if (yDst == RANK_COUNT - 1)
+        {
+          _pieces[i88Dst] = WHITE_QUEEN;
+          _hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+          _zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iDst];
+          _balance -= BALANCE_PIECE_POSITION[pieceOrdinal][iDst];
+          _structure -= STRUCTURE_PIECE_POSITION[pieceOrdinal][iDst];
+          _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iDst];
+          _hashCode ^= ZOBRIST_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          _zobristKey ^= ZOBRIST64_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          _balance += BALANCE_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          _structure += STRUCTURE_PIECE_POSITION[WHITE_QUEEN.ordinal()][iDst];
+          _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[WHITE_QUEEN.ordinal()][iDst];
+        }
+        else if ((ySrc == 1) && (yDst == 3))
+        {
+          setEnPassant(Square.valueOf(xDst, 2));
+        }
+        else if (dst == epOrig)
+        {
+          final int epDst = iDst - FILE_COUNT;
+          final int ep88Dst = i88Dst - 16;
+          final int prise = _pieces[ep88Dst].ordinal();
+          _pieces[ep88Dst] = null;
+          _hashCode ^= ZOBRIST_PIECE_POSITION[prise][epDst];
+          _zobristKey ^= ZOBRIST64_PIECE_POSITION[prise][epDst];
+          _balance -= BALANCE_PIECE_POSITION[prise][epDst];
+          _structure -= STRUCTURE_PIECE_POSITION[prise][epDst];
+          _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[prise][epDst];
+        }
+      }
+      else
+      {
+        assert yDst < ySrc;
+        if (yDst == 0)
+        {
+          _pieces[i88Dst] = BLACK_QUEEN;
+          _hashCode ^= ZOBRIST_PIECE_POSITION[pieceOrdinal][iDst];
+          _zobristKey ^= ZOBRIST64_PIECE_POSITION[pieceOrdinal][iDst];
+          _balance -= BALANCE_PIECE_POSITION[pieceOrdinal][iDst];
+          _structure -= STRUCTURE_PIECE_POSITION[pieceOrdinal][iDst];
+          _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[pieceOrdinal][iDst];
+          _hashCode ^= ZOBRIST_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          _zobristKey ^= ZOBRIST64_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          _balance += BALANCE_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          _structure += STRUCTURE_PIECE_POSITION[BLACK_QUEEN.ordinal()][iDst];
+          _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[BLACK_QUEEN.ordinal()][iDst];
+        }
+        else if ((ySrc == RANK_COUNT - 2) && (yDst == RANK_COUNT - 4))
+        {
+          setEnPassant(Square.valueOf(xDst, RANK_COUNT - 3));
+        }
+        else if (dst == epOrig)
+        {
+          final int epDst = iDst + FILE_COUNT;
+          final int ep88Dst = i88Dst + 16;
+          final int prise = _pieces[ep88Dst].ordinal();
+          _pieces[ep88Dst] = null;
+          _hashCode ^= ZOBRIST_PIECE_POSITION[prise][epDst];
+          _zobristKey ^= ZOBRIST64_PIECE_POSITION[prise][epDst];
+          _balance -= BALANCE_PIECE_POSITION[prise][epDst];
+          _structure -= STRUCTURE_PIECE_POSITION[prise][epDst];
+          _pawnZobristKey ^= ZOBRIST64_PAWN_POSITION[prise][epDst];
+        }
+      }
+    }
+
+    final Square epFinal = getEnPassant();
+    if ((epOrig != null) && ((epFinal == null) || (!epOrig.equals(epFinal))))
+    {
+      _hashCode ^= ZOBRIST_EN_PASSANT[epOrig.getFile()];
+      _zobristKey ^= ZOBRIST64_EN_PASSANT[epOrig.getFile()];
+    }
+    if ((epFinal != null) && ((epOrig == null) || (!epFinal.equals(epOrig))))
+    {
+      _hashCode ^= ZOBRIST_EN_PASSANT[epFinal.getFile()];
+      _zobristKey ^= ZOBRIST64_EN_PASSANT[epFinal.getFile()];
+    }
+  }
+
+  /**
+   * Surcharge du calcul de la clé "Zobrist" de la structure de pions, maintenue lors des
+   * dérivations.
+   * 
+   * @return Clé "Zobrist" sur 64 bits de la structure de pions.
+   */
+  @Override
+  public long pawnZobristKey()
+  {
+    assert _pawnZobristKey == super.pawnZobristKey();
+    return _pawnZobristKey;
+  }
+
+  /**
+   * Surcharge du calcul de la structure, maintenue lors des dérivations.
+   * 
+   * @return Structure de l'état.
+   */
+  @Override
+  protected long structure()
+  {
+    assert _structure == super.structure();
+    return _structure;
+  }
+
+  /**
+   * Surcharge du calcul de la clé "Zobrist" sur 64 bits, maintenue lors des dérivations.
+   * 
+   * @return Clé "Zobrist" sur 64 bits.
+   */
+  @Override
+  public long zobristKey()
+  {
+    assert _zobristKey == super.zobristKey();
+    return _zobristKey;
+  }
 }
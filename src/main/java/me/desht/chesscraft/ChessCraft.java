@@ -2,6 +2,7 @@ package me.desht.chesscraft;
 
 import com.sk89q.worldedit.bukkit.WorldEditPlugin;
 import me.desht.chesscraft.chess.*;
+import me.desht.chesscraft.chess.ai.AIActionTask;
 import me.desht.chesscraft.chess.ai.AIFactory;
 import me.desht.chesscraft.citizens.CitizensUtil;
 import me.desht.chesscraft.commands.*;
@@ -45,6 +46,7 @@ public class ChessCraft extends JavaPlugin implements ConfigurationListener, Plu
 	private ChessFlightListener flightListener;
 	private SMSIntegration sms;
 	private ChessTickTask tickTask;
+	private AIActionTask aiActionTask;
 	private SpecialFX fx;
 
 	private boolean startupFailed = false;
@@ -95,7 +97,7 @@ public class ChessCraft extends JavaPlugin implements ConfigurationListener, Plu
 
 		Messages.init(getConfig().getString("locale", "default"));
 
-		persistence = new ChessPersistence();
+		persistence = new ChessPersistence(new PersistenceWriter(this, getConfig().getLong("persistence.coalesce_ticks", 20L)));
 
 		// This is just here so the results DB stuff gets loaded at startup
 		// time - easier to test that way.  Remove it for production.
@@ -142,6 +144,9 @@ public class ChessCraft extends JavaPlugin implements ConfigurationListener, Plu
 
         tickTask = new ChessTickTask();
         tickTask.runTaskTimer(this, 20L, 20L);
+		// AI moves are picked up every tick, so they're applied no more than one tick late
+		aiActionTask = new AIActionTask(AIFactory.getInstance().getActionQueue());
+		aiActionTask.runTaskTimer(this, 1L, 1L);
 
 		Debugger.getInstance().debug("Version " + getDescription().getVersion() + " enable complete");
 	}
@@ -152,17 +157,20 @@ public class ChessCraft extends JavaPlugin implements ConfigurationListener, Plu
 		if (startupFailed) return;
 
 		tickTask.cancel();
+		aiActionTask.cancel();
 
 		flightListener.restoreSpeeds();
 
 		ChessGameManager gm = ChessGameManager.getManager();
 
+		// apply any AI moves made since the last tick, so they're saved below
+		AIFactory.getInstance().getActionQueue().drain();
 		AIFactory.getInstance().clearDown();
 		for (ChessGame game : gm.listGames()) {
 			game.tick();
 		}
 		getServer().getScheduler().cancelTasks(this);
-		persistence.save();
+		persistence.shutdown();
         List<BoardView> views = new ArrayList<>(BoardViewManager.getManager().listBoardViews());
         for (BoardView view : views) {
 			// this will also do a temporary delete on the board's game, if any
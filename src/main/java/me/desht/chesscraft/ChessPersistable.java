@@ -9,4 +9,9 @@ import java.io.File;
 public interface ChessPersistable {
 	public String getName();			// for determining save file names
 	public File getSaveDirectory();		// directory where save files are placed
+
+	// journal of moves made since the object was last saved in full, if it keeps one
+	default MoveJournal getMoveJournal() {
+		return null;
+	}
 }
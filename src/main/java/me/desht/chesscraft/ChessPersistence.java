@@ -15,21 +15,55 @@ import org.bukkit.World;
 import org.bukkit.configuration.Configuration;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class ChessPersistence {
 
+	private final PersistenceWriter writer;
+
+	public ChessPersistence(PersistenceWriter writer) {
+		this.writer = writer;
+	}
+
+	public PersistenceWriter getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Save everything.  Objects are serialised immediately, but written to disk in the background.
+	 */
 	public void save() {
 		savePersistedData();
+		writer.flush();
+	}
+
+	/**
+	 * Save everything, and wait for all pending writes to complete.  Called when the plugin is
+	 * being disabled.
+	 */
+	public void shutdown() {
+		savePersistedData();
+		writer.shutdown();
 	}
 
 	public void reload() {
+		// make sure what's on disk is up to date before reading it back
+		writer.flush();
+		writer.awaitIdle();
+
         List<BoardView> views = new ArrayList<>(BoardViewManager.getManager().listBoardViews());
         for (BoardView view : views) {
 			// this will also do a temporary delete on any games
@@ -69,27 +103,45 @@ public class ChessPersistence {
 			conf.set("teleport_out_dest", new PersistableLocation(loc));
 		}
 
-		try {
-			conf.save(DirectoryStructure.getPersistFile());
-		} catch (IOException e1) {
-			LogUtils.severe("Can't save persist.yml", e1);
-		}
+		writer.write(conf, DirectoryStructure.getPersistFile());
 	}
 
 	private void loadPersistedData() {
 		int nLoaded = 0;
 
-		// load the boards, and any games on those boards
-		for (File f : DirectoryStructure.getBoardPersistDirectory().listFiles(DirectoryStructure.ymlFilter)) {
-			nLoaded += loadBoard(f) ? 1 : 0;
+		// read the boards, and any games on those boards, and replay the games' move histories
+		// on a worker pool; everything which touches Bukkit is then done back on this thread
+		File[] files = DirectoryStructure.getBoardPersistDirectory().listFiles(DirectoryStructure.ymlFilter);
+		int nThreads = ChessCraft.getInstance().getConfig().getInt("persistence.load_threads", 0);
+		if (nThreads <= 0) {
+			nThreads = Runtime.getRuntime().availableProcessors();
+		}
+		nThreads = Math.max(1, Math.min(nThreads, files.length));
+		long start = System.nanoTime();
+		List<PreparedBoard> prepared = prepareBoards(files, nThreads);
+		long prepareTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		BoardViewManager.getManager().beginBatchUpdate();
+		try {
+			for (PreparedBoard pb : prepared) {
+				nLoaded += loadBoard(pb.getFile(), pb) ? 1 : 0;
+			}
+		} finally {
+			BoardViewManager.getManager().endBatchUpdate();
 		}
+		long registerTime = System.nanoTime() - start;
 
+		start = System.nanoTime();
 		for (BoardView bv : BoardViewManager.getManager().listBoardViews()) {
 			Debugger.getInstance().debug(2, "repainting controls for board " + bv.getName());
 			bv.getControlPanel().repaintControls();
 		}
+		long repaintTime = System.nanoTime() - start;
 
-		Debugger.getInstance().debug("loaded " + nLoaded + " saved boards.");
+		LogUtils.info("loaded " + nLoaded + " saved boards: read & replay " + TimeUnit.NANOSECONDS.toMillis(prepareTime)
+				+ "ms (" + nThreads + " threads), register " + TimeUnit.NANOSECONDS.toMillis(registerTime)
+				+ "ms, repaint " + TimeUnit.NANOSECONDS.toMillis(repaintTime) + "ms");
 
 		// load other misc data which isn't tied to any board or game
 		File persistFile = DirectoryStructure.getPersistFile();
@@ -119,6 +171,42 @@ public class ChessPersistence {
 		}
 	}
 
+	/**
+	 * Prepare the given board files on a pool of worker threads.
+	 *
+	 * @param files the board files
+	 * @param nThreads the number of worker threads
+	 * @return the prepared boards, in the same order as the files
+	 */
+	private List<PreparedBoard> prepareBoards(File[] files, int nThreads) {
+		final File gamesDir = DirectoryStructure.getGamesPersistDirectory();
+		ExecutorService pool = Executors.newFixedThreadPool(nThreads, r -> {
+			Thread t = new Thread(r, "ChessCraft loader");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			List<Future<PreparedBoard>> futures = new ArrayList<>(files.length);
+			for (final File f : files) {
+				futures.add(pool.submit(() -> PreparedBoard.prepare(f, gamesDir)));
+			}
+			List<PreparedBoard> res = new ArrayList<>(files.length);
+			for (Future<PreparedBoard> future : futures) {
+				res.add(future.get());
+			}
+			return res;
+		} catch (InterruptedException | ExecutionException e) {
+			LogUtils.warning("can't prepare saved boards in parallel, loading them serially: " + e.getMessage());
+			List<PreparedBoard> res = new ArrayList<>(files.length);
+			for (File f : files) {
+				res.add(PreparedBoard.unprepared(f));
+			}
+			return res;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 	/**
 	 * Load one board file, plus the game on that board, if there is one.
 	 *
@@ -126,18 +214,28 @@ public class ChessPersistence {
 	 * @return true if the board was loaded, false otherwise
 	 */
 	public boolean loadBoard(File f) {
+		return loadBoard(f, null);
+	}
+
+	/**
+	 * Load one board file, plus the game on that board, if there is one.  If the board or game
+	 * has already been read by {@link PreparedBoard#prepare(File, File)}, that data is used;
+	 * otherwise the file is read now.
+	 *
+	 * @param f the file to load from
+	 * @param pb the prepared board data, or null
+	 * @return true if the board was loaded, false otherwise
+	 */
+	private boolean loadBoard(File f, PreparedBoard pb) {
 		Debugger.getInstance().debug("loading board: " + f);
 		try {
-			Configuration conf = MiscUtil.loadYamlUTF8(f);
-
 			BoardView bv;
-			if (conf.contains("board")) {
-				bv = (BoardView) conf.get("board");
-			} else if (conf.getKeys(false).size() > 0) {
-				bv = new BoardView(conf);
-				savePersistable("board", bv);
-				LogUtils.info("migrated v4-format board save " + f.getName() + " to v5-format");
+			if (pb != null && pb.getBoard() != null) {
+				bv = (BoardView) thaw(pb.getBoard());
 			} else {
+				bv = readBoard(f);
+			}
+			if (bv == null) {
 				// empty config returned - probably due to corrupted save file of some kind
 				return false;
 			}
@@ -146,7 +244,7 @@ public class ChessPersistence {
 				// load the board's game too, if there is one
 				if (!bv.getSavedGameName().isEmpty()) {
 					File gameFile = new File(DirectoryStructure.getGamesPersistDirectory(), bv.getSavedGameName() + ".yml");
-					ChessGame game = loadGame(gameFile);
+					ChessGame game = loadGame(gameFile, pb);
                     if (game != null) {
                         bv.setGame(game);
                     }
@@ -164,17 +262,37 @@ public class ChessPersistence {
 		}
 	}
 
-	private ChessGame loadGame(File f) {
+	private BoardView readBoard(File f) {
+		Configuration conf = MiscUtil.loadYamlUTF8(f);
+
+		BoardView bv;
+		if (conf.contains("board")) {
+			bv = (BoardView) conf.get("board");
+		} else if (conf.getKeys(false).size() > 0) {
+			bv = new BoardView(conf);
+			savePersistable("board", bv);
+			LogUtils.info("migrated v4-format board save " + f.getName() + " to v5-format");
+		} else {
+			bv = null;
+		}
+		return bv;
+	}
+
+	private ChessGame loadGame(File f, PreparedBoard pb) {
 		Debugger.getInstance().debug("loading game: " + f);
 		try {
-			Configuration conf = MiscUtil.loadYamlUTF8(f);
 			ChessGame game = null;
-			if (conf.contains("game")) {
-				game = (ChessGame) conf.get("game");
-			} else if (conf.getKeys(false).size() > 0) {
-				game = new ChessGame(conf);
-				savePersistable("game", game);
-				LogUtils.info("migrated v4-format game save " + f.getName() + " to v5-format");
+			if (pb != null && pb.getGame() != null && f.equals(pb.getGameFile())) {
+				game = ChessGame.deserialize(thawValues(pb.getGame()), pb.getHistory());
+			} else {
+				Configuration conf = MiscUtil.loadYamlUTF8(f);
+				if (conf.contains("game")) {
+					game = (ChessGame) conf.get("game");
+				} else if (conf.getKeys(false).size() > 0) {
+					game = new ChessGame(conf);
+					savePersistable("game", game);
+					LogUtils.info("migrated v4-format game save " + f.getName() + " to v5-format");
+				}
 			}
 			if (game != null) {
 				ChessGameManager.getManager().registerGame(game);
@@ -186,6 +304,38 @@ public class ChessPersistence {
 		}
 	}
 
+	/**
+	 * Turn raw YAML data back into objects, the way Bukkit's YAML loader does: any map with a
+	 * serialised type key is deserialised, innermost first.
+	 *
+	 * @param o the raw data
+	 * @return the thawed data
+	 */
+	private static Object thaw(Object o) {
+		if (o instanceof Map) {
+			Map<String, Object> map = thawValues((Map<?, ?>) o);
+			if (map.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+				return ConfigurationSerialization.deserializeObject(map);
+			}
+			return map;
+		} else if (o instanceof List) {
+			List<Object> list = new ArrayList<>();
+			for (Object item : (List<?>) o) {
+				list.add(thaw(item));
+			}
+			return list;
+		}
+		return o;
+	}
+
+	private static Map<String, Object> thawValues(Map<?, ?> raw) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for (Entry<?, ?> e : raw.entrySet()) {
+			map.put(e.getKey().toString(), thaw(e.getValue()));
+		}
+		return map;
+	}
+
 	private void saveBoards() {
 		for (BoardView b : BoardViewManager.getManager().listBoardViews()) {
 			savePersistable("board", b);
@@ -198,22 +348,48 @@ public class ChessPersistence {
 		}
 	}
 
+	/**
+	 * Mark an object as needing to be saved.  Repeated saves of the same object are coalesced,
+	 * and the actual write happens in the background; see {@link PersistenceWriter}.
+	 *
+	 * @param tag the YAML key under which the object is saved
+	 * @param object the object to save
+	 */
 	public void savePersistable(String tag, ChessPersistable object) {
-		YamlConfiguration conf = new YamlConfiguration();
-		conf.set(tag, object);
-		File file = new File(object.getSaveDirectory(), makeSafeFileName(object.getName()) + ".yml");
-		try {
-			conf.save(file);
-		} catch (IOException e1) {
-			LogUtils.severe("Can't save " + tag + " " + object.getName(), e1);
+		writer.markDirty(tag, object);
+	}
+
+	/**
+	 * Append a move to a game's journal, rather than saving the whole game.  If a full save of the
+	 * game is already pending, the move is simply folded into that instead: a journal record
+	 * written now would belong to an epoch the pending save is about to supersede (and after an
+	 * undo, could contradict it).
+	 *
+	 * @param game the game
+	 * @param entry the move just made
+	 */
+	public void journalMove(ChessGame game, MoveJournal.Entry entry) {
+		if (writer.isDirty(game)) {
+			writer.markDirty("game", game);
+		} else {
+			writer.appendMove(game.getMoveJournal(), entry);
 		}
 	}
 
 	public void unpersist(ChessPersistable object) {
-		File f = new File(object.getSaveDirectory(), makeSafeFileName(object.getName()) + ".yml");
-		if (!f.delete()) {
-			LogUtils.warning("Can't delete save file " + f);
-		}
+		writer.delete(object);
+	}
+
+	public static File getSaveFile(ChessPersistable object) {
+		return new File(object.getSaveDirectory(), makeSafeFileName(object.getName()) + ".yml");
+	}
+
+	public static File getJournalFile(ChessPersistable object) {
+		return getJournalFile(object.getSaveDirectory(), object.getName());
+	}
+
+	public static File getJournalFile(File dir, String name) {
+		return new File(dir, makeSafeFileName(name) + ".journal");
 	}
 
 	public static void requireSection(ConfigurationSection c, String key) throws ChessException {
@@ -0,0 +1,248 @@
+package me.desht.chesscraft;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of the moves made in a game since its last full (YAML) snapshot.
+ *
+ * The file starts with a 12-byte header (magic number, then the snapshot epoch it belongs to),
+ * followed by fixed-size packed records, each protected by a CRC32.  Whenever a snapshot is saved,
+ * the epoch is bumped and stored in the snapshot, and the journal is restarted with the new epoch;
+ * a journal whose epoch doesn't match its snapshot is stale and is ignored.  On reading, a short
+ * or corrupt record (a write torn by a crash) ends the journal, and is truncated away.
+ *
+ * Instances of this class track the in-memory side (current epoch, moves since the snapshot) and
+ * are only touched from the main thread; the static methods do the file I/O, and are run on the
+ * persistence writer's I/O thread.  This class deliberately uses nothing but the JDK.
+ */
+public class MoveJournal {
+	public static final int RECORD_SIZE = 32;
+
+	private static final int MAGIC = 0x43434A4C; // "CCJL"
+	private static final int HEADER_SIZE = 12;
+
+	private final File file;
+	private long epoch;
+	private int movesSinceSnapshot;
+
+	public MoveJournal(File file, long epoch) {
+		this.file = file;
+		this.epoch = epoch;
+		this.movesSinceSnapshot = 0;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getEpoch() {
+		return epoch;
+	}
+
+	public int getMovesSinceSnapshot() {
+		return movesSinceSnapshot;
+	}
+
+	/**
+	 * Record that moves have been added to the journal since the last snapshot.
+	 *
+	 * @param n the number of moves
+	 */
+	public void movesAppended(int n) {
+		movesSinceSnapshot += n;
+	}
+
+	/**
+	 * Start a new epoch.  Called just before a full snapshot is serialised; the journal file must
+	 * be {@link #reset(File, long) reset} once the snapshot is safely on disk.
+	 *
+	 * @return the new epoch
+	 */
+	public long startSnapshot() {
+		movesSinceSnapshot = 0;
+		return ++epoch;
+	}
+
+	/**
+	 * One journalled move.  As well as the move itself, this holds the state which changes when a
+	 * move is made and which would otherwise only be found in the snapshot.
+	 */
+	public static class Entry {
+		private final int ply;
+		private final short move;
+		private final long time;
+		private final long elapsed;
+		private final long remaining;
+
+		/**
+		 * @param ply index of the move in the game's history (0 for white's first move)
+		 * @param move the move, as a Chesspresso short move
+		 * @param time the time the move was made
+		 * @param elapsed the mover's total elapsed clock time, in ms
+		 * @param remaining the mover's remaining clock time, in ms
+		 */
+		public Entry(int ply, short move, long time, long elapsed, long remaining) {
+			this.ply = ply;
+			this.move = move;
+			this.time = time;
+			this.elapsed = elapsed;
+			this.remaining = remaining;
+		}
+
+		public int getPly() {
+			return ply;
+		}
+
+		public short getMove() {
+			return move;
+		}
+
+		public long getTime() {
+			return time;
+		}
+
+		public long getElapsed() {
+			return elapsed;
+		}
+
+		public long getRemaining() {
+			return remaining;
+		}
+
+		/**
+		 * Pack this entry into a journal record.
+		 *
+		 * @return a record of {@link #RECORD_SIZE} bytes
+		 */
+		public byte[] encode() {
+			ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE);
+			buf.putShort((short) ply).putShort(move).putLong(time).putLong(elapsed).putLong(remaining);
+			buf.putInt(checksum(buf.array()));
+			return buf.array();
+		}
+
+		private static Entry decode(byte[] record) {
+			ByteBuffer buf = ByteBuffer.wrap(record);
+			int ply = buf.getShort() & 0xFFFF;
+			short move = buf.getShort();
+			long time = buf.getLong();
+			long elapsed = buf.getLong();
+			long remaining = buf.getLong();
+			if (buf.getInt() != checksum(record)) {
+				return null;
+			}
+			return new Entry(ply, move, time, elapsed, remaining);
+		}
+	}
+
+	/**
+	 * Append a record to a journal file.  If the file is missing, or belongs to a different epoch,
+	 * it is restarted first; a partial record left at the end by an earlier failed write is
+	 * dropped.
+	 *
+	 * @param file the journal file
+	 * @param epoch the epoch the record belongs to
+	 * @param record the packed record
+	 * @throws IOException if the file can't be written
+	 */
+	public static void append(File file, long epoch, byte[] record) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			long len = raf.length();
+			if (len < HEADER_SIZE || raf.readInt() != MAGIC || raf.readLong() != epoch) {
+				writeHeader(raf, epoch);
+				len = HEADER_SIZE;
+			} else {
+				len -= (len - HEADER_SIZE) % RECORD_SIZE;
+			}
+			raf.seek(len);
+			raf.write(record);
+			raf.setLength(len + RECORD_SIZE);
+			raf.getChannel().force(false);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Restart a journal file, discarding all its records.
+	 *
+	 * @param file the journal file
+	 * @param epoch the new epoch
+	 * @throws IOException if the file can't be written
+	 */
+	public static void reset(File file, long epoch) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			writeHeader(raf, epoch);
+			raf.getChannel().force(false);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Read the entries of a journal file.  Nothing is read if the file doesn't exist or belongs
+	 * to another epoch.  A torn or corrupt record ends the journal and is truncated from the file,
+	 * so that later appends aren't hidden behind it.
+	 *
+	 * @param file the journal file
+	 * @param epoch the epoch of the snapshot the journal is being replayed onto
+	 * @param entries list to which the entries are added, in order
+	 * @return true if the journal was intact, false if a torn tail was discarded
+	 * @throws IOException if the file can't be read
+	 */
+	public static boolean read(File file, long epoch, List<Entry> entries) throws IOException {
+		if (!file.exists()) {
+			return true;
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC || raf.readLong() != epoch) {
+				return true;
+			}
+			DataInputStream in = new DataInputStream(Channels.newInputStream(raf.getChannel()));
+			byte[] record = new byte[RECORD_SIZE];
+			long good = HEADER_SIZE;
+			while (good < raf.length()) {
+				Entry entry;
+				try {
+					in.readFully(record);
+					entry = Entry.decode(record);
+				} catch (EOFException e) {
+					entry = null;
+				}
+				if (entry == null) {
+					raf.setLength(good);
+					return false;
+				}
+				entries.add(entry);
+				good += RECORD_SIZE;
+			}
+			return true;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void writeHeader(RandomAccessFile raf, long epoch) throws IOException {
+		raf.setLength(0L);
+		raf.seek(0L);
+		raf.writeInt(MAGIC);
+		raf.writeLong(epoch);
+	}
+
+	private static int checksum(byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, RECORD_SIZE - 4);
+		return (int) crc.getValue();
+	}
+}
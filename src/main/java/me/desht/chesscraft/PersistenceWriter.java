@@ -0,0 +1,380 @@
+package me.desht.chesscraft;
+
+import me.desht.dhutils.Debugger;
+import me.desht.dhutils.LogUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background writer for persisted objects.
+ *
+ * Objects are marked dirty from the main thread; repeated saves of the same object within the
+ * coalescing window collapse into a single write.  When the window expires, each dirty object is
+ * serialised to YAML on the main thread (Bukkit objects aren't safe to touch from elsewhere), and
+ * the resulting text is handed to a single I/O thread, which writes it to a temporary file and
+ * atomically renames that over the real save file.  Deletions go through the same I/O thread, so
+ * they can't be overtaken by an older pending write.
+ *
+ * Objects with a {@link MoveJournal} can also have individual moves appended to their journal
+ * instead of being rewritten in full; each full write starts a new journal epoch and restarts the
+ * journal file once the snapshot is safely on disk.
+ *
+ * The flush task is never scheduled once the plugin is disabled (Bukkit refuses new tasks from
+ * a disabled plugin, and onDisable() runs after the plugin is marked disabled) or once
+ * {@link #shutdown()} has started: objects marked dirty then are only recorded, and are
+ * serialised directly by the final flush.
+ */
+public class PersistenceWriter {
+	private static final long SHUTDOWN_TIMEOUT = 30;
+
+	private final Plugin plugin;
+	private final long delay;
+	// main thread only: object -> YAML tag, in the order they were first marked dirty
+	private final Map<ChessPersistable, String> dirty = new LinkedHashMap<>();
+	private final ExecutorService ioThread;
+	private BukkitTask flushTask;
+	private boolean closing = false;
+
+	private final AtomicLong queued = new AtomicLong();
+	private final AtomicLong journalled = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+	private final AtomicLong totalWriteNanos = new AtomicLong();
+	private final AtomicLong maxWriteNanos = new AtomicLong();
+
+	/**
+	 * Create a new writer.
+	 *
+	 * @param plugin the plugin which owns the flush task
+	 * @param delay the coalescing window, in server ticks; 0 to flush on the next tick
+	 */
+	public PersistenceWriter(Plugin plugin, long delay) {
+		this.plugin = plugin;
+		this.delay = Math.max(0L, delay);
+		this.ioThread = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "ChessCraft persistence writer");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Mark an object as needing to be saved.  If the object is already waiting to be saved, the
+	 * request is coalesced with the pending one.  Must be called from the main thread.
+	 *
+	 * @param tag the YAML key under which the object is saved
+	 * @param object the object to save
+	 */
+	public void markDirty(String tag, ChessPersistable object) {
+		if (dirty.put(object, tag) != null) {
+			coalesced.incrementAndGet();
+		} else {
+			queued.incrementAndGet();
+		}
+		if (closing || !plugin.isEnabled()) {
+			// no scheduling now; shutdown() flushes whatever is dirty
+			return;
+		}
+		if (flushTask != null && !Bukkit.getScheduler().isQueued(flushTask.getTaskId())) {
+			// cancelled behind our back, e.g. by cancelTasks()
+			flushTask = null;
+		}
+		if (flushTask == null) {
+			flushTask = Bukkit.getScheduler().runTaskLater(plugin, new Runnable() {
+				@Override
+				public void run() {
+					flushTask = null;
+					flush();
+				}
+			}, delay);
+		}
+	}
+
+	/**
+	 * Check if an object is waiting to be saved.  Must be called from the main thread.
+	 *
+	 * @param object the object to check
+	 * @return true if the object has been marked dirty since the last flush
+	 */
+	public boolean isDirty(ChessPersistable object) {
+		return dirty.containsKey(object);
+	}
+
+	/**
+	 * Queue arbitrary YAML data to be written to a file, bypassing dirty tracking.  The data is
+	 * serialised immediately.  Must be called from the main thread.
+	 *
+	 * @param conf the data to write
+	 * @param file the file to write to
+	 */
+	public void write(YamlConfiguration conf, File file) {
+		queued.incrementAndGet();
+		submitWrite(conf.saveToString(), file, null, 0L);
+	}
+
+	/**
+	 * Queue a move to be appended to an object's journal.  Must be called from the main thread.
+	 *
+	 * @param journal the journal
+	 * @param entry the move to append
+	 */
+	public void appendMove(MoveJournal journal, MoveJournal.Entry entry) {
+		journalled.incrementAndGet();
+		journal.movesAppended(1);
+		final File file = journal.getFile();
+		final long epoch = journal.getEpoch();
+		final byte[] record = entry.encode();
+		ioThread.execute(new Runnable() {
+			@Override
+			public void run() {
+				long start = System.nanoTime();
+				try {
+					MoveJournal.append(file, epoch, record);
+				} catch (IOException e) {
+					failed.incrementAndGet();
+					LogUtils.severe("Can't append to " + file, e);
+					return;
+				}
+				recordWrite(System.nanoTime() - start, record.length);
+			}
+		});
+	}
+
+	/**
+	 * Serialise every dirty object now, and queue the results for writing.  Must be called from
+	 * the main thread.
+	 */
+	public void flush() {
+		if (flushTask != null) {
+			flushTask.cancel();
+			flushTask = null;
+		}
+		if (dirty.isEmpty()) {
+			return;
+		}
+		List<Map.Entry<ChessPersistable, String>> entries = new ArrayList<>(dirty.entrySet());
+		dirty.clear();
+		for (Map.Entry<ChessPersistable, String> e : entries) {
+			ChessPersistable object = e.getKey();
+			MoveJournal journal = object.getMoveJournal();
+			long epoch = journal == null ? 0L : journal.startSnapshot();
+			YamlConfiguration conf = new YamlConfiguration();
+			conf.set(e.getValue(), object);
+			submitWrite(conf.saveToString(), ChessPersistence.getSaveFile(object), journal == null ? null : journal.getFile(), epoch);
+		}
+		Debugger.getInstance().debug(2, "persistence: flushed " + entries.size() + " dirty object(s)");
+	}
+
+	/**
+	 * Discard any pending save for the given object, and delete its save file.  Must be called
+	 * from the main thread.
+	 *
+	 * @param object the object to unpersist
+	 */
+	public void delete(ChessPersistable object) {
+		dirty.remove(object);
+		final File file = ChessPersistence.getSaveFile(object);
+		final MoveJournal journal = object.getMoveJournal();
+		ioThread.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (!file.delete()) {
+					LogUtils.warning("Can't delete save file " + file);
+				}
+				if (journal != null && journal.getFile().exists() && !journal.getFile().delete()) {
+					LogUtils.warning("Can't delete journal file " + journal.getFile());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Block until every write queued so far has completed.  Dirty objects which have not yet been
+	 * flushed are not written; call {@link #flush()} first if that's wanted.
+	 */
+	public void awaitIdle() {
+		try {
+			ioThread.submit(new Runnable() {
+				@Override
+				public void run() {
+					// nothing to do; just wait our turn behind any pending writes
+				}
+			}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			LogUtils.severe("persistence writer failed", e);
+		}
+	}
+
+	/**
+	 * Flush all dirty objects, wait for every pending write to complete, and stop the I/O thread.
+	 * Must be called from the main thread; the writer can't be used afterwards.  Safe to call
+	 * while the plugin is being disabled, since no task is scheduled.
+	 */
+	public void shutdown() {
+		closing = true;
+		flush();
+		ioThread.shutdown();
+		try {
+			if (!ioThread.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+				LogUtils.severe("persistence writer did not finish within " + SHUTDOWN_TIMEOUT + "s; some saves may be lost");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		Debugger.getInstance().debug("persistence: " + getQueued() + " queued, " + getCoalesced() + " coalesced, "
+				+ getJournalled() + " journalled, " + getWritten() + " written (" + getBytesWritten() + " bytes), "
+				+ getFailed() + " failed, write latency avg " + getAverageWriteLatency() + "us / max "
+				+ getMaxWriteLatency() + "us");
+	}
+
+	/**
+	 * Get the number of saves queued, not counting those coalesced into an already-pending save.
+	 *
+	 * @return the number of queued saves
+	 */
+	public long getQueued() {
+		return queued.get();
+	}
+
+	/**
+	 * Get the number of saves which were coalesced into an already-pending save of the same object.
+	 *
+	 * @return the number of coalesced saves
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	/**
+	 * Get the number of moves appended to journals rather than saved with a full write.
+	 *
+	 * @return the number of journalled moves
+	 */
+	public long getJournalled() {
+		return journalled.get();
+	}
+
+	/**
+	 * Get the number of successful writes, counting both full writes and journal appends.
+	 *
+	 * @return the number of completed writes
+	 */
+	public long getWritten() {
+		return written.get();
+	}
+
+	/**
+	 * Get the number of writes which failed.
+	 *
+	 * @return the number of failed writes
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * Get the total number of bytes written, counting both full writes and journal appends.
+	 *
+	 * @return the number of bytes written
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	/**
+	 * Get the mean time taken by the I/O thread to write one file.
+	 *
+	 * @return the average write latency, in microseconds
+	 */
+	public long getAverageWriteLatency() {
+		long n = written.get();
+		return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWriteNanos.get() / n);
+	}
+
+	/**
+	 * Get the longest time taken by the I/O thread to write one file.
+	 *
+	 * @return the maximum write latency, in microseconds
+	 */
+	public long getMaxWriteLatency() {
+		return TimeUnit.NANOSECONDS.toMicros(maxWriteNanos.get());
+	}
+
+	private void submitWrite(final String data, final File file, final File journalFile, final long epoch) {
+		ioThread.execute(new Runnable() {
+			@Override
+			public void run() {
+				long start = System.nanoTime();
+				int len;
+				try {
+					len = writeAtomically(data, file);
+					if (journalFile != null) {
+						// the snapshot now holds every journalled move
+						MoveJournal.reset(journalFile, epoch);
+					}
+				} catch (IOException e) {
+					failed.incrementAndGet();
+					LogUtils.severe("Can't save " + file, e);
+					return;
+				}
+				recordWrite(System.nanoTime() - start, len);
+			}
+		});
+	}
+
+	private void recordWrite(long elapsed, int len) {
+		written.incrementAndGet();
+		bytesWritten.addAndGet(len);
+		totalWriteNanos.addAndGet(elapsed);
+		long max = maxWriteNanos.get();
+		while (elapsed > max && !maxWriteNanos.compareAndSet(max, elapsed)) {
+			max = maxWriteNanos.get();
+		}
+	}
+
+	private static int writeAtomically(String data, File file) throws IOException {
+		File dir = file.getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("can't create directory " + dir);
+		}
+		// ".tmp" files aren't picked up by the loader, so a half-written one is harmless
+		File tmp = new File(dir, file.getName() + ".tmp");
+		byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+		FileOutputStream out = new FileOutputStream(tmp);
+		try {
+			out.write(bytes);
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return bytes.length;
+	}
+}
@@ -0,0 +1,141 @@
+package me.desht.chesscraft;
+
+import chesspresso.move.IllegalMoveException;
+import me.desht.chesscraft.chess.ChessGame;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A saved board, and the game on it if any, read from disk ahead of registration.
+ *
+ * {@link #prepare(File, File)} does the expensive but thread-safe part of loading - reading and
+ * parsing the YAML, and replaying the game's move history - so it can run on a worker thread.
+ * The results are raw YAML maps; turning them into BoardView and ChessGame objects touches Bukkit,
+ * so it is left to the main thread.  Anything which can't be prepared (a v4-format save, or a
+ * file which fails to parse) is simply left unprepared, and the main thread loads it the slow way,
+ * which also takes care of migration and error reporting.
+ */
+class PreparedBoard {
+	private final File file;
+	private Map<String, Object> board;
+	private File gameFile;
+	private Map<String, Object> game;
+	private ChessGame.History history;
+
+	private PreparedBoard(File file) {
+		this.file = file;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the board's serialised data, or null if the board couldn't be prepared
+	 */
+	Map<String, Object> getBoard() {
+		return board;
+	}
+
+	/**
+	 * @return the file holding the board's game, or null if the board has no game
+	 */
+	File getGameFile() {
+		return gameFile;
+	}
+
+	/**
+	 * @return the game's serialised data, or null if the game couldn't be prepared
+	 */
+	Map<String, Object> getGame() {
+		return game;
+	}
+
+	ChessGame.History getHistory() {
+		return history;
+	}
+
+	/**
+	 * @param file the board file
+	 * @return a board which will be read entirely on the main thread
+	 */
+	static PreparedBoard unprepared(File file) {
+		return new PreparedBoard(file);
+	}
+
+	/**
+	 * Read a board file, and the file of the game on the board if there is one.  Safe to call
+	 * from any thread.
+	 *
+	 * @param file the board file
+	 * @param gamesDir the directory holding saved games
+	 * @return the prepared board
+	 */
+	static PreparedBoard prepare(File file, File gamesDir) {
+		PreparedBoard pb = unprepared(file);
+		Yaml yaml = new Yaml(new SafeConstructor());
+		try {
+			pb.board = getSection(yaml, file, "board");
+		} catch (IOException | RuntimeException e) {
+			return pb;
+		}
+		if (pb.board == null) {
+			return pb;
+		}
+
+		Object gameName = pb.board.get("game");
+		if (gameName == null || gameName.toString().isEmpty()) {
+			return pb;
+		}
+		pb.gameFile = new File(gamesDir, gameName + ".yml");
+		try {
+			Map<String, Object> game = getSection(yaml, pb.gameFile, "game");
+			if (game != null) {
+				pb.history = ChessGame.History.replay(getMoves(game), journalFileFor(gamesDir, game), getLong(game.get("journalEpoch")));
+				pb.game = game;
+			}
+		} catch (IOException | IllegalMoveException | RuntimeException e) {
+			// leave the game unprepared
+		}
+		return pb;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> getSection(Yaml yaml, File f, String key) throws IOException {
+		Object root = yaml.load(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8));
+		if (root instanceof Map) {
+			Object section = ((Map<?, ?>) root).get(key);
+			if (section instanceof Map) {
+				return (Map<String, Object>) section;
+			}
+		}
+		return null;
+	}
+
+	private static List<Integer> getMoves(Map<String, Object> game) {
+		List<Integer> moves = new ArrayList<>();
+		Object list = game.get("moves");
+		if (list instanceof List) {
+			for (Object o : (List<?>) list) {
+				moves.add(((Number) o).intValue());
+			}
+		}
+		return moves;
+	}
+
+	private static File journalFileFor(File gamesDir, Map<String, Object> game) {
+		return ChessPersistence.getJournalFile(gamesDir, String.valueOf(game.get("name")));
+	}
+
+	private static long getLong(Object o) {
+		return o instanceof Number ? ((Number) o).longValue() : 0L;
+	}
+}
@@ -8,6 +8,7 @@ import me.desht.chesscraft.event.ChessBoardCreatedEvent;
 import me.desht.chesscraft.event.ChessBoardDeletedEvent;
 import me.desht.chesscraft.exceptions.ChessException;
 import me.desht.chesscraft.util.ChessUtils;
+import me.desht.chesscraft.util.ChunkIndex;
 import me.desht.chesscraft.util.TerrainBackup;
 import me.desht.dhutils.LogUtils;
 import me.desht.dhutils.MiscUtil;
@@ -30,10 +31,15 @@ public class BoardViewManager {
 	private static BoardViewManager instance = null;
 
     private final Map<String, BoardView> chessBoards = new HashMap<>();
+    // boards indexed by the chunks their outer bounds overlap, for the block & player event handlers
+    private final ChunkIndex<BoardView> boardIndex = new ChunkIndex<>();
     private final Map<String, Set<File>> deferred = new HashMap<>();
     private PersistableLocation globalTeleportOutDest = null;
 
-    private final List<Cuboid> flightRegions = new ArrayList<>();
+    // flight regions by board, and the same regions indexed by chunk for the player move handler
+    private final Map<BoardView, Cuboid> flightRegions = new HashMap<>();
+    private final ChunkIndex<Cuboid> flightIndex = new ChunkIndex<>();
+    private int flightRegionsVersion = 0;
 
 	private BoardViewManager() {
 	}
@@ -65,8 +71,33 @@ public class BoardViewManager {
 		this.globalTeleportOutDest = globalTeleportOutDest == null ? null : new PersistableLocation(globalTeleportOutDest);
 	}
 
+	/**
+	 * Start registering (or recalculating the flight regions of) many boards at once.  The
+	 * chunk indexes used by the event handlers aren't updated until the matching
+	 * {@link #endBatchUpdate()}, which should be called in a finally block.
+	 */
+	public void beginBatchUpdate() {
+		boardIndex.beginBatch();
+		flightIndex.beginBatch();
+	}
+
+	/**
+	 * Finish a batch update started by {@link #beginBatchUpdate()}, bringing the chunk indexes
+	 * up to date.
+	 */
+	public void endBatchUpdate() {
+		flightIndex.endBatch();
+		boardIndex.endBatch();
+	}
+
 	public void registerView(BoardView view) {
-		chessBoards.put(view.getName(), view);
+		BoardView old = chessBoards.put(view.getName(), view);
+		if (old != null) {
+			boardIndex.remove(old);
+			// no ChessBoardDeletedEvent fires for the replaced view, so drop its flight region here
+			removeFlightRegion(old);
+		}
+		boardIndex.add(view, view.getWorldName(), view.getOuterBounds());
 
 		Bukkit.getPluginManager().callEvent(new ChessBoardCreatedEvent(view));
 	}
@@ -76,6 +107,7 @@ public class BoardViewManager {
 		try {
 			bv = getBoardView(name);
 			chessBoards.remove(name);
+			boardIndex.remove(bv);
 			Bukkit.getPluginManager().callEvent(new ChessBoardDeletedEvent(bv));
 		} catch (ChessException e) {
 			LogUtils.warning("removeBoardView: unknown board name " + name);
@@ -179,9 +211,16 @@ public class BoardViewManager {
 	 * @return the boardview that matches, or null if none
 	 */
 	public BoardView partOfChessBoard(Location loc, int fudge) {
-		for (BoardView bv : listBoardViews()) {
-			if (bv.isPartOfBoard(loc, fudge)) {
-				return bv;
+		String worldName = loc.getWorld().getName();
+		int x = loc.getBlockX(), z = loc.getBlockZ();
+		// a non-zero fudge factor may reach into neighbouring chunks
+		for (int cx = (x - fudge) >> 4; cx <= (x + fudge) >> 4; cx++) {
+			for (int cz = (z - fudge) >> 4; cz <= (z + fudge) >> 4; cz++) {
+				for (BoardView bv : boardIndex.get(worldName, cx, cz)) {
+					if (bv.isPartOfBoard(loc, fudge)) {
+						return bv;
+					}
+				}
 			}
 		}
 		return null;
@@ -194,7 +233,7 @@ public class BoardViewManager {
 	 * @return the flight region for the location, or null if not in a flight region
 	 */
 	public Cuboid getFlightRegion(Location loc) {
-		for (Cuboid c : flightRegions) {
+		for (Cuboid c : flightIndex.get(loc)) {
 			if (c.contains(loc)) {
 				return c;
 			}
@@ -209,7 +248,7 @@ public class BoardViewManager {
 	 * @return the boardview that matches, or null if none
 	 */
 	public BoardView aboveChessBoard(Location loc) {
-		for (BoardView bv : listBoardViews()) {
+		for (BoardView bv : boardIndex.get(loc)) {
 			if (bv.isAboveBoard(loc)) {
 				return bv;
 			}
@@ -224,7 +263,7 @@ public class BoardViewManager {
 	 * @return the boardview that matches, or null if none
 	 */
 	public BoardView onChessBoard(Location loc) {
-		for (BoardView bv : listBoardViews()) {
+		for (BoardView bv : boardIndex.get(loc)) {
 			if (bv.isOnBoard(loc)) {
 				return bv;
 			}
@@ -311,8 +350,13 @@ public class BoardViewManager {
 			return;
 		}
 		LogUtils.info("loading deferred boards for " + worldName);
-		for (File f : deferred.get(worldName)) {
-			ChessCraft.getInstance().getPersistenceHandler().loadBoard(f);
+		beginBatchUpdate();
+		try {
+			for (File f : deferred.get(worldName)) {
+				ChessCraft.getInstance().getPersistenceHandler().loadBoard(f);
+			}
+		} finally {
+			endBatchUpdate();
 		}
 		deferred.get(worldName).clear();
 	}
@@ -340,18 +384,18 @@ public class BoardViewManager {
 	 * @return the boardview containing the chunk, or null
 	 */
 	public BoardView getBoardViewForChunk(Chunk chunk) {
-        for (BoardView bv : new ArrayList<>(listBoardViews())) {
-            Cuboid c = bv.getOuterBounds();
-			if (!c.getWorld().equals(chunk.getWorld())) {
-				continue;
-			}
-			for (Chunk boardChunk : c.getChunks()) {
-				if (boardChunk.getX() == chunk.getX() && boardChunk.getZ() == chunk.getZ()) {
-					return bv;
-				}
-			}
-		}
-		return null;
+		List<BoardView> views = boardIndex.get(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+		return views.isEmpty() ? null : views.get(0);
+	}
+
+	/**
+	 * Get a counter which changes whenever any flight region is added, changed or removed.  Callers
+	 * which cache the result of {@link #getFlightRegion(Location)} can use this to detect stale entries.
+	 *
+	 * @return the flight regions version
+	 */
+	public int getFlightRegionsVersion() {
+		return flightRegionsVersion;
 	}
 
 	/**
@@ -359,19 +403,54 @@ public class BoardViewManager {
 	 * code which is (frequently) called from the PlayerMoveEvent handler in the flight listener.
 	 */
 	public void recalculateFlightRegions() {
+		flightIndex.beginBatch();
+		try {
+			for (BoardView bv : new ArrayList<>(flightRegions.keySet())) {
+				if (chessBoards.get(bv.getName()) != bv) {
+					removeFlightRegion(bv);
+				}
+			}
+			for (BoardView bv : listBoardViews()) {
+				recalculateFlightRegion(bv);
+			}
+		} finally {
+			flightIndex.endBatch();
+		}
+	}
+
+	/**
+	 * Recalculate the region in which flight is allowed for a single board.
+	 *
+	 * @param bv the board view
+	 */
+	public void recalculateFlightRegion(BoardView bv) {
 		int above = ChessCraft.getInstance().getConfig().getInt("flying.upper_limit");
 		int outside = ChessCraft.getInstance().getConfig().getInt("flying.outer_limit");
 
-		flightRegions.clear();
+		Cuboid c = bv.getOuterBounds();
+		MaterialData mat = bv.getChessBoard().getBoardStyle().getEnclosureMaterial();
+		if (mat.getItemType().isTransparent() || BlockType.canPassThrough(mat.getItemTypeId())) {
+			c = c.expand(CuboidDirection.Up, Math.max(5, (c.getSizeY() * above) / 100));
+			c = c.outset(CuboidDirection.Horizontal, Math.max(5, (c.getSizeX() * outside) / 100));
+		}
+		Cuboid old = flightRegions.put(bv, c);
+		if (old != null) {
+			flightIndex.remove(old);
+		}
+		flightIndex.add(c, bv.getWorldName(), c);
+		flightRegionsVersion++;
+	}
 
-		for (BoardView bv : listBoardViews()) {
-			Cuboid c = bv.getOuterBounds();
-			MaterialData mat = bv.getChessBoard().getBoardStyle().getEnclosureMaterial();
-			if (mat.getItemType().isTransparent() || BlockType.canPassThrough(mat.getItemTypeId())) {
-				c = c.expand(CuboidDirection.Up, Math.max(5, (c.getSizeY() * above) / 100));
-				c = c.outset(CuboidDirection.Horizontal, Math.max(5, (c.getSizeX() * outside) / 100));
-			}
-			flightRegions.add(c);
+	/**
+	 * Remove the flight region for a board, e.g. when the board is deleted.
+	 *
+	 * @param bv the board view
+	 */
+	public void removeFlightRegion(BoardView bv) {
+		Cuboid old = flightRegions.remove(bv);
+		if (old != null) {
+			flightIndex.remove(old);
+			flightRegionsVersion++;
 		}
 	}
 
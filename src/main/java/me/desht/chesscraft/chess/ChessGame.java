@@ -34,6 +34,7 @@ import org.bukkit.entity.Player;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.*;
@@ -55,6 +56,7 @@ public class ChessGame implements ConfigurationSerializable, ChessPersistable {
 	private boolean openInvite;
     private final List<GameListener> listeners = Lists.newArrayList();
     private final TwoPlayerClock clock;
+	private final MoveJournal journal;
 
     /**
 	 * Create a new Chess game.
@@ -79,8 +81,10 @@ public class ChessGame implements ConfigurationSerializable, ChessPersistable {
 		result = Chess.RES_NOT_FINISHED;
         stake = 0.0;
         clock = new TwoPlayerClock(tcSpec);
+		// any stale journal left under this name won't match a fresh epoch
+		journal = new MoveJournal(ChessPersistence.getJournalFile(this), System.currentTimeMillis());
 
-		cpGame = setupChesspressoGame();
+		cpGame = setupChesspressoGame(new Game());
 
 //		view.setGame(this);
 	}
@@ -93,6 +97,19 @@ public class ChessGame implements ConfigurationSerializable, ChessPersistable {
 	 * @throws IllegalMoveException	If the game data contains an illegal Chess move
 	 */
 	public ChessGame(ConfigurationSection conf) throws IllegalMoveException {
+		this(conf, null);
+	}
+
+	/**
+	 * Constructor: Restoring a saved Chess game whose move history may already have been
+	 * replayed, possibly on another thread.
+	 *
+	 * @param conf	Saved game data
+	 * @param replayed	The replayed move history, or null to replay it now
+	 * @throws ChessException	If the game can't be created for any reason
+	 * @throws IllegalMoveException	If the game data contains an illegal Chess move
+	 */
+	public ChessGame(ConfigurationSection conf, History replayed) throws IllegalMoveException {
 		name = conf.getString("name");
 		String dispW = conf.getString("playerWhiteDisp", "?white?");
 		String dispB = conf.getString("playerBlackDisp", "?black?");
@@ -102,10 +119,6 @@ public class ChessGame implements ConfigurationSerializable, ChessPersistable {
 		String inv = conf.getString("invited", "");
 		invited = inv.isEmpty() ? null : UUID.fromString(inv);
 		openInvite = conf.getBoolean("openInvite", false);
-		List<Integer> hTmp = conf.getIntegerList("moves");
-		for (int m : hTmp) {
-			history.add((short) m);
-		}
         this.clock = (TwoPlayerClock) conf.get("clock");
 		created = conf.getLong("created", System.currentTimeMillis());
 		started = conf.getLong("started");
@@ -116,8 +129,13 @@ public class ChessGame implements ConfigurationSerializable, ChessPersistable {
 		if (hasPlayer(Chess.WHITE)) getPlayer(Chess.WHITE).setPromotionPiece(conf.getInt("promotionWhite"));
 		if (hasPlayer(Chess.BLACK)) getPlayer(Chess.BLACK).setPromotionPiece(conf.getInt("promotionBlack"));
 		stake = conf.getDouble("stake", 0.0);
+		journal = new MoveJournal(ChessPersistence.getJournalFile(this), conf.getLong("journalEpoch", 0L));
+		if (replayed == null) {
+			replayed = History.replay(conf.getIntegerList("moves"), journal.getFile(), journal.getEpoch());
+		}
+		restoreHistory(replayed);
 
-		cpGame = setupChesspressoGame();
+		cpGame = setupChesspressoGame(replayed.cpGame);
 
 		replayMoves();
 
@@ -162,16 +180,21 @@ public class ChessGame implements ConfigurationSerializable, ChessPersistable {
 		map.put("promotionBlack", getPromotionPiece(Chess.BLACK));
         map.put("clock", clock);
 		map.put("stake", stake);
+		map.put("journalEpoch", journal.getEpoch());
 
 		return map;
 	}
 
 	public static ChessGame deserialize(Map <String,Object> map) throws IllegalMoveException {
+		return deserialize(map, null);
+	}
+
+	public static ChessGame deserialize(Map <String,Object> map, History replayed) throws IllegalMoveException {
 		Configuration conf = new MemoryConfiguration();
 		for (Entry<String, Object> e : map.entrySet()) {
 			conf.set(e.getKey(), e.getValue());
 		}
-		return new ChessGame(conf);
+		return new ChessGame(conf, replayed);
 	}
 
 	@Override
@@ -184,27 +207,108 @@ public class ChessGame implements ConfigurationSerializable, ChessPersistable {
 		return DirectoryStructure.getGamesPersistDirectory();
 	}
 
+	@Override
+	public MoveJournal getMoveJournal() {
+		return journal;
+	}
+
 	/**
-	 * Replay the move history to restore the saved board position.  We do this
-	 * instead of just saving the position so that the Chesspresso ChessGame model
-	 * includes a history of the moves, suitable for creating a PGN file.
+	 * A saved game's move history: the moves from the game's save file plus any made since it
+	 * was last saved in full (from the game's move journal), replayed into a Chesspresso game
+	 * model.  Building one only involves file I/O and Chesspresso, so it can be done off the main
+	 * thread, ahead of constructing the game itself.
+	 */
+	public static class History {
+		private final List<Short> moves = new ArrayList<>();
+		private final List<MoveJournal.Entry> journalled = new ArrayList<>();
+		private final Game cpGame = new Game();
+		private boolean journalTorn;
+		private String journalError;
+		private int journalGap = -1;
+
+		private History() {
+		}
+
+		/**
+		 * Read a game's move journal, and replay the complete move history.
+		 *
+		 * @param saved the moves from the game's save file
+		 * @param journalFile the game's move journal
+		 * @param journalEpoch the journal epoch recorded in the game's save file
+		 * @return the replayed history
+		 * @throws IllegalMoveException if the history contains an illegal move
+		 */
+		public static History replay(List<Integer> saved, File journalFile, long journalEpoch) throws IllegalMoveException {
+			History h = new History();
+			for (int m : saved) {
+				h.moves.add((short) m);
+			}
+
+			List<MoveJournal.Entry> entries = new ArrayList<>();
+			try {
+				h.journalTorn = !MoveJournal.read(journalFile, journalEpoch, entries);
+			} catch (IOException e) {
+				h.journalError = e.getMessage();
+			}
+			for (MoveJournal.Entry entry : entries) {
+				if (entry.getPly() < h.moves.size()) {
+					continue;
+				} else if (entry.getPly() > h.moves.size()) {
+					h.journalGap = h.moves.size();
+					break;
+				}
+				h.moves.add(entry.getMove());
+				h.journalled.add(entry);
+			}
+
+			// load moves into the Chesspresso model
+			for (short move : h.moves) {
+				h.cpGame.getPosition().doMove(move);
+			}
+			return h;
+		}
+	}
+
+	/**
+	 * Restore the move history, along with the state recorded by any journalled moves.
 	 *
-	 * @throws IllegalMoveException
+	 * @param replayed the replayed history
 	 */
-	private void replayMoves() throws IllegalMoveException {
-		// load moves into the Chesspresso model
-		for (short move : history) {
-			getPosition().doMove(move);
+	private void restoreHistory(History replayed) {
+		history.addAll(replayed.moves);
+		if (replayed.journalError != null) {
+			LogUtils.warning("game " + getName() + ": can't read move journal: " + replayed.journalError);
+		} else if (replayed.journalTorn) {
+			LogUtils.warning("game " + getName() + ": discarded a torn record at the end of the move journal");
+		}
+		if (replayed.journalGap >= 0) {
+			LogUtils.warning("game " + getName() + ": gap in move journal at ply " + replayed.journalGap);
 		}
+		for (MoveJournal.Entry entry : replayed.journalled) {
+			// white moves on even plies
+			int colour = entry.getPly() % 2 == 0 ? Chess.WHITE : Chess.BLACK;
+			lastMoved = entry.getTime();
+			clock.setTimes(colour, entry.getElapsed(), entry.getRemaining());
+		}
+		journal.movesAppended(replayed.journalled.size());
+		if (!replayed.journalled.isEmpty()) {
+			Debugger.getInstance().debug("game " + getName() + ": recovered " + replayed.journalled.size() + " move(s) from journal");
+		}
+	}
 
+	/**
+	 * Replay the move history to restore the saved board position.  We do this
+	 * instead of just saving the position so that the Chesspresso ChessGame model
+	 * includes a history of the moves, suitable for creating a PGN file.  The
+	 * Chesspresso model itself is replayed by {@link History#replay(List, File, long)}.
+	 */
+	private void replayMoves() {
 		// load moves into the player's (possibly AI) game model
 		if (players[Chess.WHITE] != null) players[Chess.WHITE].replayMoves();
 		if (players[Chess.BLACK] != null) players[Chess.BLACK].replayMoves();
 	}
 
-	private Game setupChesspressoGame() {
-		Game cpg = new Game();
-
+	private Game setupChesspressoGame(Game cpg) {
 		String site = Bukkit.getServerName() + Messages.getString("Game.sitePGN");
 
 		// seven tag roster
@@ -676,9 +780,28 @@ public class ChessGame implements ConfigurationSerializable, ChessPersistable {
             getPlayer(getPosition().getToPlay()).promptForNextMove();
         }
 
-        save();
+        saveMove(prevToMove, realMove);
     }
 
+	/**
+	 * Persist a move which has just been made.  Usually the move is just appended to the game's
+	 * move journal; every so often, and whenever the game is no longer running, the whole game is
+	 * saved instead, which also compacts the journal.
+	 *
+	 * @param colour colour of the player who made the move
+	 * @param move the move
+	 */
+	private void saveMove(int colour, short move) {
+		int compactAfter = ChessCraft.getInstance().getConfig().getInt("persistence.journal_compact_moves", 20);
+		if (getState() != GameState.RUNNING || journal.getMovesSinceSnapshot() >= compactAfter) {
+			save();
+		} else {
+			MoveJournal.Entry entry = new MoveJournal.Entry(history.size() - 1, move, lastMoved,
+					clock.getElapsedTime(colour), clock.getRemainingTime(colour));
+			ChessCraft.getInstance().getPersistenceHandler().journalMove(this, entry);
+		}
+	}
+
 	/**
 	 * Check the current game position to see if the game is over.
 	 *
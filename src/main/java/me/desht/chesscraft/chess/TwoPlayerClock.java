@@ -102,6 +102,18 @@ public class TwoPlayerClock implements ConfigurationSerializable {
         return remaining[colour];
     }
 
+    /**
+     * Restore one player's clock times, e.g. from a journalled move.
+     *
+     * @param colour the player's colour
+     * @param elapsed total elapsed time, in ms
+     * @param remaining remaining time, in ms
+     */
+    public void setTimes(int colour, long elapsed, long remaining) {
+        this.elapsed[colour] = elapsed;
+        this.remaining[colour] = remaining;
+    }
+
     public String getClockString(int colour) {
         switch (timeControl.getControlType()) {
             case NONE:
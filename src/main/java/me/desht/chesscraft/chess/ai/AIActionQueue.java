@@ -0,0 +1,173 @@
+package me.desht.chesscraft.chess.ai;
+
+import me.desht.chesscraft.chess.ChessGame;
+import me.desht.chesscraft.chess.ChessGameManager;
+import me.desht.chesscraft.chess.player.AIChessPlayer;
+import me.desht.chesscraft.chess.player.ChessPlayer;
+import me.desht.chesscraft.enums.GameState;
+import me.desht.dhutils.LogUtils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands actions taken by AIs (moves, draw offers and responses) from the AI threads over to the
+ * main thread.
+ *
+ * Any number of AI threads publish to a lock-free queue (a ConcurrentLinkedQueue, which also
+ * provides the memory-visibility guarantees that plain fields didn't), and {@link AIActionTask}
+ * drains it on the main thread every server tick, so an AI's move is applied at most one tick
+ * after the AI makes it.  The time from publication to dispatch, and the length of the server
+ * tick as seen by the drain task, are measured.
+ */
+public class AIActionQueue {
+	private final Queue<Action> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicLong published = new AtomicLong();
+
+	// main thread only
+	private long dispatched;
+	private long totalLatencyNanos, maxLatencyNanos;
+	private long ticks, totalTickNanos, maxTickNanos;
+	private long lastDrain;
+
+	/**
+	 * An action taken by an AI.
+	 */
+	public static class Action {
+		private final ChessAI ai;
+		private final ChessAI.PendingAction type;
+		private final int fromSqi, toSqi;
+		private final long published;
+
+		private Action(ChessAI ai, ChessAI.PendingAction type, int fromSqi, int toSqi) {
+			this.ai = ai;
+			this.type = type;
+			this.fromSqi = fromSqi;
+			this.toSqi = toSqi;
+			this.published = System.nanoTime();
+		}
+
+		public ChessAI getAI() {
+			return ai;
+		}
+
+		public ChessAI.PendingAction getType() {
+			return type;
+		}
+
+		public int getFromSqi() {
+			return fromSqi;
+		}
+
+		public int getToSqi() {
+			return toSqi;
+		}
+	}
+
+	/**
+	 * Publish an action for the main thread to pick up.  May be called from any thread.
+	 *
+	 * @param ai the AI taking the action
+	 * @param type the action
+	 * @param fromSqi for a move, the square moved from
+	 * @param toSqi for a move, the square moved to
+	 */
+	void publish(ChessAI ai, ChessAI.PendingAction type, int fromSqi, int toSqi) {
+		queue.add(new Action(ai, type, fromSqi, toSqi));
+		published.incrementAndGet();
+	}
+
+	/**
+	 * Dispatch every published action to its AI player.  Actions for games which are no longer
+	 * running, or for AIs which are no longer playing their game, are dropped.  Must be called
+	 * from the main thread.
+	 */
+	public void drain() {
+		long start = System.nanoTime();
+		if (lastDrain != 0) {
+			long tick = start - lastDrain;
+			ticks++;
+			totalTickNanos += tick;
+			maxTickNanos = Math.max(maxTickNanos, tick);
+		}
+		lastDrain = start;
+
+		Action action;
+		while ((action = queue.poll()) != null) {
+			long latency = start - action.published;
+			dispatched++;
+			totalLatencyNanos += latency;
+			maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+			try {
+				dispatch(action);
+			} catch (Exception e) {
+				LogUtils.severe("unexpected exception handling AI action " + action.getType(), e);
+			}
+		}
+	}
+
+	private void dispatch(Action action) {
+		ChessGame game = action.getAI().getChessCraftGame();
+		ChessGameManager gm = ChessGameManager.getManager();
+		if (game.getState() != GameState.RUNNING || !gm.checkGame(game.getName()) || gm.getGame(game.getName()) != game) {
+			return;
+		}
+		ChessPlayer cp = action.getAI().getChessPlayer();
+		if (cp instanceof AIChessPlayer) {
+			((AIChessPlayer) cp).handleAIAction(action);
+		}
+	}
+
+	/**
+	 * @return the number of actions waiting to be dispatched
+	 */
+	public int size() {
+		return queue.size();
+	}
+
+	public long getPublished() {
+		return published.get();
+	}
+
+	public long getDispatched() {
+		return dispatched;
+	}
+
+	/**
+	 * @return the mean time from an action being published to its dispatch, in ms
+	 */
+	public double getAverageLatency() {
+		return dispatched == 0 ? 0.0 : (double) totalLatencyNanos / dispatched / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the longest time from an action being published to its dispatch, in ms
+	 */
+	public double getMaxLatency() {
+		return (double) maxLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the mean time between two drains, i.e. the server tick length, in ms
+	 */
+	public double getAverageTick() {
+		return ticks == 0 ? 0.0 : (double) totalTickNanos / ticks / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the longest time between two drains, in ms
+	 */
+	public double getMaxTick() {
+		return (double) maxTickNanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * Forget the time of the last drain; called when the drain task stops, so that the gap until
+	 * it restarts isn't counted as a tick.
+	 */
+	void stopped() {
+		lastDrain = 0;
+	}
+}
@@ -0,0 +1,26 @@
+package me.desht.chesscraft.chess.ai;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Drains the {@link AIActionQueue} on the main thread.  Scheduled to run every server tick; when
+ * no AI has done anything, a run costs a single poll of an empty queue.
+ */
+public class AIActionTask extends BukkitRunnable {
+	private final AIActionQueue queue;
+
+	public AIActionTask(AIActionQueue queue) {
+		this.queue = queue;
+	}
+
+	@Override
+	public void run() {
+		queue.drain();
+	}
+
+	@Override
+	public synchronized void cancel() throws IllegalStateException {
+		super.cancel();
+		queue.stopped();
+	}
+}
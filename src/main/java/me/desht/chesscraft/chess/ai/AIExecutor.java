@@ -0,0 +1,261 @@
+package me.desht.chesscraft.chess.ai;
+
+import chesspresso.Chess;
+import me.desht.chesscraft.chess.TwoPlayerClock;
+import me.desht.dhutils.LogUtils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size pool of threads on which AIs calculate their moves, so that AI searches don't
+ * compete with other plugins' tasks on Bukkit's shared async pool, and so that lots of AI games
+ * can't use more than the configured number of cores between them.
+ *
+ * Waiting jobs are run earliest-deadline-first: a job's deadline is the time it became ready plus
+ * the AI's remaining clock time, capped at {@link #PRESSURE_HORIZON}.  So an AI which is short of
+ * time jumps ahead of others, while every other job (including those of untimed games) simply
+ * waits its turn in arrival order.  Since each AI has at most one job at a time, and has to join
+ * the back of the queue again for its next move, no game can monopolise the pool.
+ *
+ * Cancellation is cooperative: a job which hasn't started is removed from the queue, while a job
+ * which is already running is marked cancelled and its AI is asked to abandon the calculation
+ * (see {@link ChessAI#abortThinking()}), freeing the thread; any result it still produces is
+ * discarded.
+ *
+ * AIs backed by an external engine process don't use the pool at all (see
+ * {@link ChessAI#isExternal()}): they'd only hold a thread while blocked on the engine's output.
+ */
+public class AIExecutor {
+	// clock time beyond which an AI isn't considered to be under time pressure
+	private static final long PRESSURE_HORIZON = TimeUnit.MINUTES.toNanos(5);
+	private static final long SHUTDOWN_TIMEOUT = 5;
+
+	private static final ThreadLocal<Job> currentJob = new ThreadLocal<>();
+
+	private final ThreadPoolExecutor workers;
+	private final ScheduledExecutorService timer;
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong started = new AtomicLong();
+	private final AtomicLong cancelled = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	/**
+	 * A request for an AI to calculate its next move.
+	 */
+	public class Job implements Runnable, Comparable<Job> {
+		private final ChessAI ai;
+		private final long urgency;
+		private final long seq;
+		private volatile boolean cancelled, done;
+		private volatile long ready, deadline;
+		private ScheduledFuture<?> delayed;
+
+		private Job(ChessAI ai, long urgency) {
+			this.ai = ai;
+			this.urgency = urgency;
+			this.seq = sequence.incrementAndGet();
+		}
+
+		private void enqueue() {
+			if (cancelled) {
+				return;
+			}
+			ready = System.nanoTime();
+			deadline = ready + urgency;
+			workers.execute(this);
+		}
+
+		@Override
+		public void run() {
+			if (cancelled) {
+				return;
+			}
+			recordWait(System.nanoTime() - ready);
+			currentJob.set(this);
+			try {
+				ai.run();
+			} finally {
+				done = true;
+				currentJob.remove();
+			}
+		}
+
+		/**
+		 * Cancel this job.  If it is still waiting, it's dropped; if it is running, the AI is asked
+		 * to stop, and will discard its result.  May be called from any thread.
+		 */
+		public void cancel() {
+			if (cancelled || done) {
+				return;
+			}
+			cancelled = true;
+			AIExecutor.this.cancelled.incrementAndGet();
+			synchronized (this) {
+				if (delayed != null) {
+					delayed.cancel(false);
+				}
+			}
+			workers.remove(this);
+			ai.abortThinking();
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * @return true if this job is running on the current thread
+		 */
+		public boolean isCurrent() {
+			return currentJob.get() == this;
+		}
+
+		@Override
+		public int compareTo(Job other) {
+			int res = Long.compare(deadline - other.deadline, 0L);
+			return res != 0 ? res : Long.compare(seq, other.seq);
+		}
+	}
+
+	/**
+	 * Create a new AI executor.
+	 *
+	 * @param nThreads the number of worker threads
+	 */
+	public AIExecutor(int nThreads) {
+		final AtomicInteger threadNum = new AtomicInteger();
+		workers = new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), r -> {
+			Thread t = new Thread(r, "ChessCraft AI #" + threadNum.incrementAndGet());
+			t.setDaemon(true);
+			// AI searches shouldn't hold up the server's own threads
+			t.setPriority(Thread.NORM_PRIORITY - 1);
+			return t;
+		});
+		timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "ChessCraft AI timer");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Queue an AI to calculate its next move.  Must be called from the main thread, since the
+	 * AI's game clock is consulted.
+	 *
+	 * @param ai the AI
+	 * @param delay the minimum time before the AI starts thinking, in ms
+	 * @return the queued job
+	 */
+	public Job submit(ChessAI ai, long delay) {
+		TwoPlayerClock clock = ai.getChessCraftGame().getClock();
+		long remaining = clock.getRemainingTime(ai.isWhite() ? Chess.WHITE : Chess.BLACK);
+		long urgency = remaining >= TimeUnit.NANOSECONDS.toMillis(PRESSURE_HORIZON) ?
+				PRESSURE_HORIZON : TimeUnit.MILLISECONDS.toNanos(Math.max(0L, remaining));
+		final Job job = new Job(ai, urgency);
+		submitted.incrementAndGet();
+		if (delay > 0) {
+			synchronized (job) {
+				job.delayed = timer.schedule(job::enqueue, delay, TimeUnit.MILLISECONDS);
+			}
+		} else {
+			job.enqueue();
+		}
+		return job;
+	}
+
+	/**
+	 * Check if the job running on the current thread, if any, has been cancelled.
+	 *
+	 * @return true if the current thread is running a cancelled job
+	 */
+	static boolean isCurrentJobCancelled() {
+		Job job = currentJob.get();
+		return job != null && job.isCancelled();
+	}
+
+	/**
+	 * Stop the executor.  Waiting jobs are dropped; running jobs are given a few seconds to finish,
+	 * and their results discarded.
+	 */
+	public void shutdown() {
+		timer.shutdownNow();
+		for (Runnable r : workers.getQueue()) {
+			((Job) r).cancel();
+		}
+		workers.shutdown();
+		try {
+			if (!workers.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+				LogUtils.warning("AI threads did not finish within " + SHUTDOWN_TIMEOUT + "s");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the number of worker threads
+	 */
+	public int getThreads() {
+		return workers.getCorePoolSize();
+	}
+
+	/**
+	 * @return the number of AIs ready to think but waiting for a free thread
+	 */
+	public int getQueueDepth() {
+		return workers.getQueue().size();
+	}
+
+	/**
+	 * @return the number of AIs thinking right now
+	 */
+	public int getActiveCount() {
+		return workers.getActiveCount();
+	}
+
+	public long getSubmitted() {
+		return submitted.get();
+	}
+
+	public long getStarted() {
+		return started.get();
+	}
+
+	public long getCancelled() {
+		return cancelled.get();
+	}
+
+	/**
+	 * @return the mean time a job waited for a free thread, in ms
+	 */
+	public double getAverageWait() {
+		long n = started.get();
+		return n == 0 ? 0.0 : (double) totalWaitNanos.get() / n / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the longest time a job waited for a free thread, in ms
+	 */
+	public double getMaxWait() {
+		return (double) maxWaitNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	private void recordWait(long wait) {
+		started.incrementAndGet();
+		totalWaitNanos.addAndGet(wait);
+		long max = maxWaitNanos.get();
+		while (wait > max && !maxWaitNanos.compareAndSet(max, wait)) {
+			max = maxWaitNanos.get();
+		}
+	}
+}
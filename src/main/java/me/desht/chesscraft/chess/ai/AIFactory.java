@@ -33,6 +33,8 @@ public class AIFactory {
 	private static final String AI_CORE_DEFS = "/AI_settings.yml";
 
     private final HashMap<String, ChessAI> runningAIs = new HashMap<>();
+    private final AIActionQueue actionQueue = new AIActionQueue();
+    private AIExecutor executor;
     private final Map<String, AIDefinition> allAliases = new HashMap<>();
     private final Map<String, AIDefinition> coreDefs = new HashMap<>();
 
@@ -106,6 +108,50 @@ public class AIFactory {
 		for (ChessAI ai : l) {
 			ai.delete();
 		}
+		synchronized (this) {
+			if (executor != null) {
+				executor.shutdown();
+				executor = null;
+			}
+		}
+	}
+
+	/**
+	 * Get the thread pool on which AIs calculate their moves, starting it if necessary.  The pool
+	 * size is taken from "ai.threads"; 0 (the default) means one thread fewer than there are
+	 * processors, leaving one for the server's main thread.
+	 *
+	 * @return the AI executor
+	 */
+	public synchronized AIExecutor getExecutor() {
+		if (executor == null) {
+			int nThreads = ChessCraft.getInstance().getConfig().getInt("ai.threads", 0);
+			if (nThreads <= 0) {
+				nThreads = Runtime.getRuntime().availableProcessors() - 1;
+			}
+			executor = new AIExecutor(Math.max(1, nThreads));
+			Debugger.getInstance().debug("started AI executor with " + executor.getThreads() + " thread(s)");
+		}
+		return executor;
+	}
+
+	/**
+	 * Get the thread pool on which AIs calculate their moves, without starting it.  Use this for
+	 * reporting, so that merely asking about the pool doesn't spin up its threads.
+	 *
+	 * @return the AI executor, or null if no AI has needed it yet
+	 */
+	public synchronized AIExecutor getExecutorIfStarted() {
+		return executor;
+	}
+
+	/**
+	 * Get the queue through which AI threads hand their moves over to the main thread.
+	 *
+	 * @return the AI action queue
+	 */
+	public AIActionQueue getActionQueue() {
+		return actionQueue;
 	}
 
 	public List<AIDefinition> listAIDefinitions() {
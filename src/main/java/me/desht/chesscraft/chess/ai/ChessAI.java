@@ -8,10 +8,8 @@ import me.desht.chesscraft.chess.TimeControl;
 import me.desht.chesscraft.chess.player.ChessPlayer;
 import me.desht.dhutils.Debugger;
 import me.desht.dhutils.LogUtils;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.util.List;
 
@@ -28,14 +26,13 @@ public abstract class ChessAI implements Runnable {
 	 */
 	public static final String AI_PREFIX = ChatColor.WHITE.toString();
 
-	public enum PendingAction { NONE, MOVED, DRAW_OFFERED, DRAW_ACCEPTED, DRAW_DECLINED }
+	public enum PendingAction { MOVED, DRAW_OFFERED, DRAW_ACCEPTED, DRAW_DECLINED }
 
-	private boolean active = false;
-	private BukkitTask aiTask;
-	private boolean hasFailed = false;
-	private PendingAction pendingAction = PendingAction.NONE;
-	private int pendingFrom, pendingTo;
-	private boolean ready = false;
+	// these are touched by both the AI thread and the main thread
+	private volatile boolean active = false;
+	private volatile AIExecutor.Job aiTask;
+	private volatile boolean hasFailed = false;
+	private volatile boolean ready = false;
 	private boolean drawOffered = false; // draw offered *to* the AI
 
 	private final String name;
@@ -123,22 +120,6 @@ public abstract class ChessAI implements Runnable {
 		return isWhite;
 	}
 
-	public PendingAction getPendingAction() {
-		return pendingAction;
-	}
-
-	public void clearPendingAction() {
-		pendingAction = PendingAction.NONE;
-	}
-
-	public int getPendingFrom() {
-		return pendingFrom;
-	}
-
-	public int getPendingTo() {
-		return pendingTo;
-	}
-
 	public boolean hasFailed() {
 		return hasFailed;
 	}
@@ -147,6 +128,16 @@ public abstract class ChessAI implements Runnable {
 		hasFailed = failed;
 	}
 
+	/**
+	 * Check if the AI is expected to move, i.e. it's been told to start thinking and hasn't
+	 * moved or been stopped since.
+	 *
+	 * @return true if the AI is active
+	 */
+	protected boolean isActive() {
+		return active;
+	}
+
 	protected void setReady() {
 		ready = true;
 	}
@@ -246,21 +237,71 @@ public abstract class ChessAI implements Runnable {
 	 * AI's next move.
 	 */
 	private void startThinking() {
-		long delay = ChessCraft.getInstance().getConfig().getInt("ai.min_move_wait", 0);
-		aiTask = Bukkit.getScheduler().runTaskLaterAsynchronously(ChessCraft.getInstance(), this, delay * 20L);
+		long delay = ChessCraft.getInstance().getConfig().getInt("ai.min_move_wait", 0) * 1000L;
+		prepareToThink(delay);
+		if (!isExternal()) {
+			aiTask = AIFactory.getInstance().getExecutor().submit(this, delay);
+		}
+	}
+
+	/**
+	 * Check if this AI's thinking is done outside the server, e.g. by an external engine process.
+	 * Such an AI is never queued on the AI pool, so it can't tie up a thread there while it waits
+	 * for its engine: it must pick up its engine's replies on a thread of its own, and pass them
+	 * on through {@link #aiHasMoved(int, int)} etc. as usual.  The default implementation returns
+	 * false.
+	 *
+	 * @return true if the AI does its own thinking
+	 */
+	protected boolean isExternal() {
+		return false;
 	}
 
 	/**
-	 * Tell the AI to stop thinking.
+	 * Called on the main thread just before the AI is queued to think about its next move.  The
+	 * game (its clock in particular) must not be read from the AI thread, so implementations should
+	 * take a copy here of any game state their run() method needs.  The default implementation does
+	 * nothing.
+	 *
+	 * @param delay the time, in ms, before the AI will start thinking at the earliest
+	 */
+	protected void prepareToThink(long delay) {
+	}
+
+	/**
+	 * Tell the AI to stop thinking.  A calculation which has already started is asked to stop
+	 * early (see {@link #abortThinking()}), and its result will be discarded.
 	 */
 	private void stopThinking() {
-		if (Bukkit.getScheduler().isCurrentlyRunning(aiTask.getTaskId())) {
-			Debugger.getInstance().debug(gameDetails + "forcing shutdown for AI task #" + aiTask);
-			aiTask.cancel();
+		AIExecutor.Job job = aiTask;
+		if (job != null && !job.isCurrent()) {
+			Debugger.getInstance().debug(gameDetails + "cancelling AI task");
+			job.cancel();
 		}
 		aiTask = null;
 	}
 
+	/**
+	 * Ask a running calculation to give up as soon as it can.  Called, from any thread, when the
+	 * AI's calculation is cancelled; the default implementation does nothing, so the calculation
+	 * runs to completion and its result is discarded.  Implementations must make sure a request
+	 * made before the calculation starts isn't lost, e.g. by checking {@link #isCancelled()} once
+	 * they are ready to be interrupted.
+	 */
+	protected void abortThinking() {
+	}
+
+	/**
+	 * Check if the calculation running on the current thread has been cancelled, in which case its
+	 * result should be thrown away.  Long-running AI implementations may also poll this to give up
+	 * early.
+	 *
+	 * @return true if the current calculation has been cancelled
+	 */
+	protected boolean isCancelled() {
+		return AIExecutor.isCurrentJobCancelled();
+	}
+
 	/**
 	 * Called when the AI has come up with its next move.  Square indices always use the
 	 * Chesspresso sqi representation.
@@ -269,6 +310,10 @@ public abstract class ChessAI implements Runnable {
 	 * @param toSqi		the square the AI is moving to.
 	 */
 	protected void aiHasMoved(int fromSqi, int toSqi) {
+		if (isCancelled()) {
+			Debugger.getInstance().debug(gameDetails + "discarding move from cancelled calculation: " + fromSqi + "->" + toSqi);
+			return;
+		}
 		if (!active) {
 			LogUtils.warning(gameDetails + "aiHasMoved() called when AI not active?");
 			return;
@@ -284,23 +329,25 @@ public abstract class ChessAI implements Runnable {
 		Debugger.getInstance().debug(gameDetails + "aiHasMoved: " + fromSqi + "->" + toSqi);
 
 		// Moving directly isn't thread-safe: we'd end up altering the Minecraft world from a separate thread,
-		// which is Very Bad.  So we just note the move made now, and let the ChessGame object check for it on
-		// the next clock tick.
-		pendingFrom = fromSqi;
-		pendingTo = toSqi;
-		pendingAction = PendingAction.MOVED;
+		// which is Very Bad.  So we just publish the move made now, and let the main thread pick it up on
+		// the next server tick.
+		publish(PendingAction.MOVED, fromSqi, toSqi);
 	}
 
 	protected void makeDrawOffer() {
-		pendingAction = PendingAction.DRAW_OFFERED;
+		publish(PendingAction.DRAW_OFFERED, Chess.NO_SQUARE, Chess.NO_SQUARE);
 	}
 
 	protected void acceptDrawOffer() {
-		pendingAction = PendingAction.DRAW_ACCEPTED;
+		publish(PendingAction.DRAW_ACCEPTED, Chess.NO_SQUARE, Chess.NO_SQUARE);
 	}
 
 	protected void rejectDrawOffer() {
-		pendingAction = PendingAction.DRAW_DECLINED;
+		publish(PendingAction.DRAW_DECLINED, Chess.NO_SQUARE, Chess.NO_SQUARE);
+	}
+
+	private void publish(PendingAction action, int fromSqi, int toSqi) {
+		AIFactory.getInstance().getActionQueue().publish(this, action, fromSqi, toSqi);
 	}
 
 	public ChessPlayer getChessPlayer() {
@@ -319,6 +366,10 @@ public abstract class ChessAI implements Runnable {
 	 * @param e
 	 */
 	protected void aiHasFailed(Exception e) {
+		if (isCancelled()) {
+			Debugger.getInstance().debug(gameDetails + "ignoring failure in cancelled calculation: " + e.getMessage());
+			return;
+		}
 		LogUtils.severe(gameDetails + "Unexpected Exception in AI");
 		e.printStackTrace();
 		chessCraftGame.alert(Messages.getString("ChessAI.AIunexpectedException", e.getMessage())); //$NON-NLS-1$
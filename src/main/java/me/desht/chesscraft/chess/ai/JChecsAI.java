@@ -1,5 +1,6 @@
 package me.desht.chesscraft.chess.ai;
 
+import chesspresso.Chess;
 import fr.free.jchecs.ai.Engine;
 import fr.free.jchecs.ai.EngineFactory;
 import fr.free.jchecs.core.*;
@@ -7,16 +8,31 @@ import me.desht.chesscraft.ChessCraft;
 import me.desht.chesscraft.Messages;
 import me.desht.chesscraft.chess.ChessGame;
 import me.desht.chesscraft.chess.TimeControl;
+import me.desht.chesscraft.chess.TwoPlayerClock;
 import me.desht.chesscraft.exceptions.ChessException;
 import org.bukkit.configuration.ConfigurationSection;
 
+import java.io.File;
+
 /**
  * @author des
  *
  */
 public class JChecsAI extends ChessAI {
 
+	// assumed number of moves left in the game when the time control doesn't say
+	private static final int MOVES_TO_GO = 30;
+	// never plan to use more than this fraction of the remaining time on one move
+	private static final int MAX_FRACTION = 4;
+	// time kept in reserve for what the search budget doesn't cover: the first iteration always runs
+	// to completion, the deadline is only checked every so many nodes, and the move still has to be
+	// handed over to the main thread (up to one server tick) while our clock keeps running
+	private static final long SAFETY_MARGIN = 1000L;
+	private static final long MIN_BUDGET = 100L;
+
 	private final Game jChecsGame;
+	// worked out on the main thread by prepareToThink(), for the next run()
+	private volatile long timeBudget;
 
 	public JChecsAI(String name, ChessGame chessCraftGame, Boolean isWhite, ConfigurationSection params) {
 		super(name, chessCraftGame, isWhite, params);
@@ -47,7 +63,18 @@ public class JChecsAI extends ChessAI {
 		}
 		int searchDepth = params.getInt("depth", 1);
 		moteur.setSearchDepthLimit(searchDepth);
+		moteur.setTranspositionTableSize(Math.max(1, params.getInt("hash_size", moteur.getTranspositionTableSize())));
+		moteur.setSearchThreads(Math.max(1, params.getInt("threads", 1)));
+		moteur.setQuiescenceEnabled(params.getBoolean("quiescence", true));
+		moteur.setNullMoveEnabled(params.getBoolean("null_move", true));
+		moteur.setLateMoveReductionsEnabled(params.getBoolean("lmr", true));
 		moteur.setOpeningsEnabled(ChessCraft.getInstance().getConfig().getBoolean("ai.use_opening_book", false));
+		moteur.setTablebaseEnabled(ChessCraft.getInstance().getConfig().getBoolean("ai.use_tablebases", true));
+		String tablebaseDir = ChessCraft.getInstance().getConfig().getString("ai.tablebase_dir", "");
+		if (!tablebaseDir.isEmpty()) {
+			// relative to the plugin's data folder; any table which can't be read there is replaced by the bundled one
+			moteur.setTablebaseDirectory(new File(ChessCraft.getInstance().getDataFolder(), tablebaseDir));
+		}
 		ai.setEngine(moteur);
 
 		return jChecsGame;
@@ -69,13 +96,47 @@ public class JChecsAI extends ChessAI {
 		try {
 			final MoveGenerator plateau = jChecsGame.getBoard();
 			final Engine engine = jChecsGame.getPlayer(isWhite()).getEngine();
-			final fr.free.jchecs.core.Move m = engine.getMoveFor(plateau);
+			final fr.free.jchecs.core.Move m;
+			// a cancelled calculation may still be winding down; wait for it before clearing its abort flag
+			synchronized (engine) {
+				engine.setSearchAborted(false);
+				if (isCancelled()) {
+					// cancelled before the flag was cleared
+					return;
+				}
+				long budget = timeBudget;
+				if (budget > 0) {
+					engine.setSearchDepthLimit(Math.max(engine.getMinimalSearchDepth(),
+							params.getInt("max_depth", engine.getMaximalSearchDepth())));
+				} else {
+					engine.setSearchDepthLimit(params.getInt("depth", 1));
+				}
+				engine.setSearchTimeLimit(budget);
+				m = engine.getMoveFor(plateau);
+			}
+			if (m == null) {
+				// search aborted by abortThinking()
+				return;
+			}
 			aiHasMoved(m.getFrom().getIndex(), m.getTo().getIndex());
 		} catch (Exception e) {
 			aiHasFailed(e);
 		}
 	}
 
+	@Override
+	protected void prepareToThink(long delay) {
+		timeBudget = getTimeBudget(delay);
+	}
+
+	@Override
+	protected void abortThinking() {
+		Engine engine = jChecsGame.getPlayer(isWhite()).getEngine();
+		if (engine != null) {
+			engine.setSearchAborted(true);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see me.desht.chesscraft.chess.ai.AbstractAI#undoLastMove()
 	 */
@@ -101,6 +162,36 @@ public class JChecsAI extends ChessAI {
 
 	@Override
 	public void notifyTimeControl(TimeControl timeControl) {
-		// do nothing here... JChecs doesn't support time controls
+		// nothing to do here; the time budget is worked out from the game clock before every move
+	}
+
+	/**
+	 * Work out how long the engine may think about its next move, given the time left on our clock.
+	 * Must be called from the main thread, which owns the clock.
+	 *
+	 * @param delay the time which will pass before the engine starts thinking, in ms
+	 * @return the budget in milliseconds, or 0 if the game is untimed (fixed-depth search)
+	 */
+	private long getTimeBudget(long delay) {
+		TwoPlayerClock clock = getChessCraftGame().getClock();
+		TimeControl tc = clock.getTimeControl();
+		long remaining = clock.getRemainingTime(isWhite() ? Chess.WHITE : Chess.BLACK) - delay - SAFETY_MARGIN;
+		long budget;
+		switch (tc.getControlType()) {
+		case MOVE_IN:
+			budget = remaining;
+			break;
+		case GAME_IN:
+			budget = remaining / MOVES_TO_GO;
+			break;
+		case ROLLOVER:
+			TimeControl.RolloverPhase phase = tc.getCurrentPhase();
+			int movesToGo = phase.getMoves() > 0 ? Math.min(phase.getMoves(), MOVES_TO_GO) : MOVES_TO_GO;
+			budget = Math.min(remaining / movesToGo + phase.getIncrement(), remaining / MAX_FRACTION);
+			break;
+		default:
+			return 0L;
+		}
+		return Math.max(MIN_BUDGET, budget);
 	}
 }
@@ -9,7 +9,6 @@ import me.desht.chesscraft.chess.TimeControl;
 import me.desht.chesscraft.chess.TimeControl.RolloverPhase;
 import me.desht.chesscraft.exceptions.ChessException;
 import me.desht.dhutils.Debugger;
-import me.desht.dhutils.LogUtils;
 import me.desht.dhutils.MiscUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
@@ -18,9 +17,20 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * An AI backed by an external engine speaking the XBoard protocol.
+ *
+ * The engine does its thinking in its own process, so this AI never takes a thread from the AI
+ * pool (see {@link #isExternal()}).  Instead, each instance has a dedicated reader thread, which
+ * is the only consumer of the engine's output: it collects the engine's features at startup, then
+ * relays every move and draw offer to the main thread through the {@link AIActionQueue}.  A move
+ * which arrives while the AI isn't expected to move (e.g. one the engine was already sending when
+ * its previous move was undone) is discarded.
+ */
 public class XBoardAI extends ChessAI {
 
 	private static final Pattern patternMove =
@@ -30,10 +40,19 @@ public class XBoardAI extends ChessAI {
 	private static final Pattern patternIllegal =
 			Pattern.compile("(Illegal move.+)|(Error.+)", Pattern.CASE_INSENSITIVE);
 
+	private static final Pattern patternPong = Pattern.compile("pong\\s+(\\d+)");
+
 	private final ExternalIO io;
     private final Map<String, String> features = new ConcurrentHashMap<>();
+	private final CountDownLatch featuresRead = new CountDownLatch(1);
+	private final AtomicInteger pings = new AtomicInteger();
 
-	private boolean moveFormatSAN = false;
+	private volatile boolean moveFormatSAN = false;
+	private volatile boolean closed = false;
+	// moves are ignored until the engine answers this ping (0 if not waiting for one)
+	private volatile int pendingPing = 0;
+	// system time before which a move isn't passed on, to honour ai.min_move_wait
+	private volatile long earliestMove = 0L;
 
 	public XBoardAI(String name, ChessGame chessCraftGame, Boolean isWhite, ConfigurationSection params) {
 		super(name, chessCraftGame, isWhite, params);
@@ -45,6 +64,7 @@ public class XBoardAI extends ChessAI {
 		io.writeLine("xboard");
 		io.writeLine("protover 2");
 
+		new Reader().start();
 		// this bit gets done asynchronously
 		new FeatureReader();
 
@@ -52,20 +72,26 @@ public class XBoardAI extends ChessAI {
 
 	@Override
 	public void shutdown() {
+		closed = true;
 		io.writeLine("exit");
 	}
 
+	@Override
+	protected boolean isExternal() {
+		return true;
+	}
+
+	@Override
+	protected void prepareToThink(long delay) {
+		earliestMove = System.currentTimeMillis() + delay;
+	}
+
+	/**
+	 * Never called, since this AI is never queued on the AI pool; the engine's replies are
+	 * handled by the reader thread instead.
+	 */
 	@Override
 	public void run() {
-		boolean done = false;
-		while (!done) {
-			try {
-				done = parseCommand();
-			} catch (IOException e) {
-				e.printStackTrace();
-				break;
-			}
-		}
 	}
 
 	@Override
@@ -84,22 +110,28 @@ public class XBoardAI extends ChessAI {
 		return features.containsKey(k) ? features.get(k) : "";
 	}
 
-	private boolean parseCommand() throws IOException {
-		final String line = io.readLine();
-		if (line == null) {
-			aiHasFailed(new IllegalMoveException("illegal move: " + line));
-			return true;
+	private void parseCommand(String line) {
+		Matcher matcher = patternPong.matcher(line);
+		if (matcher.matches()) {
+			if (Integer.parseInt(matcher.group(1)) == pendingPing) {
+				pendingPing = 0;
+			}
+			return;
 		}
 
-		Matcher matcher;
 		matcher = moveFormatSAN ? patternSanMove.matcher(line) : patternMove.matcher(line);
 		if (matcher.matches()) {
+			if (pendingPing != 0 || !isActive()) {
+				Debugger.getInstance().debug(gameDetails + "discarding stale move from engine: " + line);
+				return;
+			}
+			waitForMinimumTime();
 			int fromSqi, toSqi;
 			if (moveFormatSAN) {
 				Move m = getChessCraftGame().getMoveFromSAN(matcher.group(3));
 				if (m == null) {
 					aiHasFailed(new IllegalMoveException("illegal move: " + line));
-					return true;
+					return;
 				}
 				fromSqi = m.getFromSqi();
 				toSqi = m.getToSqi();
@@ -108,7 +140,6 @@ public class XBoardAI extends ChessAI {
 				toSqi = Chess.strToSqi(matcher.group(3).substring(2, 4));
 			}
 			aiHasMoved(fromSqi, toSqi);
-			return true;
 		} else if (line.equals("offer draw")) {
 			if (isDrawOfferedToAI()) {
 				// AI has accepted the opponent's draw offer; game over
@@ -117,15 +148,23 @@ public class XBoardAI extends ChessAI {
 				// AI is making a draw offer - relay this to the other player
 				makeDrawOffer();
 			}
-			return true;
 		} else {
 			matcher = patternIllegal.matcher(line);
 			if (matcher.matches()) {
 				aiHasFailed(new IllegalMoveException("illegal move: " + line));
-				return true;
 			}
 		}
-		return false;
+	}
+
+	private void waitForMinimumTime() {
+		long wait = earliestMove - System.currentTimeMillis();
+		if (wait > 0) {
+			try {
+				Thread.sleep(wait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
 	}
 
 	@Override
@@ -140,6 +179,12 @@ public class XBoardAI extends ChessAI {
 			io.writeLine("undo");
 			io.writeLine("undo");
 		}
+		if (getFeature("ping").equals("1")) {
+			// anything the engine says before answering this belongs to the undone position
+			int ping = pings.incrementAndGet();
+			pendingPing = ping;
+			io.writeLine("ping " + ping);
+		}
 		// it is now the other player's move again
 	}
 
@@ -174,64 +219,88 @@ public class XBoardAI extends ChessAI {
 		}
 	}
 
-	private class FeatureReader implements Runnable {
+	/**
+	 * The only thread reading the engine's output, for as long as the engine runs.
+	 */
+	private class Reader extends Thread {
+		private Reader() {
+			super("ChessCraft XBoard reader [" + XBoardAI.this.getName() + "]");
+			setDaemon(true);
+		}
 
-		private FeatureReader() {
-			Bukkit.getScheduler().runTaskAsynchronously(ChessCraft.getInstance(), this);
+		@Override
+		public void run() {
+			try {
+				readFeatures();
+				featuresRead.countDown();
+				String line;
+				while ((line = io.readLine()) != null) {
+					parseCommand(line);
+				}
+				if (!closed) {
+					aiHasFailed(new IOException("engine exited unexpectedly"));
+				}
+			} catch (IOException e) {
+				if (!closed) {
+					aiHasFailed(e);
+				}
+			} catch (Exception e) {
+				aiHasFailed(e);
+			} finally {
+				featuresRead.countDown();
+			}
 		}
 
-		private void readLines() {
+		private void readFeatures() throws IOException {
 			boolean done = false;
 			while (!done) {
-				try {
-					String s = io.readLine();
-					Debugger.getInstance().debug(2, "featurereader: [" + s + "]");
-					if (s.startsWith("feature ")) {
-						List<String> f = MiscUtil.splitQuotedString(s.replace("=", " "));
-						for (int i = 1; i < f.size(); i += 2) {
-							if ((i + 1) >= f.size()) break;
-							String k = f.get(i);
-							String v = f.get(i+1);
-							features.put(k, v);
-							if (k.equals("done") && v.equals("1")) {
-								Debugger.getInstance().debug("feature reader done: " + features.size() + " features reported");
-								done = true;
-							}
+				String s = io.readLine();
+				if (s == null) {
+					throw new IOException("engine exited before reporting its features");
+				}
+				Debugger.getInstance().debug(2, "featurereader: [" + s + "]");
+				if (s.startsWith("feature ")) {
+					List<String> f = MiscUtil.splitQuotedString(s.replace("=", " "));
+					for (int i = 1; i < f.size(); i += 2) {
+						if ((i + 1) >= f.size()) break;
+						String k = f.get(i);
+						String v = f.get(i+1);
+						features.put(k, v);
+						if (k.equals("done") && v.equals("1")) {
+							Debugger.getInstance().debug("feature reader done: " + features.size() + " features reported");
+							done = true;
 						}
 					}
-				} catch (IOException e) {
-					LogUtils.severe("FeatureReader: caught io exception: " + e.getMessage());
-					done = true;
 				}
 			}
 
+			if (getFeature("san").equals("1")) {
+				moveFormatSAN = true;
+			}
 			setReady();
 		}
+	}
 
-		@Override
-		public void run() {
-			ExecutorService executor = Executors.newFixedThreadPool(1);
+	private class FeatureReader implements Runnable {
 
-			Callable<Void> readTask = new Callable<Void>() {
-				@Override
-				public Void call() throws Exception {
-					readLines();
-					return null;
-				}
-			};
+		private FeatureReader() {
+			Bukkit.getScheduler().runTaskAsynchronously(ChessCraft.getInstance(), this);
+		}
 
-			Future<Void> future = executor.submit(readTask);
+		@Override
+		public void run() {
 			try {
 				// we give the AI engine 2 seconds to reply to the "protover" command
 				// with a list of features
-				future.get(2000, TimeUnit.MILLISECONDS);
+				if (!featuresRead.await(2000, TimeUnit.MILLISECONDS)) {
+					throw new TimeoutException("no features reported by the engine within 2s");
+				}
+				if (hasFailed()) {
+					return;
+				}
 
 				// now it's safe to finish AI init
 
-				if (getFeature("san").equals("1")) {
-					moveFormatSAN = true;
-				}
-
 				if (getFeature("setboard").equals("1")) {
 					io.writeLine("setboard " + getChessCraftGame().getPosition().getFEN());
 
@@ -9,6 +9,7 @@ import me.desht.chesscraft.chess.BoardView;
 import me.desht.chesscraft.chess.ChessGame;
 import me.desht.chesscraft.chess.ChessGameManager;
 import me.desht.chesscraft.chess.TimeControl;
+import me.desht.chesscraft.chess.ai.AIActionQueue;
 import me.desht.chesscraft.chess.ai.AIFactory;
 import me.desht.chesscraft.chess.ai.AIFactory.AIDefinition;
 import me.desht.chesscraft.chess.ai.ChessAI;
@@ -153,37 +154,49 @@ public class AIChessPlayer extends ChessPlayer {
 				LogUtils.severe("Unexpected exception caught while trying to draw game - deleted", e);
 				ChessGameManager.getManager().deleteGame(game.getName(), true);
 			}
-		} else {
-			// see if the AI has any pending actions from the other thread that we need to pick up
-			switch (ai.getPendingAction()) {
-			case MOVED:
-				int from = ai.getPendingFrom();
-				int to = ai.getPendingTo();
-				try {
-					getGame().doMove(getId(), from, to);
-                } catch (IllegalMoveException | ChessException e) {
-                    getGame().alert(Messages.getString("ChessAI.AIunexpectedException", e.getMessage())); //$NON-NLS-1$
-					ai.setFailed(true);
-				}
-                break;
-                case DRAW_OFFERED:
-				game.offerDraw(getId());
-				break;
-			case DRAW_ACCEPTED:
-				if (otherPlayer != null) {
-					otherPlayer.alert(Messages.getString("ExpectYesNoOffer.drawOfferAccepted", getDisplayName()));
-				}
-				game.drawn(GameResult.DrawAgreed);
-				break;
-			case DRAW_DECLINED:
-				if (otherPlayer != null) {
-					otherPlayer.alert(Messages.getString("ExpectYesNoOffer.drawOfferDeclined", getDisplayName()));
-				}
-				break;
-			default:
-				break;
+		}
+	}
+
+	/**
+	 * Handle an action published by this player's AI from its own thread.  Called on the main
+	 * thread by the AI action queue.
+	 *
+	 * @param action the action
+	 */
+	public void handleAIAction(AIActionQueue.Action action) {
+		if (action.getAI() != ai || ai.hasFailed()) {
+			// stale action from an AI which is no longer playing for us
+			return;
+		}
+
+		ChessGame game = getGame();
+		ChessPlayer otherPlayer = game.getPlayer(Chess.otherPlayer(getColour()));
+
+		switch (action.getType()) {
+		case MOVED:
+			try {
+				game.doMove(getId(), action.getFromSqi(), action.getToSqi());
+			} catch (IllegalMoveException | ChessException e) {
+				game.alert(Messages.getString("ChessAI.AIunexpectedException", e.getMessage())); //$NON-NLS-1$
+				ai.setFailed(true);
+			}
+			break;
+		case DRAW_OFFERED:
+			game.offerDraw(getId());
+			break;
+		case DRAW_ACCEPTED:
+			if (otherPlayer != null) {
+				otherPlayer.alert(Messages.getString("ExpectYesNoOffer.drawOfferAccepted", getDisplayName()));
+			}
+			game.drawn(GameResult.DrawAgreed);
+			break;
+		case DRAW_DECLINED:
+			if (otherPlayer != null) {
+				otherPlayer.alert(Messages.getString("ExpectYesNoOffer.drawOfferDeclined", getDisplayName()));
 			}
-			ai.clearPendingAction();
+			break;
+		default:
+			break;
 		}
 	}
 
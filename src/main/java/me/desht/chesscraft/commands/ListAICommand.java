@@ -1,6 +1,8 @@
 package me.desht.chesscraft.commands;
 
 import me.desht.chesscraft.Messages;
+import me.desht.chesscraft.chess.ai.AIActionQueue;
+import me.desht.chesscraft.chess.ai.AIExecutor;
 import me.desht.chesscraft.chess.ai.AIFactory;
 import me.desht.chesscraft.chess.ai.AIFactory.AIDefinition;
 import me.desht.chesscraft.util.EconomyUtil;
@@ -39,6 +41,18 @@ public class ListAICommand extends ChessAbstractCommand {
 
 				lines.add(MessagePager.BULLET +  sb.toString());
 			}
+			AIActionQueue queue = AIFactory.getInstance().getActionQueue();
+			lines.add(Messages.getString("ChessCommandExecutor.AIHandoff", queue.getDispatched(),
+			                             queue.getAverageLatency(), queue.getMaxLatency(), queue.getAverageTick()));
+			AIExecutor executor = AIFactory.getInstance().getExecutorIfStarted();
+			if (executor != null) {
+				lines.add(Messages.getString("ChessCommandExecutor.AIPool", executor.getThreads(), executor.getActiveCount(),
+				                             executor.getQueueDepth(), executor.getAverageWait(), executor.getMaxWait(),
+				                             executor.getCancelled()));
+			} else {
+				// no AI has thought yet: report an idle pool rather than starting one
+				lines.add(Messages.getString("ChessCommandExecutor.AIPool", 0, 0, 0, 0.0, 0.0, 0L));
+			}
 			pager.add(lines);
 		} else {
 			AIDefinition aiDef = AIFactory.getInstance().getAIDefinition(args[0], true);
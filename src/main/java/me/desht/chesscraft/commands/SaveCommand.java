@@ -2,6 +2,7 @@ package me.desht.chesscraft.commands;
 
 import me.desht.chesscraft.ChessCraft;
 import me.desht.chesscraft.Messages;
+import me.desht.chesscraft.PersistenceWriter;
 import me.desht.chesscraft.exceptions.ChessException;
 import me.desht.dhutils.MiscUtil;
 import org.bukkit.command.CommandSender;
@@ -19,6 +20,11 @@ public class SaveCommand extends ChessAbstractCommand {
 	public boolean execute(Plugin plugin, CommandSender sender, String[] args) throws ChessException {
 		((ChessCraft)plugin).getPersistenceHandler().save();
 		MiscUtil.statusMessage(sender, Messages.getString("ChessCommandExecutor.chessSaved")); //$NON-NLS-1$
+		PersistenceWriter writer = ((ChessCraft)plugin).getPersistenceHandler().getWriter();
+		MiscUtil.statusMessage(sender, Messages.getString("ChessCommandExecutor.persistenceStats",
+		                                                  writer.getQueued(), writer.getCoalesced(), writer.getJournalled(),
+		                                                  writer.getWritten(), writer.getBytesWritten(), writer.getFailed(),
+		                                                  writer.getAverageWriteLatency(), writer.getMaxWriteLatency()));
 		return true;
 	}
 
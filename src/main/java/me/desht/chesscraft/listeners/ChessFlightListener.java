@@ -44,6 +44,8 @@ public class ChessFlightListener extends ChessListenerBase {
     private final Map<UUID, Long> lastMessagedOut = new HashMap<>();
     // notes when player was last bounced back while flying
     private final Map<UUID, Long> lastBounce = new HashMap<>();
+    // notes the flight region each player was last found in, so moving within it needs no lookup
+    private final Map<UUID, CachedRegion> currentRegion = new HashMap<>();
 
 	private boolean enabled;
 	private boolean captive;
@@ -119,6 +121,7 @@ public class ChessFlightListener extends ChessListenerBase {
 	@EventHandler(ignoreCancelled = true)
 	public void onPlayerLeft(PlayerQuitEvent event) {
 		UUID id = event.getPlayer().getUniqueId();
+		currentRegion.remove(id);
 		if (allowedToFly.containsKey(id)) {
 			allowedToFly.get(id).restoreSpeeds();
 			allowedToFly.remove(id);
@@ -159,8 +162,14 @@ public class ChessFlightListener extends ChessListenerBase {
 		}
 
 		Player player = event.getPlayer();
+		CachedRegion cached = currentRegion.get(player.getUniqueId());
+		if (cached == null) {
+			cached = new CachedRegion();
+			currentRegion.put(player.getUniqueId(), cached);
+		}
+		Cuboid previous = cached.get();
 		boolean flyingNow = allowedToFly.containsKey(player.getUniqueId()) && player.isFlying();
-		boolean boardFlightAllowed = bvm.getFlightRegion(to) != null;
+		boolean boardFlightAllowed = cached.lookup(to) != null;
 		boolean otherFlightAllowed = gameModeAllowsFlight(player);
 
 		//		Debugger.getInstance().debug("move: boardflight = " + boardFlightAllowed + " otherflight = " + otherFlightAllowed);
@@ -172,7 +181,7 @@ public class ChessFlightListener extends ChessListenerBase {
 				if (last == null) last = 0L;
 				if (System.currentTimeMillis() - last > BOUNCE_COOLDOWN) {
 					event.setCancelled(true);
-					Cuboid c = bvm.getFlightRegion(from);
+					Cuboid c = previous != null && previous.contains(from) ? previous : bvm.getFlightRegion(from);
 					Location origin = c == null ? from : c.getCenter().subtract(0, c.getSizeY(), 0);
 					Vector vec = origin.toVector().subtract(to.toVector()).normalize();
 					player.setVelocity(vec);
@@ -236,18 +245,18 @@ public class ChessFlightListener extends ChessListenerBase {
 
 	@EventHandler
 	public void onBoardCreated(ChessBoardCreatedEvent event) {
-		bvm.recalculateFlightRegions();
+		bvm.recalculateFlightRegion(event.getBoardView());
 	}
 
 	@EventHandler
 	public void onBoardDeleted(ChessBoardDeletedEvent event) {
-		bvm.recalculateFlightRegions();
+		bvm.removeFlightRegion(event.getBoardView());
 	}
 
 	@EventHandler
 	public void onBoardModifed(ChessBoardModifiedEvent event) {
 		if (event.getChangedAttributes().contains("enclosure")) {
-			bvm.recalculateFlightRegions();
+			bvm.recalculateFlightRegion(event.getBoardView());
 		}
 	}
 
@@ -380,4 +389,38 @@ public class ChessFlightListener extends ChessListenerBase {
 			Debugger.getInstance().debug("player " + p.getName() + " restore previous speed: walk=" + walkSpeed + " fly=" + flySpeed);
 		}
 	}
+
+	/**
+	 * The flight region a player was last found in.  Entries are invalidated whenever the board
+	 * manager's flight regions change.
+	 */
+	private class CachedRegion {
+		private Cuboid region = null;
+		private int version = -1;
+
+		/**
+		 * Get the cached region, if it's still valid.
+		 *
+		 * @return the cached region, or null
+		 */
+		private Cuboid get() {
+			return version == bvm.getFlightRegionsVersion() ? region : null;
+		}
+
+		/**
+		 * Get the flight region for a location, only consulting the board manager if the location
+		 * is outside the cached region.
+		 *
+		 * @param loc the location to check
+		 * @return the flight region for the location, or null if not in a flight region
+		 */
+		private Cuboid lookup(Location loc) {
+			int current = bvm.getFlightRegionsVersion();
+			if (version != current || region == null || !region.contains(loc)) {
+				region = bvm.getFlightRegion(loc);
+				version = current;
+			}
+			return region;
+		}
+	}
 }
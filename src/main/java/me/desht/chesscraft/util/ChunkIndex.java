@@ -0,0 +1,201 @@
+package me.desht.chesscraft.util;
+
+import me.desht.dhutils.cuboid.Cuboid;
+import org.bukkit.Location;
+
+import java.util.*;
+
+/**
+ * A per-world spatial index which maps chunk coordinates to the items (boards, regions...) whose
+ * horizontal extent overlaps that chunk.
+ * <p>
+ * Lookups are lock-free and don't allocate: each modification (these are rare) rebuilds an
+ * immutable snapshot which is then published in one go.  Looking up a location which isn't near
+ * any indexed item costs a single miss in a primitive long-keyed hash table.
+ * <p>
+ * Since a rebuild costs time proportional to the whole index, callers making many modifications
+ * at once (e.g. loading all saved boards) should bracket them with {@link #beginBatch()} and
+ * {@link #endBatch()}, so that the snapshot is only rebuilt once.
+ *
+ * @param <T> the type of the indexed items
+ */
+public class ChunkIndex<T> {
+	private final Map<T, Extent> extents = new LinkedHashMap<>();
+	private volatile Map<String, ChunkTable<T>> snapshot = Collections.emptyMap();
+	private int batchDepth = 0;
+	private boolean stale = false;
+
+	/**
+	 * Add an item to the index, or update its extent if it's already indexed.
+	 *
+	 * @param item the item to add
+	 * @param worldName name of the world the item is in
+	 * @param bounds the region covered by the item; only its X and Z extent is significant
+	 */
+	public synchronized void add(T item, String worldName, Cuboid bounds) {
+		extents.put(item, new Extent(worldName, bounds.getLowerX() >> 4, bounds.getLowerZ() >> 4,
+		                             bounds.getUpperX() >> 4, bounds.getUpperZ() >> 4));
+		changed();
+	}
+
+	/**
+	 * Remove an item from the index.
+	 *
+	 * @param item the item to remove
+	 */
+	public synchronized void remove(T item) {
+		if (extents.remove(item) != null) {
+			changed();
+		}
+	}
+
+	/**
+	 * Remove all items from the index.
+	 */
+	public synchronized void clear() {
+		extents.clear();
+		changed();
+	}
+
+	/**
+	 * Start a batch of modifications.  Until the matching {@link #endBatch()}, modifications are
+	 * recorded but lookups continue to see the index as it was when the batch started.  Batches
+	 * may be nested; the index is rebuilt when the outermost batch ends.
+	 */
+	public synchronized void beginBatch() {
+		batchDepth++;
+	}
+
+	/**
+	 * End a batch of modifications started by {@link #beginBatch()}, publishing them if this
+	 * was the outermost batch.
+	 */
+	public synchronized void endBatch() {
+		if (batchDepth == 0) {
+			throw new IllegalStateException("no batch in progress");
+		}
+		if (--batchDepth == 0 && stale) {
+			rebuild();
+		}
+	}
+
+	/**
+	 * Get the items which overlap the chunk containing the given location.  Callers should still
+	 * check whether the location is actually within any returned item.
+	 *
+	 * @param loc the location to check
+	 * @return an unmodifiable list of items, empty if none
+	 */
+	public List<T> get(Location loc) {
+		return get(loc.getWorld().getName(), loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+	}
+
+	/**
+	 * Get the items which overlap the given chunk.
+	 *
+	 * @param worldName name of the world
+	 * @param chunkX chunk X coordinate
+	 * @param chunkZ chunk Z coordinate
+	 * @return an unmodifiable list of items, empty if none
+	 */
+	public List<T> get(String worldName, int chunkX, int chunkZ) {
+		ChunkTable<T> table = snapshot.get(worldName);
+		return table == null ? Collections.<T>emptyList() : table.get(chunkKey(chunkX, chunkZ));
+	}
+
+	private void changed() {
+		if (batchDepth > 0) {
+			stale = true;
+		} else {
+			rebuild();
+		}
+	}
+
+	private void rebuild() {
+		stale = false;
+		Map<String, Map<Long, List<T>>> byWorld = new HashMap<>();
+		for (Map.Entry<T, Extent> e : extents.entrySet()) {
+			Extent ext = e.getValue();
+			Map<Long, List<T>> chunks = byWorld.get(ext.worldName);
+			if (chunks == null) {
+				chunks = new HashMap<>();
+				byWorld.put(ext.worldName, chunks);
+			}
+			for (int x = ext.minChunkX; x <= ext.maxChunkX; x++) {
+				for (int z = ext.minChunkZ; z <= ext.maxChunkZ; z++) {
+					Long key = chunkKey(x, z);
+					List<T> items = chunks.get(key);
+					if (items == null) {
+						items = new ArrayList<>(1);
+						chunks.put(key, items);
+					}
+					items.add(e.getKey());
+				}
+			}
+		}
+
+		Map<String, ChunkTable<T>> res = new HashMap<>();
+		for (Map.Entry<String, Map<Long, List<T>>> e : byWorld.entrySet()) {
+			res.put(e.getKey(), new ChunkTable<>(e.getValue()));
+		}
+		snapshot = res;
+	}
+
+	private static long chunkKey(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	private static class Extent {
+		private final String worldName;
+		private final int minChunkX, minChunkZ, maxChunkX, maxChunkZ;
+
+		private Extent(String worldName, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+			this.worldName = worldName;
+			this.minChunkX = minChunkX;
+			this.minChunkZ = minChunkZ;
+			this.maxChunkX = maxChunkX;
+			this.maxChunkZ = maxChunkZ;
+		}
+	}
+
+	/**
+	 * Immutable open-addressing hash table from chunk key to item list.
+	 */
+	private static class ChunkTable<T> {
+		private final long[] keys;
+		private final Object[] values;
+		private final int mask;
+
+		private ChunkTable(Map<Long, List<T>> contents) {
+			// keep the load factor at or below 0.5 so that misses terminate quickly
+			int capacity = Integer.highestOneBit(Math.max(2, contents.size()) * 4 - 1);
+			keys = new long[capacity];
+			values = new Object[capacity];
+			mask = capacity - 1;
+			for (Map.Entry<Long, List<T>> e : contents.entrySet()) {
+				long key = e.getKey();
+				int i = hash(key) & mask;
+				while (values[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = key;
+				values[i] = Collections.unmodifiableList(e.getValue());
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private List<T> get(long key) {
+			for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					return (List<T>) values[i];
+				}
+			}
+			return Collections.emptyList();
+		}
+
+		private static int hash(long key) {
+			int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import static fr.free.jchecs.core.BoardFactory.State.EMPTY;
+import static fr.free.jchecs.core.BoardFactory.State.STARTING;
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.FENUtils;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.Square;
+
+/**
+ * Tests unitaires des moteurs d'IA.
+ * 
+ * @author David Cotton
+ */
+public final class EngineTest
+{
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public EngineTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Vérifie que les recherches trouvent le même coup forcé quelle que soit la représentation de
+   * l'échiquier utilisée.
+   * 
+   * @throws FENException En cas d'erreur dans les positions de test.
+   */
+  @Test
+  public void testSearchBoardType() throws FENException
+  {
+    final MoveGenerator etat = BoardFactory.valueOf(FASTEST, EMPTY).derive(
+        FENUtils.toBoard("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 30"));
+    for (final String nom : new String [] { "jChecs.AlphaBeta", "jChecs.NegaScout", })
+    {
+      for (final BoardFactory.Type type : new BoardFactory.Type [] { BoardFactory.Type.X88,
+          BoardFactory.Type.BITBOARD, })
+      {
+        final Engine moteur = EngineFactory.newInstance(nom);
+        assertEquals(FASTEST, moteur.getSearchBoardType());
+        moteur.setOpeningsEnabled(false);
+        moteur.setSearchDepthLimit(4);
+        moteur.setSearchBoardType(type);
+        assertEquals(type, moteur.getSearchBoardType());
+
+        final Move mvt = moteur.getMoveFor(etat);
+        assertEquals(Square.valueOf("a8"), mvt.getTo());
+      }
+    }
+  }
+
+  /**
+   * Vérifie que la recherche parallèle trouve le même coup forcé que la recherche simple, et que
+   * les demi-coups des threads auxiliaires sont bien décomptés.
+   * 
+   * @throws FENException En cas d'erreur dans les positions de test.
+   */
+  @Test
+  public void testSearchThreads() throws FENException
+  {
+    final MoveGenerator etat = BoardFactory.valueOf(FASTEST, EMPTY).derive(
+        FENUtils.toBoard("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 30"));
+    long noeuds = 0;
+    for (int n = 1; n <= 4; n++)
+    {
+      final Engine moteur = EngineFactory.newInstance("jChecs.NegaScout");
+      moteur.setOpeningsEnabled(false);
+      moteur.setSearchDepthLimit(4);
+      moteur.setSearchThreads(n);
+      assertEquals(n, moteur.getSearchThreads());
+
+      final Move mvt = moteur.getMoveFor(etat);
+      assertEquals(Square.valueOf("a8"), mvt.getTo());
+      if (n == 1)
+      {
+        noeuds = moteur.getHalfmoveCount();
+      }
+      else
+      {
+        assertTrue(moteur.getHalfmoveCount() > noeuds / 2);
+      }
+    }
+  }
+
+  /**
+   * Vérifie qu'une demande d'interruption, depuis un autre thread, arrête au plus tôt une recherche
+   * à profondeur fixe comme une recherche limitée en temps (dès sa première itération), et que le
+   * moteur est de nouveau utilisable une fois la demande annulée.
+   * 
+   * @throws InterruptedException En cas d'interruption du test.
+   */
+  @Test
+  public void testSearchAborted() throws InterruptedException
+  {
+    final MoveGenerator etat = BoardFactory.valueOf(FASTEST, STARTING);
+    for (final long temps : new long [] { 0, 60000, })
+    {
+      final Engine moteur = EngineFactory.newInstance("jChecs.NegaScout");
+      moteur.setOpeningsEnabled(false);
+      moteur.setSearchThreads(2);
+      moteur.setSearchDepthLimit(moteur.getMaximalSearchDepth());
+      moteur.setSearchTimeLimit(temps);
+
+      final Move [] res = new Move [ 1 ];
+      final Thread recherche = new Thread(new Runnable()
+      {
+        public void run()
+        {
+          res[0] = moteur.getMoveFor(etat);
+        }
+      });
+      recherche.start();
+      Thread.sleep(200);
+      final long debut = System.currentTimeMillis();
+      moteur.setSearchAborted(true);
+      recherche.join(5000);
+      assertFalse(recherche.isAlive());
+      assertTrue(System.currentTimeMillis() - debut < 1000);
+      assertNull(res[0]);
+      assertTrue(moteur.isSearchAborted());
+
+      moteur.setSearchAborted(false);
+      moteur.setSearchTimeLimit(0);
+      moteur.setSearchDepthLimit(moteur.getMinimalSearchDepth());
+      final Move mvt = moteur.getMoveFor(etat);
+      assertTrue(Arrays.asList(etat.getValidMoves(etat.isWhiteActive())).contains(mvt));
+    }
+  }
+
+  /**
+   * Vérifie qu'une recherche limitée en temps respecte (à peu près) le temps alloué et renvoi un
+   * mouvement valide, sans altérer la limite de profondeur du moteur.
+   */
+  @Test
+  public void testSearchTimeLimit()
+  {
+    for (final String nom : new String [] { "jChecs.AlphaBeta", "jChecs.NegaScout", })
+    {
+      final Engine moteur = EngineFactory.newInstance(nom);
+      moteur.setOpeningsEnabled(false);
+      moteur.setSearchDepthLimit(moteur.getMaximalSearchDepth());
+      moteur.setSearchTimeLimit(300);
+      assertEquals(300, moteur.getSearchTimeLimit());
+
+      MoveGenerator etat = BoardFactory.valueOf(FASTEST, STARTING);
+      for (int i = 0; i < 4; i++)
+      {
+        final long debut = System.currentTimeMillis();
+        final Move mvt = moteur.getMoveFor(etat);
+        final long duree = System.currentTimeMillis() - debut;
+        assertTrue(nom + " : " + duree + " ms", duree < 2000);
+        assertTrue(Arrays.asList(etat.getValidMoves(etat.isWhiteActive())).contains(mvt));
+        assertEquals(moteur.getMaximalSearchDepth(), moteur.getSearchDepthLimit());
+        etat = etat.derive(mvt, true);
+      }
+    }
+  }
+}
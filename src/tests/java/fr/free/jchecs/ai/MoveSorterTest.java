@@ -31,6 +31,7 @@ import java.util.Comparator;
 import org.junit.Test;
 
 import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveList;
 import fr.free.jchecs.core.Square;
 
 /**
@@ -81,4 +82,72 @@ public final class MoveSorterTest
     assertEquals(mvts[2], mvt1);
     assertEquals(mvts[3], mvt4);
   }
+
+  /**
+   * Vérifie que la sélection progressive des mouvements par scores est cohérente avec les
+   * comparateurs.
+   */
+  @Test
+  public void valideScores()
+  {
+    final Move [] mvts =
+        { new Move(BLACK_PAWN, Square.valueOf("a2"), Square.valueOf("a4")),
+            new Move(BLACK_PAWN, Square.valueOf(8), Square.valueOf(17), WHITE_PAWN),
+            new Move(BLACK_ROOK, Square.valueOf(16), Square.valueOf(24)),
+            new Move(BLACK_ROOK, Square.valueOf(16), Square.valueOf(9), WHITE_PAWN), };
+    final KillerMoveSorter killer = new KillerMoveSorter();
+    killer.put(mvts[2].toId(), 0);
+    final HistorySorter historique = new HistorySorter();
+    historique.put(mvts[0].toId(), 0);
+    historique.put(mvts[0].toId(), 0);
+    final MoveScorer [] tris = { new StaticMoveSorter(), killer, historique, };
+    for (final MoveScorer tri : tris)
+    {
+      final MoveList liste = new MoveList();
+      for (final Move mvt : mvts)
+      {
+        liste.add(mvt.toId());
+      }
+      AbstractEngine.scoreMoves(liste, tri, 0, 0);
+      final Move [] attendus = mvts.clone();
+      Arrays.sort(attendus, tri);
+      for (int i = 0; i < attendus.length; i++)
+      {
+        assertEquals(tri.getClass().getSimpleName(), attendus[i].toId(), liste.pick(i));
+      }
+    }
+  }
+
+  /**
+   * Vérifie que les "killer moves" sont propres à leur demi-coup, et que le mouvement désigné par
+   * la table de transposition est examiné en premier.
+   */
+  @Test
+  public void valideKillersAndFirstMove()
+  {
+    final int calme = new Move(BLACK_ROOK, Square.valueOf(16), Square.valueOf(24)).toId();
+    final int prise =
+        new Move(BLACK_PAWN, Square.valueOf(8), Square.valueOf(17), WHITE_PAWN).toId();
+    final int autre = new Move(BLACK_PAWN, Square.valueOf("a2"), Square.valueOf("a4")).toId();
+    final KillerMoveSorter killer = new KillerMoveSorter();
+    killer.put(calme, 40);
+    assertTrue(killer.score(calme, 40) > killer.score(prise, 40));
+    assertTrue(killer.score(calme, 3) < killer.score(prise, 3));
+    // Seuls les deux derniers "killer moves" d'un demi-coup sont conservés.
+    killer.put(prise, 40);
+    killer.put(autre, 40);
+    assertTrue(killer.get(calme, 40) == 0);
+    assertTrue(killer.get(autre, 40) > killer.get(prise, 40));
+    killer.clear();
+    assertEquals(0, killer.get(autre, 40));
+
+    final MoveList liste = new MoveList();
+    liste.add(autre);
+    liste.add(prise);
+    liste.add(calme);
+    AbstractEngine.scoreMoves(liste, killer, 1, calme);
+    assertEquals(calme, liste.pick(0));
+    assertEquals(prise, liste.pick(1));
+    assertEquals(autre, liste.pick(2));
+  }
 }
@@ -0,0 +1,211 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import static fr.free.jchecs.core.BoardFactory.State.STARTING;
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.Square;
+
+/**
+ * Tests unitaires de la bibliothèque d'ouvertures.
+ * 
+ * @author David Cotton
+ */
+public final class OpeningBookTest
+{
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public OpeningBookTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Vérifie la construction d'une bibliothèque à partir de parties PGN, et le tirage des mouvements
+   * en proportion de leurs poids.
+   * 
+   * @throws Exception En cas d'erreur de lecture ou d'écriture.
+   */
+  @Test
+  public void testConverter() throws Exception
+  {
+    final String pgn =
+        "[Event \"1\"]\n\n1. e4 e5 2. Nf3 *\n\n[Event \"2\"]\n\n1. e4 c5 *\n\n"
+            + "[Event \"3\"]\n\n1. d4 d5 *\n";
+    final OpeningBookConverter convertisseur = new OpeningBookConverter();
+    assertEquals(3, convertisseur.addPGN(new StringReader(pgn)));
+    assertEquals(6, convertisseur.size());
+
+    final File fichier = File.createTempFile("jchecs", ".book");
+    try
+    {
+      convertisseur.write(fichier);
+      assertEquals(OpeningBook.HEADER_SIZE + 6 * OpeningBook.RECORD_SIZE, fichier.length());
+      final OpeningBook bibliotheque = OpeningBook.open(fichier);
+      assertEquals(6, bibliotheque.size());
+
+      // 1. e4 a été joué deux fois, 1. d4 une seule.
+      final MoveGenerator depart = BoardFactory.valueOf(FASTEST, STARTING);
+      final Random hasard = new Random(1000);
+      int e4 = 0;
+      int d4 = 0;
+      for (int i = 0; i < 300; i++)
+      {
+        final Move mvt = bibliotheque.getMove(depart, hasard);
+        if (mvt.getTo() == Square.valueOf("e4"))
+        {
+          e4++;
+        }
+        else if (mvt.getTo() == Square.valueOf("d4"))
+        {
+          d4++;
+        }
+        else
+        {
+          fail(mvt.toString());
+        }
+      }
+      assertTrue((d4 > 0) && (e4 > d4));
+
+      final MoveGenerator apres = depart.derive(bibliotheque.getMove(depart, hasard), true);
+      assertTrue(Arrays.asList(apres.getValidMoves(false)).contains(
+          bibliotheque.getMove(apres, hasard)));
+      MoveGenerator inconnu = depart.derive(depart.getValidMoves(true)[0], true);
+      inconnu = inconnu.derive(inconnu.getValidMoves(false)[0], true);
+      assertNull(bibliotheque.getMove(inconnu, hasard));
+    }
+    finally
+    {
+      fichier.delete();
+    }
+  }
+
+  /**
+   * Vérifie que la bibliothèque d'ouvertures par défaut est disponible et propose des mouvements
+   * valides.
+   */
+  @Test
+  public void testDefault()
+  {
+    final OpeningBook bibliotheque = OpeningBook.getDefault();
+    assertNotNull(bibliotheque);
+    assertTrue(bibliotheque.size() > 0);
+
+    final Random hasard = new Random(1000);
+    MoveGenerator etat = BoardFactory.valueOf(FASTEST, STARTING);
+    assertNotNull(bibliotheque.getMove(etat, hasard));
+    for (int i = 0; i < 6; i++)
+    {
+      final Move mvt = bibliotheque.getMove(etat, hasard);
+      if (mvt == null)
+      {
+        break;
+      }
+      assertTrue(Arrays.asList(etat.getValidMoves(etat.isWhiteActive())).contains(mvt));
+      etat = etat.derive(mvt, true);
+    }
+  }
+
+  /**
+   * Vérifie l'import parallèle de plusieurs fichiers PGN, équivalent à leur import successif.
+   * 
+   * @throws Exception En cas d'erreur de lecture ou d'écriture.
+   */
+  @Test
+  public void testParallelImport() throws Exception
+  {
+    final String [] pgns =
+        { "[Event \"1\"]\n\n1. e4 e5 2. Nf3 *\n\n[Event \"2\"]\n\n1. e4 c5 *\n",
+            "[Event \"3\"]\n\n1. d4 d5 *\n", "1. e4 e5 2. Nc3 1-0\n", };
+    final List<File> fichiers = new ArrayList<>();
+    final OpeningBookConverter successif = new OpeningBookConverter();
+    try
+    {
+      for (final String pgn : pgns)
+      {
+        final File fichier = File.createTempFile("jchecs", ".pgn");
+        fichiers.add(fichier);
+        final Writer out = new OutputStreamWriter(new FileOutputStream(fichier), "UTF-8");
+        try
+        {
+          out.write(pgn);
+        }
+        finally
+        {
+          out.close();
+        }
+        successif.addPGN(new StringReader(pgn));
+      }
+
+      final OpeningBookConverter parallele = new OpeningBookConverter();
+      assertTrue(Arrays.equals(new int [] { 2, 1, 1, }, parallele.addPGN(fichiers, 2)));
+      assertEquals(7, parallele.size());
+      assertEquals(successif.size(), parallele.size());
+    }
+    finally
+    {
+      for (final File fichier : fichiers)
+      {
+        fichier.delete();
+      }
+    }
+  }
+
+  /**
+   * Vérifie le rejet d'un contenu qui n'est pas une bibliothèque d'ouvertures.
+   */
+  @Test
+  public void testInvalid()
+  {
+    try
+    {
+      new OpeningBook(ByteBuffer.allocate(OpeningBook.HEADER_SIZE));
+      fail();
+    }
+    catch (final IOException e)
+    {
+      // Attendu.
+    }
+  }
+}
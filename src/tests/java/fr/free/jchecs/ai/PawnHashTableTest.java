@@ -0,0 +1,108 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.MoveGenerator;
+
+/**
+ * Tests unitaires de la classe de gestion des tables de structures de pions.
+ * 
+ * @author David Cotton
+ */
+public final class PawnHashTableTest
+{
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public PawnHashTableTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Teste le stockage / la recherche des entrées et le décompte des consultations.
+   */
+  @Test
+  public void testStoreProbe()
+  {
+    final PawnHashTable table = new PawnHashTable(100);
+    final Heuristic heuristique = new MobilityHeuristic();
+    table.setHeuristic(heuristique);
+
+    final long cle = 0x123456789ABCDEF1L;
+    assertEquals(-1, table.probe(cle));
+    final int entree = table.store(cle, -42, 0x0000FF0000000000L, 0x100L);
+    assertEquals(entree, table.probe(cle));
+    assertEquals(-42, table.getScore(entree));
+    assertEquals(0x0000FF0000000000L, table.getPassedPawns(entree, true));
+    assertEquals(0x100L, table.getPassedPawns(entree, false));
+    assertEquals(-1, table.probe(cle ^ 1L << 40));
+    // La table est arrondie à 64 entrées : la clé suivante de même indice remplace la première.
+    table.store(cle + 64, 7, 0, 0);
+    assertEquals(-1, table.probe(cle));
+    assertEquals(4, table.getProbes());
+    assertEquals(1, table.getHits());
+
+    // Une table n'est vidée qu'en changeant de fonction d'évaluation.
+    table.setHeuristic(heuristique);
+    assertEquals(7, table.getScore(table.probe(cle + 64)));
+    table.setHeuristic(new MobilityHeuristic());
+    assertEquals(-1, table.probe(cle + 64));
+
+    table.resetStatistics();
+    assertEquals(0, table.getProbes());
+    assertEquals(0, table.getHits());
+  }
+
+  /**
+   * Vérifie que l'utilisation d'une table ne modifie pas les évaluations.
+   */
+  @Test
+  public void testEvaluation()
+  {
+    final MobilityHeuristic heuristique = new MobilityHeuristic();
+    final PawnHashTable table = new PawnHashTable(PawnHashTable.DEFAULT_SIZE);
+    table.setHeuristic(heuristique);
+
+    final List<MoveGenerator> positions = HeuristicsBench.randomPositions(500, new Random(0));
+    for (int passe = 0; passe < 2; passe++)
+    {
+      for (final MoveGenerator etat : positions)
+      {
+        for (int c = 0; c < 2; c++)
+        {
+          final boolean trait = c == 0;
+          assertEquals(etat.toString(), heuristique.evaluate(etat, trait),
+              heuristique.evaluate(etat, trait, table));
+        }
+      }
+    }
+    assertEquals(2000, table.getProbes());
+    // Au moins toute la seconde passe trouve les structures de la première.
+    assertTrue(table.getHits() >= 1000);
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static fr.free.jchecs.ai.AbstractEngine.MATE_VALUE;
+import static fr.free.jchecs.core.BoardFactory.State.EMPTY;
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+import static fr.free.jchecs.core.PieceType.KNIGHT;
+import static fr.free.jchecs.core.PieceType.PAWN;
+import static fr.free.jchecs.core.PieceType.QUEEN;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.FENUtils;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveList;
+import fr.free.jchecs.core.ReversibleMoveGenerator;
+import fr.free.jchecs.core.Square;
+
+/**
+ * Tests unitaires de la recherche de quiescence.
+ * 
+ * @author David Cotton
+ */
+public final class QuiescenceSearchTest
+{
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public QuiescenceSearchTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Renvoi l'identifiant d'un mouvement valide d'un état.
+   * 
+   * @param pEtat Etat de l'échiquier.
+   * @param pOrigine Case de départ.
+   * @param pDestination Case d'arrivée.
+   * @return Identifiant du mouvement.
+   */
+  private static int findMove(final ReversibleMoveGenerator pEtat, final String pOrigine,
+      final String pDestination)
+  {
+    final MoveList coups = new MoveList();
+    final int l = pEtat.getValidMoves(pEtat.isWhiteActive(), coups);
+    for (int i = 0; i < l; i++)
+    {
+      final int mvt = coups.get(i);
+      if ((Move.fromOf(mvt) == Square.valueOf(pOrigine).getIndex())
+          && (Move.toOf(mvt) == Square.valueOf(pDestination).getIndex()))
+      {
+        return mvt;
+      }
+    }
+
+    throw new AssertionError(pOrigine + pDestination);
+  }
+
+  /**
+   * Renvoi un état réversible correspondant à une chaîne FEN.
+   * 
+   * @param pFEN Chaîne FEN.
+   * @return Etat correspondant.
+   * @throws FENException En cas d'erreur dans la chaîne FEN.
+   */
+  private static ReversibleMoveGenerator toBoard(final String pFEN) throws FENException
+  {
+    return BoardFactory.newReversible(BoardFactory.valueOf(FASTEST, EMPTY).derive(
+        FENUtils.toBoard(pFEN)));
+  }
+
+  /**
+   * Teste l'évaluation statique des échanges.
+   * 
+   * @throws FENException En cas d'erreur dans les positions de test.
+   */
+  @Test
+  public void testSee() throws FENException
+  {
+    final QuiescenceSearch recherche =
+        new QuiescenceSearch(new AlphaBetaEngine(), new MoveLists(), null);
+
+    // Pièce non défendue...
+    ReversibleMoveGenerator etat = toBoard("4k3/8/8/3n4/8/8/8/3RK3 w - - 0 1");
+    final String fen = FENUtils.toFEN(etat);
+    assertEquals(KNIGHT.getValue(), recherche.see(etat, findMove(etat, "d1", "d5")));
+    assertEquals(fen, FENUtils.toFEN(etat));
+
+    // ... pion défendu par un pion, pris par la dame...
+    etat = toBoard("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1");
+    assertEquals(PAWN.getValue() - QUEEN.getValue(),
+        recherche.see(etat, findMove(etat, "d1", "d5")));
+
+    // ... et pion défendu par une tour, mais dont la prise est soutenue par une seconde tour.
+    etat = toBoard("3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1");
+    assertEquals(PAWN.getValue(), recherche.see(etat, findMove(etat, "d2", "d5")));
+  }
+
+  /**
+   * Vérifie que la recherche de quiescence exploite une prise gagnante, et ignore une prise
+   * perdante que l'évaluation statique jugerait favorable.
+   * 
+   * @throws FENException En cas d'erreur dans les positions de test.
+   */
+  @Test
+  public void testSearch() throws FENException
+  {
+    final AbstractEngine moteur = new AlphaBetaEngine();
+    final QuiescenceSearch recherche = new QuiescenceSearch(moteur, new MoveLists(), null);
+
+    ReversibleMoveGenerator etat = toBoard("4k3/8/8/3r4/8/8/8/3QK3 w - - 0 1");
+    int statique = moteur.evaluate(etat, true);
+    assertTrue(recherche.search(etat, MATE_VALUE, -MATE_VALUE) > statique + 300);
+
+    etat = toBoard("4k3/8/4p3/3r4/8/8/8/3QK3 w - - 0 1");
+    statique = moteur.evaluate(etat, true);
+    assertEquals(statique, recherche.search(etat, MATE_VALUE, -MATE_VALUE));
+    assertTrue(recherche.takeHalfmoves() > 0);
+    assertEquals(0, recherche.takeHalfmoves());
+  }
+
+  /**
+   * Vérifie qu'un camp en échec ne s'abstient pas : toutes ses parades sont examinées, même sans
+   * prise possible, et l'absence de parade est un mat malgré une évaluation statique favorable.
+   * 
+   * @throws FENException En cas d'erreur dans les positions de test.
+   */
+  @Test
+  public void testSearchInCheck() throws FENException
+  {
+    final AbstractEngine moteur = new AlphaBetaEngine();
+    final QuiescenceSearch recherche = new QuiescenceSearch(moteur, new MoveLists(), null);
+
+    // Echec sans prise possible : seules les parades du roi sont examinées...
+    ReversibleMoveGenerator etat = toBoard("4k3/8/8/8/8/8/8/4RK2 b - - 0 1");
+    final String fen = FENUtils.toFEN(etat);
+    assertTrue(recherche.search(etat, MATE_VALUE, -MATE_VALUE) > MATE_VALUE);
+    assertEquals(fen, FENUtils.toFEN(etat));
+    assertTrue(recherche.takeHalfmoves() >= 4);
+
+    // ... et mat étouffé du camp ayant l'avantage matériel.
+    etat = toBoard("6rk/5Npp/8/8/8/7K/8/q7 b - - 0 1");
+    assertTrue(moteur.evaluate(etat, false) > 0);
+    assertEquals(MATE_VALUE, recherche.search(etat, MATE_VALUE, -MATE_VALUE));
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import static fr.free.jchecs.ai.Tablebase.UNKNOWN;
+import static fr.free.jchecs.ai.Tablebase.WIN_VALUE;
+import static fr.free.jchecs.core.BoardFactory.State.EMPTY;
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.BoardFactory;
+import fr.free.jchecs.core.FENException;
+import fr.free.jchecs.core.FENUtils;
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.MoveGenerator;
+import fr.free.jchecs.core.PieceType;
+
+/**
+ * Tests unitaires des tables de finales.
+ * 
+ * @author David Cotton
+ */
+public final class TablebaseTest
+{
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public TablebaseTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Renvoi un état correspondant à une chaîne FEN.
+   * 
+   * @param pFEN Chaîne FEN.
+   * @return Etat correspondant.
+   * @throws FENException En cas d'erreur dans la chaîne FEN.
+   */
+  private static MoveGenerator toBoard(final String pFEN) throws FENException
+  {
+    return BoardFactory.valueOf(FASTEST, EMPTY).derive(FENUtils.toBoard(pFEN));
+  }
+
+  /**
+   * Vérifie les valeurs des tables livrées avec l'application, et le cache des blocs.
+   * 
+   * @throws FENException En cas d'erreur dans les positions de test.
+   */
+  @Test
+  public void testDefault() throws FENException
+  {
+    final Tablebase tables = Tablebase.getDefault();
+
+    // Mat en un coup (Dh8#), pour les blancs comme pour les noirs.
+    assertEquals(WIN_VALUE - 1, tables.probe(toBoard("k7/8/1K6/8/8/8/7Q/8 w - - 0 1")));
+    assertEquals(WIN_VALUE - 1, tables.probe(toBoard("8/7q/8/8/8/1k6/8/K7 b - - 0 1")));
+    // Mat.
+    assertEquals(-WIN_VALUE, tables.probe(toBoard("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1")));
+    assertEquals(-WIN_VALUE, tables.probe(toBoard("R1k5/8/2K5/8/8/8/8/8 b - - 0 1")));
+    // Dame non défendue, prise par le roi : nulle.
+    assertEquals(0, tables.probe(toBoard("k7/Q7/8/8/8/8/8/7K b - - 0 1")));
+    // Pat.
+    assertEquals(0, tables.probe(toBoard("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1")));
+    // Matériel insuffisant.
+    assertEquals(0, tables.probe(toBoard("k7/8/1K6/8/8/8/7B/8 w - - 0 1")));
+    assertEquals(0, tables.probe(toBoard("k7/8/1K6/8/8/8/8/8 w - - 0 1")));
+    // Positions non couvertes.
+    assertEquals(UNKNOWN, tables.probe(toBoard("k7/8/1K6/8/8/8/P7/8 w - - 0 1")));
+    assertEquals(UNKNOWN, tables.probe(toBoard("k7/8/1K6/8/8/8/8/6RQ w - - 0 1")));
+
+    // Une seconde consultation du même bloc ne le décompresse pas à nouveau.
+    final MoveGenerator etat = toBoard("8/8/3k4/8/8/8/8/R3K3 w - - 0 1");
+    final int valeur = tables.probe(etat);
+    assertTrue((valeur > 0) && (valeur < WIN_VALUE));
+    final long decompressions = tables.getInflations();
+    final long consultations = tables.getLookups();
+    assertEquals(valeur, tables.probe(etat));
+    assertEquals(decompressions, tables.getInflations());
+    assertEquals(consultations + 1, tables.getLookups());
+  }
+
+  /**
+   * Vérifie que les moteurs jouent les finales couvertes par les tables au plus court.
+   * 
+   * @throws FENException En cas d'erreur dans la position de test.
+   */
+  @Test
+  public void testEngine() throws FENException
+  {
+    final Tablebase tables = Tablebase.getDefault();
+    for (final String nom : EngineFactory.getNames())
+    {
+      final Engine moteur = EngineFactory.newInstance(nom);
+      moteur.setSearchDepthLimit(moteur.getMinimalSearchDepth());
+      MoveGenerator etat = toBoard("8/8/3k4/8/8/8/8/R3K3 w - - 0 1");
+      final int distance = WIN_VALUE - tables.probe(etat);
+      assertTrue(distance > 1);
+      // Chaque mouvement rapproche le mat d'un demi-coup, quelle que soit la défense.
+      for (int i = 1; i <= distance; i++)
+      {
+        final int valeur = tables.probe(etat);
+        final Move mvt = moteur.getMoveFor(etat);
+        assertEquals(nom, valeur, moteur.getScore());
+        etat = etat.derive(mvt, true);
+        if (i % 2 == 0)
+        {
+          assertEquals(nom, WIN_VALUE - (distance - i), tables.probe(etat));
+        }
+        else
+        {
+          assertEquals(nom, -(WIN_VALUE - (distance - i)), tables.probe(etat));
+        }
+      }
+      final boolean trait = etat.isWhiteActive();
+      assertTrue(nom, etat.isInCheck(trait) && (etat.getValidMoves(trait).length == 0));
+
+      moteur.setTablebaseEnabled(false);
+      moteur.getMoveFor(toBoard("8/8/3k4/8/8/8/8/R3K3 w - - 0 1"));
+      assertTrue(nom, moteur.getScore() < WIN_VALUE / 2);
+    }
+  }
+
+  /**
+   * Vérifie les tables construites par le générateur, et leur relecture depuis un répertoire.
+   * 
+   * @throws Exception En cas d'erreur d'écriture ou de lecture.
+   */
+  @Test
+  public void testGenerator() throws Exception
+  {
+    // Plus longs mats connus, avec le trait au camp fort : 10 coups (KQK), 16 coups (KRK).
+    final int [] distances = { 19, 31, };
+    final File repertoire = File.createTempFile("jchecs", ".tables");
+    assertTrue(repertoire.delete() && repertoire.mkdir());
+    try
+    {
+      for (int t = 0; t < TablebaseGenerator.TYPES.length; t++)
+      {
+        final PieceType type = TablebaseGenerator.TYPES[t];
+        final byte [] table = new TablebaseGenerator(type).generate();
+        int max = 0;
+        for (int i = 0; i < Tablebase.POSITIONS / 2; i++)
+        {
+          max = Math.max(max, (table[i] & 0xFF) - 1);
+        }
+        assertEquals(type.toString(), distances[t], max);
+        TablebaseGenerator.write(table, new File(repertoire, Tablebase.nameOf(type)));
+      }
+
+      final Tablebase tables = Tablebase.open(repertoire);
+      final MoveGenerator etat = toBoard("8/8/3k4/8/8/8/8/R3K3 w - - 0 1");
+      assertEquals(Tablebase.getDefault().probe(etat), tables.probe(etat));
+      assertEquals(tables, Tablebase.open(repertoire));
+      assertEquals(UNKNOWN, new Tablebase().probe(etat));
+    }
+    finally
+    {
+      for (final File fichier : repertoire.listFiles())
+      {
+        fichier.delete();
+      }
+      repertoire.delete();
+    }
+  }
+
+  /**
+   * Vérifie que les tables absentes d'un répertoire sont remplacées par les tables livrées.
+   * 
+   * @throws FENException En cas d'erreur dans la position de test.
+   */
+  @Test
+  public void testMissingDirectory() throws FENException
+  {
+    final MoveGenerator etat = toBoard("8/8/3k4/8/8/8/8/Q3K3 w - - 0 1");
+    final int valeur = Tablebase.getDefault().probe(etat);
+    assertTrue(valeur != UNKNOWN);
+    assertEquals(valeur, Tablebase.open(new File("/nonexistent/jchecs.tables")).probe(etat));
+  }
+
+  /**
+   * Vérifie le rejet d'un contenu qui n'est pas une table de finales.
+   */
+  @Test
+  public void testInvalid()
+  {
+    try
+    {
+      new Tablebase().add(PieceType.QUEEN, ByteBuffer.allocate(Tablebase.HEADER_SIZE));
+      fail();
+    }
+    catch (final IOException e)
+    {
+      // Attendu.
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static fr.free.jchecs.ai.TranspositionTable.ALPHA;
+import static fr.free.jchecs.ai.TranspositionTable.BETA;
+import static fr.free.jchecs.ai.TranspositionTable.EXACT;
+import static fr.free.jchecs.core.Piece.BLACK_QUEEN;
+import static fr.free.jchecs.core.Piece.WHITE_KNIGHT;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import fr.free.jchecs.core.Move;
+import fr.free.jchecs.core.Square;
+
+/**
+ * Tests unitaires de la classe de gestion des tables de transposition.
+ * 
+ * @author David Cotton
+ */
+public final class TranspositionTableTest
+{
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public TranspositionTableTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Teste le codage / décodage des entrées.
+   */
+  @Test
+  public void testStoreProbe()
+  {
+    final TranspositionTable table = new TranspositionTable(1);
+    assertEquals(1 << 16, table.getCapacity());
+
+    final Move mvt =
+        new Move(WHITE_KNIGHT, Square.valueOf("g1"), Square.valueOf("f3"), BLACK_QUEEN);
+    final long cle = 0x123456789ABCDEF1L;
+    assertEquals(0, table.probe(cle));
+
+    table.store(cle, -1, BETA, Integer.MIN_VALUE / 2 - 1, mvt.toId());
+    final long entree = table.probe(cle);
+    assertEquals(-1, TranspositionTable.getDepth(entree));
+    assertEquals(BETA, TranspositionTable.getType(entree));
+    assertEquals(Integer.MIN_VALUE / 2 - 1, TranspositionTable.getValue(entree));
+    assertEquals(mvt, Move.valueOf(TranspositionTable.getMove(entree)));
+    assertEquals(0, table.probe(cle ^ 1L << 40));
+
+    // Une mise à jour sans mouvement conserve le mouvement connu.
+    table.store(cle, 3, EXACT, 42, 0);
+    assertEquals(mvt.toId(), TranspositionTable.getMove(table.probe(cle)));
+    assertEquals(42, TranspositionTable.getValue(table.probe(cle)));
+
+    table.clear();
+    assertEquals(0, table.probe(cle));
+  }
+
+  /**
+   * Teste l'exploitation des bornes des entrées.
+   */
+  @Test
+  public void testConclusive()
+  {
+    final TranspositionTable table = new TranspositionTable(1);
+    table.store(1, 4, ALPHA, 10, 0);
+    table.store(2, 4, BETA, 10, 0);
+    table.store(3, 4, EXACT, 10, 0);
+
+    assertFalse(TranspositionTable.isConclusive(0, 0, 0, 20));
+    assertFalse(TranspositionTable.isConclusive(table.probe(3), 5, 0, 20));
+    assertTrue(TranspositionTable.isConclusive(table.probe(3), 4, 0, 20));
+    assertTrue(TranspositionTable.isConclusive(table.probe(1), 4, 10, 20));
+    assertFalse(TranspositionTable.isConclusive(table.probe(1), 4, 5, 20));
+    assertTrue(TranspositionTable.isConclusive(table.probe(2), 4, 0, 10));
+    assertFalse(TranspositionTable.isConclusive(table.probe(2), 4, 0, 15));
+  }
+
+  /**
+   * Teste la politique de remplacement au sein d'un seau.
+   */
+  @Test
+  public void testReplacement()
+  {
+    final TranspositionTable table = new TranspositionTable(1);
+    final long seau = (long) table.getCapacity() / 4;
+
+    // Les 4 entrées d'un seau sont occupées par des positions de profondeurs différentes.
+    for (int i = 0; i < 4; i++)
+    {
+      table.store(7 + i * seau, 4 + i, EXACT, i, 0);
+    }
+    // Une cinquième position remplace la moins profonde.
+    table.store(7 + 4 * seau, 1, EXACT, 4, 0);
+    assertEquals(0, table.probe(7));
+    assertEquals(4, TranspositionTable.getValue(table.probe(7 + 4 * seau)));
+
+    // Un résultat moins profond ne remplace pas celui de la recherche en cours...
+    table.store(7 + 3 * seau, 2, BETA, 99, 0);
+    assertEquals(3, TranspositionTable.getValue(table.probe(7 + 3 * seau)));
+
+    // ... mais remplace en priorité ceux des recherches précédentes.
+    table.newSearch();
+    table.store(7 + 5 * seau, 0, EXACT, 5, 0);
+    assertEquals(0, table.probe(7 + 4 * seau));
+    table.store(7 + 3 * seau, 2, BETA, 99, 0);
+    assertEquals(99, TranspositionTable.getValue(table.probe(7 + 3 * seau)));
+  }
+
+  /**
+   * Vérifie que des lectures / écritures concurrentes ne renvoient jamais d'entrée incohérente.
+   * 
+   * @throws InterruptedException En cas d'interruption de l'attente des threads.
+   */
+  @Test
+  public void testThreadSafety() throws InterruptedException
+  {
+    final TranspositionTable table = new TranspositionTable(1);
+    final AtomicInteger erreurs = new AtomicInteger();
+    final Thread [] threads = new Thread [ 4 ];
+    for (int t = 0; t < threads.length; t++)
+    {
+      final long graine = t;
+      threads[t] = new Thread(new Runnable()
+      {
+        /**
+         * Ecritures et lectures aléatoires sur un petit nombre de clés.
+         */
+        public void run()
+        {
+          final Random rnd = new Random(graine);
+          for (int i = 0; i < 200000; i++)
+          {
+            final long cle = rnd.nextInt(1024) * 0x9E3779B97F4A7C15L;
+            final long entree = table.probe(cle);
+            if ((entree != 0) && (TranspositionTable.getValue(entree) != (int) (cle >>> 32)))
+            {
+              erreurs.incrementAndGet();
+            }
+            table.store(cle, rnd.nextInt(20), EXACT, (int) (cle >>> 32), 0);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (final Thread t : threads)
+    {
+      t.join();
+    }
+
+    assertEquals(0, erreurs.get());
+  }
+}
@@ -25,6 +25,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+import static fr.free.jchecs.core.Constants.FILE_COUNT;
 import static fr.free.jchecs.core.Piece.BLACK_BISHOP;
 import static fr.free.jchecs.core.Piece.BLACK_KING;
 import static fr.free.jchecs.core.Piece.BLACK_KNIGHT;
@@ -57,6 +58,63 @@ public final class MoveGeneratorTest
     // Rien de spécifique...
   }
 
+  /**
+   * Vérifie que les bilans maintenus par un état correspondent à ceux calculés case par case.
+   * 
+   * @param pEtat Etat à vérifier.
+   */
+  private static void sameBalances(final Board pEtat)
+  {
+    assert pEtat != null;
+
+    final String nom = pEtat.getClass().getSimpleName();
+    final PieceSquareTable [] tables = PieceSquareTable.values();
+    final int [] positions = new int [ tables.length ];
+    final int [][] pions = new int [ 2 ] [ FILE_COUNT ];
+    int materiel = 0;
+    int nbPieces = 0;
+    for (final Square s : Square.values())
+    {
+      final Piece p = pEtat.getPieceAt(s);
+      if (p != null)
+      {
+        final int signe;
+        final int couleur;
+        if (p.isWhite())
+        {
+          signe = 1;
+          couleur = 0;
+        }
+        else
+        {
+          signe = -1;
+          couleur = 1;
+        }
+        nbPieces++;
+        materiel += signe * p.getType().getValue();
+        for (final PieceSquareTable t : tables)
+        {
+          positions[t.ordinal()] += signe * t.getValue(p, s);
+        }
+        if (p.getType() == PieceType.PAWN)
+        {
+          pions[couleur][s.getFile()]++;
+        }
+      }
+    }
+    assertEquals(nom, materiel, pEtat.getMaterialBalance());
+    assertEquals(nom, nbPieces, pEtat.getPieceCount());
+    for (final PieceSquareTable t : tables)
+    {
+      assertEquals(nom, positions[t.ordinal()], pEtat.getPositionalBalance(t));
+    }
+    for (int x = 0; x < FILE_COUNT; x++)
+    {
+      assertEquals(nom, pions[0][x], pEtat.getPawnCount(true, x));
+      assertEquals(nom, pions[1][x], pEtat.getPawnCount(false, x));
+    }
+  }
+
   /**
    * Vérifie si deux listes de mouvements sont identiques.
    * 
@@ -153,6 +211,31 @@ public final class MoveGeneratorTest
     }
   }
 
+  /**
+   * Vérifie qu'un état modifiable est identique à un état de référence.
+   * 
+   * @param pEtat Etat modifiable testé.
+   * @param pReference Etat de référence.
+   */
+  private static void sameState(final ReversibleMoveGenerator pEtat, final MoveGenerator pReference)
+  {
+    assert pEtat != null;
+    assert pReference != null;
+
+    final String nom = pEtat.getClass().getSimpleName();
+    assertEquals(nom, pReference, pEtat);
+    assertEquals(nom, pReference.hashCode(), pEtat.hashCode());
+    assertEquals(nom, pReference.zobristKey(), pEtat.zobristKey());
+    assertEquals(nom, pReference.pawnZobristKey(), pEtat.pawnZobristKey());
+    assertEquals(nom, pReference.getFullmoveNumber(), pEtat.getFullmoveNumber());
+    assertEquals(nom, pReference.getHalfmoveCount(), pEtat.getHalfmoveCount());
+    assertTrue(nom, pReference.isCastled(true) == pEtat.isCastled(true));
+    assertTrue(nom, pReference.isCastled(false) == pEtat.isCastled(false));
+    assertSame(nom, pReference.getKingSquare(true), pEtat.getKingSquare(true));
+    assertSame(nom, pReference.getKingSquare(false), pEtat.getKingSquare(false));
+    sameBalances(pEtat);
+  }
+
   /**
    * Teste la méthode de dérivation de plateau.
    */
@@ -487,6 +570,116 @@ public final class MoveGeneratorTest
     }
   }
 
+  /**
+   * Teste l'équivalence entre l'application / annulation des mouvements sur un état modifiable et
+   * la dérivation des états.
+   */
+  @Test
+  public void testMakeMove()
+  {
+    final Random randomizer = new Random(1000);
+    final MoveGenerator [] etats = new MoveGenerator [ 201 ];
+    for (int p = 100; p >= 0; p--)
+    {
+      etats[0] = BoardFactory.valueOf(BoardFactory.Type.ARRAY, BoardFactory.State.STARTING);
+      final ReversibleMoveGenerator [] reversibles =
+          { new ReversibleX88Board(etats[0]), new ReversibleBitboardBoard(etats[0]), };
+      final MoveList liste = new MoveList();
+      int n = 0;
+      while (n < etats.length - 1)
+      {
+        final MoveGenerator etat = etats[n];
+        final Move [] mvts = etat.getValidMoves(etat.isWhiteActive());
+        for (final ReversibleMoveGenerator r : reversibles)
+        {
+          final String nom = r.getClass().getSimpleName();
+          sameState(r, etat);
+          sameMoves(nom, mvts, r.getValidMoves(etat.isWhiteActive()));
+          assertEquals(nom, mvts.length, r.getValidMoves(etat.isWhiteActive(), liste));
+          sameMoves(nom, mvts, liste.toMoves());
+        }
+        if (mvts.length == 0)
+        {
+          break;
+        }
+        final Move mvt = mvts[randomizer.nextInt(mvts.length)];
+        etats[++n] = etat.derive(mvt, true);
+        for (final ReversibleMoveGenerator r : reversibles)
+        {
+          // Alterne les deux formes de mouvement...
+          if ((n & 1) == 0)
+          {
+            r.makeMove(mvt);
+          }
+          else
+          {
+            r.makeMove(mvt.toId());
+          }
+          assertEquals(n, r.getPly());
+        }
+      }
+      // Les annulations successives doivent restituer chacun des états intermédiaires.
+      while (n > 0)
+      {
+        n--;
+        for (final ReversibleMoveGenerator r : reversibles)
+        {
+          r.unmakeMove();
+          assertEquals(n, r.getPly());
+          sameState(r, etats[n]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Teste l'application / annulation des coups nuls sur un état modifiable : trait, case "en
+   * passant", compteurs et clés de hachage.
+   * 
+   * @throws FENException En cas d'erreur dans les positions de test.
+   */
+  @Test
+  public void testMakeNullMove() throws FENException
+  {
+    final String [] fens =
+        { "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR b KQkq - 1 3",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq - 2 4", };
+    final MoveGenerator [] etats = new MoveGenerator [ fens.length ];
+    for (int i = 0; i < fens.length; i++)
+    {
+      etats[i] =
+          BoardFactory.valueOf(BoardFactory.Type.ARRAY, BoardFactory.State.EMPTY).derive(
+              FENUtils.toBoard(fens[i]));
+    }
+    final ReversibleMoveGenerator [] reversibles =
+        { new ReversibleX88Board(etats[0]), new ReversibleBitboardBoard(etats[0]), };
+    for (final ReversibleMoveGenerator r : reversibles)
+    {
+      final String nom = r.getClass().getSimpleName();
+      for (int i = 1; i < etats.length; i++)
+      {
+        r.makeNullMove();
+        assertEquals(nom, i, r.getPly());
+        sameState(r, etats[i]);
+        assertSame(nom, null, r.getEnPassant());
+      }
+      // Un mouvement joué après un coup nul s'annule normalement.
+      final Move mvt = r.getValidMoves(true)[0];
+      r.makeMove(mvt);
+      sameState(r, etats[etats.length - 1].derive(mvt, true));
+      r.unmakeMove();
+      for (int i = etats.length - 1; i > 0; i--)
+      {
+        sameState(r, etats[i]);
+        r.unmakeMove();
+      }
+      assertEquals(nom, 0, r.getPly());
+      sameState(r, etats[0]);
+      assertSame(nom, Square.valueOf(5, 5), r.getEnPassant());
+    }
+  }
+
   /**
    * Teste l'équivalence des résultats lors du déroulement des parties.
    */
@@ -522,6 +715,7 @@ public final class MoveGeneratorTest
         for (int i = 0; i < eLength; i++)
         {
           etats[i] = etats[i].derive(mvt, true);
+          sameBalances(etats[i]);
           if (etats[i].isCastled(true))
           {
             assertFalse(etats[i].getClass().getSimpleName(), etats[i].canCastleLong(true));
@@ -535,6 +729,10 @@ public final class MoveGeneratorTest
           if (i > 0)
           {
             assertEquals(etats[i].getClass().getSimpleName(), etats[i - 1], etats[i]);
+            assertEquals(etats[i].getClass().getSimpleName(), etats[i - 1].zobristKey(),
+                etats[i].zobristKey());
+            assertEquals(etats[i].getClass().getSimpleName(), etats[i - 1].pawnZobristKey(),
+                etats[i].pawnZobristKey());
             assertTrue(etats[i].getClass().getSimpleName(),
                 etats[i - 1].isCastled(true) == etats[i].isCastled(true));
             assertTrue(etats[i].getClass().getSimpleName(),
@@ -105,6 +105,28 @@ public final class MoveTest
     assertFalse(mvt1.equals(Move.valueOf(mvt3.toId())));
   }
 
+  /**
+   * Teste le décodage des entiers identifiants de mouvements.
+   */
+  @Test
+  public void testIdOf()
+  {
+    final Move mvt1 = new Move(BLACK_PAWN, Square.valueOf("a2"), Square.valueOf("a4"));
+    final Move mvt2 =
+        new Move(WHITE_BISHOP, Square.valueOf("a3"), Square.valueOf("d6"), BLACK_PAWN);
+
+    for (final Move mvt : new Move [] { mvt1, mvt2, })
+    {
+      final int id = mvt.toId();
+      assertEquals(id, Move.idOf(mvt.getPiece(), mvt.getFrom().getIndex(), mvt.getTo().getIndex(),
+          mvt.getCaptured()));
+      assertSame(mvt.getPiece(), Move.pieceOf(id));
+      assertEquals(mvt.getFrom().getIndex(), Move.fromOf(id));
+      assertEquals(mvt.getTo().getIndex(), Move.toOf(id));
+      assertSame(mvt.getCaptured(), Move.capturedOf(id));
+    }
+  }
+
   /**
    * Teste la méthode "toString".
    */
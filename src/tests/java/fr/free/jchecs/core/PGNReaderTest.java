@@ -0,0 +1,175 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import static fr.free.jchecs.core.FENUtils.STANDART_STARTING_FEN;
+import static fr.free.jchecs.core.FENUtils.toFEN;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * Tests unitaires du lecteur de flux PGN.
+ * 
+ * @author David Cotton
+ */
+public final class PGNReaderTest
+{
+  /** Collection de test : commentaires, variantes, annotations, position de départ, ... */
+  static final String PGN = "[Event \"Paris\"]\n" //
+      + "[White \"Paul \\\"Morphy\\\"\"]\n" //
+      + "[Result \"1-0\"]\n" //
+      + "\n" //
+      + "1. e4 e5 2. Nf3 d6 {Philidor} 3. d4 Bg4 $2 4. dxe5 Bxf3 (4... dxe5 5. Qxd8+ (5. Nxe5)\n" //
+      + "Kxd8) 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5\n" //
+      + "11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7 14. Rd1 Qe6 ; fin proche\n" //
+      + "15. Bxd7+ Nxd7 16. Qb8+! Nxb8 17. Rd8# 1-0\n" //
+      + "\n" //
+      + "[Event \"Promotion\"]\n" //
+      + "[SetUp \"1\"]\n" //
+      + "[FEN \"8/P6k/8/8/8/8/8/K7 w - - 0 1\"]\n" //
+      + "\n" //
+      + "1.a8=Q Kg6 *\n" //
+      + "[Event \"Sans résultat\"]\n" //
+      + "1.d4 d5\n" //
+      + "[Event \"Vide\"]\n" //
+      + "1/2-1/2\n";
+
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public PGNReaderTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Lit tous les événements d'une collection.
+   * 
+   * @param pPGN Collection au format PGN.
+   * @return Evénements lus, sous forme de chaîne : "T" pour un tag, "M" pour un mouvement, suivi
+   *         du résultat pour une fin de partie.
+   * @throws PGNException En cas d'erreur dans la collection.
+   */
+  private static String readAll(final String pPGN) throws PGNException
+  {
+    final StringBuilder res = new StringBuilder();
+    final PGNReader lecteur = new PGNReader(new StringReader(pPGN));
+    PGNReader.Event evt = lecteur.next();
+    while (evt != null)
+    {
+      switch (evt)
+      {
+        case TAG :
+          res.append('T');
+          break;
+        case MOVE :
+          res.append('M');
+          break;
+        case END_OF_GAME :
+          res.append(lecteur.getResult()).append(' ');
+          break;
+        default :
+          fail(evt.toString());
+      }
+      evt = lecteur.next();
+    }
+
+    return res.toString();
+  }
+
+  /**
+   * Vérifie la suite des événements lus et les mouvements obtenus.
+   * 
+   * @throws PGNException En cas d'erreur dans la collection de test.
+   */
+  @Test
+  public void testEvents() throws PGNException
+  {
+    final StringBuilder attendu = new StringBuilder("TTT");
+    for (int i = 0; i < 33; i++)
+    {
+      attendu.append('M');
+    }
+    attendu.append("1-0 TTTMM* TMM* T1/2-1/2 ");
+    assertEquals(attendu.toString(), readAll(PGN));
+    assertEquals("", readAll(""));
+
+    final PGNReader lecteur = new PGNReader(new StringReader(PGN));
+    assertEquals(PGNReader.Event.TAG, lecteur.next());
+    assertTrue("Event".contentEquals(lecteur.getTagName()));
+    assertTrue("Paris".contentEquals(lecteur.getTagValue()));
+    lecteur.next();
+    assertTrue("Paul \"Morphy\"".contentEquals(lecteur.getTagValue()));
+    lecteur.next();
+    assertEquals(PGNReader.Event.MOVE, lecteur.next());
+    assertEquals(Move.idOf(Piece.WHITE_PAWN, 12, 28, null), lecteur.getMove());
+    assertEquals(STANDART_STARTING_FEN, toFEN(lecteur.getBoard()));
+    assertEquals(PGNReader.Event.MOVE, lecteur.next());
+    assertEquals(Move.idOf(Piece.BLACK_PAWN, 52, 36, null), lecteur.getMove());
+    assertEquals(1, lecteur.getBoard().getPly());
+    lecteur.skipGame();
+    assertEquals("1-0", lecteur.getResult());
+    assertEquals(1, lecteur.getGameCount());
+
+    // Promotion depuis une position particulière.
+    lecteur.next();
+    lecteur.next();
+    lecteur.next();
+    assertEquals(PGNReader.Event.MOVE, lecteur.next());
+    assertEquals(Move.idOf(Piece.WHITE_PAWN, 48, 56, null), lecteur.getMove());
+    lecteur.next();
+    assertEquals(PGNReader.Event.END_OF_GAME, lecteur.next());
+    assertEquals(Piece.WHITE_QUEEN, lecteur.getBoard().getPieceAt(Square.valueOf("a8")));
+    lecteur.skipGame();
+    lecteur.skipGame();
+    assertNull(lecteur.next());
+    assertEquals(4, lecteur.getGameCount());
+  }
+
+  /**
+   * Vérifie le signalement des mouvements invalides.
+   */
+  @Test
+  public void testInvalid()
+  {
+    // Mouvements illégaux, ambigu (deux cavaliers pour e4), invalide, tag non terminé.
+    final String [] erreurs =
+        { "1. e5 *", "1. Nd2 *", "1. Nf3 a6 2. Ng5 a5 3. Nc3 a4 4. Ne4 *", "1. x4 *",
+            "[Event \"?\" 1. e4 *", };
+    for (final String pgn : erreurs)
+    {
+      try
+      {
+        readAll(pgn);
+        fail(pgn);
+      }
+      catch (final PGNException e)
+      {
+        // Attendu.
+      }
+    }
+  }
+}
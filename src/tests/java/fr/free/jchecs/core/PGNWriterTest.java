@@ -0,0 +1,143 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * Tests unitaires de l'écrivain de flux PGN.
+ * 
+ * @author David Cotton
+ */
+public final class PGNWriterTest
+{
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public PGNWriterTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Vérifie la notation des mouvements : levée des ambiguités, roques, promotions, échecs et mats.
+   * 
+   * @throws Exception En cas d'erreur d'écriture ou dans les positions de test.
+   */
+  @Test
+  public void testNotation() throws Exception
+  {
+    final StringWriter sortie = new StringWriter();
+    final PGNWriter ecrivain = new PGNWriter(sortie);
+    ecrivain.writeTag("Event", "Test");
+    ecrivain.writeStartingPosition("r3k3/1P6/8/R7/8/8/8/R3K2R b KQq - 0 1");
+    ecrivain.writeMove(Move.idOf(Piece.BLACK_KING, 60, 59, null));
+    ecrivain.writeMove(Move.idOf(Piece.WHITE_ROOK, 0, 16, null));
+    ecrivain.writeMove(Move.idOf(Piece.BLACK_KING, 59, 60, null));
+    ecrivain.writeMove(Move.idOf(Piece.WHITE_KING, 4, 6, null));
+    ecrivain.writeMove(Move.idOf(Piece.BLACK_KING, 60, 59, null));
+    ecrivain.writeMove(Move.idOf(Piece.WHITE_PAWN, 49, 56, Piece.BLACK_ROOK));
+    ecrivain.endGame("*");
+    assertEquals("[Event \"Test\"]\n[SetUp \"1\"]\n"
+        + "[FEN \"r3k3/1P6/8/R7/8/8/8/R3K2R b KQq - 0 1\"]\n\n"
+        + "1... Kd8 2. R1a3 Ke8 3. O-O Kd8 4. bxa8=Q+ *\n\n", sortie.toString());
+
+    try
+    {
+      ecrivain.writeMove(Move.idOf(Piece.WHITE_PAWN, 12, 36, null));
+      fail();
+    }
+    catch (final IllegalArgumentException e)
+    {
+      // Attendu.
+    }
+  }
+
+  /**
+   * Vérifie la relecture des parties écrites.
+   * 
+   * @throws Exception En cas d'erreur de lecture ou d'écriture.
+   */
+  @Test
+  public void testRoundTrip() throws Exception
+  {
+    final StringWriter sortie = new StringWriter();
+    final PGNWriter ecrivain = new PGNWriter(sortie);
+    final PGNReader lecteur = new PGNReader(new StringReader(PGNReaderTest.PGN));
+    PGNReader.Event evt = lecteur.next();
+    while (evt != null)
+    {
+      switch (evt)
+      {
+        case TAG :
+          if ("FEN".contentEquals(lecteur.getTagName()))
+          {
+            ecrivain.writeStartingPosition(lecteur.getTagValue().toString());
+          }
+          else if (!"SetUp".contentEquals(lecteur.getTagName()))
+          {
+            ecrivain.writeTag(lecteur.getTagName().toString(), lecteur.getTagValue().toString());
+          }
+          break;
+        case MOVE :
+          ecrivain.writeMove(lecteur.getMove());
+          break;
+        default :
+          ecrivain.endGame(lecteur.getResult());
+      }
+      evt = lecteur.next();
+    }
+    assertEquals(lecteur.getGameCount(), ecrivain.getGameCount());
+
+    final String pgn = sortie.toString();
+    assertTrue(pgn.contains("[White \"Paul \\\"Morphy\\\"\"]\n"));
+    assertTrue(pgn.contains(" 11. Bxb5+ Nbd7 12. O-O-O Rd8 "));
+    assertTrue(pgn.contains(" 17. Rd8# 1-0\n"));
+    for (final String ligne : pgn.split("\n"))
+    {
+      assertTrue(ligne, ligne.length() <= PGNWriter.LINE_WIDTH);
+    }
+
+    // La relecture du texte écrit redonne les mêmes parties.
+    final PGNReader original = new PGNReader(new StringReader(PGNReaderTest.PGN));
+    final PGNReader relu = new PGNReader(new StringReader(pgn));
+    evt = original.next();
+    while (evt != null)
+    {
+      assertEquals(evt, relu.next());
+      if (evt == PGNReader.Event.MOVE)
+      {
+        assertEquals(original.getMove(), relu.getMove());
+      }
+      else if (evt == PGNReader.Event.END_OF_GAME)
+      {
+        assertEquals(original.getResult(), relu.getResult());
+      }
+      evt = original.next();
+    }
+    assertEquals(null, relu.next());
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ $Id$
+
+ Copyright (C) 2006-2007 by David Cotton
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the Free Software
+ Foundation; either version 2 of the License, or (at your option) any later
+ version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License along with
+ this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.free.jchecs.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import static fr.free.jchecs.core.BoardFactory.Type.FASTEST;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Tests unitaires des générateurs de mouvements par dénombrement de l'arbre de jeu ("perft").
+ * 
+ * @author David Cotton
+ */
+public final class PerftTest
+{
+  /** Nombre maximum de noeuds par position, pour limiter la durée des tests. */
+  private static final long NODES_LIMIT = 50000;
+
+  /**
+   * Pour que JUnit puisse instancier les tests.
+   */
+  public PerftTest()
+  {
+    // Rien de spécifique...
+  }
+
+  /**
+   * Renvoi la plus grande profondeur d'une position de référence dont le nombre de noeuds reste
+   * dans la limite fixée pour les tests.
+   * 
+   * @param pPosition Position de référence.
+   * @return Profondeur de test (>= 1).
+   */
+  private static int depthOf(final Perft.Entry pPosition)
+  {
+    int res = pPosition.getDepth();
+    while ((res > 1) && (pPosition.getNodes(res) > NODES_LIMIT))
+    {
+      res--;
+    }
+
+    return res;
+  }
+
+  /**
+   * Charge la suite de référence.
+   * 
+   * @return Positions de la suite.
+   */
+  private static List<Perft.Entry> suite()
+  {
+    try
+    {
+      final List<Perft.Entry> res = Perft.readSuite();
+      assertFalse(res.isEmpty());
+      return res;
+    }
+    catch (final IOException e)
+    {
+      fail(e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Renvoi une position, dans une représentation donnée.
+   * 
+   * @param pType Type de représentation.
+   * @param pFEN Description FEN de la position.
+   * @return Etat correspondant.
+   */
+  private static MoveGenerator toBoard(final BoardFactory.Type pType, final String pFEN)
+  {
+    try
+    {
+      return BoardFactory.valueOf(pType, BoardFactory.State.EMPTY).derive(FENUtils.toBoard(pFEN));
+    }
+    catch (final FENException e)
+    {
+      fail(e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Teste le détail du dénombrement par mouvement initial.
+   */
+  @Test
+  public void testDivide()
+  {
+    for (final Perft.Entry e : suite())
+    {
+      final MoveGenerator etat = toBoard(FASTEST, e.getFEN());
+      final int profondeur = depthOf(e);
+      final Map<Move, Long> detail = Perft.divide(etat, profondeur);
+      assertEquals(e.getFEN(), e.getNodes(1), detail.size());
+      long total = 0;
+      for (final Map.Entry<Move, Long> d : detail.entrySet())
+      {
+        assertEquals(Perft.perft(etat.derive(d.getKey(), true), profondeur - 1), d.getValue()
+            .longValue());
+        total += d.getValue().longValue();
+      }
+      assertEquals(e.getFEN(), e.getNodes(profondeur), total);
+    }
+  }
+
+  /**
+   * Teste la lecture des lignes EPD.
+   */
+  @Test
+  public void testEntry()
+  {
+    try
+    {
+      final Perft.Entry e = Perft.Entry.valueOf("8/8/8/8/8/8/8/K1k5 w - - 0 1 ;D1 3 ;D2 15");
+      assertEquals("8/8/8/8/8/8/8/K1k5 w - - 0 1", e.getFEN());
+      assertEquals(2, e.getDepth());
+      assertEquals(3, e.getNodes(1));
+      assertEquals(15, e.getNodes(2));
+      assertEquals("8/8/8/8/8/8/8/K1k5 w - - 0 1 ;D1 3 ;D2 15", e.toString());
+    }
+    catch (final IOException e)
+    {
+      fail(e.toString());
+    }
+
+    for (final String ligne : new String [] { "8/8/8/8/8/8/8/K1k5 w - - 0 1",
+        "8/8/8/8/8/8/8/K1k5 w - - 0 1 ;D2 15", "8/8/8/8/8/8/8/K1k5 w - - 0 1 ;D1 x", })
+    {
+      try
+      {
+        Perft.Entry.valueOf(ligne);
+        fail(ligne);
+      }
+      catch (final IOException e)
+      {
+        // Erreur attendue...
+      }
+    }
+  }
+
+  /**
+   * Teste le dénombrement parallèle.
+   */
+  @Test
+  public void testParallel()
+  {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try
+    {
+      for (final Perft.Entry e : suite())
+      {
+        final int profondeur = depthOf(e);
+        assertEquals(e.getFEN(), e.getNodes(profondeur), Perft.perft(toBoard(FASTEST, e.getFEN()),
+            profondeur, pool));
+      }
+    }
+    finally
+    {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Teste le dénombrement par application / annulation des mouvements.
+   */
+  @Test
+  public void testReversible()
+  {
+    for (final Perft.Entry e : suite())
+    {
+      final Board depart = toBoard(FASTEST, e.getFEN());
+      final int profondeur = depthOf(e);
+      for (final ReversibleMoveGenerator etat : new ReversibleMoveGenerator [] {
+          new ReversibleX88Board(depart), new ReversibleBitboardBoard(depart), })
+      {
+        final String nom = etat.getClass().getSimpleName() + ' ' + e.getFEN();
+        final long cle = etat.zobristKey();
+        assertEquals(nom, e.getNodes(profondeur), Perft.perft(etat, profondeur));
+        assertEquals(nom, cle, etat.zobristKey());
+        assertEquals(nom, 0, etat.getPly());
+      }
+    }
+  }
+
+  /**
+   * Teste chaque générateur de mouvements sur la suite de référence.
+   */
+  @Test
+  public void testSuite()
+  {
+    final List<Perft.Entry> suite = suite();
+    for (final BoardFactory.Type t : BoardFactory.Type.values())
+    {
+      if (t == FASTEST)
+      {
+        continue;
+      }
+      for (final Perft.Entry e : suite)
+      {
+        final MoveGenerator etat = toBoard(t, e.getFEN());
+        final String nom = etat.getClass().getSimpleName() + ' ' + e.getFEN();
+        for (int p = 1; p <= depthOf(e); p++)
+        {
+          assertEquals(nom + " ;D" + p, e.getNodes(p), Perft.perft(etat, p));
+        }
+      }
+    }
+  }
+}